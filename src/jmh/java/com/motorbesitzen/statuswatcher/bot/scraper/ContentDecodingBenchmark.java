@@ -0,0 +1,118 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures the client side of a changed JSON response in each content encoding: decoding the body while it gets
+ * read, counting and hashing it like the API request does and extracting the product statuses. The size of the
+ * encoded body gets printed once per encoding, so the bytes saved on the wire can be weighed against the time spent
+ * decoding. Run with {@code gradlew jmh -PjmhArgs="ContentDecodingBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ContentDecodingBenchmark {
+
+	private static final long MAX_PAYLOAD_BYTES = 32L * 1024 * 1024;
+
+	@Param({"100000"})
+	private int productCount;
+
+	@Param({"identity", "gzip", "deflate"})
+	private String encoding;
+
+	private ProductStatusExtractor extractor;
+	private byte[] body;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, NoSuchMethodException {
+		final EnvSettings envSettings = BeanUtils.instantiateClass(
+				EnvSettings.class.getDeclaredConstructor(Environment.class), new StandardEnvironment()
+		);
+		extractor = BeanUtils.instantiateClass(
+				ProductStatusExtractor.class.getDeclaredConstructor(ObjectMapper.class, EnvSettings.class),
+				new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES), envSettings
+		);
+		final byte[] payload = JsonExtractionBenchmark.createPayload(productCount);
+		body = encode(payload);
+		System.out.println(encoding + ": " + body.length + " of " + payload.length + " bytes on the wire");
+		if (read().size() != productCount) {
+			throw new IllegalStateException("Did not extract every product of the payload");
+		}
+	}
+
+	/**
+	 * Decodes, counts and hashes the body and extracts the product statuses of it.
+	 */
+	@Benchmark
+	public List<ProductStatus> read() throws IOException {
+		final byte[] payload;
+		try (LimitedInputStream encoded = new LimitedInputStream(new ByteArrayInputStream(body), MAX_PAYLOAD_BYTES);
+			 LimitedInputStream decoded = new LimitedInputStream(ContentDecoding.decode(encoding, encoded),
+					 MAX_PAYLOAD_BYTES);
+			 HashingInputStream content = new HashingInputStream(decoded)) {
+			payload = content.readAllBytes();
+			content.getDigest();
+		}
+
+		return extractor.extract("benchmark", payload);
+	}
+
+	/**
+	 * @param payload The JSON response.
+	 * @return The response in the content encoding of the benchmark, compressed with the default level.
+	 */
+	private byte[] encode(final byte[] payload) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length);
+		try (OutputStream encoder = createEncoder(out)) {
+			encoder.write(payload);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param out The stream of the encoded body.
+	 * @return A stream that encodes the body in the content encoding of the benchmark.
+	 */
+	private OutputStream createEncoder(final OutputStream out) throws IOException {
+		switch (encoding) {
+			case "gzip":
+				return new GZIPOutputStream(out);
+			case "deflate":
+				return new DeflaterOutputStream(out);
+			default:
+				return out;
+		}
+	}
+}
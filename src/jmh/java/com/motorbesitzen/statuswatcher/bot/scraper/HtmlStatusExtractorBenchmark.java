@@ -0,0 +1,96 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.data.StatusHtml;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many status pages per second the HTML extractor reads. The generated page has a head with a script
+ * and a style, a navigation, comments, entities and a table with a row per product of which every third one leaves
+ * its cells and itself to be closed implicitly. Run with {@code -prof gc} to see the allocations per page, e.g.
+ * {@code gradlew jmh -PjmhArgs="HtmlStatusExtractorBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HtmlStatusExtractorBenchmark {
+
+	private static final String[] STATUSES = {"in_stock", "sold_out", "preorder", "unknown"};
+
+	@Param({"1000", "10000", "100000"})
+	private int productCount;
+
+	private HtmlStatusExtractor extractor;
+	private StatusHtml html;
+	private byte[] page;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		extractor = new HtmlStatusExtractor();
+		html = new StatusHtml("table#products tr", "td.name", "td.status");
+		page = createPage().getBytes(StandardCharsets.UTF_8);
+		final int extracted = extract().size();
+		if (extracted != productCount) {
+			throw new IllegalStateException("Extracted " + extracted + " of " + productCount + " products");
+		}
+	}
+
+	/**
+	 * Reads the whole page and extracts the status of every product.
+	 */
+	@Benchmark
+	public List<ProductStatus> extract() throws IOException {
+		return extractor.extract(html, new ByteArrayInputStream(page), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return A status page with a row per product and the usual markup around it.
+	 */
+	private String createPage() {
+		final StringBuilder builder = new StringBuilder(productCount * 200 + 1024);
+		builder.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n")
+				.append("<title>Product status</title>\n")
+				.append("<script>if (a < b && c > d) { document.write(\"<tr><td class='name'>x</td></tr>\"); }</script>\n")
+				.append("<style>td.status { color: green; }</style>\n</head>\n<body>\n")
+				.append("<nav><ul><li><a href=\"/\">Home</a><li><a href=\"/shop\">Shop</a><li>About</ul></nav>\n")
+				.append("<table id=\"products\" class=\"list striped\">\n")
+				.append("<thead><tr><th>Name</th><th>Status</th><th>Price</th></tr></thead>\n<tbody>\n");
+		for (int i = 0; i < productCount; i++) {
+			builder.append("<!-- product ").append(i).append(" -->\n")
+					.append("<tr class=\"product\" data-id=\"").append(i).append("\">")
+					.append("<td class=\"name\"><a href=\"/products/").append(i).append("\">Product ").append(i)
+					.append(" &amp; Co.</a></td>")
+					.append("<td class=\"status\"><span class=\"badge\">")
+					.append(STATUSES[i % STATUSES.length]).append("</span>");
+			if (i % 3 == 0) {
+				builder.append("<td class=\"price\">").append(19 + i % 80).append(".99\n");
+			} else {
+				builder.append("</td><td class=\"price\">").append(19 + i % 80).append(".99</td></tr>\n");
+			}
+		}
+
+		builder.append("</tbody>\n</table>\n<footer><p>&copy; Shop<br>All prices incl. VAT</footer>\n")
+				.append("</body>\n</html>\n");
+		return builder.toString();
+	}
+}
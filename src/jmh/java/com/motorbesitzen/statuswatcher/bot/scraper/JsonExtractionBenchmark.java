@@ -0,0 +1,145 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming extraction of the product statuses of a JSON response to the way responses got read before
+ * it: the first line of the body as text, a tree of the whole document and an attempt to map every object of the
+ * tree to a product status. Run with {@code gradlew jmh -PjmhArgs="JsonExtractionBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JsonExtractionBenchmark {
+
+	private static final String[] STATUSES = {"in_stock", "sold_out", "preorder", "unknown"};
+
+	@Param({"100000"})
+	private int productCount;
+
+	private ObjectMapper objectMapper;
+	private ProductStatusExtractor extractor;
+	private byte[] payload;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, NoSuchMethodException {
+		objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		final EnvSettings envSettings = BeanUtils.instantiateClass(
+				EnvSettings.class.getDeclaredConstructor(Environment.class), new StandardEnvironment()
+		);
+		extractor = BeanUtils.instantiateClass(
+				ProductStatusExtractor.class.getDeclaredConstructor(ObjectMapper.class, EnvSettings.class),
+				objectMapper, envSettings
+		);
+		payload = createPayload(productCount);
+		if (extract().size() != productCount || treeExtract().size() != productCount) {
+			throw new IllegalStateException("Did not extract every product of the payload");
+		}
+	}
+
+	/**
+	 * Extracts the product statuses while the tokens of the document get read.
+	 */
+	@Benchmark
+	public List<ProductStatus> extract() throws IOException {
+		return extractor.extract("benchmark", payload);
+	}
+
+	/**
+	 * Reads the first line of the document, builds its tree and maps every object that is not a product status
+	 * after a failed attempt to map it.
+	 */
+	@Benchmark
+	public List<ProductStatus> treeExtract() throws IOException {
+		final String json;
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8))) {
+			json = reader.readLine();
+		}
+
+		return processJsonNode(objectMapper.readTree(json), new ArrayList<>());
+	}
+
+	/**
+	 * Recursively traverses the tree to find every object that can be mapped to a product status.
+	 * @param node The current node.
+	 * @param statusList The product statuses found so far.
+	 * @return The product statuses.
+	 */
+	private List<ProductStatus> processJsonNode(final JsonNode node, final List<ProductStatus> statusList) {
+		if (node.isArray()) {
+			for (JsonNode arrayContent : node) {
+				processJsonNode(arrayContent, statusList);
+			}
+		} else if (node.isObject()) {
+			try {
+				statusList.add(objectMapper.treeToValue(node, ProductStatus.class));
+			} catch (JsonProcessingException e) {
+				for (JsonNode objectContent : node) {
+					processJsonNode(objectContent, statusList);
+				}
+			}
+		}
+
+		return statusList;
+	}
+
+	/**
+	 * @param productCount The amount of products.
+	 * @return A single line JSON response of about 120 bytes per product with the products nested in an object
+	 * next to other values, like a typical shop API.
+	 */
+	static byte[] createPayload(final int productCount) {
+		final StringBuilder builder = new StringBuilder(productCount * 128 + 256);
+		builder.append("{\"shop\":\"Example shop\",\"generated\":\"2021-09-01T12:00:00Z\",")
+				.append("\"meta\":{\"page\":1,\"pages\":1,\"currency\":\"EUR\"},\"data\":{\"products\":[");
+		for (int i = 0; i < productCount; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+
+			builder.append("{\"id\":").append(i)
+					.append(",\"productName\":\"Product ").append(i)
+					.append("\",\"productStatus\":\"").append(STATUSES[i % STATUSES.length])
+					.append("\",\"price\":").append(19 + i % 80).append(".99")
+					.append(",\"stock\":").append(i % 50)
+					.append(",\"sku\":\"SKU-").append(100000 + i)
+					.append("\",\"tags\":[\"new\",\"sale\"]}");
+		}
+
+		builder.append("]}}");
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
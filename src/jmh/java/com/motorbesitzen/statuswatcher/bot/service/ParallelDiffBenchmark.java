@@ -0,0 +1,91 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeps the comparison of two snapshots over the amount of products and the amount of threads of the pool, to
+ * find the amount of products from which on {@code PRODUCT_STATUS_PARALLEL_DIFF_THRESHOLD} pays off on a machine.
+ * A single thread is the sequential comparison the bot uses without a threshold. The threshold only decides which
+ * of the two comparisons a snapshot gets, so the smallest amount of products at which more threads are faster is
+ * the threshold to set. Other thresholds can be checked with {@code -p parallelThreshold=<products>}, a snapshot
+ * below the threshold gets compared sequentially. Run with
+ * {@code gradlew jmh -PjmhArgs="ParallelDiffBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelDiffBenchmark {
+
+	@Param({"10000", "30000", "100000", "300000", "1000000"})
+	private int productCount;
+
+	@Param({"1", "2", "4", "8"})
+	private int threads;
+
+	@Param({"10000"})
+	private int parallelThreshold;
+
+	private StatusSnapshot oldSnapshot;
+	private StatusSnapshot newSnapshot;
+	private ForkJoinPool pool;
+
+	@Setup(Level.Trial)
+	public void setUp() throws NoSuchMethodException {
+		final StatusConfig statusConfig = BeanUtils.instantiateClass(
+				StatusConfig.class.getDeclaredConstructor(ObjectMapper.class), new ObjectMapper()
+		);
+		final EnvSettings envSettings = BeanUtils.instantiateClass(
+				EnvSettings.class.getDeclaredConstructor(Environment.class), new StandardEnvironment()
+		);
+		final StatusDictionary dictionary = BeanUtils.instantiateClass(
+				StatusDictionary.class.getDeclaredConstructor(StatusConfig.class), statusConfig
+		);
+		final AttributeRules rules = BeanUtils.instantiateClass(
+				AttributeRules.class.getDeclaredConstructor(EnvSettings.class, StatusConfig.class),
+				envSettings, statusConfig
+		);
+		oldSnapshot = StatusSnapshot.of(StatusSnapshotBenchmark.createStatusList(productCount, false), dictionary,
+				rules, null);
+		newSnapshot = StatusSnapshot.of(StatusSnapshotBenchmark.createStatusList(productCount, true), dictionary,
+				rules, oldSnapshot);
+		pool = threads > 1 ? new ForkJoinPool(threads) : null;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Finds the added, removed and changed products like the status checker does with the threshold.
+	 */
+	@Benchmark
+	public List<StatusChange> diff() {
+		return oldSnapshot.diff(newSnapshot, pool != null ? parallelThreshold : -1, pool);
+	}
+}
@@ -0,0 +1,135 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to turn a status list into a snapshot and to find the status events between two
+ * snapshots of the same source. The newer status list misses 1% of the products, has 1% new products and 5% of the
+ * products with another status. Run with {@code gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class StatusSnapshotBenchmark {
+
+	private static final String[] STATUSES = {"in_stock", "sold_out", "preorder", "unknown"};
+	private static final int PARALLEL_THRESHOLD = 10000;
+
+	@Param({"10000", "100000", "1000000"})
+	private int productCount;
+
+	private StatusDictionary dictionary;
+	private AttributeRules rules;
+	private List<ProductStatus> newStatusList;
+	private StatusSnapshot oldSnapshot;
+	private StatusSnapshot newSnapshot;
+	private ForkJoinPool pool;
+
+	@Setup(Level.Trial)
+	public void setUp() throws NoSuchMethodException {
+		final StatusConfig statusConfig = BeanUtils.instantiateClass(
+				StatusConfig.class.getDeclaredConstructor(ObjectMapper.class), new ObjectMapper()
+		);
+		final EnvSettings envSettings = BeanUtils.instantiateClass(
+				EnvSettings.class.getDeclaredConstructor(Environment.class), new StandardEnvironment()
+		);
+		dictionary = BeanUtils.instantiateClass(
+				StatusDictionary.class.getDeclaredConstructor(StatusConfig.class), statusConfig
+		);
+		rules = BeanUtils.instantiateClass(
+				AttributeRules.class.getDeclaredConstructor(EnvSettings.class, StatusConfig.class),
+				envSettings, statusConfig
+		);
+		newStatusList = createStatusList(productCount, true);
+		oldSnapshot = StatusSnapshot.of(createStatusList(productCount, false), dictionary, rules, null);
+		newSnapshot = StatusSnapshot.of(newStatusList, dictionary, rules, oldSnapshot);
+		pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Resolves the alias of every product of a status list and reuses the product names of the last snapshot.
+	 */
+	@Benchmark
+	public StatusSnapshot ingest() {
+		return StatusSnapshot.of(newStatusList, dictionary, rules, oldSnapshot);
+	}
+
+	/**
+	 * Finds the added, removed and changed products on a single thread.
+	 */
+	@Benchmark
+	public List<StatusChange> diff() {
+		return oldSnapshot.diff(newSnapshot, -1, null);
+	}
+
+	/**
+	 * Finds the added, removed and changed products in ranges on a pool with a thread per processor, to check if
+	 * {@code PRODUCT_STATUS_PARALLEL_DIFF_THRESHOLD} pays off on a machine.
+	 */
+	@Benchmark
+	public List<StatusChange> parallelDiff() {
+		return oldSnapshot.diff(newSnapshot, PARALLEL_THRESHOLD, pool);
+	}
+
+	/**
+	 * @param productCount The amount of products of the older status list.
+	 * @param newer {@code true} for the newer status list with the removed, added and changed products.
+	 * @return A status list with random product names, the same names for both lists.
+	 */
+	static List<ProductStatus> createStatusList(final int productCount, final boolean newer) {
+		final Random random = new Random(1);
+		final List<ProductStatus> statusList = new ArrayList<>(productCount + productCount / 100);
+		for (int i = 0; i < productCount; i++) {
+			final String productName = "Product " + Long.toHexString(random.nextLong());
+			int status = random.nextInt(STATUSES.length);
+			if (newer && i % 100 == 0) {
+				continue;
+			}
+
+			if (newer && i % 20 == 1) {
+				status = (status + 1) % STATUSES.length;
+			}
+
+			statusList.add(new ProductStatus(productName, STATUSES[status]));
+		}
+
+		if (newer) {
+			for (int i = 0; i < productCount / 100; i++) {
+				statusList.add(new ProductStatus("New product " + i, STATUSES[0]));
+			}
+		}
+
+		return statusList;
+	}
+}
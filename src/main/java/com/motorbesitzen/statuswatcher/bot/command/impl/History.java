@@ -0,0 +1,133 @@
+package com.motorbesitzen.statuswatcher.bot.command.impl;
+
+import com.motorbesitzen.statuswatcher.bot.command.CommandImpl;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.bot.service.StatusHistory;
+import com.motorbesitzen.statuswatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.statuswatcher.data.repo.DiscordGuildRepo;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows how often the status of a product changed recently and what the latest changes were. Only shows the changes
+ * of the product status API the guild uses.
+ */
+@Service("history")
+class History extends CommandImpl {
+
+	private static final int MAX_CHANGES = 10;
+	private static final int RECENT_DAYS = 7;
+	private final DiscordGuildRepo guildRepo;
+	private final StatusHistory history;
+	private final EnvSettings envSettings;
+
+	@Autowired
+	private History(final DiscordGuildRepo guildRepo, final StatusHistory history, final EnvSettings envSettings) {
+		this.guildRepo = guildRepo;
+		this.history = history;
+		this.envSettings = envSettings;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		return "history";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getUsage() {
+		return getName() + " <product>";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getDescription() {
+		return "Shows how often the status of a product changed and its latest status changes.";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final GuildMessageReceivedEvent event) {
+		final TextChannel channel = event.getChannel();
+		final String[] tokens = event.getMessage().getContentRaw().trim().split("\\s+", 2);
+		if (tokens.length < 2) {
+			sendErrorMessage(channel, "Please name a product!");
+			return;
+		}
+
+		final String productName = history.findProductName(tokens[1].trim());
+		if (productName == null) {
+			sendErrorMessage(channel, "There are no status changes of that product in the history!");
+			return;
+		}
+
+		final String apiUrl = guildRepo.findById(event.getGuild().getIdLong())
+				.filter(DiscordGuild::hasStatusApiUrl)
+				.map(DiscordGuild::getStatusApiUrl)
+				.orElse(null);
+		final List<StatusHistory.Entry> entries = history.getChanges(productName, apiUrl, MAX_CHANGES);
+		if (entries.isEmpty()) {
+			sendErrorMessage(channel, "There are no status changes of that product in the history!");
+			return;
+		}
+
+		answer(channel, buildEmbed(productName, apiUrl, entries));
+	}
+
+	/**
+	 * Creates the embedded message for the history of a product.
+	 * @param productName The name of the product.
+	 * @param apiUrl The product status API of the guild or {@code null} if the guild uses the shared sources.
+	 * @param entries The latest changes of the product, newest first.
+	 * @return the embedded message for the history of the product.
+	 */
+	private MessageEmbed buildEmbed(final String productName, final String apiUrl,
+									final List<StatusHistory.Entry> entries) {
+		final long now = System.currentTimeMillis();
+		final int retentionDays = envSettings.getHistoryRetentionDays();
+		final int recentDays = Math.min(RECENT_DAYS, retentionDays);
+		final int recentChanges = history.countChanges(productName, apiUrl, now - TimeUnit.DAYS.toMillis(recentDays));
+		final int allChanges = history.countChanges(productName, apiUrl, 0);
+		return new EmbedBuilder()
+				.setTitle("Status history of " + productName + ":")
+				.setColor(getEmbedColor())
+				.addField("Last " + recentDays + " day(s):", recentChanges + " change(s)", true)
+				.addField("Last " + retentionDays + " day(s):", allChanges + " change(s)", true)
+				.addField("Latest changes:", buildChangeListText(entries), false)
+				.build();
+	}
+
+	/**
+	 * Lists the changes with the time they got found at. Discord shows the time in the time zone of each user.
+	 * @param entries The changes, newest first.
+	 * @return the changes as text.
+	 */
+	private String buildChangeListText(final List<StatusHistory.Entry> entries) {
+		final StringBuilder sb = new StringBuilder();
+		for (StatusHistory.Entry entry : entries) {
+			final String oldStatus = entry.getOldStatus() != null ? entry.getOldStatus() : "*new*";
+			final String newStatus = entry.getNewStatus() != null ? entry.getNewStatus() : "*removed*";
+			sb.append("<t:").append(TimeUnit.MILLISECONDS.toSeconds(entry.getTime())).append(":f> ")
+					.append(oldStatus).append(" → ").append(newStatus).append("\n");
+		}
+
+		sb.setLength(sb.length() - 1);
+		return sb.toString();
+	}
+}
@@ -85,6 +85,7 @@ class Info extends CommandImpl {
 				.setColor(getEmbedColor())
 				.addField("Channel:", "<#" + dcGuild.getStatusChannelId() + ">", true)
 				.addField("Role:", "<@&" + dcGuild.getRoleId() + ">", true)
+				.addField("API:", dcGuild.hasStatusApiUrl() ? dcGuild.getStatusApiUrl() : "Default", false)
 				.setFooter(
 						"Interval: " + envSettings.getProductStatusRequestInterval() + " seconds"
 				).build();
@@ -0,0 +1,163 @@
+package com.motorbesitzen.statuswatcher.bot.command.impl;
+
+import com.motorbesitzen.statuswatcher.bot.command.CommandImpl;
+import com.motorbesitzen.statuswatcher.bot.service.PollDecision;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Displays some statistics about the requests to the product status API.
+ */
+@Service("stats")
+class Stats extends CommandImpl {
+
+	private final StatusMetrics metrics;
+
+	@Autowired
+	private Stats(final StatusMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		return "stats";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getUsage() {
+		return getName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getDescription() {
+		return "Shows statistics about the requests to the product status API.";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final GuildMessageReceivedEvent event) {
+		answer(event.getChannel(), buildEmbed());
+	}
+
+	/**
+	 * Creates the embedded message for the statistics.
+	 * @return the embedded message for the statistics.
+	 */
+	private MessageEmbed buildEmbed() {
+		return new EmbedBuilder()
+				.setTitle("Product status API statistics:")
+				.setColor(getEmbedColor())
+				.addField("Not modified:", String.valueOf(metrics.getNotModifiedResponses()), true)
+				.addField("Modified:", String.valueOf(metrics.getModifiedResponses()), true)
+				.addField("Unchanged payloads:", metrics.getUnchangedPayloads() + " (" +
+						String.format("%.1f", metrics.getPayloadSkipRate()) + "% skipped)", true)
+				.addField("Changed payloads:", String.valueOf(metrics.getChangedPayloads()), true)
+				.addField("Transferred:", toMebibytes(metrics.getTransferredBytes()) + " MiB (" +
+						toMebibytes(metrics.getDecodedBytes()) + " MiB decompressed)", false)
+				.addField("Requested pages:", String.valueOf(metrics.getRequestedPages()), true)
+				.addField("Delta requests:", metrics.getDeltaResponses() + " (" + metrics.getResyncResponses() +
+						" resyncs)", true)
+				.addField("Retries:", metrics.getRetries() + " (" + metrics.getExhaustedRetryBudgets() +
+						" over budget)", true)
+				.addField("Circuit breaker rejections:", String.valueOf(metrics.getCircuitRejections()), true)
+				.addField("Hedged requests:", metrics.getHedgedRequests() + " (" + metrics.getHedgeWins() +
+						" faster)", true)
+				.addField("Status events:", String.valueOf(metrics.getPushEvents()), true)
+				.addField("Webhook requests:", metrics.getWebhookRequests() + " (" + metrics.getWebhookStatuses() +
+						" statuses)", true)
+				.addField("Held changes:", metrics.getHeldChanges() + " (" + metrics.getCancelledChanges() +
+						" reverted)", true)
+				.addField("Scheduler decisions:", buildDecisionText(), false)
+				.addField("Next checks:", buildScheduleText(), false)
+				.build();
+	}
+
+	/**
+	 * Lists how often the scheduler made each decision.
+	 * @return the decisions of the scheduler as text.
+	 */
+	private String buildDecisionText() {
+		final StringBuilder sb = new StringBuilder();
+		for (PollDecision decision : PollDecision.values()) {
+			sb.append(decision).append(": ").append(metrics.getPollDecisions(decision)).append("\n");
+		}
+
+		sb.setLength(sb.length() - 1);
+		return sb.toString();
+	}
+
+	/**
+	 * Lists the time until the next check and the learned period of each product status API. Only shows the host
+	 * of an API as its URL might contain authorization parameters.
+	 * @return the schedule of the product status APIs as text.
+	 */
+	private String buildScheduleText() {
+		final Map<String, Long> periods = metrics.getPollPeriods();
+		final StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Long> entry : metrics.getPollDelays().entrySet()) {
+			final long periodMs = periods.getOrDefault(entry.getKey(), 0L);
+			sb.append(getHost(entry.getKey())).append(": in ").append(toSeconds(entry.getValue())).append("s");
+			if (periodMs > 0) {
+				sb.append(" (changes every ").append(toSeconds(periodMs)).append("s)");
+			}
+			sb.append("\n");
+		}
+
+		if (sb.length() == 0) {
+			return "No checks yet.";
+		}
+
+		sb.setLength(sb.length() - 1);
+		return sb.toString();
+	}
+
+	/**
+	 * Extracts the host of a URL.
+	 * @param url The URL.
+	 * @return The host of the URL or "unknown" if the URL is invalid.
+	 */
+	private String getHost(final String url) {
+		try {
+			final String host = URI.create(url).getHost();
+			return host != null ? host : "unknown";
+		} catch (IllegalArgumentException e) {
+			return "unknown";
+		}
+	}
+
+	/**
+	 * Formats an amount of milliseconds as seconds.
+	 * @param ms The amount of milliseconds.
+	 * @return The amount in whole seconds.
+	 */
+	private long toSeconds(final long ms) {
+		return ms / 1000;
+	}
+
+	/**
+	 * Formats an amount of bytes as mebibytes.
+	 * @param bytes The amount of bytes.
+	 * @return The amount in mebibytes with one decimal place.
+	 */
+	private String toMebibytes(final long bytes) {
+		return String.format("%.1f", bytes / 1048576.0);
+	}
+}
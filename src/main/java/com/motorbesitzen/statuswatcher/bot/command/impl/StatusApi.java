@@ -0,0 +1,151 @@
+package com.motorbesitzen.statuswatcher.bot.command.impl;
+
+import com.motorbesitzen.statuswatcher.bot.command.CommandImpl;
+import com.motorbesitzen.statuswatcher.bot.scraper.CachingDnsResolver;
+import com.motorbesitzen.statuswatcher.bot.service.StatusSubscriptions;
+import com.motorbesitzen.statuswatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.statuswatcher.data.repo.DiscordGuildRepo;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Sets the product status API of a guild, so the guild gets the status changes of its own API instead of the
+ * shared ones.
+ */
+@Service("statusapi")
+class StatusApi extends CommandImpl {
+
+	private final DiscordGuildRepo guildRepo;
+	private final StatusSubscriptions subscriptions;
+
+	@Autowired
+	private StatusApi(final DiscordGuildRepo guildRepo, final StatusSubscriptions subscriptions) {
+		this.guildRepo = guildRepo;
+		this.subscriptions = subscriptions;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName() {
+		return "statusapi";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getUsage() {
+		return getName() + " [url]";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getDescription() {
+		return "Update the product status API of this server. Without a URL the default API gets used.";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final GuildMessageReceivedEvent event) {
+		final Guild guild = event.getGuild();
+		final long guildId = guild.getIdLong();
+		final Optional<DiscordGuild> dcGuildOpt = guildRepo.findById(guildId);
+		final DiscordGuild dcGuild = dcGuildOpt.orElseGet(() -> createDiscordGuild((guildId)));
+		handleMessage(event, dcGuild);
+	}
+
+	/**
+	 * Creates a Discord guild representation and saves it in the database
+	 * @param guildId The ID of the Discord guild.
+	 * @return The created Discord guild.
+	 */
+	private DiscordGuild createDiscordGuild(final long guildId) {
+		final DiscordGuild dcGuild = DiscordGuild.createDefault(guildId);
+		guildRepo.save(dcGuild);
+		return dcGuild;
+	}
+
+	/**
+	 * Updates the product status API of the guild or resets it if the message does not contain a URL.
+	 * @param event The Discord event with all its information when a message is received.
+	 * @param dcGuild The Discord guild as saved in the database.
+	 */
+	private void handleMessage(final GuildMessageReceivedEvent event, final DiscordGuild dcGuild) {
+		final String[] tokens = event.getMessage().getContentRaw().trim().split("\\s+");
+		if (tokens.length < 2) {
+			dcGuild.setStatusApiUrl(null);
+			guildRepo.save(dcGuild);
+			subscriptions.setUrl(dcGuild.getId(), null);
+			answer(event.getChannel(), "Using the default product status API again.");
+			return;
+		}
+
+		final String url = tokens[1];
+		if (!isValidUrl(url)) {
+			sendErrorMessage(event.getChannel(), "That is not a valid HTTP(S) URL!");
+			return;
+		}
+
+		if (!isPublicHost(URI.create(url).getHost())) {
+			sendErrorMessage(event.getChannel(), "The host of that URL is unknown or not public!");
+			return;
+		}
+
+		dcGuild.setStatusApiUrl(url);
+		guildRepo.save(dcGuild);
+		subscriptions.setUrl(dcGuild.getId(), url);
+		answer(event.getChannel(), "Updated product status API.");
+	}
+
+	/**
+	 * Checks if a text is an absolute HTTP or HTTPS URL.
+	 * @param url The text to check.
+	 * @return {@code true} if the text is a valid URL, {@code false} if not.
+	 */
+	private boolean isValidUrl(final String url) {
+		try {
+			final URI uri = new URI(url);
+			final String scheme = uri.getScheme();
+			return scheme != null && uri.getHost() != null &&
+					(scheme.toLowerCase(Locale.ROOT).equals("http") || scheme.toLowerCase(Locale.ROOT).equals("https"));
+		} catch (URISyntaxException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Checks if a host only resolves to public addresses, so a guild can not make the bot request the bot itself or
+	 * other hosts of its network, e.g. the webhook or the metadata service of a cloud provider. The resolver of the
+	 * HTTP client checks the addresses again on each request in case the host resolves to other addresses later on.
+	 * @param host The host of the URL.
+	 * @return {@code true} if the host is known and all of its addresses are public, {@code false} if not.
+	 */
+	private boolean isPublicHost(final String host) {
+		try {
+			for (InetAddress address : InetAddress.getAllByName(host)) {
+				if (!CachingDnsResolver.isPublicAddress(address)) {
+					return false;
+				}
+			}
+
+			return true;
+		} catch (UnknownHostException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A DNS resolver that caches the resolved addresses of a host for a fixed time. As the bot requests the same
+ * host(s) over and over again there is no need to resolve the host name on each new connection. Guilds can set the
+ * URL of their own product status API, so only the hosts of the config file may resolve to loopback, private or
+ * link-local addresses. Any other host gets checked each time it gets resolved, so a host that resolved to a public
+ * address when a guild set it can not be switched to an internal address later on.
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+	private final DnsResolver delegate;
+	private final long ttlMs;
+	private final Set<String> trustedHosts;
+	private final Map<String, CachedAddresses> cache;
+
+	/**
+	 * Creates a caching resolver that uses the system resolver to resolve uncached host names.
+	 * @param ttlMs The time in milliseconds a resolved address stays in the cache.
+	 * @param trustedHosts The hosts that may resolve to addresses that are not public, in lower case.
+	 */
+	public CachingDnsResolver(final long ttlMs, final Set<String> trustedHosts) {
+		this(SystemDefaultDnsResolver.INSTANCE, ttlMs, trustedHosts);
+	}
+
+	CachingDnsResolver(final DnsResolver delegate, final long ttlMs, final Set<String> trustedHosts) {
+		this.delegate = delegate;
+		this.ttlMs = ttlMs;
+		this.trustedHosts = Set.copyOf(trustedHosts);
+		this.cache = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Checks if an address can be reached from the internet, so a request to it can not reach the bot itself or
+	 * other hosts of its network.
+	 * @param address The address to check.
+	 * @return {@code false} if the address is a loopback, private, link-local or wildcard address, {@code true} if
+	 * not.
+	 */
+	public static boolean isPublicAddress(final InetAddress address) {
+		if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress() ||
+				address.isAnyLocalAddress()) {
+			return false;
+		}
+
+		// unique local IPv6 addresses (fc00::/7) are the private addresses of IPv6
+		return !(address instanceof Inet6Address) || (address.getAddress()[0] & 0xFE) != 0xFC;
+	}
+
+	/**
+	 * Resolves the host name by using the cache if it contains a valid entry for the host. If the cached entry
+	 * expired the host gets resolved again. If that fails the expired addresses get used as long as there is no
+	 * successful resolution so a short DNS outage does not stop the requests to an otherwise reachable API.
+	 * @param host The host name to resolve.
+	 * @return The addresses of the host.
+	 * @throws UnknownHostException if the host can not be resolved and there is no cached entry for it or if a
+	 * host that is not trusted resolves to an address that is not public.
+	 */
+	@Override
+	public InetAddress[] resolve(final String host) throws UnknownHostException {
+		final long now = System.currentTimeMillis();
+		final CachedAddresses cached = cache.get(host);
+		if (cached != null && cached.expiresAt > now) {
+			return checkAddresses(host, cached.addresses.clone());
+		}
+
+		final InetAddress[] addresses;
+		try {
+			addresses = delegate.resolve(host);
+		} catch (UnknownHostException e) {
+			if (cached == null) {
+				throw e;
+			}
+
+			return checkAddresses(host, cached.addresses.clone());
+		}
+
+		cache.put(host, new CachedAddresses(addresses, now + ttlMs));
+		return checkAddresses(host, addresses.clone());
+	}
+
+	/**
+	 * Rejects the addresses of a host that is not trusted if any of them is not public.
+	 * @param host The resolved host name.
+	 * @param addresses The addresses of the host.
+	 * @return The addresses of the host.
+	 * @throws UnknownHostException if the host is not trusted and any of its addresses is not public.
+	 */
+	private InetAddress[] checkAddresses(final String host, final InetAddress[] addresses) throws UnknownHostException {
+		if (trustedHosts.contains(host.toLowerCase(Locale.ROOT))) {
+			return addresses;
+		}
+
+		for (InetAddress address : addresses) {
+			if (!isPublicAddress(address)) {
+				throw new UnknownHostException(host + " resolves to the address " + address.getHostAddress() +
+						" that is not public!");
+			}
+		}
+
+		return addresses;
+	}
+
+	/**
+	 * The resolved addresses of a host and the time they expire at.
+	 */
+	private static final class CachedAddresses {
+
+		private final InetAddress[] addresses;
+		private final long expiresAt;
+
+		private CachedAddresses(final InetAddress[] addresses, final long expiresAt) {
+			this.addresses = addresses;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+/**
+ * Stops requests to a product status API after it failed several times in a row. After a cooldown a single trial
+ * request gets through. If it succeeds the API gets requested normally again, if it fails the cooldown doubles up
+ * to a maximum.
+ */
+class CircuitBreaker {
+
+	private static final int FAILURE_THRESHOLD = 5;
+	private static final long MIN_COOLDOWN_MS = 30000;
+	private static final long MAX_COOLDOWN_MS = 600000;
+	private int consecutiveFailures;
+	private long cooldownMs;
+	private long openUntil;
+	private boolean trialInFlight;
+
+	CircuitBreaker() {
+		this.consecutiveFailures = 0;
+		this.cooldownMs = MIN_COOLDOWN_MS;
+		this.openUntil = 0;
+		this.trialInFlight = false;
+	}
+
+	/**
+	 * Checks if the API may be requested.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @return {@code true} if the API may be requested, {@code false} if the breaker is open.
+	 */
+	synchronized boolean tryAcquire(final long now) {
+		if (consecutiveFailures < FAILURE_THRESHOLD) {
+			return true;
+		}
+
+		if (now < openUntil || trialInFlight) {
+			return false;
+		}
+
+		trialInFlight = true;
+		return true;
+	}
+
+	/**
+	 * Closes the breaker after a successful request.
+	 */
+	synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+		cooldownMs = MIN_COOLDOWN_MS;
+		trialInFlight = false;
+	}
+
+	/**
+	 * Counts a failed request and opens the breaker if the API failed too often in a row.
+	 * @param now The current time in milliseconds since the epoch.
+	 */
+	synchronized void recordFailure(final long now) {
+		consecutiveFailures++;
+		if (consecutiveFailures < FAILURE_THRESHOLD) {
+			return;
+		}
+
+		if (trialInFlight) {
+			cooldownMs = Math.min(cooldownMs * 2, MAX_COOLDOWN_MS);
+			trialInFlight = false;
+		}
+
+		openUntil = now + cooldownMs;
+	}
+}
@@ -0,0 +1,19 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.io.IOException;
+
+/**
+ * Gets thrown instead of requesting a product status API that failed too often in a row. The API does not get
+ * requested until its circuit breaker lets a trial request through again.
+ */
+public class CircuitOpenException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param statusApiUrl The URL of the product status API.
+	 */
+	CircuitOpenException(final String statusApiUrl) {
+		super("Circuit breaker of " + statusApiUrl + " is open!");
+	}
+}
@@ -0,0 +1,146 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.apache.http.client.entity.DeflateInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Handles the content encodings (compression) of product status API responses. Always supports gzip and deflate.
+ * Supports brotli and zstd if a decoder library for them is on the classpath. Responses get decoded while they
+ * get read, so the compressed response never needs to be in memory as a whole.
+ */
+final class ContentDecoding {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final Map<String, Constructor<? extends InputStream>> OPTIONAL_DECODERS = findOptionalDecoders();
+	private static final String ACCEPT_ENCODING = buildAcceptEncoding();
+
+	private ContentDecoding() {
+	}
+
+	/**
+	 * Searches the classpath for the optional decoders.
+	 * @return The constructors of the available decoder streams by their encoding name.
+	 */
+	private static Map<String, Constructor<? extends InputStream>> findOptionalDecoders() {
+		final Map<String, Constructor<? extends InputStream>> decoders = new LinkedHashMap<>();
+		addDecoder(decoders, "br", "org.brotli.dec.BrotliInputStream");
+		addDecoder(decoders, "zstd", "com.github.luben.zstd.ZstdInputStream");
+		return decoders;
+	}
+
+	/**
+	 * Adds a decoder if its class is on the classpath.
+	 * @param decoders The map of available decoders.
+	 * @param encoding The name of the content encoding.
+	 * @param className The name of the {@code InputStream} class that decodes the encoding.
+	 */
+	private static void addDecoder(final Map<String, Constructor<? extends InputStream>> decoders,
+								   final String encoding, final String className) {
+		try {
+			final Class<? extends InputStream> decoderClass = Class.forName(className).asSubclass(InputStream.class);
+			decoders.put(encoding, decoderClass.getConstructor(InputStream.class));
+			LogUtil.logDebug("Found decoder for " + encoding + " content encoding.");
+		} catch (ClassNotFoundException | NoSuchMethodException | ClassCastException e) {
+			LogUtil.logDebug("No decoder for " + encoding + " content encoding available.");
+		}
+	}
+
+	/**
+	 * Builds the value of the {@code Accept-Encoding} header from the supported encodings.
+	 * @return The header value.
+	 */
+	private static String buildAcceptEncoding() {
+		final StringBuilder sb = new StringBuilder("gzip, deflate");
+		for (String encoding : OPTIONAL_DECODERS.keySet()) {
+			sb.append(", ").append(encoding);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * @return The value of the {@code Accept-Encoding} header to send with each request.
+	 */
+	static String getAcceptEncoding() {
+		return ACCEPT_ENCODING;
+	}
+
+	/**
+	 * Wraps the stream of a response body in the decoders of its content encodings. Multiple encodings get
+	 * decoded in the reverse order they got applied in.
+	 * @param contentEncoding The value of the {@code Content-Encoding} header, {@code null} if there is none.
+	 * @param in The stream of the response body.
+	 * @return A stream of the decoded response body.
+	 * @throws IOException if an encoding is not supported or the stream can not be read.
+	 */
+	static InputStream decode(final String contentEncoding, final InputStream in) throws IOException {
+		if (contentEncoding == null || contentEncoding.isBlank()) {
+			return in;
+		}
+
+		final String[] encodings = contentEncoding.split(",");
+		InputStream decoded = in;
+		for (int i = encodings.length - 1; i >= 0; i--) {
+			decoded = decodeSingle(encodings[i].trim().toLowerCase(Locale.ROOT), decoded);
+		}
+
+		return decoded;
+	}
+
+	/**
+	 * Wraps a stream in the decoder of a single content encoding.
+	 * @param encoding The name of the content encoding in lower case.
+	 * @param in The encoded stream.
+	 * @return The decoded stream.
+	 * @throws IOException if the encoding is not supported or the stream can not be read.
+	 */
+	private static InputStream decodeSingle(final String encoding, final InputStream in) throws IOException {
+		switch (encoding) {
+			case "":
+			case "identity":
+				return in;
+			case "gzip":
+			case "x-gzip":
+				return new GZIPInputStream(in, BUFFER_SIZE);
+			case "deflate":
+				return new DeflateInputStream(in);
+			default:
+				return decodeOptional(encoding, in);
+		}
+	}
+
+	/**
+	 * Wraps a stream in an optional decoder.
+	 * @param encoding The name of the content encoding in lower case.
+	 * @param in The encoded stream.
+	 * @return The decoded stream.
+	 * @throws IOException if there is no decoder for the encoding or the stream can not be read.
+	 */
+	private static InputStream decodeOptional(final String encoding, final InputStream in) throws IOException {
+		final Constructor<? extends InputStream> decoder = OPTIONAL_DECODERS.get(encoding);
+		if (decoder == null) {
+			throw new IOException("Unsupported content encoding \"" + encoding + "\" of product status API response!");
+		}
+
+		try {
+			return decoder.newInstance(in);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+
+			throw new IOException("Could not create " + encoding + " decoder!", e.getCause());
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new IOException("Could not create " + encoding + " decoder!", e);
+		}
+	}
+}
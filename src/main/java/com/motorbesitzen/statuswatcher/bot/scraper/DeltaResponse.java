@@ -0,0 +1,36 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+
+import java.util.List;
+
+/**
+ * A response of a product status API that can return only the products that changed since an earlier request.
+ */
+public final class DeltaResponse {
+
+	private final List<ProductStatus> statusList;
+	private final boolean complete;
+
+	/**
+	 * @param statusList The product statuses in the response.
+	 * @param complete   {@code true} if the response contains all products of the API, {@code false} if it only
+	 *                   contains the changed products.
+	 */
+	DeltaResponse(final List<ProductStatus> statusList, final boolean complete) {
+		this.statusList = statusList;
+		this.complete = complete;
+	}
+
+	public List<ProductStatus> getStatusList() {
+		return statusList;
+	}
+
+	/**
+	 * @return {@code true} if the response contains all products of the API, {@code false} if it only contains the
+	 * changed products.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+}
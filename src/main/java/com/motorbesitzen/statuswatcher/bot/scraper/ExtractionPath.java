@@ -0,0 +1,74 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.fasterxml.jackson.core.JsonPointer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled JSON Pointer (RFC 6901) to the array or object that contains the product statuses of an API
+ * response, e.g. {@code /content/list}. Each segment is either a field name or an array index.
+ */
+final class ExtractionPath {
+
+	private final String pointer;
+	private final String[] fieldNames;
+	private final int[] indexes;
+
+	private ExtractionPath(final String pointer, final String[] fieldNames, final int[] indexes) {
+		this.pointer = pointer;
+		this.fieldNames = fieldNames;
+		this.indexes = indexes;
+	}
+
+	/**
+	 * Compiles a JSON Pointer to a path.
+	 * @param pointer The JSON Pointer, an empty {@code String} points at the root of the document.
+	 * @return The compiled path.
+	 * @throws IllegalArgumentException if the pointer is not a valid JSON Pointer.
+	 */
+	static ExtractionPath compile(final String pointer) {
+		final List<String> fieldNames = new ArrayList<>();
+		final List<Integer> indexes = new ArrayList<>();
+		JsonPointer segment = JsonPointer.compile(pointer);
+		while (!segment.matches()) {
+			fieldNames.add(segment.getMatchingProperty());
+			indexes.add(segment.getMatchingIndex());
+			segment = segment.tail();
+		}
+
+		return new ExtractionPath(
+				pointer,
+				fieldNames.toArray(new String[0]),
+				indexes.stream().mapToInt(Integer::intValue).toArray()
+		);
+	}
+
+	/**
+	 * @return The amount of segments of the path.
+	 */
+	int size() {
+		return fieldNames.length;
+	}
+
+	/**
+	 * @param segment The index of the segment.
+	 * @return The field name the segment matches in an object.
+	 */
+	String getFieldName(final int segment) {
+		return fieldNames[segment];
+	}
+
+	/**
+	 * @param segment The index of the segment.
+	 * @return The index the segment matches in an array, -1 if the segment can not match an array element.
+	 */
+	int getIndex(final int segment) {
+		return indexes[segment];
+	}
+
+	@Override
+	public String toString() {
+		return pointer;
+	}
+}
@@ -0,0 +1,75 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that computes a 64 bit FNV-1a hash of all bytes that get read from it. The hash is no
+ * cryptographic hash, it only gets used to detect if a response is byte-identical to an earlier one.
+ */
+class HashingInputStream extends FilterInputStream {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private long hash;
+	private long length;
+
+	/**
+	 * Wraps a stream to hash the bytes that get read from it.
+	 * @param in The stream to hash.
+	 */
+	HashingInputStream(final InputStream in) {
+		super(in);
+		this.hash = FNV_OFFSET_BASIS;
+		this.length = 0;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = super.read();
+		if (b != -1) {
+			hash = (hash ^ b) * FNV_PRIME;
+			length++;
+		}
+
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int n = super.read(b, off, len);
+		long h = hash;
+		for (int i = off; i < off + n; i++) {
+			h = (h ^ (b[i] & 0xff)) * FNV_PRIME;
+		}
+
+		hash = h;
+		if (n > 0) {
+			length += n;
+		}
+
+		return n;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		// skipped bytes would not be part of the hash, so read them instead
+		final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+		final int read = read(buffer, 0, buffer.length);
+		return Math.max(read, 0);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * @return The hash of all bytes that got read so far, mixed with their amount.
+	 */
+	long getDigest() {
+		return (hash ^ length) * FNV_PRIME;
+	}
+}
@@ -0,0 +1,349 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A subset of CSS selectors that can be matched while an HTML document gets read. A selector consists of compound
+ * selectors like {@code div.product}, {@code #status}, {@code td[data-field=name]} or {@code *} that are combined with
+ * a space (descendant) or {@code >} (child). Attribute conditions support {@code [attr]}, {@code [attr=value]} and
+ * {@code [attr~=value]}. Each element only gets compared to its own tag, so the progress of the match gets passed
+ * down to the children as a bit mask of the compound selectors that are already matched by the ancestors.
+ */
+public final class HtmlSelector {
+
+	private static final int MAX_COMPOUNDS = 63;
+	private final String text;
+	private final Compound[] compounds;
+	private final long descendantMask;
+
+	/**
+	 * @param text The selector as written in the config.
+	 * @param compounds The compound selectors from the outermost to the innermost element.
+	 * @param descendantMask The bits of the compound selectors that may match any descendant instead of only a
+	 *                       direct child of the element that matched the compound selector before.
+	 */
+	private HtmlSelector(final String text, final Compound[] compounds, final long descendantMask) {
+		this.text = text;
+		this.compounds = compounds;
+		this.descendantMask = descendantMask;
+	}
+
+	/**
+	 * Compiles a selector.
+	 * @param selector The selector, e.g. {@code table.products > tr}.
+	 * @return The compiled selector.
+	 * @throws IllegalArgumentException if the selector is empty or not supported.
+	 */
+	public static HtmlSelector compile(final String selector) {
+		if (selector == null || selector.isBlank()) {
+			throw new IllegalArgumentException("Empty selector");
+		}
+
+		final List<Compound> compounds = new ArrayList<>();
+		long descendantMask = 1;
+		boolean child = false;
+		int i = 0;
+		final int length = selector.length();
+		while (i < length) {
+			final char c = selector.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '>') {
+				if (compounds.isEmpty() || child) {
+					throw new IllegalArgumentException("Misplaced \">\" in selector \"" + selector + "\"");
+				}
+
+				child = true;
+				i++;
+			} else {
+				if (compounds.size() == MAX_COMPOUNDS) {
+					throw new IllegalArgumentException("Selector \"" + selector + "\" is too long");
+				}
+
+				if (!child && !compounds.isEmpty()) {
+					descendantMask |= 1L << compounds.size();
+				}
+
+				final Compound compound = new Compound();
+				i = compound.parse(selector, i);
+				compounds.add(compound);
+				child = false;
+			}
+		}
+
+		if (child) {
+			throw new IllegalArgumentException("Selector \"" + selector + "\" ends with \">\"");
+		}
+
+		return new HtmlSelector(selector.trim(), compounds.toArray(new Compound[0]), descendantMask);
+	}
+
+	/**
+	 * @return The progress of a match at the root of the document, nothing is matched yet.
+	 */
+	static long start() {
+		return 1;
+	}
+
+	/**
+	 * Compares an element to the selector.
+	 * @param available The progress that got passed down to the element by its parent.
+	 * @param tokenizer The tokenizer that currently points at the start tag of the element.
+	 * @return The compound selectors the element completes, as bits of the progress.
+	 */
+	long match(final long available, final HtmlTokenizer tokenizer) {
+		long reached = 0;
+		for (int i = 0; i < compounds.length; i++) {
+			if ((available & (1L << i)) != 0 && compounds[i].matches(tokenizer)) {
+				reached |= 1L << (i + 1);
+			}
+		}
+
+		return reached;
+	}
+
+	/**
+	 * Calculates the progress the children of an element get.
+	 * @param available The progress that got passed down to the element by its parent.
+	 * @param reached The compound selectors the element completes.
+	 * @return The progress of the children of the element.
+	 */
+	long passDown(final long available, final long reached) {
+		return (available & descendantMask) | reached;
+	}
+
+	/**
+	 * @param reached The compound selectors an element completes.
+	 * @return {@code true} if the element matches the whole selector, {@code false} if not.
+	 */
+	boolean isMatch(final long reached) {
+		return (reached & (1L << compounds.length)) != 0;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+	/**
+	 * A selector of a single element, e.g. {@code li.product[data-id]}.
+	 */
+	private static final class Compound {
+
+		private String tag;
+		private String id;
+		private final List<String> classes;
+		private final List<String[]> attributes;
+
+		private Compound() {
+			this.classes = new ArrayList<>();
+			this.attributes = new ArrayList<>();
+		}
+
+		/**
+		 * Reads the compound selector that starts at a position of the selector.
+		 * @param selector The whole selector.
+		 * @param start The position the compound selector starts at.
+		 * @return The position after the compound selector.
+		 * @throws IllegalArgumentException if the compound selector is not supported.
+		 */
+		private int parse(final String selector, final int start) {
+			int i = start;
+			if (selector.charAt(i) == '*') {
+				i++;
+			} else if (isNameChar(selector.charAt(i))) {
+				final int end = readName(selector, i);
+				tag = selector.substring(i, end).toLowerCase(Locale.ROOT);
+				i = end;
+			}
+
+			while (i < selector.length()) {
+				final char c = selector.charAt(i);
+				if (c == '.' || c == '#') {
+					final int end = readName(selector, i + 1);
+					if (end == i + 1) {
+						throw new IllegalArgumentException("Missing name after \"" + c + "\" in selector \"" + selector + "\"");
+					}
+
+					final String name = selector.substring(i + 1, end);
+					if (c == '.') {
+						classes.add(name);
+					} else {
+						id = name;
+					}
+
+					i = end;
+				} else if (c == '[') {
+					i = parseAttribute(selector, i);
+				} else if (Character.isWhitespace(c) || c == '>') {
+					break;
+				} else {
+					throw new IllegalArgumentException("Unsupported \"" + c + "\" in selector \"" + selector + "\"");
+				}
+			}
+
+			if (i == start) {
+				throw new IllegalArgumentException("Invalid selector \"" + selector + "\"");
+			}
+
+			return i;
+		}
+
+		/**
+		 * Reads an attribute condition like {@code [data-status]} or {@code [data-field="name"]}.
+		 * @param selector The whole selector.
+		 * @param start The position of the {@code [}.
+		 * @return The position after the {@code ]}.
+		 * @throws IllegalArgumentException if the condition is not supported.
+		 */
+		private int parseAttribute(final String selector, final int start) {
+			final int close = selector.indexOf(']', start);
+			if (close == -1) {
+				throw new IllegalArgumentException("Missing \"]\" in selector \"" + selector + "\"");
+			}
+
+			final String condition = selector.substring(start + 1, close);
+			final int equals = condition.indexOf('=');
+			if (equals == -1) {
+				attributes.add(new String[]{condition.trim().toLowerCase(Locale.ROOT), null, null});
+				return close + 1;
+			}
+
+			final boolean word = equals > 0 && condition.charAt(equals - 1) == '~';
+			final String name = condition.substring(0, word ? equals - 1 : equals).trim().toLowerCase(Locale.ROOT);
+			String value = condition.substring(equals + 1).trim();
+			if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'') &&
+					value.charAt(value.length() - 1) == value.charAt(0)) {
+				value = value.substring(1, value.length() - 1);
+			}
+
+			if (name.isEmpty() || !name.chars().allMatch(ch -> isNameChar((char) ch))) {
+				throw new IllegalArgumentException("Invalid attribute in selector \"" + selector + "\"");
+			}
+
+			attributes.add(new String[]{name, value, word ? "~" : "="});
+			return close + 1;
+		}
+
+		/**
+		 * Compares the current start tag to the compound selector.
+		 * @param tokenizer The tokenizer that points at the start tag.
+		 * @return {@code true} if the element matches, {@code false} if not.
+		 */
+		private boolean matches(final HtmlTokenizer tokenizer) {
+			if (tag != null && !tokenizer.isTag(tag)) {
+				return false;
+			}
+
+			if (id != null) {
+				final CharSequence idAttribute = tokenizer.getAttribute("id");
+				if (idAttribute == null || !id.contentEquals(idAttribute)) {
+					return false;
+				}
+			}
+
+			if (!classes.isEmpty()) {
+				final CharSequence classAttribute = tokenizer.getAttribute("class");
+				for (String className : classes) {
+					if (!containsWord(classAttribute, className)) {
+						return false;
+					}
+				}
+			}
+
+			for (String[] attribute : attributes) {
+				final CharSequence value = tokenizer.getAttribute(attribute[0]);
+				if (value == null) {
+					return false;
+				}
+
+				if (attribute[1] == null) {
+					continue;
+				}
+
+				final boolean matches = "~".equals(attribute[2]) ?
+						containsWord(value, attribute[1]) : attribute[1].contentEquals(value);
+				if (!matches) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * Checks if a whitespace separated list contains a word, e.g. if a {@code class} attribute contains a class.
+		 * @param list The list, can be {@code null}.
+		 * @param word The word.
+		 * @return {@code true} if the list contains the word, {@code false} if not.
+		 */
+		private static boolean containsWord(final CharSequence list, final String word) {
+			if (list == null) {
+				return false;
+			}
+
+			final int length = list.length();
+			int start = 0;
+			while (start < length) {
+				while (start < length && Character.isWhitespace(list.charAt(start))) {
+					start++;
+				}
+
+				int end = start;
+				while (end < length && !Character.isWhitespace(list.charAt(end))) {
+					end++;
+				}
+
+				if (end - start == word.length() && regionMatches(list, start, word)) {
+					return true;
+				}
+
+				start = end;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Compares a part of a text to a word.
+		 * @param text The text.
+		 * @param start The position of the part in the text.
+		 * @param word The word, the part needs to be as long as the word.
+		 * @return {@code true} if the part equals the word, {@code false} if not.
+		 */
+		private static boolean regionMatches(final CharSequence text, final int start, final String word) {
+			for (int i = 0; i < word.length(); i++) {
+				if (text.charAt(start + i) != word.charAt(i)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * Finds the end of a name in the selector.
+		 * @param selector The whole selector.
+		 * @param start The position the name starts at.
+		 * @return The position after the name.
+		 */
+		private static int readName(final String selector, final int start) {
+			int i = start;
+			while (i < selector.length() && isNameChar(selector.charAt(i))) {
+				i++;
+			}
+
+			return i;
+		}
+
+		/**
+		 * @param c A character of the selector.
+		 * @return {@code true} if the character can be part of a tag, class, id or attribute name.
+		 */
+		private static boolean isNameChar(final char c) {
+			return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == ':';
+		}
+	}
+}
@@ -0,0 +1,330 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.data.StatusHtml;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extracts the product statuses of an HTML status page while the page gets read. Every element that matches the
+ * product selector is a product, the text of the first element inside of it that matches the name selector is the
+ * product name and the text of the first element inside of it that matches the status selector is the product
+ * status. No tree of the page gets built, only the currently open elements are kept. Products inside of a product
+ * do not get searched.
+ */
+@Component
+class HtmlStatusExtractor {
+
+	private static final int INITIAL_DEPTH = 32;
+	private static final Set<String> VOID_ELEMENTS = Set.of(
+			"area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"
+	);
+	private static final Set<String> IMPLICITLY_CLOSED_ELEMENTS = Set.of(
+			"li", "dt", "dd", "p", "tr", "td", "th", "option"
+	);
+	private static final Set<String> SCOPE_ELEMENTS = Set.of("ul", "ol", "dl", "table", "tr", "select", "div");
+
+	private final Map<StatusHtml, Selectors> selectors;
+
+	HtmlStatusExtractor() {
+		this.selectors = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Reads an HTML status page up to its end and extracts every product status of it.
+	 * @param html Where the product statuses are in the page.
+	 * @param body The page.
+	 * @param charset The charset of the page.
+	 * @return A list of all the product statuses in the page in the order they appear in.
+	 * @throws IOException if the page can not be read.
+	 * @throws IllegalArgumentException if a selector is invalid.
+	 */
+	List<ProductStatus> extract(final StatusHtml html, final InputStream body, final Charset charset)
+			throws IOException {
+		final Selectors compiled = selectors.computeIfAbsent(html, Selectors::new);
+		final HtmlTokenizer tokenizer = new HtmlTokenizer(new InputStreamReader(body, charset));
+		final ElementStack stack = new ElementStack(compiled);
+		HtmlTokenizer.Token token;
+		while ((token = tokenizer.next()) != HtmlTokenizer.Token.END) {
+			switch (token) {
+				case START_TAG:
+					final String tagName = tokenizer.getTagName();
+					if (IMPLICITLY_CLOSED_ELEMENTS.contains(tagName)) {
+						stack.closeImplicitly(tagName);
+					}
+
+					if (tokenizer.isTag("br")) {
+						stack.addText(" ");
+					} else if (!tokenizer.isSelfClosing() && !VOID_ELEMENTS.contains(tagName)) {
+						stack.open(tagName, tokenizer);
+					}
+					break;
+				case END_TAG:
+					stack.close(tokenizer.getTagName());
+					break;
+				case TEXT:
+					stack.addText(tokenizer.getText());
+					break;
+				default:
+					break;
+			}
+		}
+
+		stack.closeAll();
+		return stack.statusList;
+	}
+
+	/**
+	 * The compiled selectors of a status page.
+	 */
+	private static final class Selectors {
+
+		private final HtmlSelector product;
+		private final HtmlSelector name;
+		private final HtmlSelector status;
+
+		/**
+		 * @param html Where the product statuses are in the page.
+		 * @throws IllegalArgumentException if a selector is invalid.
+		 */
+		private Selectors(final StatusHtml html) {
+			this.product = HtmlSelector.compile(html.getProductSelector());
+			this.name = HtmlSelector.compile(html.getNameSelector());
+			this.status = HtmlSelector.compile(html.getStatusSelector());
+		}
+	}
+
+	/**
+	 * The currently open elements and the progress of the selectors at each of them. Uses plain arrays that only
+	 * grow with the nesting depth of the page.
+	 */
+	private static final class ElementStack {
+
+		private final Selectors selectors;
+		private final List<ProductStatus> statusList;
+		private final StringBuilder name;
+		private final StringBuilder status;
+		private String[] tags;
+		private long[] productProgress;
+		private long[] nameProgress;
+		private long[] statusProgress;
+		private int depth;
+		private int productDepth;
+		private int nameDepth;
+		private int statusDepth;
+		private boolean nameFound;
+		private boolean statusFound;
+
+		private ElementStack(final Selectors selectors) {
+			this.selectors = selectors;
+			this.statusList = new ArrayList<>();
+			this.name = new StringBuilder();
+			this.status = new StringBuilder();
+			this.tags = new String[INITIAL_DEPTH];
+			this.productProgress = new long[INITIAL_DEPTH];
+			this.nameProgress = new long[INITIAL_DEPTH];
+			this.statusProgress = new long[INITIAL_DEPTH];
+			this.depth = 0;
+			this.productDepth = -1;
+			this.nameDepth = -1;
+			this.statusDepth = -1;
+		}
+
+		/**
+		 * Opens an element and compares it to the selectors. Outside of a product only the product selector gets
+		 * checked, inside of a product only the name and the status selectors get checked.
+		 * @param tagName The name of the element.
+		 * @param tokenizer The tokenizer that currently points at the start tag of the element.
+		 */
+		private void open(final String tagName, final HtmlTokenizer tokenizer) {
+			if (depth == tags.length) {
+				final int newLength = depth * 2;
+				tags = Arrays.copyOf(tags, newLength);
+				productProgress = Arrays.copyOf(productProgress, newLength);
+				nameProgress = Arrays.copyOf(nameProgress, newLength);
+				statusProgress = Arrays.copyOf(statusProgress, newLength);
+			}
+
+			tags[depth] = tagName;
+			if (productDepth == -1) {
+				final long available = depth == 0 ? HtmlSelector.start() : productProgress[depth - 1];
+				final long reached = selectors.product.match(available, tokenizer);
+				productProgress[depth] = selectors.product.passDown(available, reached);
+				if (selectors.product.isMatch(reached)) {
+					startProduct();
+				}
+			} else {
+				productProgress[depth] = productProgress[depth - 1];
+				nameProgress[depth] = matchInProduct(selectors.name, nameProgress[depth - 1], tokenizer, true);
+				statusProgress[depth] = matchInProduct(selectors.status, statusProgress[depth - 1], tokenizer, false);
+			}
+
+			depth++;
+		}
+
+		/**
+		 * Starts a product at the current element.
+		 */
+		private void startProduct() {
+			productDepth = depth;
+			nameProgress[depth] = HtmlSelector.start();
+			statusProgress[depth] = HtmlSelector.start();
+			name.setLength(0);
+			status.setLength(0);
+			nameFound = false;
+			statusFound = false;
+		}
+
+		/**
+		 * Compares an element inside of a product to the name or the status selector and starts reading its text if
+		 * it is the first match.
+		 * @param selector The name or the status selector.
+		 * @param available The progress of the selector that got passed down to the element.
+		 * @param tokenizer The tokenizer that currently points at the start tag of the element.
+		 * @param isName {@code true} for the name selector, {@code false} for the status selector.
+		 * @return The progress of the selector the children of the element get.
+		 */
+		private long matchInProduct(final HtmlSelector selector, final long available, final HtmlTokenizer tokenizer,
+									final boolean isName) {
+			final long reached = selector.match(available, tokenizer);
+			if (selector.isMatch(reached)) {
+				if (isName && !nameFound && nameDepth == -1) {
+					nameDepth = depth;
+				} else if (!isName && !statusFound && statusDepth == -1) {
+					statusDepth = depth;
+				}
+			}
+
+			return selector.passDown(available, reached);
+		}
+
+		/**
+		 * Adds text to the name or the status that currently gets read.
+		 * @param text The text.
+		 */
+		private void addText(final CharSequence text) {
+			if (nameDepth != -1) {
+				name.append(text);
+			}
+
+			if (statusDepth != -1) {
+				status.append(text);
+			}
+		}
+
+		/**
+		 * Closes the innermost open element with a name and all elements inside of it. Does nothing if there is no
+		 * such element.
+		 * @param tagName The name of the element.
+		 */
+		private void close(final String tagName) {
+			for (int i = depth - 1; i >= 0; i--) {
+				if (tags[i].equals(tagName)) {
+					closeTo(i);
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Closes an open element whose end tag may be omitted if a new element of the same kind starts, e.g. a
+		 * {@code li} before the next {@code li}. Does not look past a list or a table.
+		 * @param tagName The name of the new element.
+		 */
+		private void closeImplicitly(final String tagName) {
+			for (int i = depth - 1; i >= 0; i--) {
+				if (tags[i].equals(tagName)) {
+					closeTo(i);
+					return;
+				}
+
+				if (SCOPE_ELEMENTS.contains(tags[i])) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Closes all open elements at the end of the page.
+		 */
+		private void closeAll() {
+			if (depth > 0) {
+				closeTo(0);
+			}
+		}
+
+		/**
+		 * Closes all open elements down to a depth. Finishes the name, the status and the product if their elements
+		 * get closed.
+		 * @param newDepth The depth of the outermost element to close.
+		 */
+		private void closeTo(final int newDepth) {
+			while (depth > newDepth) {
+				depth--;
+				tags[depth] = null;
+				if (depth == nameDepth) {
+					nameDepth = -1;
+					nameFound = true;
+				}
+
+				if (depth == statusDepth) {
+					statusDepth = -1;
+					statusFound = true;
+				}
+
+				if (depth == productDepth) {
+					finishProduct();
+				}
+			}
+		}
+
+		/**
+		 * Adds the current product to the list if it has a name and a status.
+		 */
+		private void finishProduct() {
+			productDepth = -1;
+			nameDepth = -1;
+			statusDepth = -1;
+			final String productName = normalize(name);
+			final String productStatus = normalize(status);
+			if (nameFound && statusFound && !productName.isEmpty()) {
+				statusList.add(new ProductStatus(productName, productStatus));
+			}
+		}
+
+		/**
+		 * Collapses all whitespace of a text to single spaces and removes leading and trailing whitespace.
+		 * @param text The text.
+		 * @return The normalized text.
+		 */
+		private static String normalize(final CharSequence text) {
+			final StringBuilder sb = new StringBuilder(text.length());
+			boolean space = false;
+			for (int i = 0; i < text.length(); i++) {
+				final char c = text.charAt(i);
+				if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+					space = sb.length() > 0;
+				} else {
+					if (space) {
+						sb.append(' ');
+						space = false;
+					}
+
+					sb.append(c);
+				}
+			}
+
+			return sb.toString();
+		}
+	}
+}
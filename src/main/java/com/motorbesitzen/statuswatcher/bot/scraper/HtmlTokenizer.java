@@ -0,0 +1,490 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits an HTML document into start tags, end tags and text while it gets read. Only the current token is kept in
+ * memory, so the size of the document does not matter. The builders of the token get reused and tag names get
+ * cached, so most tokens do not create any objects. Comments, doctypes and processing instructions get skipped
+ * and the content of {@code script} and {@code style} elements does not get read as text. The most common character
+ * references get decoded in text and attribute values, all others stay as they are.
+ */
+final class HtmlTokenizer {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int INITIAL_ATTRIBUTES = 8;
+	private static final int MAX_CACHED_NAMES = 64;
+	private static final Set<String> RAW_TEXT_ELEMENTS = Set.of("script", "style");
+
+	private final Reader reader;
+	private final char[] buffer;
+	private final StringBuilder tagName;
+	private final StringBuilder text;
+	private final List<String> cachedNames;
+	private int position;
+	private int limit;
+	private StringBuilder[] attributeNames;
+	private StringBuilder[] attributeValues;
+	private int attributeCount;
+	private boolean selfClosing;
+	private String rawTextElement;
+
+	/**
+	 * The kind of a token.
+	 */
+	enum Token {
+		START_TAG, END_TAG, TEXT, END
+	}
+
+	/**
+	 * @param reader The HTML document.
+	 */
+	HtmlTokenizer(final Reader reader) {
+		this.reader = reader;
+		this.buffer = new char[BUFFER_SIZE];
+		this.tagName = new StringBuilder();
+		this.text = new StringBuilder();
+		this.cachedNames = new ArrayList<>();
+		this.position = 0;
+		this.limit = 0;
+		this.attributeNames = new StringBuilder[0];
+		this.attributeValues = new StringBuilder[0];
+		this.attributeCount = 0;
+	}
+
+	/**
+	 * Reads the next token of the document.
+	 * @return The kind of the token, {@link Token#END} at the end of the document.
+	 * @throws IOException if the document can not be read.
+	 */
+	Token next() throws IOException {
+		if (rawTextElement != null) {
+			final String element = rawTextElement;
+			rawTextElement = null;
+			if (skipRawText(element)) {
+				return Token.END_TAG;
+			}
+		}
+
+		while (true) {
+			final int c = peek();
+			if (c == -1) {
+				return Token.END;
+			}
+
+			if (c != '<') {
+				readText();
+				return Token.TEXT;
+			}
+
+			position++;
+			final int next = peek();
+			if (isLetter(next)) {
+				readStartTag();
+				return Token.START_TAG;
+			} else if (next == '/') {
+				position++;
+				if (isLetter(peek())) {
+					readName(tagName);
+					skipPast('>');
+					return Token.END_TAG;
+				}
+
+				skipPast('>');
+			} else if (next == '!') {
+				skipMarkupDeclaration();
+			} else if (next == '?') {
+				skipPast('>');
+			} else {
+				text.setLength(0);
+				text.append('<');
+				return Token.TEXT;
+			}
+		}
+	}
+
+	/**
+	 * @return The lowercase name of the current start or end tag.
+	 */
+	String getTagName() {
+		for (String cachedName : cachedNames) {
+			if (cachedName.contentEquals(tagName)) {
+				return cachedName;
+			}
+		}
+
+		final String name = tagName.toString();
+		if (cachedNames.size() < MAX_CACHED_NAMES) {
+			cachedNames.add(name);
+		}
+
+		return name;
+	}
+
+	/**
+	 * Checks the name of the current start or end tag without creating a string.
+	 * @param name The lowercase name to compare to.
+	 * @return {@code true} if the current tag has that name, {@code false} if not.
+	 */
+	boolean isTag(final String name) {
+		return name.contentEquals(tagName);
+	}
+
+	/**
+	 * @return {@code true} if the current start tag ends with {@code />}, {@code false} if not.
+	 */
+	boolean isSelfClosing() {
+		return selfClosing;
+	}
+
+	/**
+	 * @param name The lowercase name of the attribute.
+	 * @return The decoded value of the attribute of the current start tag, empty if the attribute has no value or
+	 * {@code null} if the tag does not have the attribute. Gets reused for the next start tag.
+	 */
+	CharSequence getAttribute(final String name) {
+		for (int i = 0; i < attributeCount; i++) {
+			if (name.contentEquals(attributeNames[i])) {
+				return attributeValues[i];
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return The decoded current text. Gets reused for the next text.
+	 */
+	CharSequence getText() {
+		return text;
+	}
+
+	/**
+	 * Reads a start tag including its attributes. The {@code <} already got read.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void readStartTag() throws IOException {
+		readName(tagName);
+		attributeCount = 0;
+		selfClosing = false;
+		while (true) {
+			skipWhitespace();
+			final int c = peek();
+			if (c == -1) {
+				return;
+			}
+
+			if (c == '>') {
+				position++;
+				break;
+			}
+
+			if (c == '/') {
+				position++;
+				if (peek() == '>') {
+					position++;
+					selfClosing = true;
+					break;
+				}
+
+				continue;
+			}
+
+			readAttribute();
+		}
+
+		if (!selfClosing) {
+			for (String element : RAW_TEXT_ELEMENTS) {
+				if (isTag(element)) {
+					rawTextElement = element;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a single attribute of a start tag.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void readAttribute() throws IOException {
+		if (attributeCount == attributeNames.length) {
+			final int newLength = Math.max(INITIAL_ATTRIBUTES, attributeCount * 2);
+			attributeNames = Arrays.copyOf(attributeNames, newLength);
+			attributeValues = Arrays.copyOf(attributeValues, newLength);
+			for (int i = attributeCount; i < newLength; i++) {
+				attributeNames[i] = new StringBuilder();
+				attributeValues[i] = new StringBuilder();
+			}
+		}
+
+		final StringBuilder name = attributeNames[attributeCount];
+		final StringBuilder value = attributeValues[attributeCount];
+		name.setLength(0);
+		value.setLength(0);
+		int c;
+		while ((c = peek()) != -1 && !isWhitespace(c) && c != '=' && c != '>' && c != '/') {
+			name.append(Character.toLowerCase((char) c));
+			position++;
+		}
+
+		if (name.length() == 0) {
+			// a stray character like a quote, skip it so the tag does not stall
+			position++;
+			return;
+		}
+
+		skipWhitespace();
+		if (peek() == '=') {
+			position++;
+			skipWhitespace();
+			readAttributeValue(value);
+		}
+
+		attributeCount++;
+	}
+
+	/**
+	 * Reads a quoted or unquoted attribute value.
+	 * @param value The builder to read the decoded value into.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void readAttributeValue(final StringBuilder value) throws IOException {
+		final int quote = peek();
+		if (quote == '"' || quote == '\'') {
+			position++;
+			int c;
+			while ((c = read()) != -1 && c != quote) {
+				appendDecoded(value, c);
+			}
+		} else {
+			int c;
+			while ((c = peek()) != -1 && !isWhitespace(c) && c != '>') {
+				position++;
+				appendDecoded(value, c);
+			}
+		}
+	}
+
+	/**
+	 * Reads the text up to the next {@code <} or the end of the document.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void readText() throws IOException {
+		text.setLength(0);
+		int c;
+		while ((c = peek()) != -1 && c != '<') {
+			position++;
+			appendDecoded(text, c);
+		}
+	}
+
+	/**
+	 * Reads a tag name and lowercases it.
+	 * @param name The builder to read the name into.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void readName(final StringBuilder name) throws IOException {
+		name.setLength(0);
+		int c;
+		while ((c = peek()) != -1 && !isWhitespace(c) && c != '>' && c != '/') {
+			name.append(Character.toLowerCase((char) c));
+			position++;
+		}
+	}
+
+	/**
+	 * Skips the content of a {@code script} or {@code style} element up to its end tag.
+	 * @param element The name of the element.
+	 * @return {@code true} if the end tag got found, {@code false} if the document ended before.
+	 * @throws IOException if the document can not be read.
+	 */
+	private boolean skipRawText(final String element) throws IOException {
+		int c;
+		while ((c = read()) != -1) {
+			if (c != '<' || peek() != '/') {
+				continue;
+			}
+
+			position++;
+			readName(tagName);
+			if (isTag(element)) {
+				skipPast('>');
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Skips a comment, a doctype or a CDATA section. The {@code <} already got read.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void skipMarkupDeclaration() throws IOException {
+		position++;
+		if (peek() != '-') {
+			skipPast('>');
+			return;
+		}
+
+		position++;
+		if (peek() != '-') {
+			skipPast('>');
+			return;
+		}
+
+		position++;
+		int dashes = 0;
+		int c;
+		while ((c = read()) != -1) {
+			if (c == '>' && dashes >= 2) {
+				return;
+			}
+
+			dashes = c == '-' ? dashes + 1 : 0;
+		}
+	}
+
+	/**
+	 * Appends a character to a text and decodes a character reference that starts with it.
+	 * @param target The text to append to.
+	 * @param c The character.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void appendDecoded(final StringBuilder target, final int c) throws IOException {
+		if (c != '&') {
+			target.append((char) c);
+			return;
+		}
+
+		final int start = target.length();
+		target.append('&');
+		int next;
+		while ((next = peek()) != -1 && (Character.isLetterOrDigit(next) || next == '#') && target.length() - start < 10) {
+			target.append((char) next);
+			position++;
+		}
+
+		if (peek() != ';') {
+			return;
+		}
+
+		final int decoded = decodeReference(target.substring(start + 1));
+		if (decoded != -1) {
+			position++;
+			target.setLength(start);
+			target.appendCodePoint(decoded);
+		}
+	}
+
+	/**
+	 * Decodes a character reference.
+	 * @param reference The reference without the leading {@code &} and the trailing {@code ;}.
+	 * @return The code point of the reference or -1 if it is unknown.
+	 */
+	private int decodeReference(final String reference) {
+		if (reference.startsWith("#")) {
+			try {
+				final int codePoint = reference.length() > 1 && (reference.charAt(1) == 'x' || reference.charAt(1) == 'X') ?
+						Integer.parseInt(reference.substring(2), 16) : Integer.parseInt(reference.substring(1));
+				return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+
+		switch (reference.toLowerCase(Locale.ROOT)) {
+			case "amp":
+				return '&';
+			case "lt":
+				return '<';
+			case "gt":
+				return '>';
+			case "quot":
+				return '"';
+			case "apos":
+				return '\'';
+			case "nbsp":
+				return ' ';
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Skips all characters up to and including a character.
+	 * @param end The character to skip to.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void skipPast(final char end) throws IOException {
+		int c;
+		while ((c = read()) != -1 && c != end) {
+			// skip
+		}
+	}
+
+	/**
+	 * Skips all whitespace characters.
+	 * @throws IOException if the document can not be read.
+	 */
+	private void skipWhitespace() throws IOException {
+		while (isWhitespace(peek())) {
+			position++;
+		}
+	}
+
+	/**
+	 * Reads the next character.
+	 * @return The character or -1 at the end of the document.
+	 * @throws IOException if the document can not be read.
+	 */
+	private int read() throws IOException {
+		final int c = peek();
+		if (c != -1) {
+			position++;
+		}
+
+		return c;
+	}
+
+	/**
+	 * Looks at the next character without reading it. Refills the buffer from the document if needed.
+	 * @return The character or -1 at the end of the document.
+	 * @throws IOException if the document can not be read.
+	 */
+	private int peek() throws IOException {
+		if (position == limit) {
+			final int read = reader.read(buffer);
+			if (read <= 0) {
+				return -1;
+			}
+
+			position = 0;
+			limit = read;
+		}
+
+		return buffer[position];
+	}
+
+	/**
+	 * @param c A character or -1.
+	 * @return {@code true} if the character is an ASCII letter, {@code false} if not.
+	 */
+	private static boolean isLetter(final int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	/**
+	 * @param c A character or -1.
+	 * @return {@code true} if the character is HTML whitespace, {@code false} if not.
+	 */
+	private static boolean isWhitespace(final int c) {
+		return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+	}
+}
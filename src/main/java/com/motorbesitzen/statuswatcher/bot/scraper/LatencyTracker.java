@@ -0,0 +1,45 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the latest successful requests to a product status API to decide when a request is slow
+ * enough that a second one should be sent.
+ */
+class LatencyTracker {
+
+	private static final int MAX_SAMPLES = 128;
+	private static final int MIN_SAMPLES = 20;
+	private static final int PERCENTILE = 95;
+	private final long[] samples;
+	private int sampleCount;
+
+	LatencyTracker() {
+		this.samples = new long[MAX_SAMPLES];
+		this.sampleCount = 0;
+	}
+
+	/**
+	 * Records the latency of a successful request. Only the latest latencies are kept.
+	 * @param latencyMs The latency of the request in milliseconds.
+	 */
+	synchronized void record(final long latencyMs) {
+		samples[sampleCount % MAX_SAMPLES] = latencyMs;
+		sampleCount++;
+	}
+
+	/**
+	 * Calculates the 95th percentile of the latest latencies.
+	 * @return The 95th percentile in milliseconds or -1 if there are not enough latencies to tell.
+	 */
+	synchronized long getPercentileMs() {
+		final int count = Math.min(sampleCount, MAX_SAMPLES);
+		if (count < MIN_SAMPLES) {
+			return -1;
+		}
+
+		final long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		return sorted[(count * PERCENTILE + 99) / 100 - 1];
+	}
+}
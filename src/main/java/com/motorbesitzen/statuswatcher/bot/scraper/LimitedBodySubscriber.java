@@ -0,0 +1,78 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects the body of an asynchronous response into a byte array without blocking a thread. Cancels the
+ * response as soon as the body gets bigger than a maximum amount of bytes.
+ */
+class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+	private final long maxBytes;
+	private final ByteArrayOutputStream body;
+	private final CompletableFuture<byte[]> result;
+	private Flow.Subscription subscription;
+
+	/**
+	 * @param maxBytes The maximum amount of bytes the body can have.
+	 */
+	LimitedBodySubscriber(final long maxBytes) {
+		this.maxBytes = maxBytes;
+		this.body = new ByteArrayOutputStream();
+		this.result = new CompletableFuture<>();
+	}
+
+	@Override
+	public CompletionStage<byte[]> getBody() {
+		return result;
+	}
+
+	@Override
+	public void onSubscribe(final Flow.Subscription subscription) {
+		this.subscription = subscription;
+		subscription.request(Long.MAX_VALUE);
+	}
+
+	@Override
+	public void onNext(final List<ByteBuffer> buffers) {
+		if (result.isDone()) {
+			return;
+		}
+
+		for (ByteBuffer buffer : buffers) {
+			final int length = buffer.remaining();
+			if (body.size() + (long) length > maxBytes) {
+				subscription.cancel();
+				result.completeExceptionally(new IOException(
+						"Product status API response exceeds the maximum payload size of " + maxBytes + " bytes!"
+				));
+				return;
+			}
+
+			if (buffer.hasArray()) {
+				body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+			} else {
+				final byte[] bytes = new byte[length];
+				buffer.get(bytes);
+				body.write(bytes, 0, length);
+			}
+		}
+	}
+
+	@Override
+	public void onError(final Throwable throwable) {
+		result.completeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		result.complete(body.toByteArray());
+	}
+}
@@ -0,0 +1,77 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that fails as soon as more than a maximum amount of bytes got read from it. Protects the bot
+ * from APIs that send huge or never ending responses.
+ */
+class LimitedInputStream extends FilterInputStream {
+
+	private final long maxBytes;
+	private long readBytes;
+
+	/**
+	 * Wraps a stream to limit the amount of bytes that can be read from it.
+	 * @param in The stream to limit.
+	 * @param maxBytes The maximum amount of bytes that can be read.
+	 */
+	LimitedInputStream(final InputStream in, final long maxBytes) {
+		super(in);
+		this.maxBytes = maxBytes;
+		this.readBytes = 0;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = super.read();
+		if (b != -1) {
+			count(1);
+		}
+
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int n = super.read(b, off, len);
+		if (n > 0) {
+			count(n);
+		}
+
+		return n;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		final long skipped = super.skip(n);
+		count(skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * @return The amount of bytes that got read so far.
+	 */
+	long getReadBytes() {
+		return readBytes;
+	}
+
+	/**
+	 * Adds the read bytes to the counter and checks if the limit got exceeded.
+	 * @param n The amount of bytes that got read.
+	 * @throws IOException if the limit got exceeded.
+	 */
+	private void count(final long n) throws IOException {
+		readBytes += n;
+		if (readBytes > maxBytes) {
+			throw new IOException("Product status API response exceeds the maximum payload size of " + maxBytes + " bytes!");
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the {@code Link} header (RFC 8288) paginated APIs use to point at their other pages, e.g.
+ * {@code <https://example.com/status?page=2>; rel="next", <https://example.com/status?page=9>; rel="last"}.
+ */
+final class LinkHeader {
+
+	static final String NAME = "Link";
+	private static final Pattern RELATION = Pattern.compile("(?i);\\s*rel\\s*=\\s*(?:\"([^\"]*)\"|([^;,\\s]+))");
+
+	private LinkHeader() {
+	}
+
+	/**
+	 * Reads the links of a {@code Link} header. A link with several relations gets added for each of them, the
+	 * first link of a relation wins.
+	 * @param header The value of the header, {@code null} if the response does not contain it.
+	 * @param baseUrl The URL of the response, relative links get resolved against it.
+	 * @return The absolute URLs of the links by their lowercase relations.
+	 */
+	static Map<String, String> parse(final String header, final String baseUrl) {
+		final Map<String, String> links = new HashMap<>();
+		if (header == null) {
+			return links;
+		}
+
+		int start = header.indexOf('<');
+		while (start != -1) {
+			final int end = header.indexOf('>', start);
+			if (end == -1) {
+				break;
+			}
+
+			final int next = header.indexOf('<', end);
+			final String params = header.substring(end + 1, next != -1 ? next : header.length());
+			final String url = resolve(baseUrl, header.substring(start + 1, end).trim());
+			final Matcher matcher = RELATION.matcher(params);
+			if (url != null && matcher.find()) {
+				final String relations = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+				for (String relation : relations.trim().split("\\s+")) {
+					links.putIfAbsent(relation.toLowerCase(Locale.ROOT), url);
+				}
+			}
+
+			start = next;
+		}
+
+		return links;
+	}
+
+	/**
+	 * Resolves a link against the URL of the response.
+	 * @param baseUrl The URL of the response.
+	 * @param link The possibly relative link.
+	 * @return The absolute URL of the link or {@code null} if it is not a valid URL.
+	 */
+	private static String resolve(final String baseUrl, final String link) {
+		try {
+			return URI.create(baseUrl).resolve(link).toString();
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+}
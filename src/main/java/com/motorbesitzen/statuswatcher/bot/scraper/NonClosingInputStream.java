@@ -0,0 +1,23 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.io.FilterInputStream;
+import java.io.InputStream;
+
+/**
+ * An input stream that does not close the stream it wraps. Closing the body of a pooled response reads the rest of
+ * the body so the connection can be reused, which never ends for an API that sends a never ending response. The
+ * owner of the response decides if the rest gets read or if the connection gets dropped instead.
+ */
+class NonClosingInputStream extends FilterInputStream {
+
+	/**
+	 * @param in The stream that stays open.
+	 */
+	NonClosingInputStream(final InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public void close() {
+	}
+}
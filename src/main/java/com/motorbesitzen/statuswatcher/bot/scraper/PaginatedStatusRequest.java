@@ -0,0 +1,459 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.data.StatusPagination;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import com.motorbesitzen.statuswatcher.util.ParseUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Requests product status APIs that split their product statuses across several pages and combines the pages to a
+ * single status list. APIs that number their pages or report the link to their last page get their pages requested
+ * in parallel, so requesting all pages takes about as long as requesting the slowest page. Cursor based APIs and
+ * APIs that only link to their next page get requested one page after another. APIs without pagination get a single
+ * request.
+ */
+@Service
+public class PaginatedStatusRequest {
+
+	private static final int MAX_PAGES = 1000;
+	private final EnvSettings envSettings;
+	private final ResilientStatusRequest apiRequest;
+	private final ProductStatusApiRequest pageCache;
+	private final StatusMetrics metrics;
+	private final ExecutorService pagePool;
+	private final Map<String, Map<String, StatusPage>> lastPages;
+
+	@Autowired
+	private PaginatedStatusRequest(final EnvSettings envSettings, final ResilientStatusRequest apiRequest,
+								   final ProductStatusApiRequest pageCache, final StatusMetrics metrics) {
+		this.envSettings = envSettings;
+		this.apiRequest = apiRequest;
+		this.pageCache = pageCache;
+		this.metrics = metrics;
+		this.pagePool = Executors.newCachedThreadPool(runnable -> {
+			final Thread thread = new Thread(runnable, "status-page-request");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.lastPages = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Requests all pages of the API and blocks until all of them got processed. The pages get requested on their
+	 * own threads, at most as many pages of an API at the same time as the page concurrency allows.
+	 * @param endpoint The product status API to request.
+	 * @return A list of all the matching statuses available in the API or an empty {@code Optional} if no page
+	 * changed since the last request.
+	 * @throws IOException if a page could not be requested.
+	 */
+	public Optional<List<ProductStatus>> getStatusList(final StatusEndpoint endpoint) throws IOException {
+		if (endpoint.getPagination() == null) {
+			return apiRequest.getStatusList(endpoint);
+		}
+
+		try {
+			return new CatalogRequest(endpoint, pageUrl -> requestOnPool(endpoint, pageUrl)).start().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while requesting the pages of " + endpoint.getUrl());
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Requests all pages of the API without blocking.
+	 * @param endpoint The product status API to request.
+	 * @return A future of a list of all the matching statuses available in the API or an empty {@code Optional}
+	 * if no page changed since the last request. Completes exceptionally with an {@code IOException} if a page
+	 * could not be requested.
+	 */
+	public CompletableFuture<Optional<List<ProductStatus>>> getStatusListAsync(final StatusEndpoint endpoint) {
+		if (endpoint.getPagination() == null) {
+			return apiRequest.getStatusListAsync(endpoint);
+		}
+
+		return new CatalogRequest(endpoint, pageUrl -> apiRequest.getStatusPageAsync(endpoint, pageUrl)).start();
+	}
+
+	/**
+	 * Stops the threads of blocking page requests.
+	 */
+	@PreDestroy
+	private void stop() {
+		pagePool.shutdownNow();
+	}
+
+	/**
+	 * Performs a blocking page request on its own thread.
+	 * @param endpoint The product status API.
+	 * @param pageUrl The URL of the page.
+	 * @return A future of the page or an empty {@code Optional} if the page did not change.
+	 */
+	private CompletableFuture<Optional<StatusPage>> requestOnPool(final StatusEndpoint endpoint,
+																  final String pageUrl) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return apiRequest.getStatusPage(endpoint, pageUrl);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, pagePool);
+	}
+
+	/**
+	 * A single request of all pages of an API. The first page tells how to find the other pages. Each page gets
+	 * compared to its last response, so pages that did not change do not need to be read again.
+	 */
+	private final class CatalogRequest {
+
+		private final StatusEndpoint endpoint;
+		private final StatusPagination pagination;
+		private final Function<String, CompletableFuture<Optional<StatusPage>>> pageRequest;
+		private final Map<String, StatusPage> cachedPages;
+		private final NavigableMap<Integer, String> pageUrls;
+		private final AtomicInteger nextPage;
+		private final AtomicInteger endPage;
+		private final AtomicBoolean changed;
+		private String linkParam;
+		private String linkTemplate;
+		private long linkFirstValue;
+		private long linkStep;
+
+		/**
+		 * @param endpoint The paginated product status API.
+		 * @param pageRequest Requests a page by its URL.
+		 */
+		private CatalogRequest(final StatusEndpoint endpoint,
+							   final Function<String, CompletableFuture<Optional<StatusPage>>> pageRequest) {
+			this.endpoint = endpoint;
+			this.pagination = endpoint.getPagination();
+			this.pageRequest = pageRequest;
+			this.cachedPages = lastPages.computeIfAbsent(endpoint.getUrl(), url -> new ConcurrentHashMap<>());
+			this.pageUrls = new ConcurrentSkipListMap<>();
+			this.nextPage = new AtomicInteger(1);
+			this.endPage = new AtomicInteger(MAX_PAGES);
+			this.changed = new AtomicBoolean(false);
+		}
+
+		/**
+		 * Requests the first page and afterwards all other pages.
+		 * @return A future of the combined status list or an empty {@code Optional} if no page changed.
+		 */
+		private CompletableFuture<Optional<List<ProductStatus>>> start() {
+			final String firstPageUrl = getPageUrl(0);
+			return requestPage(0, firstPageUrl).thenCompose(firstPage -> {
+				switch (pagination.getType()) {
+					case StatusPagination.TYPE_CURSOR:
+						return followPages(1, firstPage);
+					case StatusPagination.TYPE_LINK:
+						return learnLinkPattern(firstPageUrl, firstPage) ?
+								requestNumberedPages(getLinkedPageCount(firstPage)) : followPages(1, firstPage);
+					default:
+						return requestNumberedPages(getPageCount(firstPage));
+				}
+			}).thenApply(done -> combinePages());
+		}
+
+		/**
+		 * Requests a page. Uses the last response of the page if it did not change since the last request.
+		 * @param page The number of the page, 0 for the first one.
+		 * @param pageUrl The URL of the page.
+		 * @return A future of the page.
+		 */
+		private CompletableFuture<StatusPage> requestPage(final int page, final String pageUrl) {
+			pageUrls.put(page, pageUrl);
+			return pageRequest.apply(pageUrl).thenCompose(pageOpt -> {
+				if (pageOpt.isPresent()) {
+					return CompletableFuture.completedFuture(pageOpt);
+				}
+
+				if (cachedPages.containsKey(pageUrl)) {
+					return CompletableFuture.completedFuture(Optional.of(cachedPages.get(pageUrl)));
+				}
+
+				// the response of the page got lost, so request it again without any cache validators
+				pageCache.forget(pageUrl);
+				return pageRequest.apply(pageUrl);
+			}).thenApply(pageOpt -> {
+				final StatusPage statusPage = pageOpt.orElseThrow(() -> new CompletionException(
+						new IOException("Page " + pageUrl + " did not change but its last response is unknown!")
+				));
+				if (cachedPages.put(pageUrl, statusPage) != statusPage) {
+					changed.set(true);
+				}
+
+				return statusPage;
+			}).whenComplete((statusPage, throwable) -> {
+				if (throwable != null) {
+					endPage.set(0);
+				}
+			});
+		}
+
+		/**
+		 * Requests the numbered pages after the first page in parallel. Each worker requests the next page that
+		 * did not get requested yet until all pages got requested. If the amount of pages is unknown the first page
+		 * without product statuses is the end.
+		 * @param pageCount The amount of pages or -1 if it is unknown.
+		 * @return A future that completes when all pages got requested.
+		 */
+		private CompletableFuture<Void> requestNumberedPages(final int pageCount) {
+			if (pageCount > MAX_PAGES) {
+				LogUtil.logWarning(endpoint.getUrl() + " has " + pageCount + " pages, only requesting the first " + MAX_PAGES + ".");
+			}
+
+			endPage.set(pageCount >= 0 ? Math.max(1, Math.min(MAX_PAGES, pageCount)) : MAX_PAGES);
+			final CompletableFuture<?>[] workers = new CompletableFuture<?>[envSettings.getPageConcurrency()];
+			for (int i = 0; i < workers.length; i++) {
+				workers[i] = requestNextPages(pageCount < 0);
+			}
+
+			return CompletableFuture.allOf(workers);
+		}
+
+		/**
+		 * Requests the next page that did not get requested yet and continues with the page after it once the page
+		 * got processed.
+		 * @param endAtEmptyPage {@code true} if a page without product statuses is the end, {@code false} if not.
+		 * @return A future that completes when there is no page left.
+		 */
+		private CompletableFuture<Void> requestNextPages(final boolean endAtEmptyPage) {
+			final int page = nextPage.getAndIncrement();
+			if (page >= endPage.get()) {
+				return CompletableFuture.completedFuture(null);
+			}
+
+			return requestPage(page, getPageUrl(page)).thenCompose(statusPage -> {
+				if (endAtEmptyPage && statusPage.getStatusList().isEmpty()) {
+					endPage.accumulateAndGet(page, Math::min);
+				}
+
+				return requestNextPages(endAtEmptyPage);
+			});
+		}
+
+		/**
+		 * Requests the pages one after another by following the cursor or the link to the next page. Stops if a
+		 * page links to a page that got requested already.
+		 * @param page The number of the next page.
+		 * @param lastPage The page before the next page.
+		 * @return A future that completes when there is no page left.
+		 */
+		private CompletableFuture<Void> followPages(final int page, final StatusPage lastPage) {
+			final String nextPageUrl = getNextPageUrl(lastPage);
+			if (nextPageUrl == null || pageUrls.containsValue(nextPageUrl)) {
+				endPage.set(page);
+				return CompletableFuture.completedFuture(null);
+			}
+
+			if (page >= MAX_PAGES) {
+				LogUtil.logWarning(endpoint.getUrl() + " has more than " + MAX_PAGES + " pages, only requesting the first " + MAX_PAGES + ".");
+				endPage.set(page);
+				return CompletableFuture.completedFuture(null);
+			}
+
+			return requestPage(page, nextPageUrl).thenCompose(statusPage -> followPages(page + 1, statusPage));
+		}
+
+		/**
+		 * Gets the URL of the page after a page of a cursor based or a linked API.
+		 * @param statusPage The page.
+		 * @return The URL of the next page or {@code null} if it is the last page.
+		 */
+		private String getNextPageUrl(final StatusPage statusPage) {
+			if (StatusPagination.TYPE_LINK.equals(pagination.getType())) {
+				return statusPage.getLink("next");
+			}
+
+			final String cursor = statusPage.getCursor();
+			if (cursor == null || cursor.isBlank()) {
+				return null;
+			}
+
+			return withSize(QueryParams.with(endpoint.getUrl(), pagination.getParam(), cursor));
+		}
+
+		/**
+		 * Builds the URL of a page. Only the first page of cursor based APIs and of APIs with unnumbered links is
+		 * known in advance.
+		 * @param page The number of the page, 0 for the first one.
+		 * @return The URL of the page.
+		 */
+		private String getPageUrl(final int page) {
+			switch (pagination.getType()) {
+				case StatusPagination.TYPE_PAGE:
+					return withSize(QueryParams.with(
+							endpoint.getUrl(), pagination.getParam(), String.valueOf(pagination.getFirstPage() + page)
+					));
+				case StatusPagination.TYPE_OFFSET:
+					return withSize(QueryParams.with(
+							endpoint.getUrl(), pagination.getParam(), String.valueOf((long) page * pagination.getSize())
+					));
+				case StatusPagination.TYPE_LINK:
+					return page > 0 ?
+							QueryParams.with(linkTemplate, linkParam, String.valueOf(linkFirstValue + page * linkStep)) :
+							endpoint.getUrl();
+				default:
+					return withSize(endpoint.getUrl());
+			}
+		}
+
+		/**
+		 * Adds the page size to the URL of a page if the API expects it.
+		 * @param pageUrl The URL of the page.
+		 * @return The URL of the page with its size.
+		 */
+		private String withSize(final String pageUrl) {
+			if (pagination.getSizeParam() == null) {
+				return pageUrl;
+			}
+
+			return QueryParams.with(pageUrl, pagination.getSizeParam(), String.valueOf(pagination.getSize()));
+		}
+
+		/**
+		 * Calculates the amount of pages of a page numbered or an offset based API.
+		 * @param firstPage The first page of the API.
+		 * @return The amount of pages or -1 if the API does not report it.
+		 */
+		private int getPageCount(final StatusPage firstPage) {
+			final long total = firstPage.getTotal();
+			if (total < 0) {
+				return -1;
+			}
+
+			final long pages = StatusPagination.TYPE_OFFSET.equals(pagination.getType()) ?
+					(total + pagination.getSize() - 1) / pagination.getSize() : total;
+			return (int) Math.min(Integer.MAX_VALUE, pages);
+		}
+
+		/**
+		 * Learns how the links of an API number their pages. The link to the next and to the last page have to be
+		 * the same except for a single numeric query parameter, e.g. {@code ?page=2} and {@code ?page=9} or
+		 * {@code ?offset=100} and {@code ?offset=800}.
+		 * @param firstPageUrl The URL of the first page.
+		 * @param firstPage The first page of the API.
+		 * @return {@code true} if the URLs of all pages are known, {@code false} if the links have to be followed.
+		 */
+		private boolean learnLinkPattern(final String firstPageUrl, final StatusPage firstPage) {
+			final String nextPageUrl = firstPage.getLink("next");
+			final String lastPageUrl = firstPage.getLink("last");
+			if (nextPageUrl == null || lastPageUrl == null) {
+				return false;
+			}
+
+			final Map<String, String> nextParams = QueryParams.parse(nextPageUrl);
+			final Map<String, String> lastParams = QueryParams.parse(lastPageUrl);
+			final Set<String> differentParams = new HashSet<>();
+			for (Map.Entry<String, String> param : nextParams.entrySet()) {
+				if (!param.getValue().equals(lastParams.get(param.getKey()))) {
+					differentParams.add(param.getKey());
+				}
+			}
+
+			if (differentParams.size() != 1 || !nextParams.keySet().equals(lastParams.keySet()) ||
+					!withoutQuery(nextPageUrl).equals(withoutQuery(lastPageUrl))) {
+				return false;
+			}
+
+			final String param = differentParams.iterator().next();
+			final long nextValue = ParseUtil.safelyParseStringToLong(nextParams.get(param));
+			final long lastValue = ParseUtil.safelyParseStringToLong(lastParams.get(param));
+			final String firstValueText = QueryParams.parse(firstPageUrl).get(param);
+			final long firstValue = firstValueText != null ? ParseUtil.safelyParseStringToLong(firstValueText) :
+					nextValue <= 2 ? nextValue - 1 : 0;
+			final long step = nextValue - firstValue;
+			if (nextValue < 0 || lastValue < nextValue || firstValue < 0 || step <= 0 || (lastValue - firstValue) % step != 0) {
+				return false;
+			}
+
+			linkParam = param;
+			linkTemplate = nextPageUrl;
+			linkFirstValue = firstValue;
+			linkStep = step;
+			return true;
+		}
+
+		/**
+		 * Calculates the amount of pages of an API from its link to the last page.
+		 * @param firstPage The first page of the API.
+		 * @return The amount of pages.
+		 */
+		private int getLinkedPageCount(final StatusPage firstPage) {
+			final long lastValue = ParseUtil.safelyParseStringToLong(QueryParams.parse(firstPage.getLink("last")).get(linkParam));
+			return (int) Math.min(Integer.MAX_VALUE, (lastValue - linkFirstValue) / linkStep + 1);
+		}
+
+		/**
+		 * Removes the query and the fragment of a URL.
+		 * @param url The URL.
+		 * @return The URL without its query and its fragment.
+		 */
+		private String withoutQuery(final String url) {
+			final int end = url.indexOf('?');
+			return end != -1 ? url.substring(0, end) : url.split("#", 2)[0];
+		}
+
+		/**
+		 * Combines the product statuses of all pages up to the last page in the order of the pages. Forgets the
+		 * responses of pages that did not get requested this time.
+		 * @return The combined status list or an empty {@code Optional} if no page changed.
+		 */
+		private Optional<List<ProductStatus>> combinePages() {
+			final List<ProductStatus> statusList = new ArrayList<>();
+			for (String pageUrl : pageUrls.headMap(endPage.get()).values()) {
+				statusList.addAll(cachedPages.get(pageUrl).getStatusList());
+			}
+
+			final Set<String> requestedPageUrls = new HashSet<>(pageUrls.values());
+			for (String pageUrl : Set.copyOf(cachedPages.keySet())) {
+				if (!requestedPageUrls.contains(pageUrl)) {
+					final StatusPage removedPage = cachedPages.remove(pageUrl);
+					pageCache.forget(pageUrl);
+					if (removedPage != null && !removedPage.getStatusList().isEmpty()) {
+						changed.set(true);
+					}
+				}
+			}
+
+			metrics.countRequestedPages(pageUrls.size());
+			return changed.get() ? Optional.of(statusList) : Optional.empty();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.util.function.Function;
+
+/**
+ * A processed response of a product status API whose state for the next request, i.e. the hash of its body, its
+ * cache validators and the cursor of an API that returns its changes, did not get saved yet. Hedged requests send
+ * the same request twice, so only the response that wins may save its state. A losing response that arrives later
+ * would otherwise replace the state of the winner with the state of a response nobody got to see.
+ * @param <T> The type of the result of the response.
+ */
+final class PendingResponse<T> {
+
+	private final T result;
+	private final Runnable commit;
+
+	/**
+	 * @param result The result of the response.
+	 * @param commit Saves the state of the response for the next request.
+	 */
+	PendingResponse(final T result, final Runnable commit) {
+		this.result = result;
+		this.commit = commit;
+	}
+
+	/**
+	 * Creates a response that has no state to save, e.g. a response that tells that nothing changed.
+	 * @param result The result of the response.
+	 * @param <T> The type of the result of the response.
+	 * @return The response.
+	 */
+	static <T> PendingResponse<T> withoutState(final T result) {
+		return new PendingResponse<>(result, () -> {
+		});
+	}
+
+	/**
+	 * Creates a response with another result that saves the same state.
+	 * @param mapper Transforms the result.
+	 * @param <R> The type of the transformed result.
+	 * @return The response with the transformed result.
+	 */
+	<R> PendingResponse<R> map(final Function<T, R> mapper) {
+		return new PendingResponse<>(mapper.apply(result), commit);
+	}
+
+	/**
+	 * @return The result of the response without saving its state.
+	 */
+	T getResult() {
+		return result;
+	}
+
+	/**
+	 * Saves the state of the response for the next request.
+	 * @return The result of the response.
+	 */
+	T commit() {
+		commit.run();
+		return result;
+	}
+}
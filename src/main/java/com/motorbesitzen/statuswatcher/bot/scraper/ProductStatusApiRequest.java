@@ -1,117 +1,615 @@
 package com.motorbesitzen.statuswatcher.bot.scraper;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
 import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.data.StatusDelta;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.data.StatusPagination;
+import com.motorbesitzen.statuswatcher.util.ParseUtil;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
- * Class to perform product status API requests.
+ * Class to perform product status API requests. Requests can either block the calling thread or run
+ * asynchronously without occupying a thread while waiting for the API. APIs that can return only their changed
+ * products get requested with the cursor of their last response. Asynchronous requests can also be prepared
+ * without saving their state for the next request, so only one of several requests of the same URL saves it.
  */
 @Service
 public class ProductStatusApiRequest {
 
-	private static final int REQUEST_TIMEOUT_MS = 10000;
 	private final EnvSettings envSettings;
-	private final ObjectMapper objectMapper;
+	private final ProductStatusExtractor extractor;
+	private final HtmlStatusExtractor htmlExtractor;
+	private final CloseableHttpClient httpClient;
+	private final HttpClient asyncHttpClient;
+	private final CachingDnsResolver dnsResolver;
+	private final StatusMetrics metrics;
+	private final Map<String, CacheValidators> validators;
+	private final Map<String, Long> payloadDigests;
+	private final Map<String, DeltaCursor> deltaCursors;
 
 	@Autowired
-	private ProductStatusApiRequest(final EnvSettings envSettings, final ObjectMapper objectMapper) {
+	private ProductStatusApiRequest(final EnvSettings envSettings, final ProductStatusExtractor extractor,
+									final HtmlStatusExtractor htmlExtractor, final CloseableHttpClient httpClient,
+									final HttpClient asyncHttpClient, final CachingDnsResolver dnsResolver,
+									final StatusMetrics metrics) {
 		this.envSettings = envSettings;
-		this.objectMapper = objectMapper;
+		this.extractor = extractor;
+		this.htmlExtractor = htmlExtractor;
+		this.httpClient = httpClient;
+		this.asyncHttpClient = asyncHttpClient;
+		this.dnsResolver = dnsResolver;
+		this.metrics = metrics;
+		this.validators = new ConcurrentHashMap<>();
+		this.payloadDigests = new ConcurrentHashMap<>();
+		this.deltaCursors = new ConcurrentHashMap<>();
 	}
 
 	/**
-	 * Requests the status list from the API.
-	 * @return A list of all the matching statuses available in the API.
+	 * Requests the status list from the API and blocks until the response got processed. The request is
+	 * conditional if the API sent an {@code ETag} or a {@code Last-Modified} header with its last response, so the
+	 * API does not need to send its content again if nothing changed.
+	 * @param endpoint The product status API to request.
+	 * @return A list of all the matching statuses available in the API or an empty {@code Optional} if the
+	 * content of the API did not change since the last request.
 	 * @throws IOException if the API times out or if the response can not be understood.
 	 * @throws IllegalStateException if the API URL is not set.
 	 */
-	public List<ProductStatus> getStatusList() throws IOException {
-		final String statusApiUrl = envSettings.getProductStatusApiUrl();
-		if (statusApiUrl.isBlank()) {
-			throw new IllegalStateException("Product status API URL not set!");
+	public Optional<List<ProductStatus>> getStatusList(final StatusEndpoint endpoint) throws IOException {
+		return getStatusPage(endpoint, getUrl(endpoint)).map(StatusPage::getStatusList);
+	}
+
+	/**
+	 * Requests a single page of a paginated API and blocks until the response got processed. The request is
+	 * conditional just like {@link #getStatusList(StatusEndpoint)}. The connection gets dropped instead of reused if
+	 * the response could not be processed, as the rest of a response that exceeds the maximum payload size or of an
+	 * unexpected response might never end.
+	 * @param endpoint The product status API to request.
+	 * @param statusApiUrl The URL of the page.
+	 * @return The product statuses of the page and the information about the other pages or an empty
+	 * {@code Optional} if the page did not change since the last request.
+	 * @throws IOException if the API times out or if the response can not be understood.
+	 */
+	Optional<StatusPage> getStatusPage(final StatusEndpoint endpoint, final String statusApiUrl) throws IOException {
+		final int timeoutMs = endpoint.getRequestTimeoutMs();
+		final HttpGet request = new HttpGet(statusApiUrl);
+		request.setConfig(RequestConfig.custom()
+				.setConnectTimeout(timeoutMs)
+				.setConnectionRequestTimeout(timeoutMs)
+				.setSocketTimeout(timeoutMs)
+				.build());
+		addRequestHeaders(statusApiUrl, request::setHeader);
+		try (CloseableHttpResponse response = httpClient.execute(request)) {
+			final HttpEntity entity = response.getEntity();
+			final InputStream body = entity != null ? entity.getContent() : InputStream.nullInputStream();
+			final Function<String, String> headers = name -> {
+				final Header header = response.getFirstHeader(name);
+				return header != null ? header.getValue() : null;
+			};
+
+			final PendingResponse<Optional<StatusPage>> pending;
+			try {
+				pending = handleResponse(endpoint, statusApiUrl, response.getStatusLine().getStatusCode(), headers,
+						new NonClosingInputStream(body));
+			} catch (IOException | RuntimeException e) {
+				request.abort();
+				throw e;
+			}
+
+			EntityUtils.consumeQuietly(entity);
+			return pending.commit();
 		}
+	}
 
-		return getProductStatusList(statusApiUrl);
+	/**
+	 * Requests the status list from the API without blocking. The response body gets collected without occupying
+	 * a thread, only the processing of the complete body runs on a thread of the HTTP client. The request is
+	 * conditional just like {@link #getStatusList(StatusEndpoint)}.
+	 * @param endpoint The product status API to request.
+	 * @return A future of a list of all the matching statuses available in the API or an empty {@code Optional}
+	 * if the content of the API did not change since the last request. Completes exceptionally with an
+	 * {@code IOException} if the API times out or if the response can not be understood.
+	 */
+	public CompletableFuture<Optional<List<ProductStatus>>> getStatusListAsync(final StatusEndpoint endpoint) {
+		return prepareStatusListAsync(endpoint).thenApply(PendingResponse::commit);
 	}
 
 	/**
-	 * Requests the product status from the API and transforms the JSON response to a list of product statuses.
-	 * @param statusApiUrl The URL of the product status API.
-	 * @return A list of all the matching statuses available in the API.
+	 * Requests the status list from the API without blocking just like {@link #getStatusListAsync(StatusEndpoint)}
+	 * but does not save the state of the response for the next request.
+	 * @param endpoint The product status API to request.
+	 * @return A future of the response that saves its state once it gets committed.
+	 */
+	CompletableFuture<PendingResponse<Optional<List<ProductStatus>>>> prepareStatusListAsync(
+			final StatusEndpoint endpoint) {
+		final String statusApiUrl;
+		try {
+			statusApiUrl = getUrl(endpoint);
+		} catch (IllegalStateException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		return prepareStatusPageAsync(endpoint, statusApiUrl)
+				.thenApply(pending -> pending.map(page -> page.map(StatusPage::getStatusList)));
+	}
+
+	/**
+	 * Requests a single page of a paginated API without blocking just like
+	 * {@link #getStatusListAsync(StatusEndpoint)}.
+	 * @param endpoint The product status API to request.
+	 * @param statusApiUrl The URL of the page.
+	 * @return A future of the product statuses of the page and the information about the other pages or an empty
+	 * {@code Optional} if the page did not change since the last request. Completes exceptionally with an
+	 * {@code IOException} if the API times out or if the response can not be understood.
+	 */
+	CompletableFuture<Optional<StatusPage>> getStatusPageAsync(final StatusEndpoint endpoint,
+															   final String statusApiUrl) {
+		return prepareStatusPageAsync(endpoint, statusApiUrl).thenApply(PendingResponse::commit);
+	}
+
+	/**
+	 * Requests a single page of a paginated API without blocking just like
+	 * {@link #getStatusPageAsync(StatusEndpoint, String)} but does not save the state of the response for the next
+	 * request. The asynchronous client resolves hosts on its own, so the host of the request and the host the
+	 * response came from after redirects get checked by the caching resolver just like the hosts of blocking
+	 * requests.
+	 * @param endpoint The product status API to request.
+	 * @param statusApiUrl The URL of the page.
+	 * @return A future of the response that saves its state once it gets committed.
+	 */
+	CompletableFuture<PendingResponse<Optional<StatusPage>>> prepareStatusPageAsync(final StatusEndpoint endpoint,
+																					final String statusApiUrl) {
+		final HttpRequest.Builder requestBuilder;
+		try {
+			final URI uri = URI.create(statusApiUrl);
+			requestBuilder = HttpRequest.newBuilder(uri)
+					.timeout(Duration.ofMillis(endpoint.getRequestTimeoutMs()))
+					.GET();
+			dnsResolver.resolve(uri.getHost());
+		} catch (IllegalArgumentException | UnknownHostException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		addRequestHeaders(statusApiUrl, requestBuilder::setHeader);
+		final long maxPayloadSize = envSettings.getProductStatusMaxPayloadSize();
+		return asyncHttpClient.sendAsync(requestBuilder.build(), responseInfo -> new LimitedBodySubscriber(maxPayloadSize))
+				.thenApply(response -> {
+					try {
+						dnsResolver.resolve(response.uri().getHost());
+						return handleResponse(
+								endpoint, statusApiUrl, response.statusCode(),
+								name -> response.headers().firstValue(name).orElse(null),
+								new ByteArrayInputStream(response.body())
+						);
+					} catch (IOException e) {
+						throw new CompletionException(e);
+					}
+				});
+	}
+
+	/**
+	 * Requests the products of the API that changed since the last request and blocks until the response got
+	 * processed. The complete status list gets requested instead if there is no cursor yet or if the changes got
+	 * requested often enough that a resync is due, so changes the deltas missed do not stay unnoticed. Requests of
+	 * changes are never conditional as their URL changes with each cursor.
+	 * @param endpoint The product status API to request, it needs a delta.
+	 * @return The changed products or all products of the API.
 	 * @throws IOException if the API times out or if the response can not be understood.
+	 * @throws IllegalStateException if the API URL is not set.
+	 */
+	public Optional<DeltaResponse> getStatusDelta(final StatusEndpoint endpoint) throws IOException {
+		final DeltaCursor cursor = getDeltaCursor(endpoint);
+		final String statusApiUrl = cursor.getRequestUrl(endpoint);
+		try {
+			return getStatusPage(endpoint, statusApiUrl).map(page -> cursor.prepare(endpoint, statusApiUrl, page).commit());
+		} finally {
+			forget(statusApiUrl);
+		}
+	}
+
+	/**
+	 * Requests the products of the API that changed since the last request without blocking just like
+	 * {@link #getStatusDelta(StatusEndpoint)}.
+	 * @param endpoint The product status API to request, it needs a delta.
+	 * @return A future of the changed products or all products of the API. Completes exceptionally with an
+	 * {@code IOException} if the API times out or if the response can not be understood.
+	 */
+	public CompletableFuture<Optional<DeltaResponse>> getStatusDeltaAsync(final StatusEndpoint endpoint) {
+		return prepareStatusDeltaAsync(endpoint).thenApply(PendingResponse::commit);
+	}
+
+	/**
+	 * Requests the products of the API that changed since the last request without blocking just like
+	 * {@link #getStatusDeltaAsync(StatusEndpoint)} but does not move the cursor of the API. Requests of changes
+	 * never keep the hash or the validators of their response, so only the cursor gets saved on a commit.
+	 * @param endpoint The product status API to request, it needs a delta.
+	 * @return A future of the response that moves the cursor once it gets committed.
+	 */
+	CompletableFuture<PendingResponse<Optional<DeltaResponse>>> prepareStatusDeltaAsync(
+			final StatusEndpoint endpoint) {
+		final DeltaCursor cursor;
+		try {
+			cursor = getDeltaCursor(endpoint);
+		} catch (IllegalStateException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		final String statusApiUrl = cursor.getRequestUrl(endpoint);
+		return prepareStatusPageAsync(endpoint, statusApiUrl).thenApply(pending -> {
+			final Optional<StatusPage> page = pending.getResult();
+			if (page.isEmpty()) {
+				return PendingResponse.withoutState(Optional.empty());
+			}
+
+			return cursor.prepare(endpoint, statusApiUrl, page.get()).map(Optional::of);
+		});
+	}
+
+	/**
+	 * Gets the cursor of an API that can return only its changed products.
+	 * @param endpoint The product status API.
+	 * @return The cursor of the API.
+	 * @throws IllegalStateException if the API URL is not set.
+	 */
+	private DeltaCursor getDeltaCursor(final StatusEndpoint endpoint) {
+		return deltaCursors.computeIfAbsent(getUrl(endpoint), url -> new DeltaCursor());
+	}
+
+	/**
+	 * Checks if the URL of a product status API is set.
+	 * @param endpoint The product status API.
+	 * @return The URL of the product status API.
+	 * @throws IllegalStateException if the API URL is not set.
 	 */
-	private List<ProductStatus> getProductStatusList(String statusApiUrl) throws IOException {
-		final String json = getProductStatus(statusApiUrl);
-		final JsonNode rootNode = objectMapper.readTree(json);
-		return processJsonNode(rootNode, new ArrayList<>());
+	private String getUrl(final StatusEndpoint endpoint) {
+		final String statusApiUrl = endpoint.getUrl();
+		if (statusApiUrl == null || statusApiUrl.isBlank()) {
+			throw new IllegalStateException("Product status API URL not set!");
+		}
+
+		return statusApiUrl;
 	}
 
 	/**
-	 * Executes the GET request to the API and parses the response body to text.
+	 * Adds the supported content encodings and the conditional headers to a request.
 	 * @param statusApiUrl The URL of the product status API.
-	 * @return The response in JSON.
-	 * @throws IOException if the API times out or if the response can not be understood.
+	 * @param headerSetter Sets a header of the request.
 	 */
-	private String getProductStatus(final String statusApiUrl) throws IOException {
-		final RequestConfig config = RequestConfig.custom()
-				.setConnectTimeout(REQUEST_TIMEOUT_MS)
-				.setConnectionRequestTimeout(REQUEST_TIMEOUT_MS)
-				.setSocketTimeout(REQUEST_TIMEOUT_MS)
-				.build();
-		final HttpClient httpClient = HttpClientBuilder.create().setDefaultRequestConfig(config).build();
-		final HttpGet request = new HttpGet(statusApiUrl);
-		final HttpResponse response = httpClient.execute(request);
-		final HttpEntity entity = response.getEntity();
-		final BufferedReader reader = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8));
-		final String line = reader.readLine();
-		reader.close();
-		return line;
-	}
-
-	/**
-	 * Recursively traverses the JSON node tree to find every object that can be parsed to a product status object.
-	 * @param node The current node.
-	 * @param statusList The current list of product statuses.
-	 * @return The list of product statuses.
-	 */
-	private List<ProductStatus> processJsonNode(final JsonNode node, final List<ProductStatus> statusList) {
-		if (node == null) {
-			return statusList;
-		} else if (node.isValueNode()) {
-			return statusList;
-		} else if (node.isArray()) {
-			for (JsonNode arrayContent : node) {
-				processJsonNode(arrayContent, statusList);
+	private void addRequestHeaders(final String statusApiUrl, final BiConsumer<String, String> headerSetter) {
+		headerSetter.accept(HttpHeaders.ACCEPT_ENCODING, ContentDecoding.getAcceptEncoding());
+		final CacheValidators lastValidators = validators.get(statusApiUrl);
+		if (lastValidators != null) {
+			lastValidators.addTo(headerSetter);
+		}
+	}
+
+	/**
+	 * Forgets the cache validators and the hash of the last response of a URL, so the next request to it gets a
+	 * complete response.
+	 * @param statusApiUrl The URL of the product status API or of one of its pages.
+	 */
+	void forget(final String statusApiUrl) {
+		validators.remove(statusApiUrl);
+		payloadDigests.remove(statusApiUrl);
+	}
+
+	/**
+	 * Transforms a response of the API to a page of product statuses.
+	 * @param endpoint The product status API.
+	 * @param statusApiUrl The URL of the product status API or of one of its pages.
+	 * @param statusCode The HTTP status code of the response.
+	 * @param headers Looks up the first value of a response header, returns {@code null} if there is none.
+	 * @param body The encoded response body.
+	 * @return The matching statuses in the response or an empty {@code Optional} if the content of the API did not
+	 * change since the last request, together with the state of the response for the next request.
+	 * @throws IOException if the response can not be understood.
+	 */
+	private PendingResponse<Optional<StatusPage>> handleResponse(final StatusEndpoint endpoint, final String statusApiUrl,
+												final int statusCode, final Function<String, String> headers,
+												final InputStream body) throws IOException {
+		if (statusCode == HttpStatus.SC_NOT_MODIFIED) {
+			metrics.countNotModified();
+			return PendingResponse.withoutState(Optional.empty());
+		}
+
+		if (statusCode != HttpStatus.SC_OK) {
+			throw new UnexpectedStatusException(statusCode);
+		}
+
+		metrics.countModified();
+		return getProductStatus(endpoint, statusApiUrl, headers, body);
+	}
+
+	/**
+	 * Reads the whole response body and extracts the product statuses from it. Decodes a compressed body and
+	 * hashes the decoded body while it gets read and skips the extraction if the body is byte-identical to the
+	 * last body of the URL. All pages of an API share the learned location of their product statuses. HTML status
+	 * pages get extracted while they get read instead, so they never need to be kept in memory as a whole. The hash
+	 * and the cache validators of the response only get saved once the response gets committed.
+	 * A decoded JSON body does get kept in memory as a whole, up to the maximum payload size. Its hash is only known
+	 * once the body got read, so parsing it while it gets read would parse every unchanged body that now gets
+	 * skipped. The search of the whole body if there are no product statuses at the learned location and the
+	 * cursor and total of paginated APIs also need to read the body a second time.
+	 * @param endpoint The product status API.
+	 * @param statusApiUrl The URL of the product status API or of one of its pages.
+	 * @param headers Looks up the first value of a response header, returns {@code null} if there is none.
+	 * @param body The encoded response body.
+	 * @return The matching statuses in the response or an empty {@code Optional} if the response is the same as
+	 * the last one, together with the state of the response for the next request.
+	 * @throws IOException if the response can not be read, is too big or is not valid JSON.
+	 */
+	private PendingResponse<Optional<StatusPage>> getProductStatus(final StatusEndpoint endpoint, final String statusApiUrl,
+												  final Function<String, String> headers,
+												  final InputStream body) throws IOException {
+		final long maxPayloadSize = envSettings.getProductStatusMaxPayloadSize();
+		final String contentLength = headers.apply(HttpHeaders.CONTENT_LENGTH);
+		if (contentLength != null && ParseUtil.safelyParseStringToLong(contentLength) > maxPayloadSize) {
+			throw new IOException("Product status API response exceeds the maximum payload size of " + maxPayloadSize + " bytes!");
+		}
+
+		final byte[] payload;
+		final List<ProductStatus> htmlStatusList;
+		final long digest;
+		try (LimitedInputStream encoded = new LimitedInputStream(body, maxPayloadSize);
+			 LimitedInputStream decoded = new LimitedInputStream(
+					 ContentDecoding.decode(headers.apply(HttpHeaders.CONTENT_ENCODING), encoded),
+					 maxPayloadSize
+			 );
+			 HashingInputStream content = new HashingInputStream(decoded)) {
+			if (endpoint.getHtml() != null) {
+				payload = null;
+				htmlStatusList = htmlExtractor.extract(endpoint.getHtml(), content, getCharset(headers));
+			} else {
+				payload = content.readAllBytes();
+				htmlStatusList = null;
 			}
-		} else if (node.isObject()) {
-			try {
-				final ProductStatus productStatus = objectMapper.treeToValue(node, ProductStatus.class);
-				statusList.add(productStatus);
-			} catch (JsonProcessingException e) {
-				for (JsonNode objectContent : node) {
-					processJsonNode(objectContent, statusList);
+
+			digest = content.getDigest();
+			metrics.countTransferredBytes(encoded.getReadBytes(), decoded.getReadBytes());
+		}
+
+		final CacheValidators newValidators = CacheValidators.of(headers);
+		final Long lastDigest = payloadDigests.get(statusApiUrl);
+		if (lastDigest != null && lastDigest == digest) {
+			metrics.countUnchangedPayload();
+			return new PendingResponse<>(Optional.empty(), () -> updateValidators(statusApiUrl, newValidators));
+		}
+
+		final List<ProductStatus> statusList = htmlStatusList != null ?
+				htmlStatusList : extractor.extract(endpoint.getUrl(), payload);
+		final StatusPage page = createPage(endpoint, statusApiUrl, headers, payload, statusList);
+		metrics.countChangedPayload();
+		return new PendingResponse<>(Optional.of(page), () -> {
+			payloadDigests.put(statusApiUrl, digest);
+			updateValidators(statusApiUrl, newValidators);
+		});
+	}
+
+	/**
+	 * Reads what a response tells about the other pages of a paginated API or about the next request of an API
+	 * that returns its changes.
+	 * @param endpoint The product status API.
+	 * @param statusApiUrl The URL of the page.
+	 * @param headers Looks up the first value of a response header, returns {@code null} if there is none.
+	 * @param payload The decoded response body, {@code null} for an HTML status page.
+	 * @param statusList The product statuses in the response.
+	 * @return The page of product statuses.
+	 * @throws IOException if the response is not valid JSON.
+	 */
+	private StatusPage createPage(final StatusEndpoint endpoint, final String statusApiUrl,
+								  final Function<String, String> headers, final byte[] payload,
+								  final List<ProductStatus> statusList) throws IOException {
+		final StatusDelta delta = endpoint.getDelta();
+		if (delta != null) {
+			final String cursor = delta.getCursorPath() != null ?
+					extractor.extractValue(payload, delta.getCursorPath()) : getResponseTime(headers);
+			return new StatusPage(statusList, Map.of(), cursor, -1);
+		}
+
+		final StatusPagination pagination = endpoint.getPagination();
+		if (pagination == null) {
+			return new StatusPage(statusList, Map.of(), null, -1);
+		}
+
+		final Map<String, String> links = StatusPagination.TYPE_LINK.equals(pagination.getType()) ?
+				LinkHeader.parse(headers.apply(LinkHeader.NAME), statusApiUrl) : Map.of();
+		final String cursor = pagination.getCursorPath() != null ?
+				extractor.extractValue(payload, pagination.getCursorPath()) : null;
+		final long total = pagination.getTotalPath() != null ?
+				ParseUtil.safelyParseStringToLong(extractor.extractValue(payload, pagination.getTotalPath())) : -1;
+		return new StatusPage(statusList, links, cursor, total);
+	}
+
+	/**
+	 * Reads the charset of a response from its {@code Content-Type} header.
+	 * @param headers Looks up the first value of a response header, returns {@code null} if there is none.
+	 * @return The charset of the response or UTF-8 if the header does not name a supported charset.
+	 */
+	private Charset getCharset(final Function<String, String> headers) {
+		final String contentType = headers.apply(HttpHeaders.CONTENT_TYPE);
+		if (contentType == null) {
+			return StandardCharsets.UTF_8;
+		}
+
+		for (String param : contentType.split(";")) {
+			final String[] keyValue = param.split("=", 2);
+			if (keyValue.length == 2 && keyValue[0].trim().equalsIgnoreCase("charset")) {
+				try {
+					return Charset.forName(keyValue[1].trim().replace("\"", ""));
+				} catch (IllegalArgumentException e) {
+					return StandardCharsets.UTF_8;
 				}
 			}
 		}
 
-		return statusList;
+		return StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Reads the time of a response from its {@code Date} header. The time of the API gets used instead of the
+	 * local time, so clocks that are not in sync do not lead to missed changes.
+	 * @param headers Looks up the first value of a response header, returns {@code null} if there is none.
+	 * @return The time of the response as ISO 8601 timestamp or {@code null} if the header is missing or invalid.
+	 */
+	private String getResponseTime(final Function<String, String> headers) {
+		final String date = headers.apply(HttpHeaders.DATE);
+		if (date == null) {
+			return null;
+		}
+
+		try {
+			return DateTimeFormatter.RFC_1123_DATE_TIME.parse(date.trim(), Instant::from).toString();
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the cache validators of a response so the next request can be conditional. Removes the saved
+	 * validators if the response does not contain any.
+	 * @param statusApiUrl The URL of the product status API.
+	 * @param newValidators The cache validators of the response, {@code null} if it does not contain any.
+	 */
+	private void updateValidators(final String statusApiUrl, final CacheValidators newValidators) {
+		if (newValidators == null) {
+			validators.remove(statusApiUrl);
+			return;
+		}
+
+		validators.put(statusApiUrl, newValidators);
+	}
+
+	/**
+	 * The cursor of an API that can return only its changed products and the amount of requests since the complete
+	 * status list got requested.
+	 */
+	private final class DeltaCursor {
+
+		private String cursor;
+		private int deltasSinceResync;
+
+		/**
+		 * Decides if the next request asks for the changes or for the complete status list.
+		 * @param endpoint The product status API.
+		 * @return The URL of the next request.
+		 */
+		private synchronized String getRequestUrl(final StatusEndpoint endpoint) {
+			final StatusDelta delta = endpoint.getDelta();
+			if (cursor == null || deltasSinceResync >= delta.getResyncEvery()) {
+				return endpoint.getUrl();
+			}
+
+			return QueryParams.with(endpoint.getUrl(), delta.getParam(), cursor);
+		}
+
+		/**
+		 * Reads the changes of a response. The cursor of the response only gets saved for the next request once the
+		 * response gets committed.
+		 * @param endpoint The product status API.
+		 * @param statusApiUrl The URL of the request.
+		 * @param page The response.
+		 * @return The changed products or all products of the API.
+		 */
+		private PendingResponse<DeltaResponse> prepare(final StatusEndpoint endpoint, final String statusApiUrl,
+													   final StatusPage page) {
+			final boolean complete = statusApiUrl.equals(endpoint.getUrl());
+			return new PendingResponse<>(
+					new DeltaResponse(page.getStatusList(), complete),
+					() -> update(complete, page.getCursor())
+			);
+		}
+
+		/**
+		 * Saves the cursor of a response for the next request.
+		 * @param complete {@code true} if the response contains all products of the API, {@code false} if it only
+		 *                 contains the changed products.
+		 * @param nextCursor The cursor in the response, {@code null} if there is none.
+		 */
+		private synchronized void update(final boolean complete, final String nextCursor) {
+			deltasSinceResync = complete ? 0 : deltasSinceResync + 1;
+			if (nextCursor != null && !nextCursor.isBlank()) {
+				cursor = nextCursor;
+			} else if (complete) {
+				cursor = null;
+			}
+
+			metrics.countDeltaResponse(complete);
+		}
+	}
+
+	/**
+	 * The cache validators of the last full response of an API.
+	 */
+	private static final class CacheValidators {
+
+		private final String eTag;
+		private final String lastModified;
+
+		private CacheValidators(final String eTag, final String lastModified) {
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * Reads the cache validators of a response.
+		 * @param headers Looks up the first value of a response header, returns {@code null} if there is none.
+		 * @return The cache validators or {@code null} if the response does not contain any.
+		 */
+		private static CacheValidators of(final Function<String, String> headers) {
+			final String eTag = headers.apply(HttpHeaders.ETAG);
+			final String lastModified = headers.apply(HttpHeaders.LAST_MODIFIED);
+			if (eTag == null && lastModified == null) {
+				return null;
+			}
+
+			return new CacheValidators(eTag, lastModified);
+		}
+
+		/**
+		 * Adds the conditional headers to a request.
+		 * @param headerSetter Sets a header of the request to the API.
+		 */
+		private void addTo(final BiConsumer<String, String> headerSetter) {
+			if (eTag != null) {
+				headerSetter.accept(HttpHeaders.IF_NONE_MATCH, eTag);
+			}
+
+			if (lastModified != null) {
+				headerSetter.accept(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+			}
+		}
 	}
 }
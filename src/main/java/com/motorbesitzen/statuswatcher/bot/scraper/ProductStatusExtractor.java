@@ -0,0 +1,553 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extracts the product statuses of a JSON document. Every object that has a product name and a product status
+ * field with a plain value is a product status. Numeric attribute fields of the object, e.g. its stock or its price,
+ * get read as well if there are any configured. If the location of the product statuses in the document is known
+ * only that location gets read, otherwise the whole document gets searched in a single pass over its tokens and
+ * objects inside of a product status object are not searched any further. In both cases no tree of the document
+ * gets built and no objects get created for parts of the document that are not a product status.
+ */
+@Component
+class ProductStatusExtractor {
+
+	private static final int INITIAL_DEPTH = 16;
+
+	private final JsonFactory jsonFactory;
+	private final Set<String> nameFields;
+	private final Set<String> statusFields;
+	private final Map<String, Integer> attributeFields;
+	private final int attributeCount;
+	private final ExtractionPath configuredPath;
+	private final Map<String, ExtractionPath> learnedPaths;
+
+	@Autowired
+	private ProductStatusExtractor(final ObjectMapper objectMapper, final EnvSettings envSettings) {
+		this.jsonFactory = objectMapper.getFactory();
+		this.nameFields = Set.copyOf(envSettings.getProductNameFields());
+		this.statusFields = Set.copyOf(envSettings.getProductStatusFields());
+		final List<String> attributeFieldList = envSettings.getProductAttributeFields();
+		this.attributeFields = new HashMap<>();
+		for (int i = 0; i < attributeFieldList.size(); i++) {
+			attributeFields.putIfAbsent(attributeFieldList.get(i), i);
+		}
+
+		this.attributeCount = attributeFieldList.size();
+		this.configuredPath = compileConfiguredPath(envSettings.getProductStatusListPath());
+		this.learnedPaths = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Compiles the configured path to the product statuses.
+	 * @param pointer The configured JSON Pointer.
+	 * @return The compiled path or {@code null} if there is no valid path configured.
+	 */
+	private static ExtractionPath compileConfiguredPath(final String pointer) {
+		if (pointer.isBlank()) {
+			return null;
+		}
+
+		try {
+			return ExtractionPath.compile(pointer.trim());
+		} catch (IllegalArgumentException e) {
+			LogUtil.logError("Invalid product status list path \"" + pointer + "\", searching the whole response instead.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Extracts every product status of a JSON document. Reads the configured location or the location the
+	 * product statuses got found at in an earlier document of the same source. Searches the whole document if
+	 * there is no such location or if there are no product statuses at that location.
+	 * @param source The source of the document, e.g. the URL of the API. Locations get learned per source.
+	 * @param payload The JSON document.
+	 * @return A list of all the product statuses in the document in the order they appear in.
+	 * @throws IOException if the document is not valid JSON.
+	 */
+	List<ProductStatus> extract(final String source, final byte[] payload) throws IOException {
+		final ExtractionPath path = configuredPath != null ? configuredPath : learnedPaths.get(source);
+		if (path != null) {
+			final List<ProductStatus> statusList = extractAt(payload, path);
+			if (!statusList.isEmpty()) {
+				return statusList;
+			}
+
+			LogUtil.logDebug("No product statuses found at \"" + path + "\", searching the whole response.");
+		}
+
+		final SearchResult result = search(payload);
+		if (configuredPath == null) {
+			learnPath(source, result);
+		}
+
+		return result.statusList;
+	}
+
+	/**
+	 * Reads a single plain value of a JSON document, e.g. the cursor of the next page of a paginated API.
+	 * @param payload The JSON document.
+	 * @param pointer The JSON Pointer to the value.
+	 * @return The text of the value or {@code null} if there is no such value or if it is not a plain value.
+	 * @throws IOException if the document is not valid JSON.
+	 */
+	String extractValue(final byte[] payload, final String pointer) throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(payload)) {
+			final JsonToken token = moveTo(parser, ExtractionPath.compile(pointer));
+			if (token == null || token.isStructStart() || token == JsonToken.VALUE_NULL) {
+				return null;
+			}
+
+			return parser.getText();
+		}
+	}
+
+	/**
+	 * Remembers the location of the product statuses of a source if all of them got found in the same array or
+	 * object. A document without product statuses, e.g. the last page of a paginated API, does not change the
+	 * learned location.
+	 * @param source The source of the document.
+	 * @param result The result of the search in the whole document.
+	 */
+	private void learnPath(final String source, final SearchResult result) {
+		if (result.statusList.isEmpty()) {
+			return;
+		}
+
+		if (result.container == null) {
+			learnedPaths.remove(source);
+			return;
+		}
+
+		// pointers built from a parser context do not always split into their segments, so compile the text form
+		final ExtractionPath learnedPath = ExtractionPath.compile(result.container.toString());
+		learnedPaths.put(source, learnedPath);
+		LogUtil.logDebug("Found product statuses at \"" + learnedPath + "\", only reading that location from now on.");
+	}
+
+	/**
+	 * Reads the product statuses that are direct children of the array or object the path points at.
+	 * @param payload The JSON document.
+	 * @param path The path to the array or object that contains the product statuses.
+	 * @return A list of the product statuses at the location, empty if the location does not exist.
+	 * @throws IOException if the document is not valid JSON.
+	 */
+	private List<ProductStatus> extractAt(final byte[] payload, final ExtractionPath path) throws IOException {
+		final List<ProductStatus> statusList = new ArrayList<>();
+		try (JsonParser parser = jsonFactory.createParser(payload)) {
+			JsonToken token = moveTo(parser, path);
+			if (token == JsonToken.START_ARRAY) {
+				while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+					readProduct(parser, token, statusList);
+				}
+			} else if (token == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					readProduct(parser, parser.nextToken(), statusList);
+				}
+			}
+		}
+
+		return statusList;
+	}
+
+	/**
+	 * Moves the parser to the location the path points at.
+	 * @param parser The parser at the start of the JSON document.
+	 * @param path The path to move to.
+	 * @return The token at the location or {@code null} if the location does not exist.
+	 * @throws IOException if the document is not valid JSON.
+	 */
+	private JsonToken moveTo(final JsonParser parser, final ExtractionPath path) throws IOException {
+		parser.nextToken();
+		for (int i = 0; i < path.size(); i++) {
+			if (!moveToChild(parser, parser.currentToken(), path, i)) {
+				return null;
+			}
+		}
+
+		return parser.currentToken();
+	}
+
+	/**
+	 * Moves the parser to the child of the current array or object that matches a segment of the path. Skips all
+	 * other children without reading them.
+	 * @param parser The parser of the JSON document.
+	 * @param token The current token of the parser.
+	 * @param path The path to the product statuses.
+	 * @param segment The index of the segment to match.
+	 * @return {@code true} if the parser points at the matching child, {@code false} if there is no such child.
+	 * @throws IOException if the document is not valid JSON.
+	 */
+	private boolean moveToChild(final JsonParser parser, final JsonToken token, final ExtractionPath path,
+								final int segment) throws IOException {
+		if (token == JsonToken.START_OBJECT) {
+			final String fieldName = path.getFieldName(segment);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final boolean matches = fieldName.equals(parser.getCurrentName());
+				parser.nextToken();
+				if (matches) {
+					return true;
+				}
+
+				parser.skipChildren();
+			}
+		} else if (token == JsonToken.START_ARRAY) {
+			final int index = path.getIndex(segment);
+			if (index < 0) {
+				return false;
+			}
+
+			for (int i = 0; parser.nextToken() != JsonToken.END_ARRAY; i++) {
+				if (i == index) {
+					return true;
+				}
+
+				parser.skipChildren();
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reads a product status if the parser points at an object with a product name and a product status field.
+	 * Skips anything else.
+	 * @param parser The parser of the JSON document.
+	 * @param token The current token of the parser.
+	 * @param statusList The list to add the product status to.
+	 * @throws IOException if the document is not valid JSON.
+	 */
+	private void readProduct(final JsonParser parser, final JsonToken token, final List<ProductStatus> statusList)
+			throws IOException {
+		if (token != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return;
+		}
+
+		String name = null;
+		String status = null;
+		final double[] attributes = createAttributes();
+		boolean invalid = false;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final String fieldName = parser.getCurrentName();
+			final JsonToken valueToken = parser.nextToken();
+			final boolean isNameField = nameFields.contains(fieldName);
+			final boolean isStatusField = !isNameField && statusFields.contains(fieldName);
+			if (valueToken.isStructStart()) {
+				invalid |= isNameField || isStatusField;
+				parser.skipChildren();
+			} else if (isNameField) {
+				name = valueToken == JsonToken.VALUE_NULL ? null : parser.getText();
+			} else if (isStatusField) {
+				status = valueToken == JsonToken.VALUE_NULL ? null : parser.getText();
+			} else if (attributes != null) {
+				final Integer attribute = attributeFields.get(fieldName);
+				if (attribute != null) {
+					attributes[attribute] = readAttribute(parser, valueToken);
+				}
+			}
+		}
+
+		if (!invalid && name != null && status != null) {
+			final ProductStatus productStatus = new ProductStatus(name, status);
+			productStatus.setAttributes(attributes);
+			statusList.add(productStatus);
+		}
+	}
+
+	/**
+	 * @return An array for the values of the numeric attributes of a product with all values missing, {@code null}
+	 * if there are no attribute fields configured.
+	 */
+	private double[] createAttributes() {
+		if (attributeCount == 0) {
+			return null;
+		}
+
+		final double[] attributes = new double[attributeCount];
+		Arrays.fill(attributes, Double.NaN);
+		return attributes;
+	}
+
+	/**
+	 * Reads the value of a numeric attribute field. Numbers in strings get read as well as some APIs send all
+	 * values as text.
+	 * @param parser The parser that currently points at the value of the field.
+	 * @param token The token of the value.
+	 * @return The value or {@link Double#NaN} if the field does not contain a number.
+	 * @throws IOException if the value can not be read.
+	 */
+	private static double readAttribute(final JsonParser parser, final JsonToken token) throws IOException {
+		if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+			return parser.getDoubleValue();
+		}
+
+		if (token != JsonToken.VALUE_STRING) {
+			return Double.NaN;
+		}
+
+		try {
+			return Double.parseDouble(parser.getText().trim());
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Searches the whole JSON document for product statuses in a single pass over its tokens.
+	 * @param payload The JSON document.
+	 * @return The product statuses in the document and the location they got found at.
+	 * @throws IOException if the document is not valid JSON.
+	 */
+	private SearchResult search(final byte[] payload) throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(payload)) {
+			final List<ProductStatus> statusList = new ArrayList<>();
+			final ObjectStack stack = new ObjectStack();
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				switch (token) {
+					case START_OBJECT:
+						stack.invalidateField(parser.getCurrentName());
+						stack.push(statusList.size());
+						break;
+					case START_ARRAY:
+						stack.invalidateField(parser.getCurrentName());
+						break;
+					case END_OBJECT:
+						stack.pop(statusList, parser.getParsingContext());
+						break;
+					case VALUE_STRING:
+					case VALUE_NUMBER_INT:
+					case VALUE_NUMBER_FLOAT:
+					case VALUE_TRUE:
+					case VALUE_FALSE:
+						if (parser.getParsingContext().inObject()) {
+							stack.setField(parser.getCurrentName(), parser);
+						}
+						break;
+					case VALUE_NULL:
+						if (parser.getParsingContext().inObject()) {
+							stack.clearField(parser.getCurrentName());
+						}
+						break;
+					default:
+						break;
+				}
+			}
+
+			return new SearchResult(statusList, stack.getContainer());
+		}
+	}
+
+	/**
+	 * The product statuses found by a search in the whole document.
+	 */
+	private static final class SearchResult {
+
+		private final List<ProductStatus> statusList;
+		private final JsonPointer container;
+
+		/**
+		 * @param statusList The product statuses in the document.
+		 * @param container The array or object that contains all of the product statuses, {@code null} if they
+		 *                  are not in the same array or object.
+		 */
+		private SearchResult(final List<ProductStatus> statusList, final JsonPointer container) {
+			this.statusList = statusList;
+			this.container = container;
+		}
+	}
+
+	/**
+	 * The state of all currently open objects. Uses plain arrays that only grow with the nesting depth of the
+	 * document, so opening and closing objects does not create any new objects. Also tracks if all product
+	 * statuses are in the same array or object.
+	 */
+	private final class ObjectStack {
+
+		private String[] names;
+		private String[] statuses;
+		private double[][] attributes;
+		private boolean[] invalid;
+		private int[] listMarks;
+		private int depth;
+		private JsonStreamContext containerContext;
+		private JsonPointer container;
+		private boolean mixedContainers;
+
+		private ObjectStack() {
+			this.names = new String[INITIAL_DEPTH];
+			this.statuses = new String[INITIAL_DEPTH];
+			this.attributes = new double[INITIAL_DEPTH][];
+			this.invalid = new boolean[INITIAL_DEPTH];
+			this.listMarks = new int[INITIAL_DEPTH];
+			this.depth = 0;
+			this.mixedContainers = false;
+		}
+
+		/**
+		 * Opens a new object.
+		 * @param listSize The size of the status list when the object starts.
+		 */
+		private void push(final int listSize) {
+			if (depth == names.length) {
+				final int newLength = depth * 2;
+				names = Arrays.copyOf(names, newLength);
+				statuses = Arrays.copyOf(statuses, newLength);
+				attributes = Arrays.copyOf(attributes, newLength);
+				invalid = Arrays.copyOf(invalid, newLength);
+				listMarks = Arrays.copyOf(listMarks, newLength);
+			}
+
+			names[depth] = null;
+			statuses[depth] = null;
+			if (attributeCount > 0) {
+				if (attributes[depth] == null) {
+					attributes[depth] = new double[attributeCount];
+				}
+
+				Arrays.fill(attributes[depth], Double.NaN);
+			}
+
+			invalid[depth] = false;
+			listMarks[depth] = listSize;
+			depth++;
+		}
+
+		/**
+		 * Closes the current object. If the object is a product status it gets added to the list and replaces any
+		 * product status that got found inside of it.
+		 * @param statusList The current list of product statuses.
+		 * @param parentContext The context of the array or object the closed object is part of.
+		 */
+		private void pop(final List<ProductStatus> statusList, final JsonStreamContext parentContext) {
+			depth--;
+			final String name = names[depth];
+			final String status = statuses[depth];
+			names[depth] = null;
+			statuses[depth] = null;
+			if (invalid[depth] || name == null || status == null) {
+				return;
+			}
+
+			final int listMark = listMarks[depth];
+			if (statusList.size() > listMark) {
+				statusList.subList(listMark, statusList.size()).clear();
+				mixedContainers = true;
+			}
+
+			final ProductStatus productStatus = new ProductStatus(name, status);
+			if (attributeCount > 0) {
+				productStatus.setAttributes(attributes[depth].clone());
+			}
+
+			statusList.add(productStatus);
+			trackContainer(parentContext);
+		}
+
+		/**
+		 * Checks if a product status is in the same array or object as the product statuses before. Contexts get
+		 * reused by the parser, so the pointer only needs to be built if the context changes.
+		 * @param parentContext The context of the array or object the product status is part of.
+		 */
+		private void trackContainer(final JsonStreamContext parentContext) {
+			if (mixedContainers || parentContext == containerContext) {
+				return;
+			}
+
+			if (parentContext.inRoot()) {
+				mixedContainers = true;
+				return;
+			}
+
+			final JsonPointer pointer = parentContext.getParent().pathAsPointer();
+			if (container != null && !container.equals(pointer)) {
+				mixedContainers = true;
+				return;
+			}
+
+			containerContext = parentContext;
+			container = pointer;
+		}
+
+		/**
+		 * @return The array or object that contains all of the product statuses, {@code null} if there is none.
+		 */
+		private JsonPointer getContainer() {
+			return mixedContainers ? null : container;
+		}
+
+		/**
+		 * Sets the value of a field of the current object if it is a product name, a product status or a numeric
+		 * attribute field.
+		 * @param fieldName The name of the field.
+		 * @param parser The parser that currently points at the value of the field.
+		 * @throws IOException if the value can not be read.
+		 */
+		private void setField(final String fieldName, final JsonParser parser) throws IOException {
+			if (nameFields.contains(fieldName)) {
+				names[depth - 1] = parser.getText();
+			} else if (statusFields.contains(fieldName)) {
+				statuses[depth - 1] = parser.getText();
+			} else if (attributeCount > 0) {
+				final Integer attribute = attributeFields.get(fieldName);
+				if (attribute != null) {
+					attributes[depth - 1][attribute] = readAttribute(parser, parser.currentToken());
+				}
+			}
+		}
+
+		/**
+		 * Removes the value of a field of the current object if its value is {@code null}.
+		 * @param fieldName The name of the field.
+		 */
+		private void clearField(final String fieldName) {
+			if (nameFields.contains(fieldName)) {
+				names[depth - 1] = null;
+			} else if (statusFields.contains(fieldName)) {
+				statuses[depth - 1] = null;
+			} else if (attributeCount > 0) {
+				final Integer attribute = attributeFields.get(fieldName);
+				if (attribute != null) {
+					attributes[depth - 1][attribute] = Double.NaN;
+				}
+			}
+		}
+
+		/**
+		 * Marks the current object as no product status if an object or an array is the value of a product name
+		 * or a product status field.
+		 * @param fieldName The name of the field the object or array is the value of, {@code null} if it is not
+		 *                  the value of a field.
+		 */
+		private void invalidateField(final String fieldName) {
+			if (depth == 0 || fieldName == null) {
+				return;
+			}
+
+			if (nameFields.contains(fieldName) || statusFields.contains(fieldName)) {
+				invalid[depth - 1] = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.bot.service.StatusSink;
+import com.motorbesitzen.statuswatcher.bot.service.StatusSource;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A status source that keeps a connection to a product status API open and receives status events as soon as the
+ * API sends them. Reconnects after the connection got lost, the delay doubles with each failed connection attempt.
+ */
+abstract class PushStatusSource implements StatusSource {
+
+	private static final long MIN_RECONNECT_DELAY_MS = 1000;
+	private static final long MAX_RECONNECT_DELAY_MS = 60000;
+	private final StatusEndpoint endpoint;
+	private final ProductStatusExtractor extractor;
+	private final StatusMetrics metrics;
+	private final long maxEventSize;
+	private volatile StatusSink sink;
+	private volatile boolean running;
+	private volatile long reconnectDelayMs;
+	private volatile long minReconnectDelayMs;
+
+	/**
+	 * @param endpoint The product status API.
+	 * @param extractor Extracts the product statuses of a status event.
+	 * @param metrics Counts the received status events.
+	 * @param maxEventSize The maximum size of a status event in bytes.
+	 */
+	PushStatusSource(final StatusEndpoint endpoint, final ProductStatusExtractor extractor,
+					 final StatusMetrics metrics, final long maxEventSize) {
+		this.endpoint = endpoint;
+		this.extractor = extractor;
+		this.metrics = metrics;
+		this.maxEventSize = maxEventSize;
+		this.running = false;
+		this.reconnectDelayMs = MIN_RECONNECT_DELAY_MS;
+		this.minReconnectDelayMs = MIN_RECONNECT_DELAY_MS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void start(final StatusSink sink) {
+		this.sink = sink;
+		running = true;
+		LogUtil.logInfo("Receiving status events of " + endpoint.getUrl() + "...");
+		connect();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void stop() {
+		running = false;
+		disconnect();
+	}
+
+	/**
+	 * Opens the connection to the API. Must not block. Has to call {@link #onConnected()} once the connection is
+	 * open and {@link #onDisconnected(Throwable)} once it got closed or could not be opened.
+	 */
+	abstract void connect();
+
+	/**
+	 * Closes the connection to the API if it is open.
+	 */
+	abstract void disconnect();
+
+	StatusEndpoint getEndpoint() {
+		return endpoint;
+	}
+
+	long getMaxEventSize() {
+		return maxEventSize;
+	}
+
+	/**
+	 * Sets the delay before reconnecting as requested by the API.
+	 * @param delayMs The delay in milliseconds.
+	 */
+	void setMinReconnectDelay(final long delayMs) {
+		minReconnectDelayMs = Math.max(MIN_RECONNECT_DELAY_MS, Math.min(MAX_RECONNECT_DELAY_MS, delayMs));
+	}
+
+	/**
+	 * Resets the reconnect delay after the connection got opened.
+	 */
+	void onConnected() {
+		reconnectDelayMs = minReconnectDelayMs;
+		LogUtil.logDebug("Connected to " + endpoint.getUrl() + ".");
+	}
+
+	/**
+	 * Reconnects to the API after a delay unless the source got stopped.
+	 * @param cause The reason why the connection got closed, {@code null} if the API closed it normally.
+	 */
+	void onDisconnected(final Throwable cause) {
+		if (!running) {
+			return;
+		}
+
+		final long delayMs = Math.max(reconnectDelayMs, minReconnectDelayMs);
+		reconnectDelayMs = Math.min(delayMs * 2, MAX_RECONNECT_DELAY_MS);
+		if (cause != null) {
+			LogUtil.logWarning("Lost connection to " + endpoint.getUrl() + ", reconnecting in " + delayMs + "ms: " + cause.getMessage());
+		} else {
+			LogUtil.logDebug("Connection to " + endpoint.getUrl() + " got closed, reconnecting in " + delayMs + "ms.");
+		}
+
+		CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(() -> {
+			if (running) {
+				connect();
+			}
+		});
+	}
+
+	/**
+	 * Extracts the product statuses of a status event and passes them on to the sink.
+	 * @param data The content of the status event.
+	 * @param complete {@code true} if the event contains all product statuses of the API, {@code false} if it only
+	 *                 contains some of them.
+	 */
+	void onEvent(final String data, final boolean complete) {
+		metrics.countPushEvent();
+		final List<ProductStatus> statusList;
+		try {
+			statusList = extractor.extract(endpoint.getUrl(), data.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			LogUtil.logWarning("Ignoring invalid status event of " + endpoint.getUrl() + ": " + e.getMessage());
+			return;
+		}
+
+		if (complete) {
+			sink.onStatusList(endpoint.getUrl(), statusList);
+		} else if (!statusList.isEmpty()) {
+			sink.onStatusUpdate(endpoint.getUrl(), statusList);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.bot.service.StatusSource;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.net.http.HttpClient;
+
+/**
+ * Creates the status sources of the product status APIs that stream their status events.
+ */
+@Service
+public class PushStatusSources {
+
+	private final EnvSettings envSettings;
+	private final HttpClient httpClient;
+	private final ProductStatusExtractor extractor;
+	private final StatusMetrics metrics;
+
+	@Autowired
+	private PushStatusSources(final EnvSettings envSettings, final HttpClient httpClient,
+							  final ProductStatusExtractor extractor, final StatusMetrics metrics) {
+		this.envSettings = envSettings;
+		this.httpClient = httpClient;
+		this.extractor = extractor;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Creates the status source of a product status API that streams its status events.
+	 * @param endpoint The product status API.
+	 * @return A source that receives Server-Sent Events or WebSocket messages.
+	 * @throws IllegalArgumentException if the product status API does not stream its status events.
+	 */
+	public StatusSource create(final StatusEndpoint endpoint) {
+		final long maxEventSize = envSettings.getProductStatusMaxPayloadSize();
+		switch (endpoint.getType()) {
+			case StatusEndpoint.TYPE_SSE:
+				return new SseStatusSource(endpoint, httpClient, extractor, metrics, maxEventSize);
+			case StatusEndpoint.TYPE_WEBSOCKET:
+				return new WebSocketStatusSource(endpoint, httpClient, extractor, metrics, maxEventSize);
+			default:
+				throw new IllegalArgumentException("Product status API " + endpoint.getUrl() + " does not stream its status events!");
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads and changes the query parameters of product status API URLs, e.g. to request a certain page.
+ */
+final class QueryParams {
+
+	private QueryParams() {
+	}
+
+	/**
+	 * Sets a query parameter of a URL. Replaces the parameter if the URL already contains it.
+	 * @param url The URL.
+	 * @param name The name of the query parameter.
+	 * @param value The unencoded value of the query parameter.
+	 * @return The URL with the query parameter.
+	 */
+	static String with(final String url, final String name, final String value) {
+		final int fragmentStart = url.indexOf('#');
+		final String fragment = fragmentStart != -1 ? url.substring(fragmentStart) : "";
+		final String withoutFragment = fragmentStart != -1 ? url.substring(0, fragmentStart) : url;
+		final int queryStart = withoutFragment.indexOf('?');
+		final String path = queryStart != -1 ? withoutFragment.substring(0, queryStart) : withoutFragment;
+		final StringBuilder query = new StringBuilder();
+		if (queryStart != -1) {
+			for (String param : withoutFragment.substring(queryStart + 1).split("&")) {
+				if (!param.isEmpty() && !param.equals(name) && !param.startsWith(name + "=")) {
+					query.append(param).append('&');
+				}
+			}
+		}
+
+		query.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+		return path + "?" + query + fragment;
+	}
+
+	/**
+	 * Reads the query parameters of a URL.
+	 * @param url The URL.
+	 * @return The raw values of the query parameters by their names in the order they appear in, empty if the URL
+	 * is invalid.
+	 */
+	static Map<String, String> parse(final String url) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		final String query;
+		try {
+			query = URI.create(url).getRawQuery();
+		} catch (IllegalArgumentException e) {
+			return params;
+		}
+
+		if (query == null) {
+			return params;
+		}
+
+		for (String param : query.split("&")) {
+			final int separator = param.indexOf('=');
+			if (separator != -1) {
+				params.put(param.substring(0, separator), param.substring(separator + 1));
+			} else if (!param.isEmpty()) {
+				params.put(param, "");
+			}
+		}
+
+		return params;
+	}
+}
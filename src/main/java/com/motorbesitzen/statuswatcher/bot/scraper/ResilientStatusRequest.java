@@ -0,0 +1,427 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.apache.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Requests product status APIs like {@link ProductStatusApiRequest} but handles failing and slow APIs. A failed
+ * request gets retried after a jittered backoff as long as the retry budget of the API allows it. An API that fails
+ * too often in a row does not get requested until its circuit breaker lets a trial request through. Asynchronous
+ * requests can be hedged: if a request takes longer than 95% of the latest requests to the API a second request
+ * gets sent and the first response wins. Only the winning response saves its hash, its cache validators and its
+ * cursor for the next request. All pages of a paginated API share the state of the API.
+ */
+@Service
+public class ResilientStatusRequest {
+
+	private static final long BASE_BACKOFF_MS = 250;
+	private static final long MAX_BACKOFF_MS = 4000;
+	private static final int TOO_MANY_REQUESTS = 429;
+	private final EnvSettings envSettings;
+	private final ProductStatusApiRequest apiRequest;
+	private final StatusMetrics metrics;
+	private final Map<String, EndpointState> states;
+
+	@Autowired
+	private ResilientStatusRequest(final EnvSettings envSettings, final ProductStatusApiRequest apiRequest,
+								   final StatusMetrics metrics) {
+		this.envSettings = envSettings;
+		this.apiRequest = apiRequest;
+		this.metrics = metrics;
+		this.states = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Requests the status list from the API and blocks until the response got processed or all retries failed.
+	 * Requests do not get hedged as that would need a second thread.
+	 * @param endpoint The product status API to request.
+	 * @return A list of all the matching statuses available in the API or an empty {@code Optional} if the
+	 * content of the API did not change since the last request.
+	 * @throws IOException if the last retry failed or if the circuit breaker of the API is open.
+	 */
+	public Optional<List<ProductStatus>> getStatusList(final StatusEndpoint endpoint) throws IOException {
+		return request(endpoint, () -> apiRequest.getStatusList(endpoint));
+	}
+
+	/**
+	 * Requests a single page of a paginated API and blocks until the response got processed or all retries failed.
+	 * @param endpoint The product status API to request.
+	 * @param pageUrl The URL of the page.
+	 * @return The page or an empty {@code Optional} if the page did not change since the last request.
+	 * @throws IOException if the last retry failed or if the circuit breaker of the API is open.
+	 */
+	Optional<StatusPage> getStatusPage(final StatusEndpoint endpoint, final String pageUrl) throws IOException {
+		return request(endpoint, () -> apiRequest.getStatusPage(endpoint, pageUrl));
+	}
+
+	/**
+	 * Requests the products of the API that changed since the last request and blocks until the response got
+	 * processed or all retries failed.
+	 * @param endpoint The product status API to request, it needs a delta.
+	 * @return The changed products or all products of the API.
+	 * @throws IOException if the last retry failed or if the circuit breaker of the API is open.
+	 */
+	public Optional<DeltaResponse> getStatusDelta(final StatusEndpoint endpoint) throws IOException {
+		return request(endpoint, () -> apiRequest.getStatusDelta(endpoint));
+	}
+
+	/**
+	 * Requests the status list from the API without blocking. Retries wait without occupying a thread.
+	 * @param endpoint The product status API to request.
+	 * @return A future of a list of all the matching statuses available in the API or an empty {@code Optional}
+	 * if the content of the API did not change since the last request. Completes exceptionally with an
+	 * {@code IOException} if the last retry failed or if the circuit breaker of the API is open.
+	 */
+	public CompletableFuture<Optional<List<ProductStatus>>> getStatusListAsync(final StatusEndpoint endpoint) {
+		return requestAsync(endpoint, () -> apiRequest.prepareStatusListAsync(endpoint));
+	}
+
+	/**
+	 * Requests a single page of a paginated API without blocking.
+	 * @param endpoint The product status API to request.
+	 * @param pageUrl The URL of the page.
+	 * @return A future of the page or an empty {@code Optional} if the page did not change since the last request.
+	 * Completes exceptionally with an {@code IOException} if the last retry failed or if the circuit breaker of the
+	 * API is open.
+	 */
+	CompletableFuture<Optional<StatusPage>> getStatusPageAsync(final StatusEndpoint endpoint, final String pageUrl) {
+		return requestAsync(endpoint, () -> apiRequest.prepareStatusPageAsync(endpoint, pageUrl));
+	}
+
+	/**
+	 * Requests the products of the API that changed since the last request without blocking.
+	 * @param endpoint The product status API to request, it needs a delta.
+	 * @return A future of the changed products or all products of the API. Completes exceptionally with an
+	 * {@code IOException} if the last retry failed or if the circuit breaker of the API is open.
+	 */
+	public CompletableFuture<Optional<DeltaResponse>> getStatusDeltaAsync(final StatusEndpoint endpoint) {
+		return requestAsync(endpoint, () -> apiRequest.prepareStatusDeltaAsync(endpoint));
+	}
+
+	/**
+	 * Performs a blocking request and retries it if it fails. Requests do not get hedged as that would need a
+	 * second thread. Unexpected exceptions do not get retried but count as a failure, so a trial request of the
+	 * circuit breaker always ends.
+	 * @param endpoint The product status API to request.
+	 * @param request The request to the API.
+	 * @param <T> The type of the result of the request.
+	 * @return The result of the first successful attempt.
+	 * @throws IOException if the last retry failed or if the circuit breaker of the API is open.
+	 */
+	private <T> T request(final StatusEndpoint endpoint, final BlockingRequest<T> request) throws IOException {
+		final EndpointState state = getState(endpoint);
+		state.retryBudget.deposit();
+		for (int attempt = 0; ; attempt++) {
+			acquire(endpoint, state);
+			final long start = System.nanoTime();
+			try {
+				final T result = request.send();
+				state.latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+				state.circuitBreaker.recordSuccess();
+				return result;
+			} catch (IOException e) {
+				state.circuitBreaker.recordFailure(System.currentTimeMillis());
+				if (!shouldRetry(e, attempt, state)) {
+					throw e;
+				}
+
+				logRetry(endpoint, attempt, e);
+				sleep(getBackoffMs(attempt), e);
+			} catch (RuntimeException e) {
+				state.circuitBreaker.recordFailure(System.currentTimeMillis());
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Performs an asynchronous request and retries it if it fails. Retries wait without occupying a thread. Only
+	 * the response that gets passed on saves its state for the next request, a hedged response that lost does not.
+	 * @param endpoint The product status API to request.
+	 * @param request Sends the request to the API without saving the state of the response.
+	 * @param <T> The type of the result of the request.
+	 * @return A future of the result of the first successful attempt. Completes exceptionally with an
+	 * {@code IOException} if the last retry failed or if the circuit breaker of the API is open.
+	 */
+	private <T> CompletableFuture<T> requestAsync(final StatusEndpoint endpoint,
+												  final Supplier<CompletableFuture<PendingResponse<T>>> request) {
+		final EndpointState state = getState(endpoint);
+		state.retryBudget.deposit();
+		return attemptAsync(endpoint, state, request, 0).thenApply(PendingResponse::commit);
+	}
+
+	/**
+	 * Gets the resilience state of an API.
+	 * @param endpoint The product status API.
+	 * @return The retry budget, the circuit breaker and the latencies of the API.
+	 */
+	private EndpointState getState(final StatusEndpoint endpoint) {
+		final String url = endpoint.getUrl() != null ? endpoint.getUrl() : "";
+		return states.computeIfAbsent(url, key -> new EndpointState());
+	}
+
+	/**
+	 * Checks if the circuit breaker of the API lets a request through.
+	 * @param endpoint The product status API.
+	 * @param state The resilience state of the API.
+	 * @throws CircuitOpenException if the circuit breaker is open.
+	 */
+	private void acquire(final StatusEndpoint endpoint, final EndpointState state) throws CircuitOpenException {
+		if (!state.circuitBreaker.tryAcquire(System.currentTimeMillis())) {
+			metrics.countCircuitRejection();
+			throw new CircuitOpenException(endpoint.getUrl());
+		}
+	}
+
+	/**
+	 * Performs an asynchronous attempt to request the API and retries it if it fails.
+	 * @param endpoint The product status API.
+	 * @param state The resilience state of the API.
+	 * @param request Sends the request to the API.
+	 * @param attempt The number of the attempt, 0 for the first one.
+	 * @param <T> The type of the result of the request.
+	 * @return A future of the result of this or a later attempt.
+	 */
+	private <T> CompletableFuture<T> attemptAsync(final StatusEndpoint endpoint, final EndpointState state,
+												  final Supplier<CompletableFuture<T>> request, final int attempt) {
+		try {
+			acquire(endpoint, state);
+		} catch (CircuitOpenException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		return hedgedRequestAsync(endpoint, state, request).handle((result, throwable) -> {
+			if (throwable == null) {
+				state.circuitBreaker.recordSuccess();
+				return CompletableFuture.completedFuture(result);
+			}
+
+			state.circuitBreaker.recordFailure(System.currentTimeMillis());
+			final Throwable cause = unwrap(throwable);
+			if (!shouldRetry(cause, attempt, state)) {
+				return CompletableFuture.<T>failedFuture(cause);
+			}
+
+			logRetry(endpoint, attempt, cause);
+			final Executor delayed = CompletableFuture.delayedExecutor(getBackoffMs(attempt), TimeUnit.MILLISECONDS);
+			return CompletableFuture.supplyAsync(() -> attemptAsync(endpoint, state, request, attempt + 1), delayed)
+					.thenCompose(Function.identity());
+		}).thenCompose(Function.identity());
+	}
+
+	/**
+	 * Requests the API asynchronously and sends a second request if hedging is enabled and the first one is slow.
+	 * The first successful response wins, the request only fails if all sent requests failed. The response that
+	 * loses gets dropped.
+	 * @param endpoint The product status API.
+	 * @param state The resilience state of the API.
+	 * @param request Sends the request to the API.
+	 * @param <T> The type of the result of the request.
+	 * @return A future of the first successful response.
+	 */
+	private <T> CompletableFuture<T> hedgedRequestAsync(final StatusEndpoint endpoint, final EndpointState state,
+														final Supplier<CompletableFuture<T>> request) {
+		final long hedgeDelayMs = envSettings.isHedgingEnabled() ? state.latencies.getPercentileMs() : -1;
+		if (hedgeDelayMs < 0 || hedgeDelayMs >= endpoint.getRequestTimeoutMs()) {
+			return timedRequestAsync(state, request);
+		}
+
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		final AtomicInteger pending = new AtomicInteger(1);
+		completeWith(result, pending, timedRequestAsync(state, request), false);
+		CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS).execute(() -> {
+			if (result.isDone()) {
+				return;
+			}
+
+			pending.incrementAndGet();
+			metrics.countHedgedRequest();
+			completeWith(result, pending, timedRequestAsync(state, request), true);
+		});
+		return result;
+	}
+
+	/**
+	 * Passes the result of a request on if it is the first successful one or if it is the last failed one.
+	 * @param result The combined result of all sent requests.
+	 * @param pending The amount of sent requests that did not fail yet.
+	 * @param request The request.
+	 * @param hedged {@code true} if the request is the hedged one, {@code false} if it is the first one.
+	 * @param <T> The type of the result of the request.
+	 */
+	private <T> void completeWith(final CompletableFuture<T> result, final AtomicInteger pending,
+								  final CompletableFuture<T> request, final boolean hedged) {
+		request.whenComplete((response, throwable) -> {
+			if (throwable == null) {
+				if (result.complete(response) && hedged) {
+					metrics.countHedgeWin();
+				}
+			} else if (pending.decrementAndGet() == 0) {
+				result.completeExceptionally(throwable);
+			}
+		});
+	}
+
+	/**
+	 * Requests the API asynchronously and records the latency if the request succeeds.
+	 * @param state The resilience state of the API.
+	 * @param request Sends the request to the API.
+	 * @param <T> The type of the result of the request.
+	 * @return A future of the response. Completes exceptionally if the request could not even be sent, so the
+	 * failure gets recorded like any other.
+	 */
+	private <T> CompletableFuture<T> timedRequestAsync(final EndpointState state,
+													   final Supplier<CompletableFuture<T>> request) {
+		final long start = System.nanoTime();
+		final CompletableFuture<T> future;
+		try {
+			future = request.get();
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		return future.whenComplete((response, throwable) -> {
+			if (throwable == null) {
+				state.latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			}
+		});
+	}
+
+	/**
+	 * Checks if a failed request should be retried. Only IO problems, server errors and rate limits get retried as
+	 * other responses would just fail again.
+	 * @param throwable The reason why the request failed.
+	 * @param attempt The number of the failed attempt, 0 for the first one.
+	 * @param state The resilience state of the API.
+	 * @return {@code true} if the request should be retried, {@code false} if not.
+	 */
+	private boolean shouldRetry(final Throwable throwable, final int attempt, final EndpointState state) {
+		if (attempt >= envSettings.getMaxRetries() || !isRetryable(throwable)) {
+			return false;
+		}
+
+		if (!state.retryBudget.tryWithdraw()) {
+			metrics.countExhaustedRetryBudget();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if a failure might not happen again on a retry.
+	 * @param throwable The reason why the request failed.
+	 * @return {@code true} if the failure might be temporary, {@code false} if not.
+	 */
+	private boolean isRetryable(final Throwable throwable) {
+		if (throwable instanceof UnexpectedStatusException) {
+			final int statusCode = ((UnexpectedStatusException) throwable).getStatusCode();
+			return statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR || statusCode == TOO_MANY_REQUESTS;
+		}
+
+		return throwable instanceof IOException &&
+				!(throwable instanceof CircuitOpenException) &&
+				!(throwable instanceof JsonProcessingException);
+	}
+
+	/**
+	 * Calculates how long to wait before a retry. The wait doubles with each attempt and half of it is random, so
+	 * retries of several APIs do not happen at the same time.
+	 * @param attempt The number of the failed attempt, 0 for the first one.
+	 * @return The time to wait in milliseconds.
+	 */
+	private long getBackoffMs(final int attempt) {
+		final long backoffMs = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt, 16));
+		return backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+	}
+
+	/**
+	 * Logs and counts a retry.
+	 * @param endpoint The product status API.
+	 * @param attempt The number of the failed attempt, 0 for the first one.
+	 * @param throwable The reason why the request failed.
+	 */
+	private void logRetry(final StatusEndpoint endpoint, final int attempt, final Throwable throwable) {
+		metrics.countRetry();
+		LogUtil.logDebug("Retrying request " + (attempt + 1) + " of " + endpoint.getUrl() + ": " + throwable.getMessage());
+	}
+
+	/**
+	 * Waits before a blocking retry.
+	 * @param backoffMs The time to wait in milliseconds.
+	 * @param cause The reason for the retry.
+	 * @throws IOException the reason for the retry if the thread gets interrupted while waiting.
+	 */
+	private void sleep(final long backoffMs, final IOException cause) throws IOException {
+		try {
+			Thread.sleep(backoffMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw cause;
+		}
+	}
+
+	/**
+	 * Removes the wrapper of an exception thrown by an asynchronous computation.
+	 * @param throwable The exception of the asynchronous computation.
+	 * @return The exception that caused the computation to fail.
+	 */
+	private Throwable unwrap(final Throwable throwable) {
+		if (throwable instanceof CompletionException && throwable.getCause() != null) {
+			return throwable.getCause();
+		}
+
+		return throwable;
+	}
+
+	/**
+	 * A blocking request to a product status API.
+	 * @param <T> The type of the result of the request.
+	 */
+	@FunctionalInterface
+	private interface BlockingRequest<T> {
+
+		/**
+		 * @return The result of the request.
+		 * @throws IOException if the request failed.
+		 */
+		T send() throws IOException;
+	}
+
+	/**
+	 * The retry budget, the circuit breaker and the latencies of a product status API.
+	 */
+	private static final class EndpointState {
+
+		private final RetryBudget retryBudget;
+		private final CircuitBreaker circuitBreaker;
+		private final LatencyTracker latencies;
+
+		private EndpointState() {
+			this.retryBudget = new RetryBudget();
+			this.circuitBreaker = new CircuitBreaker();
+			this.latencies = new LatencyTracker();
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+/**
+ * Limits how many retries get sent to a product status API. Every request adds a fraction of a retry to the budget
+ * and every retry uses up a whole one, so retries can only make up a small share of the requests. An API that keeps
+ * failing does not get flooded with retries.
+ */
+class RetryBudget {
+
+	private static final double RETRIES_PER_REQUEST = 0.2;
+	private static final double MAX_RETRIES = 5;
+	private double balance;
+
+	RetryBudget() {
+		this.balance = MAX_RETRIES;
+	}
+
+	/**
+	 * Adds a share of a retry to the budget for a new request.
+	 */
+	synchronized void deposit() {
+		balance = Math.min(MAX_RETRIES, balance + RETRIES_PER_REQUEST);
+	}
+
+	/**
+	 * Uses up a retry if there is one left in the budget.
+	 * @return {@code true} if a retry may be sent, {@code false} if the budget is exhausted.
+	 */
+	synchronized boolean tryWithdraw() {
+		if (balance < 1) {
+			return false;
+		}
+
+		balance--;
+		return true;
+	}
+}
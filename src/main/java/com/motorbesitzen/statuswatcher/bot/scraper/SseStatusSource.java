@@ -0,0 +1,198 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import com.motorbesitzen.statuswatcher.util.ParseUtil;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Flow;
+
+/**
+ * Receives status events from a product status API as Server-Sent Events. Events named "snapshot" contain all
+ * product statuses, any other event contains some updated product statuses. Reconnects with the ID of the last
+ * event, so the API can send the events that got missed in the meantime.
+ */
+class SseStatusSource extends PushStatusSource {
+
+	private static final String SNAPSHOT_EVENT = "snapshot";
+	private final HttpClient httpClient;
+	private volatile Flow.Subscription subscription;
+	private volatile String lastEventId;
+
+	/**
+	 * @param endpoint The product status API.
+	 * @param httpClient The client to open the event stream with.
+	 * @param extractor Extracts the product statuses of a status event.
+	 * @param metrics Counts the received status events.
+	 * @param maxEventSize The maximum size of a status event in bytes.
+	 */
+	SseStatusSource(final StatusEndpoint endpoint, final HttpClient httpClient, final ProductStatusExtractor extractor,
+					final StatusMetrics metrics, final long maxEventSize) {
+		super(endpoint, extractor, metrics, maxEventSize);
+		this.httpClient = httpClient;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void connect() {
+		final HttpRequest.Builder requestBuilder;
+		try {
+			requestBuilder = HttpRequest.newBuilder(URI.create(getEndpoint().getUrl()))
+					.header("Accept", "text/event-stream")
+					.header("Cache-Control", "no-cache")
+					.GET();
+		} catch (IllegalArgumentException e) {
+			LogUtil.logError("Invalid event stream URL " + getEndpoint().getUrl() + "!", e);
+			return;
+		}
+
+		if (lastEventId != null) {
+			requestBuilder.header("Last-Event-ID", lastEventId);
+		}
+
+		httpClient.sendAsync(requestBuilder.build(), this::createBodySubscriber).whenComplete((response, throwable) -> {
+			if (throwable == null && response.statusCode() != 200) {
+				onDisconnected(new UnexpectedStatusException(response.statusCode()));
+			} else {
+				onDisconnected(throwable);
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void disconnect() {
+		final Flow.Subscription currentSubscription = subscription;
+		if (currentSubscription != null) {
+			currentSubscription.cancel();
+		}
+	}
+
+	/**
+	 * Reads the event stream line by line if the API accepted the request and discards the body if it did not.
+	 * @param responseInfo The status code and the headers of the response.
+	 * @return The subscriber of the response body.
+	 */
+	private HttpResponse.BodySubscriber<Void> createBodySubscriber(final HttpResponse.ResponseInfo responseInfo) {
+		if (responseInfo.statusCode() != 200) {
+			return HttpResponse.BodySubscribers.replacing(null);
+		}
+
+		return HttpResponse.BodySubscribers.fromLineSubscriber(new EventSubscriber());
+	}
+
+	/**
+	 * Parses the lines of the event stream into events as described by the Server-Sent Events specification.
+	 */
+	private final class EventSubscriber implements Flow.Subscriber<String> {
+
+		private final StringBuilder data;
+		private String eventName;
+		private boolean oversized;
+
+		private EventSubscriber() {
+			this.data = new StringBuilder();
+			this.eventName = null;
+			this.oversized = false;
+		}
+
+		@Override
+		public void onSubscribe(final Flow.Subscription subscription) {
+			SseStatusSource.this.subscription = subscription;
+			onConnected();
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(final String line) {
+			if (line.isEmpty()) {
+				dispatch();
+				return;
+			}
+
+			if (line.startsWith(":")) {
+				return;
+			}
+
+			final int colon = line.indexOf(':');
+			final String field = colon == -1 ? line : line.substring(0, colon);
+			String value = colon == -1 ? "" : line.substring(colon + 1);
+			if (value.startsWith(" ")) {
+				value = value.substring(1);
+			}
+
+			switch (field) {
+				case "event":
+					eventName = value;
+					break;
+				case "data":
+					appendData(value);
+					break;
+				case "id":
+					if (!value.contains("\0")) {
+						lastEventId = value;
+					}
+					break;
+				case "retry":
+					final long retryMs = ParseUtil.safelyParseStringToLong(value);
+					if (retryMs != -1) {
+						setMinReconnectDelay(retryMs);
+					}
+					break;
+				default:
+					break;
+			}
+		}
+
+		/**
+		 * Adds a data line to the current event. Drops the event if it gets too big.
+		 * @param value The content of the data line.
+		 */
+		private void appendData(final String value) {
+			if (oversized) {
+				return;
+			}
+
+			if (data.length() + value.length() + 1 > getMaxEventSize()) {
+				LogUtil.logWarning("Ignoring status event of " + getEndpoint().getUrl() + " that exceeds the maximum payload size.");
+				data.setLength(0);
+				oversized = true;
+				return;
+			}
+
+			data.append(value).append('\n');
+		}
+
+		/**
+		 * Passes the current event on and starts a new one. Events without data get ignored.
+		 */
+		private void dispatch() {
+			if (data.length() > 0) {
+				data.setLength(data.length() - 1);
+				onEvent(data.toString(), SNAPSHOT_EVENT.equals(eventName));
+			}
+
+			data.setLength(0);
+			eventName = null;
+			oversized = false;
+		}
+
+		@Override
+		public void onError(final Throwable throwable) {
+			subscription = null;
+		}
+
+		@Override
+		public void onComplete() {
+			subscription = null;
+		}
+	}
+}
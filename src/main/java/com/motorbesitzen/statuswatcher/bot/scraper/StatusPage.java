@@ -0,0 +1,52 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single response of a product status API. Besides the product statuses it contains what a paginated API tells
+ * about its other pages.
+ */
+final class StatusPage {
+
+	private final List<ProductStatus> statusList;
+	private final Map<String, String> links;
+	private final String cursor;
+	private final long total;
+
+	/**
+	 * @param statusList The product statuses of the page.
+	 * @param links      The URLs of the linked pages by their relation, e.g. {@code next}.
+	 * @param cursor     The cursor of the next page, {@code null} if there is none.
+	 * @param total      The amount of pages or products the API reports, -1 if it does not report it.
+	 */
+	StatusPage(final List<ProductStatus> statusList, final Map<String, String> links, final String cursor,
+			   final long total) {
+		this.statusList = statusList;
+		this.links = links;
+		this.cursor = cursor;
+		this.total = total;
+	}
+
+	List<ProductStatus> getStatusList() {
+		return statusList;
+	}
+
+	/**
+	 * @param relation The relation of the link, e.g. {@code next} or {@code last}.
+	 * @return The URL of the linked page or {@code null} if there is no such link.
+	 */
+	String getLink(final String relation) {
+		return links.get(relation);
+	}
+
+	String getCursor() {
+		return cursor;
+	}
+
+	long getTotal() {
+		return total;
+	}
+}
@@ -0,0 +1,24 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import java.io.IOException;
+
+/**
+ * Gets thrown if a product status API responds with a status code the bot can not handle.
+ */
+public class UnexpectedStatusException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+	private final int statusCode;
+
+	/**
+	 * @param statusCode The HTTP status code of the response.
+	 */
+	UnexpectedStatusException(final int statusCode) {
+		super("Product status API responded with status code " + statusCode + "!");
+		this.statusCode = statusCode;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+}
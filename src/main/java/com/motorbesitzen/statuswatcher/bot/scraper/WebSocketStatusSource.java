@@ -0,0 +1,127 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Receives status events from a product status API over a WebSocket. Each text message contains some updated
+ * product statuses.
+ */
+class WebSocketStatusSource extends PushStatusSource {
+
+	private final HttpClient httpClient;
+	private volatile WebSocket webSocket;
+
+	/**
+	 * @param endpoint The product status API.
+	 * @param httpClient The client to open the WebSocket with.
+	 * @param extractor Extracts the product statuses of a status event.
+	 * @param metrics Counts the received status events.
+	 * @param maxEventSize The maximum size of a status event in bytes.
+	 */
+	WebSocketStatusSource(final StatusEndpoint endpoint, final HttpClient httpClient,
+						  final ProductStatusExtractor extractor, final StatusMetrics metrics, final long maxEventSize) {
+		super(endpoint, extractor, metrics, maxEventSize);
+		this.httpClient = httpClient;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void connect() {
+		final URI uri;
+		try {
+			uri = URI.create(getEndpoint().getUrl());
+		} catch (IllegalArgumentException e) {
+			LogUtil.logError("Invalid WebSocket URL " + getEndpoint().getUrl() + "!", e);
+			return;
+		}
+
+		httpClient.newWebSocketBuilder()
+				.connectTimeout(Duration.ofMillis(getEndpoint().getRequestTimeoutMs()))
+				.buildAsync(uri, new MessageListener())
+				.whenComplete((openedWebSocket, throwable) -> {
+					if (throwable != null) {
+						onDisconnected(throwable);
+					}
+				});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void disconnect() {
+		final WebSocket currentWebSocket = webSocket;
+		if (currentWebSocket != null) {
+			currentWebSocket.abort();
+		}
+	}
+
+	/**
+	 * Collects the parts of each text message and passes the complete message on.
+	 */
+	private final class MessageListener implements WebSocket.Listener {
+
+		private final StringBuilder message;
+		private boolean oversized;
+
+		private MessageListener() {
+			this.message = new StringBuilder();
+			this.oversized = false;
+		}
+
+		@Override
+		public void onOpen(final WebSocket openedWebSocket) {
+			webSocket = openedWebSocket;
+			onConnected();
+			openedWebSocket.request(1);
+		}
+
+		@Override
+		public CompletionStage<?> onText(final WebSocket openedWebSocket, final CharSequence data, final boolean last) {
+			if (!oversized && message.length() + data.length() > getMaxEventSize()) {
+				LogUtil.logWarning("Ignoring status event of " + getEndpoint().getUrl() + " that exceeds the maximum payload size.");
+				message.setLength(0);
+				oversized = true;
+			}
+
+			if (!oversized) {
+				message.append(data);
+			}
+
+			if (last) {
+				if (!oversized) {
+					onEvent(message.toString(), false);
+				}
+
+				message.setLength(0);
+				oversized = false;
+			}
+
+			openedWebSocket.request(1);
+			return null;
+		}
+
+		@Override
+		public CompletionStage<?> onClose(final WebSocket closedWebSocket, final int statusCode, final String reason) {
+			webSocket = null;
+			onDisconnected(null);
+			return null;
+		}
+
+		@Override
+		public void onError(final WebSocket failedWebSocket, final Throwable error) {
+			webSocket = null;
+			onDisconnected(error);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.motorbesitzen.statuswatcher.bot.scraper.entity;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -9,16 +10,16 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class ProductStatus {
 
 	/*
-	 * You can edit the JsonAlias of the productName and the productStatus here if your API
-	 * does not use these names and you have no way of changing them.
-	 *
-	 * E.g: If your API has the product name as "prodName" you would need the following alias:
-	 * @JsonAlias("prodName")
+	 * The field names the API responses get searched for are set by PRODUCT_STATUS_NAME_FIELDS and
+	 * PRODUCT_STATUS_STATUS_FIELDS in the environment. The JsonAlias values here only apply if a product
+	 * status gets read by Jackson directly.
 	 */
 	@JsonAlias("name")
 	private String productName;
 	@JsonAlias("status")
 	private String productStatus;
+	@JsonIgnore
+	private double[] attributes;
 
 	public ProductStatus(@JsonProperty(value = "productName", required = true) String productName,
 						 @JsonProperty(value = "productStatus", required = true) String productStatus) {
@@ -41,4 +42,16 @@ public class ProductStatus {
 	public void setProductStatus(String productStatus) {
 		this.productStatus = productStatus;
 	}
+
+	/**
+	 * @return The values of the numeric attributes in the order of PRODUCT_STATUS_ATTRIBUTE_FIELDS with
+	 * {@link Double#NaN} for missing values, {@code null} if the product does not have any attributes.
+	 */
+	public double[] getAttributes() {
+		return attributes;
+	}
+
+	public void setAttributes(double[] attributes) {
+		this.attributes = attributes;
+	}
 }
@@ -0,0 +1,232 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.data.AttributeRule;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The numeric attributes of the products and the rules that decide which changes of them get reported. The
+ * attributes get numbered in the order of PRODUCT_STATUS_ATTRIBUTE_FIELDS, so snapshots can keep each attribute in
+ * its own column of {@code double}s. The rules get split into their single limits and kept in primitive arrays per
+ * attribute, so a comparison of two snapshots checks a whole column against one limit at a time without creating
+ * any objects or looking anything up. Changed rules of the status configuration replace all limits at once.
+ */
+@Component
+class AttributeRules {
+
+	private static final int BELOW = 0;
+	private static final int ABOVE = 1;
+	private static final int CHANGE_PERCENT = 2;
+	private static final double MAX_PLAIN_INTEGER = 1e15;
+	private final String[] attributes;
+	private volatile Limits limits;
+
+	@Autowired
+	private AttributeRules(final EnvSettings envSettings, final StatusConfig statusConfig) {
+		this.attributes = envSettings.getProductAttributeFields().toArray(new String[0]);
+		this.limits = compile(statusConfig.get().getAttributeRules());
+		statusConfig.addListener(aliasMapper -> limits = compile(aliasMapper.getAttributeRules()));
+	}
+
+	/**
+	 * Splits the configured rules into their limits. Rules of attributes that are not configured as attribute
+	 * fields get ignored.
+	 * @param rules The configured rules.
+	 * @return The limits of the rules.
+	 */
+	private Limits compile(final List<AttributeRule> rules) {
+		final List<List<double[]>> attributeLimits = new ArrayList<>();
+		for (int i = 0; i < attributes.length; i++) {
+			attributeLimits.add(new ArrayList<>());
+		}
+
+		for (AttributeRule rule : rules) {
+			final int attribute = indexOf(rule.getAttribute());
+			if (attribute == -1) {
+				LogUtil.logWarning("Ignoring rule of attribute \"" + rule.getAttribute() + "\" as it is not set in " +
+						"PRODUCT_STATUS_ATTRIBUTE_FIELDS.");
+				continue;
+			}
+
+			if (rule.getBelow() != null) {
+				attributeLimits.get(attribute).add(new double[]{BELOW, rule.getBelow()});
+			}
+
+			if (rule.getAbove() != null) {
+				attributeLimits.get(attribute).add(new double[]{ABOVE, rule.getAbove()});
+			}
+
+			if (rule.getChangePercent() != null) {
+				attributeLimits.get(attribute).add(new double[]{CHANGE_PERCENT, Math.abs(rule.getChangePercent())});
+			}
+		}
+
+		final int[][] kinds = new int[attributes.length][];
+		final double[][] values = new double[attributes.length][];
+		boolean anyLimit = false;
+		for (int i = 0; i < attributes.length; i++) {
+			final List<double[]> ruleLimits = attributeLimits.get(i);
+			kinds[i] = new int[ruleLimits.size()];
+			values[i] = new double[ruleLimits.size()];
+			for (int j = 0; j < ruleLimits.size(); j++) {
+				kinds[i][j] = (int) ruleLimits.get(j)[0];
+				values[i][j] = ruleLimits.get(j)[1];
+			}
+
+			anyLimit |= !ruleLimits.isEmpty();
+		}
+
+		return new Limits(kinds, values, anyLimit);
+	}
+
+	/**
+	 * @return The amount of numeric attributes of a product.
+	 */
+	int getAttributeCount() {
+		return attributes.length;
+	}
+
+	/**
+	 * @param attribute The number of an attribute.
+	 * @return The name of the field of the attribute.
+	 */
+	String getAttribute(final int attribute) {
+		return attributes[attribute];
+	}
+
+	/**
+	 * @param name The name of the field of an attribute.
+	 * @return The number of the attribute or -1 if there is no such attribute.
+	 */
+	int indexOf(final String name) {
+		for (int i = 0; i < attributes.length; i++) {
+			if (attributes[i].equals(name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @return {@code true} if changes of at least one attribute get reported, {@code false} if not.
+	 */
+	boolean hasRules() {
+		return limits.any;
+	}
+
+	/**
+	 * @param attribute The number of an attribute.
+	 * @return {@code true} if changes of the attribute get reported, {@code false} if not.
+	 */
+	boolean hasRules(final int attribute) {
+		return limits.kinds[attribute].length > 0;
+	}
+
+	/**
+	 * Checks if a change of an attribute of a single product gets reported.
+	 * @param attribute The number of the attribute.
+	 * @param oldValue The last value of the attribute, {@link Double#NaN} if it was missing.
+	 * @param newValue The current value of the attribute, {@link Double#NaN} if it is missing.
+	 * @return {@code true} if the change matches at least one rule of the attribute, {@code false} if not.
+	 */
+	boolean matches(final int attribute, final double oldValue, final double newValue) {
+		final Limits current = limits;
+		for (int i = 0; i < current.kinds[attribute].length; i++) {
+			if (matches(current.kinds[attribute][i], current.values[attribute][i], oldValue, newValue)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks the changes of an attribute of a range of products. Each limit gets checked in its own pass over the
+	 * whole range, so the checks of a pass only differ in the values they read.
+	 * @param attribute The number of the attribute.
+	 * @param oldValues The column of the attribute in the older snapshot.
+	 * @param positions The position of each product of the range in the older snapshot, negative if the product
+	 *                  is not in the older snapshot.
+	 * @param newValues The column of the attribute in the newer snapshot.
+	 * @param from The position of the first product of the range in the newer snapshot.
+	 * @param matched Gets set to {@code true} for each product of the range whose change matches a rule.
+	 */
+	void markMatches(final int attribute, final double[] oldValues, final int[] positions, final double[] newValues,
+					 final int from, final boolean[] matched) {
+		final Limits current = limits;
+		for (int i = 0; i < current.kinds[attribute].length; i++) {
+			final int kind = current.kinds[attribute][i];
+			final double limit = current.values[attribute][i];
+			for (int j = 0; j < positions.length; j++) {
+				final int position = positions[j];
+				if (position >= 0 && matches(kind, limit, oldValues[position], newValues[from + j])) {
+					matched[j] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks a change against a single limit. Changes from or to a missing value never match as all comparisons
+	 * with {@link Double#NaN} are {@code false}.
+	 * @param kind The kind of the limit.
+	 * @param limit The limit.
+	 * @param oldValue The last value.
+	 * @param newValue The current value.
+	 * @return {@code true} if the value dropped below or rose above the limit or changed by at least the limit in
+	 * percent of the last value, {@code false} if not.
+	 */
+	private static boolean matches(final int kind, final double limit, final double oldValue, final double newValue) {
+		switch (kind) {
+			case BELOW:
+				return oldValue >= limit && newValue < limit;
+			case ABOVE:
+				return oldValue <= limit && newValue > limit;
+			default:
+				return Math.abs(newValue - oldValue) * 100 >= limit * Math.abs(oldValue) && newValue != oldValue;
+		}
+	}
+
+	/**
+	 * @param value The value of an attribute.
+	 * @return The value as text without a fraction if it is an integer and without trailing zeros otherwise.
+	 */
+	static String format(final double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return "?";
+		}
+
+		if (value == Math.rint(value) && Math.abs(value) < MAX_PLAIN_INTEGER) {
+			return Long.toString((long) value);
+		}
+
+		return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * The limits of all rules by the number of their attribute.
+	 */
+	private static final class Limits {
+
+		private final int[][] kinds;
+		private final double[][] values;
+		private final boolean any;
+
+		/**
+		 * @param kinds The kind of each limit.
+		 * @param values The value of each limit.
+		 * @param any {@code true} if there is at least one limit, {@code false} if not.
+		 */
+		private Limits(final int[][] kinds, final double[][] values, final boolean any) {
+			this.kinds = kinds;
+			this.values = values;
+			this.any = any;
+		}
+	}
+}
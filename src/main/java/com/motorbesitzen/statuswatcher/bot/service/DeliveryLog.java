@@ -0,0 +1,238 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The versions of the changes that got sent and how far each guild got. Every send cycle with changes adds a new
+ * version. Each guild has a cursor at the last version it got, so a guild that did not get a message, e.g. as its
+ * channel was not writable or Discord did not respond, gets all changes it missed merged into a single message once
+ * sending works again. Versions only get kept as long as the cursor of a guild is behind them.
+ */
+final class DeliveryLog {
+
+	private static final long RETRY_DELAY_MS = 60000;
+	private final Deque<Version> versions;
+	private final Map<Long, Cursor> cursors;
+	private long head;
+	private long passHead;
+
+	DeliveryLog() {
+		this.versions = new ArrayDeque<>();
+		this.cursors = new HashMap<>();
+		this.head = 0;
+		this.passHead = 0;
+	}
+
+	/**
+	 * Adds the changes of a send cycle as a new version.
+	 * @param changesBySource The changes by the name of their source.
+	 * @param now The current time in milliseconds since the epoch.
+	 */
+	synchronized void append(final Map<String, List<StatusChange>> changesBySource, final long now) {
+		versions.addLast(new Version(++head, now, changesBySource));
+	}
+
+	synchronized long getHead() {
+		return head;
+	}
+
+	/**
+	 * @param now The current time in milliseconds since the epoch.
+	 * @return {@code true} if there is a new version or a guild that did not get an older version should be retried,
+	 * {@code false} if all guilds are up to date or wait for a retry.
+	 */
+	synchronized boolean needsDelivery(final long now) {
+		if (head > passHead) {
+			return true;
+		}
+
+		for (Cursor cursor : cursors.values()) {
+			if (cursor.isDue(head, now)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Starts a delivery to a guild if it is behind and does not wait for a running delivery or a retry. A guild that
+	 * is not known yet starts at the version of the last delivery pass, so it gets the changes since then like all
+	 * other guilds. Each started delivery must end with {@link #delivered(long, long)} or {@link #failed(long, long)}.
+	 * @param guildId The ID of the guild.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @return The last version the guild got or -1 if no delivery got started.
+	 */
+	synchronized long startDelivery(final long guildId, final long now) {
+		final Cursor cursor = cursors.computeIfAbsent(guildId, id -> new Cursor(passHead));
+		if (!cursor.isDue(head, now)) {
+			return -1;
+		}
+
+		cursor.sending = true;
+		return cursor.version;
+	}
+
+	/**
+	 * Moves the cursor of a guild after it got all changes up to a version.
+	 * @param guildId The ID of the guild.
+	 * @param version The version.
+	 */
+	synchronized void delivered(final long guildId, final long version) {
+		final Cursor cursor = cursors.get(guildId);
+		if (cursor != null) {
+			cursor.version = Math.max(cursor.version, version);
+			cursor.sending = false;
+			cursor.retryAt = 0;
+		}
+	}
+
+	/**
+	 * Keeps the cursor of a guild whose delivery failed, so the changes get retried after a delay.
+	 * @param guildId The ID of the guild.
+	 * @param now The current time in milliseconds since the epoch.
+	 */
+	synchronized void failed(final long guildId, final long now) {
+		final Cursor cursor = cursors.get(guildId);
+		if (cursor != null) {
+			cursor.sending = false;
+			cursor.retryAt = now + RETRY_DELAY_MS;
+		}
+	}
+
+	/**
+	 * Merges all changes after a version into a single change per product and attribute. Changes that got reverted
+	 * in a later version get dropped.
+	 * @param version The last version a guild got.
+	 * @param sourceFilter Decides which sources the guild gets the changes of.
+	 * @return The merged changes, ordered by source and the first change of each product.
+	 */
+	synchronized List<StatusChange> merge(final long version, final Predicate<String> sourceFilter) {
+		final Map<String, List<StatusChange>> changesBySource = new LinkedHashMap<>();
+		final Map<String, Map<String, StatusChange>> mergedBySource = new HashMap<>();
+		for (Version nextVersion : versions) {
+			if (nextVersion.number <= version) {
+				continue;
+			}
+
+			for (Map.Entry<String, List<StatusChange>> entry : nextVersion.changesBySource.entrySet()) {
+				if (!sourceFilter.test(entry.getKey())) {
+					continue;
+				}
+
+				final List<StatusChange> sourceChanges = changesBySource.get(entry.getKey());
+				if (sourceChanges == null) {
+					changesBySource.put(entry.getKey(), entry.getValue());
+					continue;
+				}
+
+				final Map<String, StatusChange> merged = mergedBySource.computeIfAbsent(
+						entry.getKey(), source -> toMap(sourceChanges)
+				);
+				for (StatusChange statusChange : entry.getValue()) {
+					merged.merge(statusChange.getKey(), statusChange, StatusChange::combine);
+				}
+			}
+		}
+
+		final List<StatusChange> statusChanges = new ArrayList<>();
+		for (Map.Entry<String, List<StatusChange>> entry : changesBySource.entrySet()) {
+			final Map<String, StatusChange> merged = mergedBySource.get(entry.getKey());
+			statusChanges.addAll(merged != null ? merged.values() : entry.getValue());
+		}
+
+		return statusChanges;
+	}
+
+	/**
+	 * Ends a delivery pass over all guilds. Forgets the guilds the bot is not in anymore and drops the versions no
+	 * guild needs anymore. Versions older than a time get dropped even if a guild did not get them yet, so a guild
+	 * that can not get messages for a long time does not keep all versions forever.
+	 * @param guildIds The IDs of all guilds of the bot, {@code null} if the pass did not get all guilds and no guild
+	 *                 should be forgotten.
+	 * @param minTime The time in milliseconds since the epoch before which versions get dropped.
+	 */
+	synchronized void finishPass(final Set<Long> guildIds, final long minTime) {
+		passHead = head;
+		if (guildIds != null) {
+			cursors.keySet().retainAll(guildIds);
+		}
+
+		while (!versions.isEmpty() && versions.peekFirst().time < minTime) {
+			versions.removeFirst();
+		}
+
+		final long oldestVersion = versions.isEmpty() ? head : versions.peekFirst().number - 1;
+		long lowestCursor = head;
+		for (Cursor cursor : cursors.values()) {
+			cursor.version = Math.max(cursor.version, oldestVersion);
+			lowestCursor = Math.min(lowestCursor, cursor.version);
+		}
+
+		while (!versions.isEmpty() && versions.peekFirst().number <= lowestCursor) {
+			versions.removeFirst();
+		}
+	}
+
+	/**
+	 * @param statusChanges The changes of a source.
+	 * @return The changes by their key in their order.
+	 */
+	private static Map<String, StatusChange> toMap(final List<StatusChange> statusChanges) {
+		final Map<String, StatusChange> changesByProduct = new LinkedHashMap<>();
+		for (StatusChange statusChange : statusChanges) {
+			changesByProduct.merge(statusChange.getKey(), statusChange, StatusChange::combine);
+		}
+
+		return changesByProduct;
+	}
+
+	/**
+	 * The changes of a send cycle.
+	 */
+	private static final class Version {
+
+		private final long number;
+		private final long time;
+		private final Map<String, List<StatusChange>> changesBySource;
+
+		private Version(final long number, final long time, final Map<String, List<StatusChange>> changesBySource) {
+			this.number = number;
+			this.time = time;
+			this.changesBySource = changesBySource;
+		}
+	}
+
+	/**
+	 * How far a guild got.
+	 */
+	private static final class Cursor {
+
+		private long version;
+		private boolean sending;
+		private long retryAt;
+
+		private Cursor(final long version) {
+			this.version = version;
+			this.sending = false;
+			this.retryAt = 0;
+		}
+
+		/**
+		 * @param head The newest version.
+		 * @param now The current time in milliseconds since the epoch.
+		 * @return {@code true} if the guild is behind and does not wait for a running delivery or a retry.
+		 */
+		private boolean isDue(final long head, final long now) {
+			return version < head && !sending && now >= retryAt;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The polling state of a single product status API.
+ */
+class EndpointPoller {
+
+	private final StatusEndpoint endpoint;
+	private final PollSchedule schedule;
+	private final AtomicBoolean inFlight;
+	private volatile long nextPollAt;
+
+	/**
+	 * @param endpoint The product status API to poll.
+	 * @param schedule Decides when the API gets polled after a poll finished.
+	 * @param firstPollAt The time in milliseconds since the epoch at which the API gets polled for the first time.
+	 */
+	EndpointPoller(final StatusEndpoint endpoint, final PollSchedule schedule, final long firstPollAt) {
+		this.endpoint = endpoint;
+		this.schedule = schedule;
+		this.inFlight = new AtomicBoolean(false);
+		this.nextPollAt = firstPollAt;
+	}
+
+	/**
+	 * Marks the API as being polled if it is due and not already being polled.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @return {@code true} if the caller has to poll the API now, {@code false} if not.
+	 */
+	boolean tryStart(final long now) {
+		if (now < nextPollAt) {
+			return false;
+		}
+
+		return inFlight.compareAndSet(false, true);
+	}
+
+	/**
+	 * Marks the poll as finished and schedules the next one.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @param changed {@code true} if the poll found status changes, {@code false} if it did not or if it failed.
+	 */
+	void finish(final long now, final boolean changed) {
+		nextPollAt = schedule.next(now, changed);
+		inFlight.set(false);
+	}
+
+	StatusEndpoint getEndpoint() {
+		return endpoint;
+	}
+
+	PollSchedule getSchedule() {
+		return schedule;
+	}
+
+	long getNextPollAt() {
+		return nextPollAt;
+	}
+}
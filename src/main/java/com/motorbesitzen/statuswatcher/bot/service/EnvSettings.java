@@ -5,6 +5,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * The class that handles the environment variables.
  */
@@ -39,12 +43,13 @@ public class EnvSettings {
 	}
 
 	/**
-	 * Defines the product status API URL that gets used to request the status of the listed products.
+	 * Defines the product status API URLs that get used to request the status of the listed products. Multiple
+	 * URLs can be separated by commas. Only gets used if there is no config file for the product status APIs.
 	 *
-	 * @return The set product status API URL if there is one. If there is none set it returns an empty String.
+	 * @return The set product status API URLs. If there are none set it returns an empty list.
 	 */
-	public String getProductStatusApiUrl() {
-		return environment.getProperty("PRODUCT_STATUS_API_URL", "");
+	public List<String> getProductStatusApiUrls() {
+		return getCommaSeparatedList("PRODUCT_STATUS_API_URL", "");
 	}
 
 	/**
@@ -64,6 +69,306 @@ public class EnvSettings {
 		return Math.max(1000, Math.min(86400000, interval));
 	}
 
+	/**
+	 * Defines if the interval between product status requests adapts to how often the product status API changes.
+	 * Only gets enabled if PRODUCT_STATUS_SCHEDULER_MODE is set to "adaptive".
+	 *
+	 * @return {@code true} if the interval should adapt, {@code false} if the configured interval should be used.
+	 */
+	public boolean isAdaptiveSchedulingEnabled() {
+		return environment.getProperty("PRODUCT_STATUS_SCHEDULER_MODE", "fixed").trim().equalsIgnoreCase("adaptive");
+	}
+
+	/**
+	 * Defines the interval between product status requests right after a change if the adaptive scheduler is used.
+	 * If the interval is set to be above 24h it defaults to 24 hours, if it is below one second it defaults to one
+	 * second. If the interval is not given or invalid it defaults to 5 seconds.
+	 *
+	 * @return The minimum interval between product status API requests in milliseconds (ms).
+	 */
+	public long getProductStatusMinRequestInterval() {
+		final String intervalText = environment.getProperty("PRODUCT_STATUS_MIN_INTERVAL_MS", "5000");
+		final long interval = ParseUtil.safelyParseStringToLong(intervalText);
+		if (interval == -1) {
+			return 5000;
+		}
+		return Math.max(1000, Math.min(86400000, interval));
+	}
+
+	/**
+	 * Defines the interval the adaptive scheduler backs off to while the product status API does not change. If the
+	 * interval is set to be above 24h it defaults to 24 hours, if it is below one second it defaults to one second.
+	 * If the interval is not given or invalid it defaults to 10 minutes.
+	 *
+	 * @return The maximum interval between product status API requests in milliseconds (ms).
+	 */
+	public long getProductStatusMaxRequestInterval() {
+		final String intervalText = environment.getProperty("PRODUCT_STATUS_MAX_INTERVAL_MS", "600000");
+		final long interval = ParseUtil.safelyParseStringToLong(intervalText);
+		if (interval == -1) {
+			return 600000;
+		}
+		return Math.max(1000, Math.min(86400000, interval));
+	}
+
+	/**
+	 * Defines the location of the product statuses in the response of the product status API as a JSON Pointer
+	 * like "/content/list". If no location is set the bot searches the whole response and remembers where it
+	 * found the product statuses.
+	 *
+	 * @return The set JSON Pointer if there is one. If there is none set it returns an empty String.
+	 */
+	public String getProductStatusListPath() {
+		return environment.getProperty("PRODUCT_STATUS_LIST_PATH", "");
+	}
+
+	/**
+	 * Defines the names of the fields that contain the name of a product. Multiple names can be separated by
+	 * commas.
+	 *
+	 * @return The field names of the product name. If there are none set it returns "name" and "productName".
+	 */
+	public List<String> getProductNameFields() {
+		return getCommaSeparatedList("PRODUCT_STATUS_NAME_FIELDS", "name,productName");
+	}
+
+	/**
+	 * Defines the names of the fields that contain the status of a product. Multiple names can be separated by
+	 * commas.
+	 *
+	 * @return The field names of the product status. If there are none set it returns "status" and "productStatus".
+	 */
+	public List<String> getProductStatusFields() {
+		return getCommaSeparatedList("PRODUCT_STATUS_STATUS_FIELDS", "status,productStatus");
+	}
+
+	/**
+	 * Defines the names of the fields that contain numeric attributes of a product, e.g. its stock or its price.
+	 * Multiple names can be separated by commas. Changes of the attributes get reported by the attribute rules of the
+	 * status configuration.
+	 *
+	 * @return The field names of the numeric product attributes. If there are none set it returns an empty list.
+	 */
+	public List<String> getProductAttributeFields() {
+		return getCommaSeparatedList("PRODUCT_STATUS_ATTRIBUTE_FIELDS", "");
+	}
+
+	/**
+	 * Splits a comma separated list of values.
+	 *
+	 * @param key The name of the environment variable.
+	 * @param defaultValue The value to use if the environment variable is not set or empty.
+	 * @return The list of values without empty entries.
+	 */
+	private List<String> getCommaSeparatedList(final String key, final String defaultValue) {
+		final String valuesText = environment.getProperty(key, "");
+		final String values = valuesText.isBlank() ? defaultValue : valuesText;
+		return Arrays.stream(values.split(","))
+				.map(String::trim)
+				.filter(value -> !value.isEmpty())
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Defines the maximum size of a response of the product status API. Responses that are bigger than that get
+	 * rejected. If the size is not given or invalid it defaults to 32 MiB, it can not be set below 1 KiB.
+	 *
+	 * @return The maximum size of a product status API response in bytes.
+	 */
+	public long getProductStatusMaxPayloadSize() {
+		final String sizeText = environment.getProperty("PRODUCT_STATUS_MAX_PAYLOAD_BYTES", "33554432");
+		final long size = ParseUtil.safelyParseStringToLong(sizeText);
+		if (size == -1) {
+			return 33554432;
+		}
+		return Math.max(1024, size);
+	}
+
+	/**
+	 * Defines the timeout of a product status request. If the timeout is set to be above 60 seconds it defaults to
+	 * 60 seconds, if it is below one second it defaults to one second. If the timeout is not given or invalid it
+	 * defaults to 10 seconds.
+	 *
+	 * @return The timeout of a product status API request in milliseconds (ms).
+	 */
+	public int getProductStatusRequestTimeout() {
+		final String timeoutText = environment.getProperty("PRODUCT_STATUS_REQUEST_TIMEOUT_MS", "10000");
+		final int timeout = ParseUtil.safelyParseStringToInt(timeoutText);
+		if (timeout == -1) {
+			return 10000;
+		}
+		return Math.max(1000, Math.min(60000, timeout));
+	}
+
+	/**
+	 * Defines how many product status APIs can be requested at the same time. Can be one to 64, defaults to four
+	 * if it is not given or invalid.
+	 *
+	 * @return The maximum amount of concurrent product status API requests.
+	 */
+	public int getMaxConcurrentRequests() {
+		final String maxText = environment.getProperty("PRODUCT_STATUS_MAX_CONCURRENT_REQUESTS", "4");
+		final int max = ParseUtil.safelyParseStringToInt(maxText);
+		if (max == -1) {
+			return 4;
+		}
+		return Math.max(1, Math.min(64, max));
+	}
+
+	/**
+	 * Defines how many pages of a paginated product status API can be requested at the same time. Can be one to 16,
+	 * defaults to four if it is not given or invalid.
+	 *
+	 * @return The maximum amount of concurrent page requests per product status API.
+	 */
+	public int getPageConcurrency() {
+		final String concurrencyText = environment.getProperty("PRODUCT_STATUS_PAGE_CONCURRENCY", "4");
+		final int concurrency = ParseUtil.safelyParseStringToInt(concurrencyText);
+		if (concurrency == -1) {
+			return 4;
+		}
+		return Math.max(1, Math.min(16, concurrency));
+	}
+
+	/**
+	 * Defines from how many products on two snapshots of a status source get compared in parallel. Can not be less
+	 * than 10000. Snapshots always get compared sequentially if it is not given, invalid, 0 or negative.
+	 *
+	 * @return The amount of products from which on snapshots get compared in parallel or -1 if they never do.
+	 */
+	public int getParallelDiffThreshold() {
+		final String thresholdText = environment.getProperty("PRODUCT_STATUS_PARALLEL_DIFF_THRESHOLD");
+		final int threshold = ParseUtil.safelyParseStringToInt(thresholdText);
+		if (threshold <= 0) {
+			return -1;
+		}
+		return Math.max(10000, threshold);
+	}
+
+	/**
+	 * Defines the directory the last snapshot of each status source gets saved in, so status changes during a
+	 * restart get found. Defaults to "snapshots", snapshots do not get saved if it is set to an empty value.
+	 *
+	 * @return The directory of the snapshots or an empty text if snapshots do not get saved.
+	 */
+	public String getSnapshotDirectory() {
+		return environment.getProperty("PRODUCT_STATUS_SNAPSHOT_DIR", "snapshots").trim();
+	}
+
+	/**
+	 * Defines the directory the history of all status changes gets written to. Defaults to "history", the history
+	 * only gets kept in memory until the next restart if it is set to an empty value.
+	 *
+	 * @return The directory of the history or an empty text if the history does not get written to disk.
+	 */
+	public String getHistoryDirectory() {
+		return environment.getProperty("PRODUCT_STATUS_HISTORY_DIR", "history").trim();
+	}
+
+	/**
+	 * Defines for how many days status changes stay in the history. Can be one to 3650 days, defaults to 30 days
+	 * if it is not given or invalid.
+	 *
+	 * @return The amount of days status changes stay in the history.
+	 */
+	public int getHistoryRetentionDays() {
+		final String daysText = environment.getProperty("PRODUCT_STATUS_HISTORY_DAYS", "30");
+		final int days = ParseUtil.safelyParseStringToInt(daysText);
+		if (days == -1) {
+			return 30;
+		}
+		return Math.max(1, Math.min(3650, days));
+	}
+
+	/**
+	 * Defines how often a failed product status request gets retried. Can be zero to five, defaults to two if it is
+	 * not given or invalid.
+	 *
+	 * @return The maximum amount of retries of a product status API request.
+	 */
+	public int getMaxRetries() {
+		final String retriesText = environment.getProperty("PRODUCT_STATUS_MAX_RETRIES", "2");
+		final int retries = ParseUtil.safelyParseStringToInt(retriesText);
+		if (retries == -1) {
+			return 2;
+		}
+		return Math.max(0, Math.min(5, retries));
+	}
+
+	/**
+	 * Defines if a second request gets sent to a product status API if the first one is slower than 95% of the
+	 * latest requests. Only gets enabled if PRODUCT_STATUS_HEDGE_REQUESTS is set to "true" and only works for
+	 * asynchronous requests.
+	 *
+	 * @return {@code true} if slow requests should be hedged, {@code false} if not.
+	 */
+	public boolean isHedgingEnabled() {
+		return environment.getProperty("PRODUCT_STATUS_HEDGE_REQUESTS", "false").trim().equalsIgnoreCase("true");
+	}
+
+	/**
+	 * Defines if the product status APIs get requested asynchronously. Asynchronous requests do not occupy a
+	 * thread while waiting for a response. Only gets enabled if PRODUCT_STATUS_FETCH_MODE is set to "async".
+	 *
+	 * @return {@code true} if the requests should be asynchronous, {@code false} if they should block a thread of
+	 * the request pool.
+	 */
+	public boolean isAsyncFetchEnabled() {
+		return environment.getProperty("PRODUCT_STATUS_FETCH_MODE", "blocking").trim().equalsIgnoreCase("async");
+	}
+
+	/**
+	 * Defines how long the bot collects status changes of streamed status events and webhook requests before it sends
+	 * them in a single message. Can be zero to ten seconds, defaults to 250 milliseconds if it is not given or invalid.
+	 *
+	 * @return The time in milliseconds the bot waits for further status changes.
+	 */
+	public long getPushBatchWindow() {
+		final String windowText = environment.getProperty("PRODUCT_STATUS_BATCH_WINDOW_MS", "250");
+		final long window = ParseUtil.safelyParseStringToLong(windowText);
+		if (window == -1) {
+			return 250;
+		}
+		return Math.max(0, Math.min(10000, window));
+	}
+
+	/**
+	 * Defines the port of the webhook that receives product status updates. The webhook is disabled if no valid port
+	 * is given.
+	 *
+	 * @return The port of the webhook or -1 if the webhook is disabled.
+	 */
+	public int getWebhookPort() {
+		final String portText = environment.getProperty("WEBHOOK_PORT");
+		final int port = ParseUtil.safelyParseStringToInt(portText);
+		if (port < 1 || port > 65535) {
+			return -1;
+		}
+		return port;
+	}
+
+	/**
+	 * Defines the address of the network interface the webhook listens on. Defaults to the loopback address, so
+	 * the webhook is only reachable from the host of the bot unless another address is set explicitly.
+	 *
+	 * @return The address or host name the webhook binds to.
+	 */
+	public String getWebhookBindAddress() {
+		final String address = environment.getProperty("WEBHOOK_BIND_ADDRESS", "127.0.0.1").trim();
+		return address.isBlank() ? "127.0.0.1" : address;
+	}
+
+	/**
+	 * Defines the token a webhook request has to contain in its {@code Authorization} header as
+	 * {@code Bearer <token>}. If no token is set every request gets accepted, which is only allowed if the webhook
+	 * listens on the loopback address.
+	 *
+	 * @return The token of the webhook or an empty string if there is none.
+	 */
+	public String getWebhookToken() {
+		return environment.getProperty("WEBHOOK_TOKEN", "").trim();
+	}
+
 	/**
 	 * Defines the time in hours until the bot deletes its messages. If the delay is set to be above 24h it defaults to
 	 * 24 hours, if it is below one hour or invalid it defaults to an one hour delay.
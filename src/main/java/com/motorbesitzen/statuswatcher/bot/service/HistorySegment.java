@@ -0,0 +1,406 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A file of the status history. Segments only get appended to and get replaced as a whole on compaction. A segment
+ * starts with a header of a magic number, the format version and the time the segment starts at. Each record after
+ * it is either a text or a change. A text record defines the next text number of the segment, so every product
+ * name, status and source is only written once per segment. A change record contains the milliseconds since the last
+ * change as a zigzag varint followed by the text numbers of the source, the product and both statuses as varints,
+ * so a change usually takes less than ten bytes.
+ */
+final class HistorySegment {
+
+	static final String FILE_EXTENSION = ".history";
+	private static final int MAGIC = 0x53574849;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+	private static final byte TEXT_RECORD = 0;
+	private static final byte CHANGE_RECORD = 1;
+	private static final int INITIAL_BUFFER_SIZE = 4096;
+	private static final StatusChange.Type[] TYPES = StatusChange.Type.values();
+
+	private final Path file;
+	private final long minTime;
+	private final long maxTime;
+	private final long length;
+
+	/**
+	 * @param file The file of the segment.
+	 * @param minTime The time of the oldest change in the segment.
+	 * @param maxTime The time of the newest change in the segment.
+	 * @param length The size of the file in bytes.
+	 */
+	HistorySegment(final Path file, final long minTime, final long maxTime, final long length) {
+		this.file = file;
+		this.minTime = minTime;
+		this.maxTime = maxTime;
+		this.length = length;
+	}
+
+	Path getFile() {
+		return file;
+	}
+
+	long getMinTime() {
+		return minTime;
+	}
+
+	long getMaxTime() {
+		return maxTime;
+	}
+
+	long getLength() {
+		return length;
+	}
+
+	/**
+	 * Chooses the file of a new segment. Segment files are named after the time they start at, so sorting them by
+	 * name sorts them by time.
+	 * @param directory The directory of the segments.
+	 * @param startTime The time the segment starts at.
+	 * @return A file that does not exist yet.
+	 */
+	static Path newFile(final Path directory, final long startTime) {
+		long fileTime = startTime;
+		Path file = directory.resolve(String.format("%016d", fileTime) + FILE_EXTENSION);
+		while (Files.exists(file)) {
+			file = directory.resolve(String.format("%016d", ++fileTime) + FILE_EXTENSION);
+		}
+
+		return file;
+	}
+
+	/**
+	 * Receives the changes of a segment while it gets read.
+	 */
+	interface ChangeHandler {
+
+		/**
+		 * @param time The time of the change in milliseconds since the epoch.
+		 * @param source The name of the source of the change.
+		 * @param productName The name of the product.
+		 * @param type The kind of the change.
+		 * @param oldStatus The alias of the old status, {@code null} if the product got added.
+		 * @param newStatus The alias of the new status, {@code null} if the product got removed.
+		 */
+		void onChange(long time, String source, String productName, StatusChange.Type type, String oldStatus,
+					  String newStatus);
+	}
+
+	/**
+	 * Reads all changes of a segment file through a memory mapping. A record that got cut off by a crash ends the
+	 * segment.
+	 * @param file The segment file.
+	 * @param handler Receives each change in the order it got written.
+	 * @return The segment with the times of its oldest and newest change.
+	 * @throws IOException if the file can not be read or is no segment.
+	 */
+	static HistorySegment read(final Path file, final ChangeHandler handler) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long length = channel.size();
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			if (length < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Unknown history segment format");
+			}
+
+			final List<String> texts = new ArrayList<>();
+			long time = buffer.getLong();
+			long minTime = Long.MAX_VALUE;
+			long maxTime = Long.MIN_VALUE;
+			byte[] textBytes = new byte[64];
+			try {
+				while (buffer.hasRemaining()) {
+					final int start = buffer.position();
+					final byte recordType = buffer.get();
+					if (recordType == TEXT_RECORD) {
+						final int textLength = readVarInt(buffer);
+						if (textLength > textBytes.length) {
+							textBytes = new byte[Math.max(textLength, textBytes.length * 2)];
+						}
+
+						buffer.get(textBytes, 0, textLength);
+						texts.add(new String(textBytes, 0, textLength, StandardCharsets.UTF_8));
+						continue;
+					}
+
+					if (recordType != CHANGE_RECORD) {
+						throw new IOException("Unknown record type " + recordType + " at " + start);
+					}
+
+					final long changeTime = time + decodeZigZag(readVarLong(buffer));
+					final String source = texts.get(readVarInt(buffer));
+					final String productName = texts.get(readVarInt(buffer));
+					final StatusChange.Type type = TYPES[buffer.get()];
+					final String oldStatus = getOptionalText(texts, readVarInt(buffer));
+					final String newStatus = getOptionalText(texts, readVarInt(buffer));
+					time = changeTime;
+					minTime = Math.min(minTime, changeTime);
+					maxTime = Math.max(maxTime, changeTime);
+					handler.onChange(changeTime, source, productName, type, oldStatus, newStatus);
+				}
+			} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+				// the last record did not get written completely
+			}
+
+			return new HistorySegment(file, minTime, maxTime, length);
+		}
+	}
+
+	/**
+	 * @param texts The texts of the segment.
+	 * @param id The text number plus one, zero if there is no text.
+	 * @return The text or {@code null} if there is none.
+	 */
+	private static String getOptionalText(final List<String> texts, final int id) {
+		return id == 0 ? null : texts.get(id - 1);
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 * @param buffer The buffer that contains the varint at its position.
+	 * @return The value.
+	 * @throws IOException if the varint is too long.
+	 */
+	private static int readVarInt(final ByteBuffer buffer) throws IOException {
+		final long value = readVarLong(buffer);
+		if (value > Integer.MAX_VALUE) {
+			throw new IOException("Invalid varint " + value);
+		}
+
+		return (int) value;
+	}
+
+	/**
+	 * Reads an unsigned varint of up to 64 bits.
+	 * @param buffer The buffer that contains the varint at its position.
+	 * @return The value.
+	 * @throws IOException if the varint is too long.
+	 */
+	private static long readVarLong(final ByteBuffer buffer) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			final byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Varint is too long");
+	}
+
+	/**
+	 * @param value A zigzag encoded value.
+	 * @return The signed value.
+	 */
+	private static long decodeZigZag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Appends changes to a new segment file. Not thread-safe.
+	 */
+	static final class Writer {
+
+		private final Path file;
+		private final FileChannel channel;
+		private final long startTime;
+		private final Map<String, Integer> textIds;
+		private byte[] buffer;
+		private int bufferLength;
+		private long lastTime;
+		private long minTime;
+		private long maxTime;
+		private long length;
+
+		/**
+		 * Creates a segment file.
+		 * @param file The file of the segment, must not exist yet.
+		 * @param startTime The time the segment starts at, also the base of the first time delta.
+		 * @throws IOException if the file can not be created.
+		 */
+		Writer(final Path file, final long startTime) throws IOException {
+			Files.createDirectories(file.getParent());
+			this.file = file;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			this.startTime = startTime;
+			this.textIds = new HashMap<>();
+			this.buffer = new byte[INITIAL_BUFFER_SIZE];
+			this.bufferLength = 0;
+			this.lastTime = startTime;
+			this.minTime = Long.MAX_VALUE;
+			this.maxTime = Long.MIN_VALUE;
+			this.length = 0;
+			writeHeader();
+		}
+
+		/**
+		 * Adds a change to the buffer of the writer. Gets written to the file on {@link #flush()}.
+		 * @param time The time of the change in milliseconds since the epoch.
+		 * @param source The name of the source of the change.
+		 * @param productName The name of the product.
+		 * @param type The kind of the change.
+		 * @param oldStatus The alias of the old status, {@code null} if the product got added.
+		 * @param newStatus The alias of the new status, {@code null} if the product got removed.
+		 */
+		void append(final long time, final String source, final String productName, final StatusChange.Type type,
+					final String oldStatus, final String newStatus) {
+			final int sourceId = getTextId(source);
+			final int productId = getTextId(productName);
+			final int oldStatusId = oldStatus == null ? 0 : getTextId(oldStatus) + 1;
+			final int newStatusId = newStatus == null ? 0 : getTextId(newStatus) + 1;
+			putByte(CHANGE_RECORD);
+			putVarLong(encodeZigZag(time - lastTime));
+			putVarLong(sourceId);
+			putVarLong(productId);
+			putByte((byte) type.ordinal());
+			putVarLong(oldStatusId);
+			putVarLong(newStatusId);
+			lastTime = time;
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+		}
+
+		/**
+		 * Writes the buffered changes to the file.
+		 * @throws IOException if the changes can not be written.
+		 */
+		void flush() throws IOException {
+			final ByteBuffer data = ByteBuffer.wrap(buffer, 0, bufferLength);
+			while (data.hasRemaining()) {
+				length += channel.write(data);
+			}
+
+			bufferLength = 0;
+		}
+
+		/**
+		 * Writes the buffered changes and closes the file.
+		 * @return The finished segment.
+		 * @throws IOException if the file can not be written or closed.
+		 */
+		HistorySegment close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+
+			return new HistorySegment(file, minTime, maxTime, length);
+		}
+
+		/**
+		 * Deletes the file of a writer whose segment is not needed, e.g. if writing failed.
+		 */
+		void discard() {
+			try {
+				channel.close();
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				// the file gets ignored or replaced later
+			}
+		}
+
+		Path getFile() {
+			return file;
+		}
+
+		long getStartTime() {
+			return startTime;
+		}
+
+		/**
+		 * @return The size of the segment in bytes including the changes that did not get flushed yet.
+		 */
+		long getLength() {
+			return length + bufferLength;
+		}
+
+		/**
+		 * Writes the header of the segment into the buffer.
+		 */
+		private void writeHeader() {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putLong(startTime);
+			for (byte b : header.array()) {
+				putByte(b);
+			}
+		}
+
+		/**
+		 * Gets the number of a text and writes a text record first if the text is new in the segment.
+		 * @param text The text.
+		 * @return The number of the text.
+		 */
+		private int getTextId(final String text) {
+			final Integer knownId = textIds.get(text);
+			if (knownId != null) {
+				return knownId;
+			}
+
+			final int id = textIds.size();
+			textIds.put(text, id);
+			final byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+			putByte(TEXT_RECORD);
+			putVarLong(textBytes.length);
+			ensureCapacity(textBytes.length);
+			System.arraycopy(textBytes, 0, buffer, bufferLength, textBytes.length);
+			bufferLength += textBytes.length;
+			return id;
+		}
+
+		/**
+		 * @param value An unsigned value.
+		 */
+		private void putVarLong(final long value) {
+			ensureCapacity(10);
+			long remaining = value;
+			while ((remaining & ~0x7FL) != 0) {
+				buffer[bufferLength++] = (byte) ((remaining & 0x7F) | 0x80);
+				remaining >>>= 7;
+			}
+
+			buffer[bufferLength++] = (byte) remaining;
+		}
+
+		/**
+		 * @param value A byte.
+		 */
+		private void putByte(final byte value) {
+			ensureCapacity(1);
+			buffer[bufferLength++] = value;
+		}
+
+		/**
+		 * @param additionalBytes The amount of bytes that get added to the buffer next.
+		 */
+		private void ensureCapacity(final int additionalBytes) {
+			if (bufferLength + additionalBytes > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, bufferLength + additionalBytes));
+			}
+		}
+
+		/**
+		 * @param value A signed value.
+		 * @return The value zigzag encoded, so small negative values stay small.
+		 */
+		private static long encodeZigZag(final long value) {
+			return (value << 1) ^ (value >> 63);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+/**
+ * The reason why the next check of a product status API got scheduled at its time.
+ */
+public enum PollDecision {
+
+	/**
+	 * The API gets checked in its configured interval.
+	 */
+	FIXED,
+
+	/**
+	 * The API changed recently or an expected change is late, so it gets checked at the minimum interval.
+	 */
+	SPEED_UP,
+
+	/**
+	 * The API did not change, so the interval got doubled up to the maximum interval.
+	 */
+	BACK_OFF,
+
+	/**
+	 * The API changes on a regular schedule, so it gets checked right after the next expected change.
+	 */
+	PHASE
+}
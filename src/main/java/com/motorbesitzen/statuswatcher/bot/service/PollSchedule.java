@@ -0,0 +1,221 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+/**
+ * Decides when a product status API gets checked next. A fixed schedule always uses the configured interval of the
+ * API. An adaptive schedule checks at the minimum interval right after a change and doubles the interval up to the
+ * maximum interval while the API does not change. If the changes of the API follow a regular period the adaptive
+ * schedule learns it and checks right after the next expected change.
+ */
+class PollSchedule {
+
+	private static final int MAX_CHANGES = 5;
+	private static final int MIN_REGULAR_GAPS = 3;
+	private static final int PERIOD_TOLERANCE_PERCENT = 2;
+	private final boolean adaptive;
+	private final long baseIntervalMs;
+	private final long minIntervalMs;
+	private final long maxIntervalMs;
+	private final long[] earliestChangeTimes;
+	private final long[] latestChangeTimes;
+	private int changeCount;
+	private long intervalMs;
+	private long periodMs;
+	private long lastPollAt;
+	private boolean phasePoll;
+	private PollDecision lastDecision;
+
+	private PollSchedule(final boolean adaptive, final long baseIntervalMs, final long minIntervalMs,
+						 final long maxIntervalMs) {
+		this.adaptive = adaptive;
+		this.baseIntervalMs = baseIntervalMs;
+		this.minIntervalMs = Math.min(minIntervalMs, baseIntervalMs);
+		this.maxIntervalMs = Math.max(maxIntervalMs, baseIntervalMs);
+		this.earliestChangeTimes = new long[MAX_CHANGES];
+		this.latestChangeTimes = new long[MAX_CHANGES];
+		this.changeCount = 0;
+		this.intervalMs = baseIntervalMs;
+		this.periodMs = 0;
+		this.lastPollAt = 0;
+		this.phasePoll = false;
+		this.lastDecision = PollDecision.FIXED;
+	}
+
+	/**
+	 * Creates a schedule that always uses the configured interval of the API.
+	 * @param intervalMs The interval between two checks in milliseconds.
+	 * @return The fixed schedule.
+	 */
+	static PollSchedule fixed(final long intervalMs) {
+		return new PollSchedule(false, intervalMs, intervalMs, intervalMs);
+	}
+
+	/**
+	 * Creates a schedule that adapts to how often the API changes. The configured interval of the API gets used until
+	 * the first check finished. The minimum interval can not be above and the maximum interval can not be below the
+	 * configured interval.
+	 * @param intervalMs The configured interval between two checks in milliseconds.
+	 * @param minIntervalMs The interval in milliseconds right after a change.
+	 * @param maxIntervalMs The interval in milliseconds the schedule backs off to while the API does not change.
+	 * @return The adaptive schedule.
+	 */
+	static PollSchedule adaptive(final long intervalMs, final long minIntervalMs, final long maxIntervalMs) {
+		return new PollSchedule(true, intervalMs, minIntervalMs, maxIntervalMs);
+	}
+
+	/**
+	 * Decides when the API gets checked next based on the result of the check that just finished.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @param changed {@code true} if the check found status changes, {@code false} if it did not or if it failed.
+	 * @return The time of the next check in milliseconds since the epoch.
+	 */
+	synchronized long next(final long now, final boolean changed) {
+		if (!adaptive) {
+			lastPollAt = now;
+			return now + baseIntervalMs;
+		}
+
+		if (changed) {
+			recordChange(getEarliestChangeAt(now), now);
+			learnPeriod();
+			intervalMs = minIntervalMs;
+			lastDecision = PollDecision.SPEED_UP;
+		} else if (phasePoll) {
+			intervalMs = minIntervalMs;
+			lastDecision = PollDecision.SPEED_UP;
+		} else {
+			intervalMs = Math.min(intervalMs * 2, maxIntervalMs);
+			lastDecision = PollDecision.BACK_OFF;
+		}
+
+		lastPollAt = now;
+		phasePoll = false;
+		if (periodMs == 0) {
+			return now + intervalMs;
+		}
+
+		if (changed) {
+			intervalMs = maxIntervalMs;
+			lastDecision = PollDecision.BACK_OFF;
+		}
+
+		final long nextChangeAt = getExpectedChangeAt(now);
+		if (nextChangeAt + minIntervalMs < now + intervalMs) {
+			phasePoll = true;
+			lastDecision = PollDecision.PHASE;
+			return nextChangeAt + minIntervalMs;
+		}
+
+		return now + intervalMs;
+	}
+
+	/**
+	 * Estimates the earliest time a change that got found now could have happened. The change happened after the
+	 * last check. If the API changes on a regular period it also did not happen long before the expected change.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @return The earliest time of the change in milliseconds since the epoch.
+	 */
+	private long getEarliestChangeAt(final long now) {
+		final long earliestChangeAt = lastPollAt == 0 ? now - intervalMs : lastPollAt;
+		if (periodMs == 0) {
+			return earliestChangeAt;
+		}
+
+		final long expectedChangeAt = getExpectedChangeAt(earliestChangeAt) - getToleranceMs();
+		return expectedChangeAt > earliestChangeAt && expectedChangeAt <= now ? expectedChangeAt : earliestChangeAt;
+	}
+
+	/**
+	 * Calculates when the API is expected to change next based on its period and the middle of the time window of
+	 * its last change.
+	 * @param after The time in milliseconds since the epoch after which the change is expected.
+	 * @return The time of the next expected change in milliseconds since the epoch.
+	 */
+	private long getExpectedChangeAt(final long after) {
+		final int last = (changeCount - 1) % MAX_CHANGES;
+		final long lastChangeAt = (earliestChangeTimes[last] + latestChangeTimes[last]) / 2;
+		final long periods = after < lastChangeAt ? 1 : (after - lastChangeAt) / periodMs + 1;
+		return lastChangeAt + periods * periodMs;
+	}
+
+	/**
+	 * Calculates how much a change may differ from the period of the API.
+	 * @return The tolerance in milliseconds.
+	 */
+	private long getToleranceMs() {
+		return periodMs * PERIOD_TOLERANCE_PERCENT / 100;
+	}
+
+	/**
+	 * Remembers when a change happened. As the exact time is unknown the change gets saved as a time window. Only
+	 * the latest changes are kept.
+	 * @param earliestChangeAt The earliest time the change could have happened in milliseconds since the epoch.
+	 * @param latestChangeAt The latest time the change could have happened in milliseconds since the epoch.
+	 */
+	private void recordChange(final long earliestChangeAt, final long latestChangeAt) {
+		earliestChangeTimes[changeCount % MAX_CHANGES] = earliestChangeAt;
+		latestChangeTimes[changeCount % MAX_CHANGES] = latestChangeAt;
+		changeCount++;
+	}
+
+	/**
+	 * Checks if the latest changes happened in a regular period. The shortest gap between two changes is taken as
+	 * the period, longer gaps have to be a multiple of it as the API might not change on every update. Each gap
+	 * limits the possible period by the time windows of its changes, the period is the middle of the range that
+	 * fits all gaps. If there is no such range the API does not change regularly.
+	 */
+	private void learnPeriod() {
+		final int gaps = Math.min(changeCount, MAX_CHANGES) - 1;
+		periodMs = 0;
+		if (gaps < MIN_REGULAR_GAPS) {
+			return;
+		}
+
+		long shortestGap = Long.MAX_VALUE;
+		for (int i = changeCount - gaps; i < changeCount; i++) {
+			shortestGap = Math.min(shortestGap, getGapMs(i));
+		}
+
+		if (shortestGap < 2 * minIntervalMs) {
+			return;
+		}
+
+		final long toleranceMs = shortestGap * PERIOD_TOLERANCE_PERCENT / 100;
+		long minPeriodMs = 0;
+		long maxPeriodMs = Long.MAX_VALUE;
+		for (int i = changeCount - gaps; i < changeCount; i++) {
+			final long multiple = Math.max(1, Math.round((double) getGapMs(i) / shortestGap));
+			final int current = i % MAX_CHANGES;
+			final int previous = (i - 1) % MAX_CHANGES;
+			minPeriodMs = Math.max(minPeriodMs, (earliestChangeTimes[current] - latestChangeTimes[previous]) / multiple - toleranceMs);
+			maxPeriodMs = Math.min(maxPeriodMs, (latestChangeTimes[current] - earliestChangeTimes[previous]) / multiple + toleranceMs);
+		}
+
+		if (minPeriodMs <= maxPeriodMs) {
+			periodMs = (minPeriodMs + maxPeriodMs) / 2;
+		}
+	}
+
+	/**
+	 * Calculates the gap between a change and the change before it based on the middle of their time windows.
+	 * @param change The number of the change.
+	 * @return The gap in milliseconds.
+	 */
+	private long getGapMs(final int change) {
+		final int current = change % MAX_CHANGES;
+		final int previous = (change - 1) % MAX_CHANGES;
+		return (earliestChangeTimes[current] + latestChangeTimes[current]) / 2 -
+				(earliestChangeTimes[previous] + latestChangeTimes[previous]) / 2;
+	}
+
+	synchronized long getIntervalMs() {
+		return intervalMs;
+	}
+
+	synchronized long getPeriodMs() {
+		return periodMs;
+	}
+
+	synchronized PollDecision getLastDecision() {
+		return lastDecision;
+	}
+}
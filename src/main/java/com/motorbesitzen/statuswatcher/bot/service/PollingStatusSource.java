@@ -0,0 +1,359 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.CircuitOpenException;
+import com.motorbesitzen.statuswatcher.bot.scraper.DeltaResponse;
+import com.motorbesitzen.statuswatcher.bot.scraper.PaginatedStatusRequest;
+import com.motorbesitzen.statuswatcher.bot.scraper.ResilientStatusRequest;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.data.StatusEndpointList;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The status source that requests the product status APIs periodically. Each product status API gets polled on its
+ * own schedule on a bounded thread pool, so a slow API does not delay the others. APIs that can return only their
+ * changed products pass these on as an update. APIs can be added and removed while the source runs, each URL gets
+ * polled only once. The first check of each API gets a fixed offset within its interval, so many APIs do not get
+ * requested all at once.
+ */
+@Component
+class PollingStatusSource implements StatusSource {
+
+	private static final int START_DELAY_MS = 5000;
+	private static final int CYCLE_INTERVAL_MS = 1000;
+	private final EnvSettings envSettings;
+	private final PaginatedStatusRequest apiRequest;
+	private final ResilientStatusRequest deltaRequest;
+	private final StatusEndpointList endpointList;
+	private final StatusMetrics metrics;
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService requestPool;
+	private final Map<String, EndpointPoller> pollers;
+	private volatile StatusSink sink;
+
+	@Autowired
+	private PollingStatusSource(final EnvSettings envSettings, final PaginatedStatusRequest apiRequest,
+								final ResilientStatusRequest deltaRequest, final StatusEndpointList endpointList,
+								final StatusMetrics metrics) {
+		this.envSettings = envSettings;
+		this.apiRequest = apiRequest;
+		this.deltaRequest = deltaRequest;
+		this.endpointList = endpointList;
+		this.metrics = metrics;
+		this.scheduler = Executors.newScheduledThreadPool(1);
+		this.requestPool = Executors.newFixedThreadPool(envSettings.getMaxConcurrentRequests());
+		this.pollers = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Starts the ScheduledExecutorService to periodically check every product status API that does not stream
+	 * its status events. The scheduler also runs without any API, so APIs can be added later.
+	 */
+	@Override
+	public void start(final StatusSink sink) {
+		final long startAt = System.currentTimeMillis() + START_DELAY_MS;
+		for (StatusEndpoint endpoint : endpointList.getEndpoints()) {
+			if (endpoint.isPolled()) {
+				addPoller(endpoint, startAt);
+			}
+		}
+
+		this.sink = sink;
+		scheduler.scheduleWithFixedDelay(this::run, START_DELAY_MS, CYCLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		LogUtil.logInfo("Polling " + pollers.size() + " product status API(s)...");
+	}
+
+	/**
+	 * Starts to poll a product status API. Does nothing if an API with the same URL already gets polled.
+	 * @param endpoint The product status API.
+	 */
+	void addEndpoint(final StatusEndpoint endpoint) {
+		if (addPoller(endpoint, System.currentTimeMillis())) {
+			LogUtil.logDebug("Started polling " + endpoint.getUrl() + ".");
+		}
+	}
+
+	/**
+	 * Stops to poll a product status API. A check that is already running still finishes, but its result does not
+	 * get passed on.
+	 * @param url The URL of the product status API.
+	 */
+	void removeEndpoint(final String url) {
+		if (pollers.remove(url) == null) {
+			return;
+		}
+
+		metrics.forgetPollDecisions(url);
+		final StatusSink currentSink = sink;
+		if (currentSink != null) {
+			currentSink.onSourceRemoved(url);
+		}
+
+		LogUtil.logDebug("Stopped polling " + url + ".");
+	}
+
+	/**
+	 * Creates the polling state of a product status API unless its URL already gets polled. The first check gets
+	 * delayed by an offset that depends on the URL and is smaller than the interval of the API, so the checks of
+	 * many APIs get spread over the interval instead of starting at the same time.
+	 * @param endpoint The product status API.
+	 * @param startAt The earliest time of the first check in milliseconds since the epoch.
+	 * @return {@code true} if the API got added, {@code false} if its URL already gets polled.
+	 */
+	private boolean addPoller(final StatusEndpoint endpoint, final long startAt) {
+		final long intervalMs = Math.max(1, endpoint.getRequestIntervalMs());
+		final long firstPollAt = startAt + Math.floorMod(endpoint.getUrl().hashCode(), intervalMs);
+		return pollers.putIfAbsent(
+				endpoint.getUrl(), new EndpointPoller(endpoint, createSchedule(endpoint), firstPollAt)
+		) == null;
+	}
+
+	/**
+	 * Stops the scheduler and any running product status request.
+	 */
+	@Override
+	public void stop() {
+		scheduler.shutdownNow();
+		requestPool.shutdownNow();
+	}
+
+	/**
+	 * Creates the schedule that decides when a product status API gets checked.
+	 * @param endpoint The product status API.
+	 * @return An adaptive schedule if the adaptive scheduler is enabled, a fixed schedule if not.
+	 */
+	private PollSchedule createSchedule(final StatusEndpoint endpoint) {
+		final long intervalMs = endpoint.getRequestIntervalMs();
+		if (!envSettings.isAdaptiveSchedulingEnabled()) {
+			return PollSchedule.fixed(intervalMs);
+		}
+
+		return PollSchedule.adaptive(
+				intervalMs, envSettings.getProductStatusMinRequestInterval(), envSettings.getProductStatusMaxRequestInterval()
+		);
+	}
+
+	/**
+	 * Starts a check for every product status API that is due. Gets called periodically by the
+	 * ScheduledExecutorService.
+	 */
+	private void run() {
+		try {
+			startDueChecks();
+		} catch (Exception e) {
+			LogUtil.logError("Unexpected exception:", e);
+		} catch (Throwable t) {
+			LogUtil.logError("Unexpected error:", t);
+		}
+	}
+
+	/**
+	 * Starts a check for every product status API that is due. An API that is still being checked does not get
+	 * checked again until its running check finished, so checks of the same API never overlap. Blocking checks run
+	 * on the bounded request pool, asynchronous checks do not occupy a thread while waiting for the API.
+	 */
+	private void startDueChecks() {
+		final long now = System.currentTimeMillis();
+		final boolean async = envSettings.isAsyncFetchEnabled();
+		for (EndpointPoller poller : pollers.values()) {
+			if (!poller.tryStart(now)) {
+				continue;
+			}
+
+			if (async) {
+				startAsyncCheck(poller);
+			} else {
+				startBlockingCheck(poller, now);
+			}
+		}
+	}
+
+	/**
+	 * Performs the check of a product status API on the request pool.
+	 * @param poller The polling state of the product status API.
+	 * @param now The current time in milliseconds since the epoch.
+	 */
+	private void startBlockingCheck(final EndpointPoller poller, final long now) {
+		final StatusEndpoint endpoint = poller.getEndpoint();
+		try {
+			requestPool.execute(() -> runCheck(poller, () -> endpoint.getDelta() != null ?
+					handleDelta(poller, deltaRequest.getStatusDelta(endpoint)) :
+					handleStatusList(poller, apiRequest.getStatusList(endpoint))
+			));
+		} catch (RejectedExecutionException e) {
+			finish(poller, now, false);
+		}
+	}
+
+	/**
+	 * Performs the check of a product status API asynchronously.
+	 * @param poller The polling state of the product status API.
+	 */
+	private void startAsyncCheck(final EndpointPoller poller) {
+		final StatusEndpoint endpoint = poller.getEndpoint();
+		if (endpoint.getDelta() != null) {
+			deltaRequest.getStatusDeltaAsync(endpoint).whenComplete(
+					(deltaOpt, throwable) -> runCheck(poller, () -> {
+						if (throwable != null) {
+							throw unwrap(throwable);
+						}
+
+						return handleDelta(poller, deltaOpt);
+					})
+			);
+			return;
+		}
+
+		apiRequest.getStatusListAsync(endpoint).whenComplete(
+				(statusListOpt, throwable) -> runCheck(poller, () -> {
+					if (throwable != null) {
+						throw unwrap(throwable);
+					}
+
+					return handleStatusList(poller, statusListOpt);
+				})
+		);
+	}
+
+	/**
+	 * Performs a step of a check and schedules the next check of the product status API afterwards.
+	 * @param poller The polling state of the product status API.
+	 * @param check The step of the check.
+	 */
+	private void runCheck(final EndpointPoller poller, final Check check) {
+		final String url = poller.getEndpoint().getUrl();
+		boolean changed = false;
+		try {
+			changed = check.run();
+		} catch (CircuitOpenException e) {
+			LogUtil.logDebug("Skipping check of " + url + " as its circuit breaker is open.");
+		} catch (SocketTimeoutException | HttpTimeoutException e) {
+			LogUtil.logError("Skipping check of " + url + " due to API timeout.");
+		} catch (IOException e) {
+			LogUtil.logError("Skipping check of " + url + " due to IO exception:", e);
+		} catch (Exception e) {
+			LogUtil.logError("Unexpected exception:", e);
+		} catch (Throwable t) {
+			LogUtil.logError("Unexpected error:", t);
+		} finally {
+			finish(poller, System.currentTimeMillis(), changed);
+		}
+	}
+
+	/**
+	 * Marks the check of a product status API as finished and records when it gets checked next.
+	 * @param poller The polling state of the product status API.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @param changed {@code true} if the check found status changes, {@code false} if it did not or if it failed.
+	 */
+	private void finish(final EndpointPoller poller, final long now, final boolean changed) {
+		poller.finish(now, changed);
+		if (isRemoved(poller)) {
+			return;
+		}
+
+		final PollSchedule schedule = poller.getSchedule();
+		metrics.recordPollDecision(
+				poller.getEndpoint().getUrl(), schedule.getLastDecision(),
+				poller.getNextPollAt() - now, schedule.getPeriodMs()
+		);
+	}
+
+	/**
+	 * Removes the wrapper of an exception thrown by an asynchronous computation.
+	 * @param throwable The exception of the asynchronous computation.
+	 * @return The exception that caused the computation to fail.
+	 */
+	private Throwable unwrap(final Throwable throwable) {
+		if (throwable instanceof CompletionException && throwable.getCause() != null) {
+			return throwable.getCause();
+		}
+
+		return throwable;
+	}
+
+	/**
+	 * Checks if a product status API got removed while it got checked.
+	 * @param poller The polling state of the product status API.
+	 * @return {@code true} if the API does not get polled anymore, {@code false} if it still gets polled.
+	 */
+	private boolean isRemoved(final EndpointPoller poller) {
+		return pollers.get(poller.getEndpoint().getUrl()) != poller;
+	}
+
+	/**
+	 * Passes the requested status list of a product status API on to the sink. Only reports the check to the sink if
+	 * the API reports that nothing changed.
+	 * @param poller The polling state of the product status API.
+	 * @param statusListOpt The requested status list, empty if the content of the API did not change.
+	 * @return {@code true} if there are status changes, {@code false} if not.
+	 */
+	private boolean handleStatusList(final EndpointPoller poller, final Optional<List<ProductStatus>> statusListOpt) {
+		if (isRemoved(poller)) {
+			return false;
+		}
+
+		if (statusListOpt.isEmpty()) {
+			LogUtil.logDebug("Product status API content of " + poller.getEndpoint().getUrl() + " did not change.");
+			sink.onStatusUnchanged(poller.getEndpoint().getUrl());
+			return false;
+		}
+
+		return sink.onStatusList(poller.getEndpoint().getUrl(), statusListOpt.get());
+	}
+
+	/**
+	 * Passes the requested products of an API that can return only its changed products on to the sink. A resync
+	 * replaces all product statuses of the API, changes only update the contained products. Only reports the check to
+	 * the sink if the API reports that nothing changed.
+	 * @param poller The polling state of the product status API.
+	 * @param deltaOpt The changed or all products, empty if the content of the API did not change.
+	 * @return {@code true} if there are status changes, {@code false} if not.
+	 */
+	private boolean handleDelta(final EndpointPoller poller, final Optional<DeltaResponse> deltaOpt) {
+		if (isRemoved(poller)) {
+			return false;
+		}
+
+		if (deltaOpt.isEmpty()) {
+			LogUtil.logDebug("Product status API content of " + poller.getEndpoint().getUrl() + " did not change.");
+			sink.onStatusUnchanged(poller.getEndpoint().getUrl());
+			return false;
+		}
+
+		final DeltaResponse delta = deltaOpt.get();
+		final String url = poller.getEndpoint().getUrl();
+		return delta.isComplete() ?
+				sink.onStatusList(url, delta.getStatusList()) :
+				sink.onStatusUpdate(url, delta.getStatusList());
+	}
+
+	/**
+	 * A step of a status check that can fail.
+	 */
+	@FunctionalInterface
+	private interface Check {
+
+		/**
+		 * @return {@code true} if the check found status changes, {@code false} if not.
+		 * @throws Throwable if the check failed.
+		 */
+		boolean run() throws Throwable;
+	}
+}
@@ -0,0 +1,167 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Saves the last snapshot of each status source in a file, so the first check after a restart gets compared to the
+ * statuses before the restart instead of only being the base for later checks. Each source has its own file named
+ * after a UUID of the source name. A file gets written next to the old one and then replaces it, so a crash while
+ * writing never leaves a partial snapshot behind. Files get memory-mapped for reading.
+ */
+@Component
+class SnapshotStore {
+
+	private static final int MAGIC = 0x53575353;
+	private static final int VERSION = 2;
+	private static final int BUFFER_SIZE = 65536;
+	private static final String FILE_EXTENSION = ".snapshot";
+	private static final String TEMP_FILE_EXTENSION = ".tmp";
+	private final EnvSettings envSettings;
+	private final StatusDictionary dictionary;
+	private final AttributeRules rules;
+
+	@Autowired
+	private SnapshotStore(final EnvSettings envSettings, final StatusDictionary dictionary,
+						  final AttributeRules rules) {
+		this.envSettings = envSettings;
+		this.dictionary = dictionary;
+		this.rules = rules;
+	}
+
+	/**
+	 * Loads the saved snapshot of a source.
+	 * @param source The name of the source.
+	 * @return The snapshot or {@code null} if there is no valid saved snapshot of the source.
+	 */
+	StatusSnapshot load(final String source) {
+		final Path file = getFile(source);
+		if (file == null || !Files.isRegularFile(file)) {
+			return null;
+		}
+
+		final long start = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < Integer.BYTES * 3 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				LogUtil.logWarning("Ignoring snapshot of \"" + source + "\" with unknown format.");
+				return null;
+			}
+
+			final int sourceLength = buffer.getInt();
+			if (sourceLength < 0 || sourceLength > buffer.remaining()) {
+				throw new IllegalArgumentException("Invalid source length: " + sourceLength);
+			}
+
+			final byte[] sourceBytes = new byte[sourceLength];
+			buffer.get(sourceBytes);
+			if (!source.equals(new String(sourceBytes, StandardCharsets.UTF_8))) {
+				LogUtil.logWarning("Ignoring snapshot of \"" + source + "\" as it belongs to another source.");
+				return null;
+			}
+
+			final StatusSnapshot snapshot = StatusSnapshot.read(buffer, dictionary, rules);
+			LogUtil.logInfo("Loaded snapshot of " + snapshot.size() + " product(s) of \"" + source + "\" in " +
+					(System.nanoTime() - start) / 1000000 + "ms.");
+			return snapshot;
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not load snapshot of \"" + source + "\": " + e.getMessage());
+		} catch (IllegalArgumentException | BufferUnderflowException e) {
+			LogUtil.logWarning("Ignoring damaged snapshot of \"" + source + "\": " + e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Saves the snapshot of a source and replaces the last saved snapshot of it.
+	 * @param source The name of the source.
+	 * @param snapshot The snapshot.
+	 */
+	void save(final String source, final StatusSnapshot snapshot) {
+		final Path file = getFile(source);
+		if (file == null) {
+			return;
+		}
+
+		final Path tempFile = file.resolveSibling(file.getFileName() + TEMP_FILE_EXTENSION);
+		try {
+			Files.createDirectories(file.getParent());
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE))) {
+				final byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(sourceBytes.length);
+				out.write(sourceBytes);
+				snapshot.write(out);
+			}
+
+			move(tempFile, file);
+			LogUtil.logDebug("Saved snapshot of " + snapshot.size() + " product(s) of \"" + source + "\".");
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not save snapshot of \"" + source + "\": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Deletes the saved snapshot of a source, e.g. if the source does not get checked anymore.
+	 * @param source The name of the source.
+	 */
+	void delete(final String source) {
+		final Path file = getFile(source);
+		if (file == null) {
+			return;
+		}
+
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not delete snapshot of \"" + source + "\": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces a file with another one. Falls back to a plain replace if the file system can not move atomically.
+	 * @param source The new file.
+	 * @param target The file to replace.
+	 * @throws IOException if the file can not be replaced.
+	 */
+	private void move(final Path source, final Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * @param source The name of a source.
+	 * @return The file of the snapshot of the source or {@code null} if snapshots do not get saved.
+	 */
+	private Path getFile(final String source) {
+		final String directory = envSettings.getSnapshotDirectory();
+		if (directory.isEmpty()) {
+			return null;
+		}
+
+		final UUID fileId = UUID.nameUUIDFromBytes(source.getBytes(StandardCharsets.UTF_8));
+		return Paths.get(directory, fileId + FILE_EXTENSION);
+	}
+}
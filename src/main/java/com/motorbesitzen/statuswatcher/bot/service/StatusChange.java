@@ -0,0 +1,151 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import java.util.Objects;
+
+/**
+ * A single change between two snapshots of a status source. The statuses are the aliases the bot shows, not the
+ * names the API uses. Changes of a numeric attribute of a product hold the formatted old and new value of the
+ * attribute instead of statuses.
+ */
+final class StatusChange {
+
+	private final Type type;
+	private final String productName;
+	private final String oldStatus;
+	private final String newStatus;
+	private final String attribute;
+
+	/**
+	 * The kind of a change.
+	 */
+	enum Type {
+		ADDED, REMOVED, CHANGED, ATTRIBUTE
+	}
+
+	/**
+	 * @param type The kind of the change.
+	 * @param productName The name of the product.
+	 * @param oldStatus The alias of the last status, {@code null} if the product got added.
+	 * @param newStatus The alias of the current status, {@code null} if the product got removed.
+	 * @param attribute The name of the changed attribute, {@code null} if the status of the product changed.
+	 */
+	private StatusChange(final Type type, final String productName, final String oldStatus, final String newStatus,
+						 final String attribute) {
+		this.type = type;
+		this.productName = productName;
+		this.oldStatus = oldStatus;
+		this.newStatus = newStatus;
+		this.attribute = attribute;
+	}
+
+	/**
+	 * @param productName The name of the new product.
+	 * @param newStatus The alias of the status of the product.
+	 * @return The change of a product that is new in the source.
+	 */
+	static StatusChange added(final String productName, final String newStatus) {
+		return new StatusChange(Type.ADDED, productName, null, newStatus, null);
+	}
+
+	/**
+	 * @param productName The name of the removed product.
+	 * @param oldStatus The alias of the last status of the product.
+	 * @return The change of a product that is not in the source anymore.
+	 */
+	static StatusChange removed(final String productName, final String oldStatus) {
+		return new StatusChange(Type.REMOVED, productName, oldStatus, null, null);
+	}
+
+	/**
+	 * @param productName The name of the product.
+	 * @param oldStatus The alias of the last status of the product.
+	 * @param newStatus The alias of the current status of the product.
+	 * @return The change of the status of a product.
+	 */
+	static StatusChange changed(final String productName, final String oldStatus, final String newStatus) {
+		return new StatusChange(Type.CHANGED, productName, oldStatus, newStatus, null);
+	}
+
+	/**
+	 * @param productName The name of the product.
+	 * @param attribute The name of the attribute.
+	 * @param oldValue The formatted last value of the attribute.
+	 * @param newValue The formatted current value of the attribute.
+	 * @return The change of a numeric attribute of a product.
+	 */
+	static StatusChange attributeChanged(final String productName, final String attribute, final String oldValue,
+										 final String newValue) {
+		return new StatusChange(Type.ATTRIBUTE, productName, oldValue, newValue, attribute);
+	}
+
+	/**
+	 * Combines two consecutive changes with the same key to the change from the status or value before the first
+	 * change to the status or value after the second change.
+	 * @param earlier The first change.
+	 * @param later The second change.
+	 * @return The combined change or {@code null} if the product is back at the status or value it had before the
+	 * first change.
+	 */
+	static StatusChange combine(final StatusChange earlier, final StatusChange later) {
+		final String productName = later.getProductName();
+		final String oldStatus = earlier.getOldStatus();
+		final String newStatus = later.getNewStatus();
+		if (Objects.equals(oldStatus, newStatus)) {
+			return null;
+		}
+
+		if (later.getType() == Type.ATTRIBUTE) {
+			return attributeChanged(productName, later.getAttribute(), oldStatus, newStatus);
+		}
+
+		if (oldStatus == null) {
+			return added(productName, newStatus);
+		}
+
+		return newStatus == null ? removed(productName, oldStatus) : changed(productName, oldStatus, newStatus);
+	}
+
+	Type getType() {
+		return type;
+	}
+
+	String getProductName() {
+		return productName;
+	}
+
+	String getOldStatus() {
+		return oldStatus;
+	}
+
+	String getNewStatus() {
+		return newStatus;
+	}
+
+	String getAttribute() {
+		return attribute;
+	}
+
+	/**
+	 * @return The key of the changed value, the product name for status changes and the product name with the name
+	 * of the attribute for attribute changes. Only changes with the same key can be combined.
+	 */
+	String getKey() {
+		return attribute == null ? productName : productName + '\0' + attribute;
+	}
+
+	/**
+	 * @return The change as a line of the change message.
+	 */
+	String toText() {
+		switch (type) {
+			case ADDED:
+				return "**" + productName + ":** *new* → " + newStatus;
+			case REMOVED:
+				return "**" + productName + ":** " + oldStatus + " → *removed*";
+			case ATTRIBUTE:
+				return "**" + productName + ":** " + attribute + " " + oldStatus + " → " + newStatus;
+			default:
+				return "**" + productName + ":** " + oldStatus + " → " + newStatus;
+		}
+	}
+}
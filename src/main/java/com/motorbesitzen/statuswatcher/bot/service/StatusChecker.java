@@ -1,8 +1,9 @@
 package com.motorbesitzen.statuswatcher.bot.service;
 
-import com.motorbesitzen.statuswatcher.bot.scraper.ProductStatusApiRequest;
+import com.motorbesitzen.statuswatcher.bot.scraper.PushStatusSources;
 import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
-import com.motorbesitzen.statuswatcher.data.ProductStatusAliasMapper;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.data.StatusEndpointList;
 import com.motorbesitzen.statuswatcher.data.dao.DiscordGuild;
 import com.motorbesitzen.statuswatcher.data.repo.DiscordGuildRepo;
 import com.motorbesitzen.statuswatcher.util.LogUtil;
@@ -15,58 +16,329 @@ import net.dv8tion.jda.api.entities.TextChannel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.net.SocketTimeoutException;
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * The part of the bot that checks the product status list periodically and sends a message on changes.
+ * The part of the bot that receives the product statuses of all status sources and sends a message on changes.
+ * Each source gets compared to its own last snapshot, which reports changed statuses as well as added and removed
+ * products. An update of a few products only needs to look at these products. Guilds with their own product status
+ * API only get the changes of that API, all other guilds get the changes of the shared sources. Changes of polled APIs
+ * that got found since the last cycle get sent in a single message, pushed changes get sent after a short batch window.
+ * Each cycle with changes becomes a version of the delivery log, so a guild that did not get a message gets the
+ * changes it missed merged into its next message. Snapshots get saved once their changes got sent, so a restart does
+ * not hide the changes that happen meanwhile.
+ * All changes also get added to the status history, changes to statuses that need to be stable first only get sent
+ * once they are.
  */
 @Service
-class StatusChecker {
+class StatusChecker implements StatusSink {
 
 	private static final int START_DELAY_MS = 5000;
+	private static final int CYCLE_INTERVAL_MS = 1000;
+	private static final int STOP_TIMEOUT_MS = 5000;
+	private static final int MAX_DESCRIPTION_LENGTH = 4096;
+	private static final int MORE_CHANGES_RESERVE = 32;
 	private final JDA jda;
 	private final DiscordGuildRepo guildRepo;
 	private final EnvSettings envSettings;
-	private final ProductStatusApiRequest apiRequest;
-	private final ProductStatusAliasMapper aliasMapper;
+	private final StatusDictionary dictionary;
+	private final AttributeRules attributeRules;
+	private final StatusEndpointList endpointList;
+	private final PollingStatusSource pollingSource;
+	private final PushStatusSources pushSources;
+	private final WebhookStatusSource webhookSource;
+	private final StatusSubscriptions subscriptions;
+	private final SnapshotStore snapshotStore;
+	private final StatusHistory history;
+	private final StatusStabilizer stabilizer;
 	private final ScheduledExecutorService scheduler;
-	private List<ProductStatus> lastStatusList;
+	private final ForkJoinPool diffPool;
+	private final List<StatusSource> sources;
+	private final Map<String, StatusSnapshot> snapshots;
+	private final Map<String, Queue<StatusChange>> pendingChanges;
+	private final Set<String> unsavedSources;
+	private final DeliveryLog deliveryLog;
+	private final AtomicBoolean sendScheduled;
 
 	@Autowired
 	private StatusChecker(final JDA jda, final DiscordGuildRepo guildRepo, final EnvSettings envSettings,
-						 final ProductStatusApiRequest apiRequest, final ProductStatusAliasMapper aliasMapper) {
+						  final StatusDictionary dictionary, final AttributeRules attributeRules,
+						  final StatusEndpointList endpointList,
+						  final PollingStatusSource pollingSource, final PushStatusSources pushSources,
+						  final WebhookStatusSource webhookSource, final StatusSubscriptions subscriptions,
+						  final SnapshotStore snapshotStore, final StatusHistory history,
+						  final StatusStabilizer stabilizer) {
 		this.jda = jda;
 		this.guildRepo = guildRepo;
 		this.envSettings = envSettings;
-		this.apiRequest = apiRequest;
-		this.aliasMapper = aliasMapper;
-		this.lastStatusList = new ArrayList<>();
+		this.dictionary = dictionary;
+		this.attributeRules = attributeRules;
+		this.endpointList = endpointList;
+		this.pollingSource = pollingSource;
+		this.pushSources = pushSources;
+		this.webhookSource = webhookSource;
+		this.subscriptions = subscriptions;
+		this.snapshotStore = snapshotStore;
+		this.history = history;
+		this.stabilizer = stabilizer;
 		this.scheduler = Executors.newScheduledThreadPool(1);
+		this.diffPool = createDiffPool();
+		this.sources = new ArrayList<>();
+		this.snapshots = new ConcurrentHashMap<>();
+		this.pendingChanges = new ConcurrentHashMap<>();
+		this.unsavedSources = ConcurrentHashMap.newKeySet();
+		this.deliveryLog = new DeliveryLog();
+		this.sendScheduled = new AtomicBoolean(false);
 	}
 
 	/**
-	 * Starts the ScheduledExecutorService to periodically check the status.
+	 * Creates the pool that compares large snapshots in parallel if parallel comparisons are enabled. The pool is
+	 * not the common pool, as the callbacks of asynchronous requests run in the common pool and a large comparison
+	 * would otherwise delay them.
+	 * @return The pool or {@code null} if snapshots always get compared sequentially.
+	 */
+	private ForkJoinPool createDiffPool() {
+		final int processors = Runtime.getRuntime().availableProcessors();
+		if (envSettings.getParallelDiffThreshold() == -1 || processors < 2) {
+			return null;
+		}
+
+		return new ForkJoinPool(processors, pool -> {
+			final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("status-diff-" + thread.getPoolIndex());
+			thread.setDaemon(true);
+			return thread;
+		}, null, false);
+	}
+
+	/**
+	 * Starts all status sources and the ScheduledExecutorService that periodically sends the found changes. The
+	 * bot also starts without a shared product status API as guilds can set their own.
 	 */
 	void start() {
-		final long delayMs = envSettings.getProductStatusRequestInterval();
-		scheduler.scheduleWithFixedDelay(this::run, START_DELAY_MS, delayMs, TimeUnit.MILLISECONDS);
-		LogUtil.logInfo("Starting status checker...");
+		final List<StatusEndpoint> endpoints = endpointList.getEndpoints();
+		if (endpoints.isEmpty() && !webhookSource.isEnabled()) {
+			LogUtil.logWarning("No shared product status API set! Only guilds with their own API get status changes. " +
+					"Set PRODUCT_STATUS_API_URL, add a statusendpoints.json or set WEBHOOK_PORT to share an API.");
+		}
+
+		sources.add(pollingSource);
+		sources.add(webhookSource);
+		for (StatusEndpoint endpoint : endpoints) {
+			if (!endpoint.isPolled()) {
+				sources.add(pushSources.create(endpoint));
+			}
+		}
+
+		history.start();
+		scheduler.scheduleWithFixedDelay(this::run, START_DELAY_MS, CYCLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		for (StatusSource source : sources) {
+			source.start(this);
+		}
+
+		subscriptions.start();
+		LogUtil.logInfo("Starting status checker for " + endpoints.size() + " product status API(s)...");
+	}
+
+	/**
+	 * Stops all status sources and the scheduler and saves the snapshots that changed since they got saved last.
+	 */
+	@PreDestroy
+	void stop() {
+		for (StatusSource source : sources) {
+			source.stop();
+		}
+
+		scheduler.shutdownNow();
+		if (diffPool != null) {
+			diffPool.shutdownNow();
+		}
+
+		try {
+			if (!scheduler.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				LogUtil.logWarning("Status checker did not stop in time, not saving snapshots.");
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		saveSnapshots();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * An empty status list does not replace the last snapshot, so an API that responds without products for a
+	 * moment does not cause every product to be removed and added again. The first status list of a source after a
+	 * restart gets compared to the saved snapshot of the source.
+	 */
+	@Override
+	public boolean onStatusList(final String source, final List<ProductStatus> statusList) {
+		if (statusList.isEmpty()) {
+			return false;
+		}
+
+		final StatusSnapshot knownSnapshot = snapshots.get(source);
+		final StatusSnapshot lastSnapshot = knownSnapshot != null ? knownSnapshot : snapshotStore.load(source);
+		final StatusSnapshot snapshot = StatusSnapshot.of(statusList, dictionary, attributeRules, lastSnapshot);
+		snapshots.put(source, snapshot);
+		if (lastSnapshot == null || lastSnapshot.isEmpty()) {
+			unsavedSources.add(source);
+			return false;
+		}
+
+		final List<StatusChange> statusChanges = lastSnapshot.diff(snapshot, envSettings.getParallelDiffThreshold(), diffPool);
+		recordChanges(source, statusChanges);
+		addPendingChanges(source, stabilizer.stabilize(source, statusChanges));
+		return !statusChanges.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Sends the changes after a short window instead of waiting for the next cycle, so a burst of updates ends up
+	 * in a single message.
+	 */
+	@Override
+	public boolean onStatusUpdate(final String source, final List<ProductStatus> updatedStatuses) {
+		final StatusSnapshot snapshot = getSnapshot(source);
+		final boolean wasEmpty = snapshot.isEmpty();
+		final List<StatusChange> statusChanges = snapshot.apply(updatedStatuses);
+		if (wasEmpty && !snapshot.isEmpty()) {
+			unsavedSources.add(source);
+		}
+
+		recordChanges(source, statusChanges);
+		if (addPendingChanges(source, stabilizer.stabilize(source, statusChanges))) {
+			scheduleSend();
+		}
+
+		return !statusChanges.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Counts as a check for the changes that wait until their new status is stable.
+	 */
+	@Override
+	public void onStatusUnchanged(final String source) {
+		addPendingChanges(source, stabilizer.stabilize(source, List.of()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Also drops the changes of the source that did not get sent yet and deletes its saved snapshot.
+	 */
+	@Override
+	public void onSourceRemoved(final String source) {
+		snapshots.remove(source);
+		pendingChanges.remove(source);
+		stabilizer.removeSource(source);
+		unsavedSources.remove(source);
+		snapshotStore.delete(source);
 	}
 
 	/**
-	 * Performs the check and the underlying procedures on a status change.
-	 * Gets called periodically by the ScheduledExecutorService.
+	 * Gets the snapshot of a source that gets updated. Loads the saved snapshot of the source if it is not known yet.
+	 * @param source The name of the source.
+	 * @return The snapshot of the source, empty if there is none yet.
+	 */
+	private StatusSnapshot getSnapshot(final String source) {
+		final StatusSnapshot snapshot = snapshots.get(source);
+		if (snapshot != null) {
+			return snapshot;
+		}
+
+		final StatusSnapshot savedSnapshot = snapshotStore.load(source);
+		return snapshots.computeIfAbsent(
+				source, key -> savedSnapshot != null ? savedSnapshot : StatusSnapshot.empty(dictionary, attributeRules)
+		);
+	}
+
+	/**
+	 * Adds all changes a source found to the history, including the ones that do not get sent as their new status
+	 * is not stable.
+	 * @param source The name of the source.
+	 * @param statusChanges The status changes.
+	 */
+	private void recordChanges(final String source, final List<StatusChange> statusChanges) {
+		if (!statusChanges.isEmpty()) {
+			history.record(source, statusChanges);
+			unsavedSources.add(source);
+		}
+	}
+
+	/**
+	 * Remembers the changes of a source until the next send.
+	 * @param source The name of the source.
+	 * @param statusChanges The status changes.
+	 * @return {@code true} if there were any changes, {@code false} if not.
+	 */
+	private boolean addPendingChanges(final String source, final List<StatusChange> statusChanges) {
+		if (statusChanges.isEmpty()) {
+			return false;
+		}
+
+		pendingChanges.computeIfAbsent(source, key -> new ConcurrentLinkedQueue<>()).addAll(statusChanges);
+		return true;
+	}
+
+	/**
+	 * Remembers the held changes that are stable by now until the next send.
+	 */
+	private void addStableChanges() {
+		for (Map.Entry<String, List<StatusChange>> entry : stabilizer.releaseDue().entrySet()) {
+			addPendingChanges(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Sends the pending changes once the batch window ends. Does nothing if a send is already scheduled as that one
+	 * also sends the new changes.
+	 */
+	private void scheduleSend() {
+		if (!sendScheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			scheduler.schedule(() -> {
+				sendScheduled.set(false);
+				run();
+			}, envSettings.getPushBatchWindow(), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			LogUtil.logDebug("Status checker got stopped, not sending status changes.");
+		}
+	}
+
+	/**
+	 * Sends the changes that got found since the last cycle and the held changes that are stable by now, saves the
+	 * snapshots that changed and compacts the history once in a while. Gets called periodically by the
+	 * ScheduledExecutorService and at the end of the batch window of pushed status changes.
 	 */
 	private void run() {
 		try {
-			doStatusCheck();
+			addStableChanges();
+			sendPendingChanges();
+			saveSnapshots();
+			history.compactIfDue();
 		} catch (Exception e) {
 			LogUtil.logError("Unexpected exception:", e);
 		} catch (Throwable t) {
@@ -75,86 +347,155 @@ class StatusChecker {
 	}
 
 	/**
-	 * Requests the current status list and compares it to the one from the last cycle. Sends a message if
-	 * there are status changes.
+	 * Saves the snapshots that changed since they got saved last. A snapshot only gets saved once all of its changes
+	 * got sent and none of them wait until their new status is stable, so changes that did not get sent before a
+	 * restart get found again after the restart.
 	 */
-	private void doStatusCheck() {
-		final List<ProductStatus> statusList;
-		try {
-			statusList = apiRequest.getStatusList();
-		} catch (SocketTimeoutException e) {
-			LogUtil.logError("Skipping check due to API timeout.");
-			return;
-		} catch (IOException e) {
-			LogUtil.logError("Skipping check due to IO exception:", e);
-			return;
+	private void saveSnapshots() {
+		for (String source : unsavedSources) {
+			final Queue<StatusChange> unsentChanges = pendingChanges.get(source);
+			if ((unsentChanges != null && !unsentChanges.isEmpty()) || stabilizer.isHolding(source)) {
+				continue;
+			}
+
+			unsavedSources.remove(source);
+			final StatusSnapshot snapshot = snapshots.get(source);
+			if (snapshot != null) {
+				snapshotStore.save(source, snapshot);
+			}
 		}
+	}
 
-		if (lastStatusList.isEmpty()) {
-			lastStatusList = statusList;
-			return;
+	/**
+	 * Adds all changes that got found since the last cycle to the delivery log as a new version and sends each guild
+	 * that is behind a single message with the changes it did not get yet.
+	 */
+	private void sendPendingChanges() {
+		final Map<String, List<StatusChange>> changesBySource = new HashMap<>();
+		for (Map.Entry<String, Queue<StatusChange>> entry : pendingChanges.entrySet()) {
+			final List<StatusChange> statusChanges = new ArrayList<>();
+			StatusChange statusChange;
+			while ((statusChange = entry.getValue().poll()) != null) {
+				statusChanges.add(statusChange);
+			}
+
+			if (!statusChanges.isEmpty()) {
+				changesBySource.put(entry.getKey(), statusChanges);
+			}
 		}
 
-		final List<String> statusChanges = getStatusChanges(statusList);
-		if (!statusChanges.isEmpty()) {
-			sendStatusUpdate(statusChanges);
+		final long now = System.currentTimeMillis();
+		if (!changesBySource.isEmpty()) {
+			deliveryLog.append(changesBySource, now);
 		}
 
-		lastStatusList = statusList;
+		if (deliveryLog.needsDelivery(now)) {
+			sendStatusUpdate(now);
+		}
 	}
 
 	/**
-	 * Compares the last and the current status list to each other and checks for status changes. Creates a textual
-	 * list of status changes indicating the product and the old and new status.
-	 * @param statusList The current status list.
-	 * @return A ist of changes in text form.
+	 * Starts the process of sending a message on status changes in each of the guilds the bot is in that did not get
+	 * all changes yet. All guilds get read from the database at once. Guilds that missed the same versions of the
+	 * same sources share a single merge of their changes and a single embedded message. A guild whose delivery fails
+	 * before its message got queued gets retried like a guild whose message could not be sent. The pass always ends,
+	 * but guilds only get forgotten if all guilds got read.
+	 * @param now The current time in milliseconds since the epoch.
 	 */
-	private List<String> getStatusChanges(final List<ProductStatus> statusList) {
-		final List<String> statusChanges = new ArrayList<>();
-		for (ProductStatus newProduct : statusList) {
-			for (ProductStatus oldProduct : lastStatusList) {
-				final String newProductName = newProduct.getProductName();
-				final String oldProductName = oldProduct.getProductName();
-				if (!newProductName.equals(oldProductName)) {
+	private void sendStatusUpdate(final long now) {
+		final long head = deliveryLog.getHead();
+		final Map<String, List<String>> mergedChanges = new HashMap<>();
+		final Map<List<String>, MessageEmbed> embeds = new IdentityHashMap<>();
+		final Set<Long> guildIds = new HashSet<>();
+		boolean allGuilds = false;
+		try {
+			for (DiscordGuild dcGuild : guildRepo.findAll()) {
+				guildIds.add(dcGuild.getId());
+				final long version = deliveryLog.startDelivery(dcGuild.getId(), now);
+				if (version == -1) {
 					continue;
 				}
 
-				final String newProductStatus = aliasMapper.getAliasOf(newProduct.getProductStatus());
-				final String oldProductStatus = aliasMapper.getAliasOf(oldProduct.getProductStatus());
-				if (!newProductStatus.equals(oldProductStatus)) {
-					statusChanges.add("**" + newProductName + ":** " + oldProductStatus + " → " + newProductStatus);
+				try {
+					deliverChanges(dcGuild, version, head, mergedChanges, embeds);
+				} catch (RuntimeException e) {
+					deliveryLog.failed(dcGuild.getId(), now);
+					LogUtil.logError("[" + dcGuild.getId() + "] Could not deliver status changes:", e);
 				}
 			}
+
+			allGuilds = true;
+		} finally {
+			final long minTime = now - TimeUnit.HOURS.toMillis(envSettings.getDeletionDelay());
+			deliveryLog.finishPass(allGuilds ? guildIds : null, minTime);
 		}
+	}
 
-		return statusChanges;
+	/**
+	 * Sends a guild the changes it did not get yet. Guilds without changes of their sources and guilds the bot is
+	 * not in anymore count as up to date.
+	 * @param dcGuild The Discord guild as saved in the database.
+	 * @param version The last version the guild got.
+	 * @param head The newest version.
+	 * @param mergedChanges The merges of the current pass by the version and the source they got merged for.
+	 * @param embeds The embedded messages of the current pass by their list of changes.
+	 */
+	private void deliverChanges(final DiscordGuild dcGuild, final long version, final long head,
+								final Map<String, List<String>> mergedChanges,
+								final Map<List<String>, MessageEmbed> embeds) {
+		final String apiUrl = dcGuild.hasStatusApiUrl() ? dcGuild.getStatusApiUrl() : null;
+		final List<String> statusChanges = mergedChanges.computeIfAbsent(
+				version + " " + apiUrl, key -> mergeChanges(version, apiUrl)
+		);
+		if (statusChanges.isEmpty()) {
+			deliveryLog.delivered(dcGuild.getId(), head);
+			return;
+		}
+
+		final Guild guild = jda.getGuildById(dcGuild.getId());
+		if (guild == null) {
+			deliveryLog.delivered(dcGuild.getId(), head);
+			return;
+		}
+
+		final MessageEmbed changeListEmbed = embeds.computeIfAbsent(statusChanges, this::buildChangeListEmbed);
+		sendTagMessage(guild, dcGuild, statusChanges, changeListEmbed, head);
 	}
 
 	/**
-	 * Starts the process of sending a message on status changes in each of the guilds the bot is in.
-	 * @param statusChanges The textual list of product status changes.
+	 * Merges the changes a guild did not get yet into a single change per product.
+	 * @param version The last version the guild got.
+	 * @param apiUrl The product status API of the guild or {@code null} if the guild uses the shared sources.
+	 * @return The textual list of product status changes.
 	 */
-	private void sendStatusUpdate(final List<String> statusChanges) {
-		final List<Guild> guilds = jda.getGuilds();
-		for (Guild guild : guilds) {
-			final long guildId = guild.getIdLong();
-			final Optional<DiscordGuild> dcGuildOpt = guildRepo.findById(guildId);
-			dcGuildOpt.ifPresent(
-					dcGuild -> sendTagMessage(guild, dcGuild, statusChanges)
-			);
+	private List<String> mergeChanges(final long version, final String apiUrl) {
+		final List<StatusChange> statusChanges = deliveryLog.merge(
+				version, source -> apiUrl != null ? apiUrl.equals(source) : subscriptions.isSharedSource(source)
+		);
+		final List<String> changeTexts = new ArrayList<>(statusChanges.size());
+		for (StatusChange statusChange : statusChanges) {
+			changeTexts.add(statusChange.toText());
 		}
+
+		return changeTexts;
 	}
 
 	/**
-	 * Sends the actual change message and tags the reaction role if there is one set.
+	 * Sends the actual change message and tags the reaction role if there is one set. Moves the cursor of the guild
+	 * once the message got sent, a guild without a status channel does not need the changes either. The cursor stays
+	 * if the message can not be sent, so the guild gets the changes with the next message.
 	 * @param guild The guild to send the change message in.
 	 * @param dcGuild The Discord guild as saved in the database.
 	 * @param statusChanges The textual list of product status changes.
+	 * @param changeListEmbed The embedded message about the product status changes.
+	 * @param version The version of the newest changes in the message.
 	 */
-	private void sendTagMessage(final Guild guild, final DiscordGuild dcGuild, final List<String> statusChanges) {
+	private void sendTagMessage(final Guild guild, final DiscordGuild dcGuild, final List<String> statusChanges,
+								final MessageEmbed changeListEmbed, final long version) {
 		final long channelId = dcGuild.getStatusChannelId();
 		final TextChannel channel = guild.getTextChannelById(channelId);
 		if (channel == null) {
+			deliveryLog.delivered(dcGuild.getId(), version);
 			dcGuild.setStatusChannelId(0);
 			guildRepo.save(dcGuild);
 			LogUtil.logInfo("[" + dcGuild.getId() + "] Removed status channel due to channel not existing anymore.");
@@ -162,6 +503,7 @@ class StatusChecker {
 		}
 
 		if (!channel.canTalk()) {
+			deliveryLog.failed(dcGuild.getId(), System.currentTimeMillis());
 			LogUtil.logWarning("[" + dcGuild.getId() + "] Missing permissions for status channel in guild \"" + guild.getName() + "\"!");
 			return;
 		}
@@ -170,14 +512,19 @@ class StatusChecker {
 		final Role role = guild.getRoleById(roleId);
 		final String roleMention = role != null ? role.getAsMention() : "";
 		final String changeMessage = buildChangeMessage(roleMention, statusChanges);
-		final MessageEmbed changeListEmbed = buildChangeListEmbed(statusChanges);
 		channel.sendMessage(changeMessage).setEmbeds(changeListEmbed).queue(
-				msg -> msg.delete().queueAfter(
-						envSettings.getDeletionDelay(), TimeUnit.HOURS,
-						v -> LogUtil.logDebug("Deleted status change message successfully."),
-						throwable -> LogUtil.logError("Could not delete status change message:", throwable)
-				),
-				throwable -> LogUtil.logError("Could not send status change message:", throwable)
+				msg -> {
+					deliveryLog.delivered(dcGuild.getId(), version);
+					msg.delete().queueAfter(
+							envSettings.getDeletionDelay(), TimeUnit.HOURS,
+							v -> LogUtil.logDebug("Deleted status change message successfully."),
+							throwable -> LogUtil.logError("Could not delete status change message:", throwable)
+					);
+				},
+				throwable -> {
+					deliveryLog.failed(dcGuild.getId(), System.currentTimeMillis());
+					LogUtil.logError("Could not send status change message:", throwable);
+				}
 		);
 	}
 
@@ -208,17 +555,33 @@ class StatusChecker {
 	}
 
 	/**
-	 * Builds the list of changes for the embedded message.
+	 * Builds the list of changes for the embedded message. Discord does not accept descriptions longer than
+	 * {@link #MAX_DESCRIPTION_LENGTH} characters, so the list stops before that length and ends with the amount of
+	 * changes that did not fit. A single change that is too long on its own gets cut.
 	 * @param statusChanges The textual list of product status changes.
 	 * @return a textual concatenation of changes.
 	 */
 	private String buildChangeListText(final List<String> statusChanges) {
+		final int maxLength = MAX_DESCRIPTION_LENGTH - MORE_CHANGES_RESERVE;
 		final StringBuilder sb = new StringBuilder();
+		int listed = 0;
 		for (String statusChange : statusChanges) {
-			sb.append(statusChange).append("\n");
+			final String line = statusChange.length() > maxLength ?
+					statusChange.substring(0, maxLength - 1) + "…" : statusChange;
+			if (sb.length() + line.length() > maxLength) {
+				break;
+			}
+
+			sb.append(line).append("\n");
+			listed++;
+		}
+
+		if (listed < statusChanges.size()) {
+			sb.append("…and ").append(statusChanges.size() - listed).append(" more");
+		} else {
+			sb.setLength(sb.length() - 1);
 		}
 
-		sb.setLength(sb.length() - 1);
 		return sb.toString();
 	}
 }
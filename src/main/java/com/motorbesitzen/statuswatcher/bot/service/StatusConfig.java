@@ -0,0 +1,253 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.data.AttributeRule;
+import com.motorbesitzen.statuswatcher.data.ProductStatusAliasMapper;
+import com.motorbesitzen.statuswatcher.data.StatusStabilization;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds the content of the status configuration file with the status aliases, the stabilizations and the attribute
+ * rules. The file gets watched while the bot runs. A changed file gets read and checked on the watcher thread and
+ * then replaces the current {@link ProductStatusAliasMapper} at once, so a check never sees a half applied
+ * configuration. Components that derive their own lookups from the configuration get notified on the watcher thread
+ * after the replacement. A file that can not be read or contains invalid values gets rejected and the current
+ * configuration stays in use.
+ */
+@Component
+class StatusConfig {
+
+	private static final String CONFIG_FILE = "statusconfig.json";
+	private static final long SETTLE_DELAY_MS = 500;
+	private final ObjectMapper objectMapper;
+	private final Path configPath;
+	private final List<Consumer<ProductStatusAliasMapper>> listeners;
+	private volatile ProductStatusAliasMapper aliasMapper;
+	private byte[] loadedContent;
+	private WatchService watchService;
+
+	@Autowired
+	private StatusConfig(final ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+		this.configPath = Paths.get(CONFIG_FILE).toAbsolutePath();
+		this.listeners = new CopyOnWriteArrayList<>();
+		this.aliasMapper = ProductStatusAliasMapper.empty();
+		this.loadedContent = null;
+		this.watchService = null;
+		load();
+	}
+
+	/**
+	 * @return The current configuration.
+	 */
+	ProductStatusAliasMapper get() {
+		return aliasMapper;
+	}
+
+	/**
+	 * Registers a component that needs to know about a new configuration.
+	 * @param listener Gets called with the new configuration after it replaced the current one.
+	 */
+	void addListener(final Consumer<ProductStatusAliasMapper> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Starts watching the directory of the configuration file. The bot keeps running with the configuration it has
+	 * if the directory can not be watched.
+	 */
+	@PostConstruct
+	synchronized void startWatching() {
+		final Path directory = configPath.getParent();
+		try {
+			watchService = directory.getFileSystem().newWatchService();
+			directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			LogUtil.logWarning("Can not watch " + CONFIG_FILE + " for changes: " + e.getMessage());
+			return;
+		}
+
+		final Thread thread = new Thread(() -> watch(watchService), "status-config-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching the configuration file.
+	 */
+	@PreDestroy
+	synchronized void stopWatching() {
+		if (watchService == null) {
+			return;
+		}
+
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			LogUtil.logDebug("Could not close the watcher of " + CONFIG_FILE + ": " + e.getMessage());
+		}
+
+		watchService = null;
+	}
+
+	/**
+	 * Waits for changes in the directory of the configuration file until the watcher gets closed. Editors often
+	 * write a file in several steps, so the file only gets read once there were no further changes for a moment.
+	 * @param watcher The watcher of the directory.
+	 */
+	private void watch(final WatchService watcher) {
+		try {
+			while (true) {
+				boolean changed = handleEvents(watcher.take());
+				WatchKey key;
+				while ((key = watcher.poll(SETTLE_DELAY_MS, TimeUnit.MILLISECONDS)) != null) {
+					changed |= handleEvents(key);
+				}
+
+				if (changed) {
+					load();
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			LogUtil.logDebug("Stopped watching " + CONFIG_FILE + ".");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @param key The key of the watched directory with pending events.
+	 * @return {@code true} if one of the events is about the configuration file, {@code false} if not.
+	 */
+	private boolean handleEvents(final WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			final Object context = event.context();
+			changed |= event.kind() == StandardWatchEventKinds.OVERFLOW ||
+					(context instanceof Path && configPath.getFileName().equals(context));
+		}
+
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Reads the configuration file and replaces the current configuration if the file changed and is valid. Keeps
+	 * the current configuration if the file got deleted, can not be read or is invalid.
+	 */
+	private synchronized void load() {
+		final byte[] content;
+		try {
+			content = Files.readAllBytes(configPath);
+		} catch (NoSuchFileException e) {
+			if (loadedContent != null) {
+				LogUtil.logWarning(CONFIG_FILE + " got deleted, keeping the current status configuration.");
+			}
+			return;
+		} catch (IOException e) {
+			LogUtil.logError("Could not read " + CONFIG_FILE + ", keeping the current status configuration:", e);
+			return;
+		}
+
+		if (Arrays.equals(content, loadedContent)) {
+			return;
+		}
+
+		final ProductStatusAliasMapper newMapper;
+		try {
+			newMapper = objectMapper.readValue(content, ProductStatusAliasMapper.class);
+			validate(newMapper);
+		} catch (IOException | IllegalArgumentException e) {
+			LogUtil.logError("Invalid " + CONFIG_FILE + ", keeping the current status configuration:", e);
+			return;
+		} catch (RuntimeException e) {
+			LogUtil.logError("Could not load " + CONFIG_FILE + ", keeping the current status configuration:", e);
+			return;
+		}
+
+		final boolean reload = loadedContent != null;
+		aliasMapper = newMapper;
+		loadedContent = content;
+		for (Consumer<ProductStatusAliasMapper> listener : listeners) {
+			try {
+				listener.accept(newMapper);
+			} catch (RuntimeException e) {
+				LogUtil.logError("Could not apply the new status configuration:", e);
+			}
+		}
+
+		LogUtil.logInfo((reload ? "Reloaded " : "Loaded ") + CONFIG_FILE + " with " +
+				newMapper.getStatusAliasMapping().size() + " alias(es), " +
+				newMapper.getStatusStabilization().size() + " stabilization(s) and " +
+				newMapper.getAttributeRules().size() + " attribute rule(s).");
+	}
+
+	/**
+	 * Checks the values of a configuration. A {@code null} entry gets rejected as well, so a check never fails on it
+	 * even if the configuration did not get read by its setters.
+	 * @param mapper The configuration, {@code null} if the file only contains {@code null}.
+	 * @throws IllegalArgumentException if the configuration or a value is missing or invalid.
+	 */
+	private static void validate(final ProductStatusAliasMapper mapper) {
+		if (mapper == null) {
+			throw new IllegalArgumentException("Missing configuration");
+		}
+
+		for (Map.Entry<String, String> entry : mapper.getStatusAliasMapping().entrySet()) {
+			if (entry.getValue() == null || entry.getValue().isBlank()) {
+				throw new IllegalArgumentException("Empty alias of status \"" + entry.getKey() + "\"");
+			}
+		}
+
+		for (Map.Entry<String, StatusStabilization> entry : mapper.getStatusStabilization().entrySet()) {
+			final StatusStabilization stabilization = entry.getValue();
+			if (stabilization == null) {
+				throw new IllegalArgumentException("Missing stabilization of status \"" + entry.getKey() + "\"");
+			}
+
+			if (stabilization.getStablePolls() < 0 || stabilization.getStableMs() < 0) {
+				throw new IllegalArgumentException("Negative stabilization of status \"" + entry.getKey() + "\"");
+			}
+		}
+
+		for (AttributeRule rule : mapper.getAttributeRules()) {
+			if (rule == null) {
+				throw new IllegalArgumentException("Empty attribute rule");
+			}
+
+			if (rule.getAttribute() == null || rule.getAttribute().isBlank()) {
+				throw new IllegalArgumentException("Attribute rule without an attribute");
+			}
+
+			if (rule.getBelow() == null && rule.getAbove() == null && rule.getChangePercent() == null) {
+				throw new IllegalArgumentException("Attribute rule of \"" + rule.getAttribute() + "\" without a limit");
+			}
+
+			if (rule.getChangePercent() != null && rule.getChangePercent() < 0) {
+				throw new IllegalArgumentException("Negative change of attribute \"" + rule.getAttribute() + "\"");
+			}
+		}
+	}
+}
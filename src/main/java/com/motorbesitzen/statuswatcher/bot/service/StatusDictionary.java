@@ -0,0 +1,153 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.data.ProductStatusAliasMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every status alias a small number, so snapshots can store a status as an {@code int} and compare statuses
+ * without comparing strings. The status names the APIs use get mapped to the number of their alias, so status names
+ * with the same alias get the same number. Numbers get assigned the first time a status shows up and never change.
+ * If the aliases of the status configuration change, a number whose status names all got the same new alias keeps
+ * the number and only shows the new alias, so renaming an alias does not turn every product into a change. Status
+ * names that got a different alias than the other status names of their number move to the number of their new
+ * alias.
+ */
+@Component
+class StatusDictionary {
+
+	private static final int INITIAL_CAPACITY = 16;
+	private final StatusConfig statusConfig;
+	private final Map<String, Integer> codesByStatus;
+	private final Map<String, Integer> codesByAlias;
+	private volatile String[] aliases;
+	private int aliasCount;
+
+	@Autowired
+	private StatusDictionary(final StatusConfig statusConfig) {
+		this.statusConfig = statusConfig;
+		this.codesByStatus = new ConcurrentHashMap<>();
+		this.codesByAlias = new HashMap<>();
+		this.aliases = new String[INITIAL_CAPACITY];
+		this.aliasCount = 0;
+		statusConfig.addListener(this::remap);
+	}
+
+	/**
+	 * Gets the number of the alias of a status.
+	 * @param status The status name the product status API uses.
+	 * @return The number of the alias of the status.
+	 */
+	int getCode(final String status) {
+		final Integer code = codesByStatus.get(status);
+		return code != null ? code : addStatus(status);
+	}
+
+	/**
+	 * @param code The number of an alias.
+	 * @return The alias.
+	 */
+	String getAlias(final int code) {
+		return aliases[code];
+	}
+
+	/**
+	 * Gets the number of an alias, e.g. of a snapshot that got saved with the aliases as text.
+	 * @param alias The alias.
+	 * @return The number of the alias.
+	 */
+	synchronized int getCodeOfAlias(final String alias) {
+		final Integer code = codesByAlias.get(alias);
+		return code != null ? code : addAlias(alias);
+	}
+
+	/**
+	 * Adds a status that does not have a number yet. Only gives its alias a new number if no other status has the
+	 * same alias.
+	 * @param status The status name the product status API uses.
+	 * @return The number of the alias of the status.
+	 */
+	private synchronized int addStatus(final String status) {
+		final Integer knownCode = codesByStatus.get(status);
+		if (knownCode != null) {
+			return knownCode;
+		}
+
+		final String alias = statusConfig.get().getAliasOf(status);
+		final Integer aliasCode = codesByAlias.get(alias);
+		final int code = aliasCode != null ? aliasCode : addAlias(alias);
+		codesByStatus.put(status, code);
+		return code;
+	}
+
+	/**
+	 * Applies new aliases to the status names that already have a number. Renames the alias of a number if all of
+	 * its status names got the same new alias. The whole new mapping of aliases to numbers gets decided before any
+	 * alias gets replaced, so aliases that got swapped or rotated keep their numbers. Numbers that can not be renamed
+	 * keep their alias and a number whose alias stays the same keeps it before another number may take it. If several
+	 * numbers get the same new alias only the first one gets it. Status names whose number did not get their new
+	 * alias get the number of their new alias.
+	 * @param aliasMapper The new status configuration.
+	 */
+	private synchronized void remap(final ProductStatusAliasMapper aliasMapper) {
+		final Map<Integer, Set<String>> newAliasesByCode = new HashMap<>();
+		for (Map.Entry<String, Integer> entry : codesByStatus.entrySet()) {
+			newAliasesByCode.computeIfAbsent(entry.getValue(), code -> new HashSet<>())
+					.add(aliasMapper.getAliasOf(entry.getKey()));
+		}
+
+		final String[] newAliases = new String[aliasCount];
+		for (int code = 0; code < aliasCount; code++) {
+			final Set<String> codeAliases = newAliasesByCode.get(code);
+			newAliases[code] = codeAliases != null && codeAliases.size() == 1 ? codeAliases.iterator().next() : null;
+		}
+
+		final Map<String, Integer> newCodesByAlias = new HashMap<>();
+		for (int code = 0; code < aliasCount; code++) {
+			if (newAliases[code] == null || newAliases[code].equals(aliases[code])) {
+				newCodesByAlias.putIfAbsent(aliases[code], code);
+			}
+		}
+
+		final String[] renamedAliases = Arrays.copyOf(aliases, aliases.length);
+		for (int code = 0; code < aliasCount; code++) {
+			if (newAliases[code] != null && newCodesByAlias.putIfAbsent(newAliases[code], code) == null) {
+				renamedAliases[code] = newAliases[code];
+			}
+		}
+
+		for (int code = 0; code < aliasCount; code++) {
+			newCodesByAlias.putIfAbsent(renamedAliases[code], code);
+		}
+
+		codesByAlias.clear();
+		codesByAlias.putAll(newCodesByAlias);
+		aliases = renamedAliases;
+		for (String status : codesByStatus.keySet()) {
+			final String alias = aliasMapper.getAliasOf(status);
+			final Integer aliasCode = codesByAlias.get(alias);
+			codesByStatus.put(status, aliasCode != null ? aliasCode : addAlias(alias));
+		}
+	}
+
+	/**
+	 * Gives an alias the next number. Must only be called while holding the lock of the dictionary.
+	 * @param alias The alias that does not have a number yet.
+	 * @return The number of the alias.
+	 */
+	private int addAlias(final String alias) {
+		final int code = aliasCount;
+		final String[] newAliases = aliasCount == aliases.length ? Arrays.copyOf(aliases, aliasCount * 2) : aliases;
+		newAliases[aliasCount++] = alias;
+		aliases = newAliases;
+		codesByAlias.put(alias, code);
+		return code;
+	}
+}
@@ -0,0 +1,691 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the history of all status changes for a number of days. Changes get appended to segment files on disk that
+ * never get modified, see {@link HistorySegment}. A new segment starts on every start of the bot and once the current
+ * one is large or old enough. Compaction deletes segments that only contain expired changes and merges small
+ * segments, which also drops the expired changes they contain. All changes that did not expire are also kept in an
+ * index in memory, so questions about the history of a product never have to read the segments. The index stores the
+ * changes in the order they happened, each change links to the previous change of the same product. The segments
+ * only get read on start to fill the index.
+ */
+@Component
+public class StatusHistory {
+
+	private static final long MAX_SEGMENT_BYTES = 8 * 1024 * 1024;
+	private static final long MAX_SEGMENT_AGE_MS = TimeUnit.DAYS.toMillis(1);
+	private static final long COMPACTION_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+	private static final String TEMP_FILE_EXTENSION = ".tmp";
+	private final EnvSettings envSettings;
+	private final StatusSubscriptions subscriptions;
+	private final Map<String, ProductHistory> products;
+	private final Map<String, String> productNamesByLowerCase;
+	private final TextTable sources;
+	private final TextTable statuses;
+	private final ChangeLog changes;
+	private final List<HistorySegment> segments;
+	private HistorySegment.Writer writer;
+	private long nextCompaction;
+
+	@Autowired
+	private StatusHistory(final EnvSettings envSettings, final StatusSubscriptions subscriptions) {
+		this.envSettings = envSettings;
+		this.subscriptions = subscriptions;
+		this.products = new HashMap<>();
+		this.productNamesByLowerCase = new HashMap<>();
+		this.sources = new TextTable();
+		this.statuses = new TextTable();
+		this.changes = new ChangeLog();
+		this.segments = new ArrayList<>();
+		this.writer = null;
+		this.nextCompaction = 0;
+	}
+
+	/**
+	 * A status change in the history of a product.
+	 */
+	public static final class Entry {
+
+		private final long time;
+		private final String source;
+		private final String oldStatus;
+		private final String newStatus;
+
+		private Entry(final long time, final String source, final String oldStatus, final String newStatus) {
+			this.time = time;
+			this.source = source;
+			this.oldStatus = oldStatus;
+			this.newStatus = newStatus;
+		}
+
+		/**
+		 * @return The time of the change in milliseconds since the epoch.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * @return The name of the source of the change.
+		 */
+		public String getSource() {
+			return source;
+		}
+
+		/**
+		 * @return The alias of the status before the change, {@code null} if the product got added.
+		 */
+		public String getOldStatus() {
+			return oldStatus;
+		}
+
+		/**
+		 * @return The alias of the status after the change, {@code null} if the product got removed.
+		 */
+		public String getNewStatus() {
+			return newStatus;
+		}
+	}
+
+	/**
+	 * Reads the segments on disk into the index. Deletes segments that only contain expired changes and the leftovers
+	 * of a compaction that did not finish.
+	 */
+	synchronized void start() {
+		final Path directory = getDirectory();
+		if (directory == null || !Files.isDirectory(directory)) {
+			return;
+		}
+
+		final long start = System.nanoTime();
+		final long cutoff = getCutoff();
+		final List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				final String fileName = file.getFileName().toString();
+				if (fileName.endsWith(HistorySegment.FILE_EXTENSION)) {
+					files.add(file);
+				} else if (fileName.endsWith(TEMP_FILE_EXTENSION)) {
+					Files.deleteIfExists(file);
+				}
+			}
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not read status history: " + e.getMessage());
+			return;
+		}
+
+		files.sort(Comparator.comparing(Path::getFileName));
+		for (Path file : files) {
+			try {
+				final HistorySegment segment = HistorySegment.read(file,
+						(time, source, productName, type, oldStatus, newStatus) -> {
+							if (time >= cutoff) {
+								addEntry(time, source, productName, oldStatus, newStatus);
+							}
+						});
+				if (segment.getMaxTime() < cutoff) {
+					Files.delete(file);
+				} else {
+					segments.add(segment);
+				}
+			} catch (IOException e) {
+				LogUtil.logWarning("Ignoring status history segment \"" + file + "\": " + e.getMessage());
+			}
+		}
+
+		LogUtil.logInfo("Loaded status history of " + changes.size() + " change(s) of " + products.size() +
+				" product(s) from " + segments.size() + " segment(s) in " + (System.nanoTime() - start) / 1000000 +
+				"ms.");
+	}
+
+	/**
+	 * Closes the current segment.
+	 */
+	@PreDestroy
+	synchronized void stop() {
+		closeSegment();
+	}
+
+	/**
+	 * Adds the status changes a source found to the history. Changes of numeric attributes do not get kept.
+	 * @param source The name of the source.
+	 * @param changes The changes.
+	 */
+	synchronized void record(final String source, final List<StatusChange> changes) {
+		final List<StatusChange> statusChanges = new ArrayList<>(changes.size());
+		for (StatusChange change : changes) {
+			if (change.getType() != StatusChange.Type.ATTRIBUTE) {
+				statusChanges.add(change);
+			}
+		}
+
+		if (statusChanges.isEmpty()) {
+			return;
+		}
+
+		final long time = System.currentTimeMillis();
+		for (StatusChange statusChange : statusChanges) {
+			addEntry(time, source, statusChange.getProductName(), statusChange.getOldStatus(),
+					statusChange.getNewStatus());
+		}
+
+		final HistorySegment.Writer segmentWriter = getWriter(time);
+		if (segmentWriter == null) {
+			return;
+		}
+
+		try {
+			for (StatusChange statusChange : statusChanges) {
+				segmentWriter.append(time, source, statusChange.getProductName(), statusChange.getType(),
+						statusChange.getOldStatus(), statusChange.getNewStatus());
+			}
+
+			segmentWriter.flush();
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not write status history: " + e.getMessage());
+			closeSegment();
+			return;
+		}
+
+		final long segmentAge = time - segmentWriter.getStartTime();
+		if (segmentWriter.getLength() >= MAX_SEGMENT_BYTES || segmentAge >= MAX_SEGMENT_AGE_MS) {
+			closeSegment();
+		}
+	}
+
+	/**
+	 * Finds the name of a product in the history.
+	 * @param text The name of the product as a user typed it.
+	 * @return The name of the product or {@code null} if the product has no history. Ignores the case of the name if
+	 * there is no product with exactly that name.
+	 */
+	public synchronized String findProductName(final String text) {
+		if (products.containsKey(text)) {
+			return text;
+		}
+
+		return productNamesByLowerCase.get(text.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Gets the latest changes of a product.
+	 * @param productName The name of the product.
+	 * @param apiUrl The product status API of a guild or {@code null} to get the changes of the shared sources.
+	 * @param limit The maximum amount of changes.
+	 * @return The changes, newest first.
+	 */
+	public synchronized List<Entry> getChanges(final String productName, final String apiUrl, final int limit) {
+		final ProductHistory history = products.get(productName);
+		if (history == null) {
+			return List.of();
+		}
+
+		final boolean[] visibleSources = getVisibleSources(apiUrl);
+		final List<Entry> entries = new ArrayList<>();
+		for (int i = history.last; i >= changes.start && entries.size() < limit; i = changes.previous[i]) {
+			final int source = changes.sources[i];
+			if (visibleSources[source]) {
+				entries.add(new Entry(changes.times[i], sources.get(source), statuses.get(changes.oldStatuses[i] - 1),
+						statuses.get(changes.newStatuses[i] - 1)));
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Counts the changes of a product since a time.
+	 * @param productName The name of the product.
+	 * @param apiUrl The product status API of a guild or {@code null} to count the changes of the shared sources.
+	 * @param since The time in milliseconds since the epoch.
+	 * @return The amount of changes of the product since the time.
+	 */
+	public synchronized int countChanges(final String productName, final String apiUrl, final long since) {
+		final ProductHistory history = products.get(productName);
+		if (history == null) {
+			return 0;
+		}
+
+		final boolean[] visibleSources = getVisibleSources(apiUrl);
+		int count = 0;
+		for (int i = history.last; i >= changes.start && changes.times[i] >= since; i = changes.previous[i]) {
+			if (visibleSources[changes.sources[i]]) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Drops the expired changes and compacts the segments once per compaction interval. Gets called periodically by
+	 * the status checker, so the segments only get compacted by a single thread.
+	 */
+	void compactIfDue() {
+		final long now = System.currentTimeMillis();
+		if (now < nextCompaction) {
+			return;
+		}
+
+		nextCompaction = now + COMPACTION_INTERVAL_MS;
+		final long cutoff = getCutoff();
+		final List<HistorySegment> closedSegments;
+		synchronized (this) {
+			pruneIndex(cutoff);
+			closedSegments = new ArrayList<>(segments);
+		}
+
+		final List<HistorySegment> removedSegments = new ArrayList<>();
+		final List<HistorySegment> addedSegments = new ArrayList<>();
+		int groupStart = 0;
+		long groupLength = 0;
+		for (int i = 0; i <= closedSegments.size(); i++) {
+			if (i < closedSegments.size()) {
+				final HistorySegment segment = closedSegments.get(i);
+				if (segment.getMaxTime() < cutoff) {
+					compactGroup(closedSegments.subList(groupStart, i), cutoff, removedSegments, addedSegments);
+					deleteSegment(segment, removedSegments);
+					groupStart = i + 1;
+					groupLength = 0;
+					continue;
+				}
+
+				if (groupLength + segment.getLength() <= MAX_SEGMENT_BYTES) {
+					groupLength += segment.getLength();
+					continue;
+				}
+			}
+
+			compactGroup(closedSegments.subList(groupStart, i), cutoff, removedSegments, addedSegments);
+			groupStart = i;
+			groupLength = i < closedSegments.size() ? closedSegments.get(i).getLength() : 0;
+		}
+
+		synchronized (this) {
+			segments.removeAll(removedSegments);
+			segments.addAll(addedSegments);
+			segments.sort(Comparator.comparing(HistorySegment::getFile));
+		}
+	}
+
+	/**
+	 * Rewrites a group of consecutive segments into a single segment without their expired changes. Does nothing if
+	 * the group only consists of a single segment without expired changes. The new segment replaces the first one of
+	 * the group before the others get deleted, so a crash in between duplicates changes instead of losing them.
+	 * @param group The segments, oldest first.
+	 * @param cutoff The time changes expire before.
+	 * @param removedSegments Receives the segments that got replaced.
+	 * @param addedSegments Receives the new segment.
+	 */
+	private void compactGroup(final List<HistorySegment> group, final long cutoff,
+							  final List<HistorySegment> removedSegments, final List<HistorySegment> addedSegments) {
+		if (group.isEmpty() || (group.size() == 1 && group.get(0).getMinTime() >= cutoff)) {
+			return;
+		}
+
+		final Path target = group.get(0).getFile();
+		final Path tempFile = target.resolveSibling(target.getFileName() + TEMP_FILE_EXTENSION);
+		HistorySegment.Writer segmentWriter = null;
+		try {
+			Files.deleteIfExists(tempFile);
+			segmentWriter = new HistorySegment.Writer(tempFile, Math.max(cutoff, group.get(0).getMinTime()));
+			for (HistorySegment segment : group) {
+				final HistorySegment.Writer groupWriter = segmentWriter;
+				HistorySegment.read(segment.getFile(), (time, source, productName, type, oldStatus, newStatus) -> {
+					if (time >= cutoff) {
+						groupWriter.append(time, source, productName, type, oldStatus, newStatus);
+					}
+				});
+				segmentWriter.flush();
+			}
+
+			final HistorySegment compactedSegment = segmentWriter.close();
+			segmentWriter = null;
+			move(tempFile, target);
+			removedSegments.addAll(group);
+			addedSegments.add(new HistorySegment(target, compactedSegment.getMinTime(),
+					compactedSegment.getMaxTime(), compactedSegment.getLength()));
+			for (HistorySegment segment : group.subList(1, group.size())) {
+				Files.delete(segment.getFile());
+			}
+
+			LogUtil.logDebug("Compacted " + group.size() + " status history segment(s) into \"" + target + "\".");
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not compact status history: " + e.getMessage());
+			if (segmentWriter != null) {
+				segmentWriter.discard();
+			}
+		}
+	}
+
+	/**
+	 * Deletes a segment that only contains expired changes.
+	 * @param segment The segment.
+	 * @param removedSegments Receives the segment if it got deleted.
+	 */
+	private void deleteSegment(final HistorySegment segment, final List<HistorySegment> removedSegments) {
+		try {
+			Files.deleteIfExists(segment.getFile());
+			removedSegments.add(segment);
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not delete status history segment: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces a file with another one. Falls back to a plain replace if the file system can not move atomically.
+	 * @param source The new file.
+	 * @param target The file to replace.
+	 * @throws IOException if the file can not be replaced.
+	 */
+	private void move(final Path source, final Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Drops the expired changes from the index. Must only be called while holding the lock of the history.
+	 * @param cutoff The time changes expire before.
+	 */
+	private void pruneIndex(final long cutoff) {
+		changes.prune(cutoff);
+		products.values().removeIf(history -> {
+			if (history.last >= changes.start) {
+				return false;
+			}
+
+			productNamesByLowerCase.remove(history.name.toLowerCase(Locale.ROOT), history.name);
+			return true;
+		});
+
+		final int shift = changes.shrink();
+		if (shift > 0) {
+			for (ProductHistory history : products.values()) {
+				history.last -= shift;
+			}
+		}
+	}
+
+	/**
+	 * Adds a change to the index. Must only be called while holding the lock of the history.
+	 * @param time The time of the change in milliseconds since the epoch.
+	 * @param source The name of the source of the change.
+	 * @param productName The name of the product.
+	 * @param oldStatus The alias of the old status, {@code null} if the product got added.
+	 * @param newStatus The alias of the new status, {@code null} if the product got removed.
+	 */
+	private void addEntry(final long time, final String source, final String productName, final String oldStatus,
+						  final String newStatus) {
+		ProductHistory history = products.get(productName);
+		if (history == null) {
+			history = new ProductHistory(productName);
+			products.put(productName, history);
+			productNamesByLowerCase.putIfAbsent(productName.toLowerCase(Locale.ROOT), productName);
+		}
+
+		history.last = changes.add(time, sources.getId(source), oldStatus == null ? 0 : statuses.getId(oldStatus) + 1,
+				newStatus == null ? 0 : statuses.getId(newStatus) + 1, history.last);
+	}
+
+	/**
+	 * Decides for each source whether a guild sees its changes. Must only be called while holding the lock of the
+	 * history.
+	 * @param apiUrl The product status API of the guild or {@code null} if the guild uses the shared sources.
+	 * @return Whether the guild sees the changes of a source, by the number of the source.
+	 */
+	private boolean[] getVisibleSources(final String apiUrl) {
+		final boolean[] visibleSources = new boolean[sources.size()];
+		for (int i = 0; i < visibleSources.length; i++) {
+			final String source = sources.get(i);
+			visibleSources[i] = apiUrl != null ? apiUrl.equals(source) : subscriptions.isSharedSource(source);
+		}
+
+		return visibleSources;
+	}
+
+	/**
+	 * Gets the writer of the current segment and starts a new segment if there is none. Must only be called while
+	 * holding the lock of the history.
+	 * @param time The time of the first change of a new segment.
+	 * @return The writer or {@code null} if the history does not get written to disk or the segment can not be created.
+	 */
+	private HistorySegment.Writer getWriter(final long time) {
+		if (writer != null) {
+			return writer;
+		}
+
+		final Path directory = getDirectory();
+		if (directory == null) {
+			return null;
+		}
+
+		try {
+			writer = new HistorySegment.Writer(HistorySegment.newFile(directory, time), time);
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not create status history segment: " + e.getMessage());
+		}
+
+		return writer;
+	}
+
+	/**
+	 * Closes the current segment, so it can get compacted. The next change starts a new segment. Must only be called
+	 * while holding the lock of the history.
+	 */
+	private void closeSegment() {
+		if (writer == null) {
+			return;
+		}
+
+		try {
+			final HistorySegment segment = writer.close();
+			segments.add(segment);
+		} catch (IOException e) {
+			LogUtil.logWarning("Could not close status history segment: " + e.getMessage());
+		}
+
+		writer = null;
+	}
+
+	/**
+	 * @return The time changes expire before.
+	 */
+	private long getCutoff() {
+		return System.currentTimeMillis() - TimeUnit.DAYS.toMillis(envSettings.getHistoryRetentionDays());
+	}
+
+	/**
+	 * @return The directory of the segments or {@code null} if the history does not get written to disk.
+	 */
+	private Path getDirectory() {
+		final String directory = envSettings.getHistoryDirectory();
+		return directory.isEmpty() ? null : Paths.get(directory);
+	}
+
+	/**
+	 * Numbers texts that show up in many changes, so the index stores each of them only once.
+	 */
+	private static final class TextTable {
+
+		private final List<String> texts;
+		private final Map<String, Integer> ids;
+
+		private TextTable() {
+			this.texts = new ArrayList<>();
+			this.ids = new HashMap<>();
+		}
+
+		/**
+		 * @param text The text.
+		 * @return The number of the text.
+		 */
+		private int getId(final String text) {
+			final Integer id = ids.get(text);
+			if (id != null) {
+				return id;
+			}
+
+			texts.add(text);
+			ids.put(text, texts.size() - 1);
+			return texts.size() - 1;
+		}
+
+		/**
+		 * @param id The number of a text or -1.
+		 * @return The text or {@code null} if the number is -1.
+		 */
+		private String get(final int id) {
+			return id < 0 ? null : texts.get(id);
+		}
+
+		private int size() {
+			return texts.size();
+		}
+	}
+
+	/**
+	 * The position of the latest change of a product in the change log.
+	 */
+	private static final class ProductHistory {
+
+		private final String name;
+		private int last;
+
+		private ProductHistory(final String name) {
+			this.name = name;
+			this.last = -1;
+		}
+	}
+
+	/**
+	 * The changes of all products, oldest first. Stores each column of the changes in its own array, so adding a
+	 * change only writes to the end of the arrays. Expired changes get dropped from the start.
+	 */
+	private static final class ChangeLog {
+
+		private static final int INITIAL_CAPACITY = 1024;
+		private long[] times;
+		private int[] sources;
+		private int[] oldStatuses;
+		private int[] newStatuses;
+		private int[] previous;
+		private int start;
+		private int end;
+
+		private ChangeLog() {
+			this.times = new long[INITIAL_CAPACITY];
+			this.sources = new int[INITIAL_CAPACITY];
+			this.oldStatuses = new int[INITIAL_CAPACITY];
+			this.newStatuses = new int[INITIAL_CAPACITY];
+			this.previous = new int[INITIAL_CAPACITY];
+			this.start = 0;
+			this.end = 0;
+		}
+
+		/**
+		 * @param time The time of the change.
+		 * @param source The number of the source.
+		 * @param oldStatus The number of the old status plus one, zero if the product got added.
+		 * @param newStatus The number of the new status plus one, zero if the product got removed.
+		 * @param previousChange The position of the previous change of the product, -1 if there is none.
+		 * @return The position of the change.
+		 */
+		private int add(final long time, final int source, final int oldStatus, final int newStatus,
+						final int previousChange) {
+			if (end == times.length) {
+				grow();
+			}
+
+			times[end] = time;
+			sources[end] = source;
+			oldStatuses[end] = oldStatus;
+			newStatuses[end] = newStatus;
+			previous[end] = previousChange;
+			return end++;
+		}
+
+		/**
+		 * Drops the changes before a time. Changes get added in the order they happened, so only the oldest changes
+		 * need to be looked at.
+		 * @param cutoff The time.
+		 */
+		private void prune(final long cutoff) {
+			while (start < end && times[start] < cutoff) {
+				start++;
+			}
+		}
+
+		/**
+		 * Moves the changes to the start of new arrays once more changes got dropped than are left.
+		 * @return By how many positions the changes moved, zero if they did not move.
+		 */
+		private int shrink() {
+			if (start == 0 || start < size()) {
+				return 0;
+			}
+
+			final int shift = start;
+			moveToStart(Math.max(INITIAL_CAPACITY, size() * 2));
+			return shift;
+		}
+
+		private int size() {
+			return end - start;
+		}
+
+		/**
+		 * Doubles the capacity of the arrays. Keeps the positions of the changes.
+		 */
+		private void grow() {
+			final int capacity = times.length * 2;
+			times = Arrays.copyOf(times, capacity);
+			sources = Arrays.copyOf(sources, capacity);
+			oldStatuses = Arrays.copyOf(oldStatuses, capacity);
+			newStatuses = Arrays.copyOf(newStatuses, capacity);
+			previous = Arrays.copyOf(previous, capacity);
+		}
+
+		/**
+		 * Moves the changes to arrays of another capacity, starting at position zero. Links to changes that got
+		 * dropped get removed.
+		 * @param capacity The new capacity.
+		 */
+		private void moveToStart(final int capacity) {
+			final int shift = start;
+			times = Arrays.copyOfRange(times, start, start + capacity);
+			sources = Arrays.copyOfRange(sources, start, start + capacity);
+			oldStatuses = Arrays.copyOfRange(oldStatuses, start, start + capacity);
+			newStatuses = Arrays.copyOfRange(newStatuses, start, start + capacity);
+			previous = Arrays.copyOfRange(previous, start, start + capacity);
+			end -= shift;
+			start = 0;
+			for (int i = 0; i < end; i++) {
+				previous[i] = previous[i] >= shift ? previous[i] - shift : -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what the status checker and the product status API requests do, so it is visible how much work
+ * gets saved by the different shortcuts.
+ */
+@Component
+public class StatusMetrics {
+
+	private final AtomicLong notModifiedResponses;
+	private final AtomicLong modifiedResponses;
+	private final AtomicLong unchangedPayloads;
+	private final AtomicLong changedPayloads;
+	private final AtomicLong transferredBytes;
+	private final AtomicLong decodedBytes;
+	private final AtomicLong requestedPages;
+	private final AtomicLong deltaResponses;
+	private final AtomicLong resyncResponses;
+	private final AtomicLong retries;
+	private final AtomicLong exhaustedRetryBudgets;
+	private final AtomicLong circuitRejections;
+	private final AtomicLong hedgedRequests;
+	private final AtomicLong hedgeWins;
+	private final AtomicLong pushEvents;
+	private final AtomicLong webhookRequests;
+	private final AtomicLong webhookStatuses;
+	private final AtomicLong heldChanges;
+	private final AtomicLong cancelledChanges;
+	private final Map<PollDecision, AtomicLong> pollDecisions;
+	private final Map<String, Long> pollDelays;
+	private final Map<String, Long> pollPeriods;
+
+	StatusMetrics() {
+		this.notModifiedResponses = new AtomicLong();
+		this.modifiedResponses = new AtomicLong();
+		this.unchangedPayloads = new AtomicLong();
+		this.changedPayloads = new AtomicLong();
+		this.transferredBytes = new AtomicLong();
+		this.decodedBytes = new AtomicLong();
+		this.requestedPages = new AtomicLong();
+		this.deltaResponses = new AtomicLong();
+		this.resyncResponses = new AtomicLong();
+		this.retries = new AtomicLong();
+		this.exhaustedRetryBudgets = new AtomicLong();
+		this.circuitRejections = new AtomicLong();
+		this.hedgedRequests = new AtomicLong();
+		this.hedgeWins = new AtomicLong();
+		this.pushEvents = new AtomicLong();
+		this.webhookRequests = new AtomicLong();
+		this.webhookStatuses = new AtomicLong();
+		this.heldChanges = new AtomicLong();
+		this.cancelledChanges = new AtomicLong();
+		this.pollDecisions = new EnumMap<>(PollDecision.class);
+		for (PollDecision decision : PollDecision.values()) {
+			pollDecisions.put(decision, new AtomicLong());
+		}
+		this.pollDelays = new ConcurrentHashMap<>();
+		this.pollPeriods = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Counts a response of the API that signaled that the content did not change since the last request
+	 * ({@code 304 Not Modified}).
+	 */
+	public void countNotModified() {
+		notModifiedResponses.incrementAndGet();
+	}
+
+	/**
+	 * Counts a response of the API that contained the full content.
+	 */
+	public void countModified() {
+		modifiedResponses.incrementAndGet();
+	}
+
+	/**
+	 * Counts a full response of the API that is byte-identical to the last response of the API, so it did not
+	 * need to be parsed.
+	 */
+	public void countUnchangedPayload() {
+		unchangedPayloads.incrementAndGet();
+	}
+
+	/**
+	 * Counts a full response of the API that differs from the last response of the API and got parsed.
+	 */
+	public void countChangedPayload() {
+		changedPayloads.incrementAndGet();
+	}
+
+	/**
+	 * Counts the size of a response body.
+	 *
+	 * @param transferred The amount of bytes that got transferred, compressed if the API compressed the body.
+	 * @param decoded     The amount of bytes after decompressing the body.
+	 */
+	public void countTransferredBytes(final long transferred, final long decoded) {
+		transferredBytes.addAndGet(transferred);
+		decodedBytes.addAndGet(decoded);
+	}
+
+	/**
+	 * Counts the pages of a paginated API that got requested.
+	 *
+	 * @param pages The amount of requested pages.
+	 */
+	public void countRequestedPages(final int pages) {
+		requestedPages.addAndGet(pages);
+	}
+
+	/**
+	 * Counts a response of an API that can return only its changed products.
+	 *
+	 * @param complete {@code true} if the complete status list got requested to resync, {@code false} if only the
+	 *                 changes got requested.
+	 */
+	public void countDeltaResponse(final boolean complete) {
+		(complete ? resyncResponses : deltaResponses).incrementAndGet();
+	}
+
+	/**
+	 * Counts a retry of a failed request.
+	 */
+	public void countRetry() {
+		retries.incrementAndGet();
+	}
+
+	/**
+	 * Counts a failed request that did not get retried as the retry budget of the API was used up.
+	 */
+	public void countExhaustedRetryBudget() {
+		exhaustedRetryBudgets.incrementAndGet();
+	}
+
+	/**
+	 * Counts a request that did not get sent as the circuit breaker of the API was open.
+	 */
+	public void countCircuitRejection() {
+		circuitRejections.incrementAndGet();
+	}
+
+	/**
+	 * Counts a second request that got sent as the first one was slow.
+	 */
+	public void countHedgedRequest() {
+		hedgedRequests.incrementAndGet();
+	}
+
+	/**
+	 * Counts a second request that responded before the first one.
+	 */
+	public void countHedgeWin() {
+		hedgeWins.incrementAndGet();
+	}
+
+	/**
+	 * Counts a status event a streaming product status API sent.
+	 */
+	public void countPushEvent() {
+		pushEvents.incrementAndGet();
+	}
+
+	/**
+	 * Counts a valid request to the webhook.
+	 *
+	 * @param statuses The amount of product statuses in the request.
+	 */
+	public void countWebhookUpdate(final int statuses) {
+		webhookRequests.incrementAndGet();
+		webhookStatuses.addAndGet(statuses);
+	}
+
+	/**
+	 * Counts a status change that got held back until its new status is stable.
+	 */
+	public void countHeldChange() {
+		heldChanges.incrementAndGet();
+	}
+
+	/**
+	 * Counts a held status change that got reverted before its new status was stable and thus did not get sent.
+	 */
+	public void countCancelledChange() {
+		cancelledChanges.incrementAndGet();
+	}
+
+	/**
+	 * Records when the scheduler checks a product status API next and why.
+	 *
+	 * @param url      The URL of the product status API.
+	 * @param decision The reason for the time of the next check.
+	 * @param delayMs  The time until the next check in milliseconds.
+	 * @param periodMs The learned period in which the API changes in milliseconds, 0 if there is none.
+	 */
+	public void recordPollDecision(final String url, final PollDecision decision, final long delayMs, final long periodMs) {
+		pollDecisions.get(decision).incrementAndGet();
+		pollDelays.put(url, delayMs);
+		pollPeriods.put(url, periodMs);
+	}
+
+	/**
+	 * Forgets the next check of a product status API that does not get polled anymore.
+	 *
+	 * @param url The URL of the product status API.
+	 */
+	public void forgetPollDecisions(final String url) {
+		pollDelays.remove(url);
+		pollPeriods.remove(url);
+	}
+
+	public long getNotModifiedResponses() {
+		return notModifiedResponses.get();
+	}
+
+	public long getModifiedResponses() {
+		return modifiedResponses.get();
+	}
+
+	public long getUnchangedPayloads() {
+		return unchangedPayloads.get();
+	}
+
+	public long getChangedPayloads() {
+		return changedPayloads.get();
+	}
+
+	public long getTransferredBytes() {
+		return transferredBytes.get();
+	}
+
+	public long getDecodedBytes() {
+		return decodedBytes.get();
+	}
+
+	public long getRequestedPages() {
+		return requestedPages.get();
+	}
+
+	public long getDeltaResponses() {
+		return deltaResponses.get();
+	}
+
+	public long getResyncResponses() {
+		return resyncResponses.get();
+	}
+
+	public long getRetries() {
+		return retries.get();
+	}
+
+	public long getExhaustedRetryBudgets() {
+		return exhaustedRetryBudgets.get();
+	}
+
+	public long getCircuitRejections() {
+		return circuitRejections.get();
+	}
+
+	public long getHedgedRequests() {
+		return hedgedRequests.get();
+	}
+
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	public long getPushEvents() {
+		return pushEvents.get();
+	}
+
+	public long getWebhookRequests() {
+		return webhookRequests.get();
+	}
+
+	public long getWebhookStatuses() {
+		return webhookStatuses.get();
+	}
+
+	public long getHeldChanges() {
+		return heldChanges.get();
+	}
+
+	public long getCancelledChanges() {
+		return cancelledChanges.get();
+	}
+
+	/**
+	 * @param decision The reason for the time of a check.
+	 * @return How often the scheduler made that decision.
+	 */
+	public long getPollDecisions(final PollDecision decision) {
+		return pollDecisions.get(decision).get();
+	}
+
+	/**
+	 * @return The time between the last and the next check of each product status API in milliseconds.
+	 */
+	public Map<String, Long> getPollDelays() {
+		return Collections.unmodifiableMap(pollDelays);
+	}
+
+	/**
+	 * @return The learned period in which each product status API changes in milliseconds, 0 if there is none.
+	 */
+	public Map<String, Long> getPollPeriods() {
+		return Collections.unmodifiableMap(pollPeriods);
+	}
+
+	/**
+	 * Calculates the share of full responses that did not need to be parsed as they did not change.
+	 *
+	 * @return The skip rate in percent, 0 if there was no full response yet.
+	 */
+	public double getPayloadSkipRate() {
+		final long unchanged = unchangedPayloads.get();
+		final long total = unchanged + changedPayloads.get();
+		return total == 0 ? 0 : unchanged * 100.0 / total;
+	}
+}
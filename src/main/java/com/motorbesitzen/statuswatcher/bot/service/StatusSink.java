@@ -0,0 +1,44 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+
+import java.util.List;
+
+/**
+ * Receives the product statuses of the status sources and finds the status changes. Each source identifies itself by
+ * a name, e.g. its URL, and gets compared to its own last product statuses. A sink only gets called by one thread at
+ * a time per source.
+ */
+public interface StatusSink {
+
+	/**
+	 * Receives all product statuses of a source.
+	 * @param source The name of the source.
+	 * @param statusList All product statuses of the source.
+	 * @return {@code true} if any product status changed, {@code false} if not.
+	 */
+	boolean onStatusList(String source, List<ProductStatus> statusList);
+
+	/**
+	 * Receives some product statuses of a source, e.g. the ones that just changed. Product statuses that are not part
+	 * of the update stay as they were.
+	 * @param source The name of the source.
+	 * @param updatedStatuses The updated product statuses.
+	 * @return {@code true} if any product status changed, {@code false} if not.
+	 */
+	boolean onStatusUpdate(String source, List<ProductStatus> updatedStatuses);
+
+	/**
+	 * Receives the information that a source got checked and reported that none of its product statuses changed,
+	 * e.g. as the API responded with the same content as last time.
+	 * @param source The name of the source.
+	 */
+	void onStatusUnchanged(String source);
+
+	/**
+	 * Forgets the product statuses of a source that stopped, so a source with the same name starts without any
+	 * earlier product statuses.
+	 * @param source The name of the source.
+	 */
+	void onSourceRemoved(String source);
+}
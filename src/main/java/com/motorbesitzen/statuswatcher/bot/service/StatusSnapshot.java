@@ -0,0 +1,805 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The product statuses of a status source at one point in time. The products are kept in columns: an array of the
+ * product names and an array of the numbers the {@link StatusDictionary} gave the aliases of their statuses, so
+ * comparing two statuses compares two {@code int}s. A hash table of positions in the columns finds a product by
+ * name, the hash of each name is kept in a third column so only names with the same hash get compared. A new
+ * snapshot reuses the name strings of the last snapshot of its source, so only one copy of each name is kept. A
+ * comparison looks up each product of both snapshots once and thereby takes linear time. As most products keep
+ * their order between two snapshots, the product after the last found product gets checked before a name gets
+ * looked up in the hash table. A snapshot that got read from a file keeps the names as UTF-8 bytes and only creates
+ * the name strings that get needed, as names that are still in the next snapshot get compared to the bytes. Each
+ * numeric attribute of the {@link AttributeRules} has its own column of {@code double}s, the rules get checked
+ * against whole columns after the statuses of a range got compared.
+ */
+final class StatusSnapshot {
+
+	private static final int MIN_CAPACITY = 8;
+	private static final int NOT_FOUND = -1;
+	private static final int MIN_RANGE_SIZE = 16384;
+	private static final int RANGES_PER_THREAD = 4;
+	private static final int COLUMN_BLOCK_SIZE = 4096;
+	private final StatusDictionary dictionary;
+	private final AttributeRules rules;
+	private String[] names;
+	private byte[] nameBytes;
+	private int[] nameOffsets;
+	private int[] codes;
+	private int[] hashes;
+	private double[][] attributes;
+	private int[] slots;
+	private int size;
+
+	/**
+	 * @param dictionary The numbers of the status aliases.
+	 * @param rules The numeric attributes and their rules.
+	 * @param capacity The amount of products the snapshot can hold before its columns need to grow.
+	 */
+	private StatusSnapshot(final StatusDictionary dictionary, final AttributeRules rules, final int capacity) {
+		final int columnCapacity = Math.max(MIN_CAPACITY, capacity);
+		this.dictionary = dictionary;
+		this.rules = rules;
+		this.names = new String[columnCapacity];
+		this.codes = new int[columnCapacity];
+		this.hashes = new int[columnCapacity];
+		this.attributes = new double[rules.getAttributeCount()][columnCapacity];
+		this.slots = new int[getSlotCount(columnCapacity)];
+		this.size = 0;
+	}
+
+	/**
+	 * Creates a snapshot of a status list. If a product is in the list more than once its last status counts.
+	 * @param statusList The status list.
+	 * @param dictionary The numbers of the status aliases.
+	 * @param rules The numeric attributes and their rules.
+	 * @param lastSnapshot The last snapshot of the same source whose product names get reused, can be {@code null}.
+	 * @return The snapshot in the order of the status list.
+	 */
+	static StatusSnapshot of(final List<ProductStatus> statusList, final StatusDictionary dictionary,
+							 final AttributeRules rules, final StatusSnapshot lastSnapshot) {
+		final StatusSnapshot snapshot = new StatusSnapshot(dictionary, rules, statusList.size());
+		int expected = 0;
+		for (ProductStatus productStatus : statusList) {
+			String productName = productStatus.getProductName();
+			final int hash = hash(productName);
+			if (lastSnapshot != null) {
+				final int position = lastSnapshot.locate(productName, hash, expected);
+				if (position != NOT_FOUND) {
+					final String knownName = lastSnapshot.names[position];
+					productName = knownName != null ? knownName : productName;
+					expected = position + 1;
+				}
+			}
+
+			snapshot.put(productName, hash, dictionary.getCode(productStatus.getProductStatus()),
+					productStatus.getAttributes());
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * @param dictionary The numbers of the status aliases.
+	 * @param rules The numeric attributes and their rules.
+	 * @return A snapshot without products for sources that only push single updates.
+	 */
+	static StatusSnapshot empty(final StatusDictionary dictionary, final AttributeRules rules) {
+		return new StatusSnapshot(dictionary, rules, MIN_CAPACITY);
+	}
+
+	/**
+	 * Compares this snapshot to a newer snapshot of the same source. Products that are only in the newer snapshot
+	 * count as added, products that are only in this snapshot count as removed. Large snapshots can get split into
+	 * ranges of products that get compared in parallel in a pool of their own, so the comparison does not compete
+	 * with the asynchronous requests in the common pool. Both snapshots only get read, so the ranges do not need to
+	 * be synchronized. The changes of the ranges get joined in the order of the ranges, so the result is the same as
+	 * the one of a sequential comparison. The ranges are split by position and not by the hash of the product names:
+	 * products mostly keep their order, so a range of the newer snapshot mostly finds its products at the expected
+	 * position in this snapshot without a lookup, and split by hash each range would have to scan every product.
+	 * @param newer The newer snapshot.
+	 * @param parallelThreshold The amount of products from which on the comparison runs in parallel, -1 if it
+	 *                          always runs sequentially.
+	 * @param pool The pool that compares the ranges, {@code null} if comparisons always run sequentially.
+	 *             Comparisons also run sequentially if the pool only has a single thread.
+	 * @return The changes in the order of the newer snapshot followed by the removed products. The attribute changes
+	 * of a range follow the status changes of the range.
+	 */
+	List<StatusChange> diff(final StatusSnapshot newer, final int parallelThreshold, final ForkJoinPool pool) {
+		final int parallelism = pool != null ? pool.getParallelism() : 1;
+		if (parallelism < 2 || parallelThreshold == -1 || Math.max(size, newer.size) < parallelThreshold) {
+			final List<StatusChange> statusChanges = new ArrayList<>();
+			final int kept = diffRange(newer, 0, newer.size, statusChanges);
+			if (kept != size) {
+				addRemoved(newer, 0, size, statusChanges);
+			}
+
+			return statusChanges;
+		}
+
+		final int rangeCount = Math.min(parallelism * RANGES_PER_THREAD,
+				Math.max(1, Math.max(size, newer.size) / MIN_RANGE_SIZE));
+		final List<DiffTask> tasks = new ArrayList<>(rangeCount);
+		for (int i = 0; i < rangeCount; i++) {
+			tasks.add(new DiffTask(newer, getRangeStart(newer.size, rangeCount, i),
+					getRangeStart(newer.size, rangeCount, i + 1), false));
+		}
+
+		invokeAll(pool, tasks);
+		int kept = 0;
+		for (DiffTask task : tasks) {
+			kept += task.kept;
+		}
+
+		if (kept != size) {
+			final List<DiffTask> removedTasks = new ArrayList<>(rangeCount);
+			for (int i = 0; i < rangeCount; i++) {
+				removedTasks.add(new DiffTask(newer, getRangeStart(size, rangeCount, i),
+						getRangeStart(size, rangeCount, i + 1), true));
+			}
+
+			invokeAll(pool, removedTasks);
+			tasks.addAll(removedTasks);
+		}
+
+		int changeCount = 0;
+		for (DiffTask task : tasks) {
+			changeCount += task.statusChanges.size();
+		}
+
+		final List<StatusChange> statusChanges = new ArrayList<>(changeCount);
+		for (DiffTask task : tasks) {
+			statusChanges.addAll(task.statusChanges);
+		}
+
+		return statusChanges;
+	}
+
+	/**
+	 * Compares a range of the products of a newer snapshot to this snapshot and adds the added and changed
+	 * products. If there are attribute rules the positions of the products in this snapshot get kept, so the
+	 * attribute columns can be checked afterwards without looking up the products again.
+	 * @param newer The newer snapshot.
+	 * @param from The position of the first product of the range in the newer snapshot.
+	 * @param to The position after the last product of the range in the newer snapshot.
+	 * @param statusChanges The list to add the changes to.
+	 * @return The amount of products of the range that are also in this snapshot.
+	 */
+	private int diffRange(final StatusSnapshot newer, final int from, final int to,
+						  final List<StatusChange> statusChanges) {
+		final int[] positions = rules.hasRules() ? new int[to - from] : null;
+		int kept = 0;
+		int expected = from;
+		for (int i = from; i < to; i++) {
+			final String productName = newer.names[i];
+			final int position = locate(productName, newer.hashes[i], expected);
+			final int newCode = newer.codes[i];
+			if (positions != null) {
+				positions[i - from] = position;
+			}
+
+			if (position == NOT_FOUND) {
+				statusChanges.add(StatusChange.added(productName, dictionary.getAlias(newCode)));
+				continue;
+			}
+
+			kept++;
+			expected = position + 1;
+			if (codes[position] != newCode) {
+				statusChanges.add(StatusChange.changed(
+						productName, dictionary.getAlias(codes[position]), dictionary.getAlias(newCode)
+				));
+			}
+		}
+
+		if (positions != null) {
+			addAttributeChanges(newer, from, positions, statusChanges);
+		}
+
+		return kept;
+	}
+
+	/**
+	 * Checks the attribute columns of a range of the products of a newer snapshot against the attribute rules and
+	 * adds the changes that match a rule.
+	 * @param newer The newer snapshot.
+	 * @param from The position of the first product of the range in the newer snapshot.
+	 * @param positions The position of each product of the range in this snapshot, {@link #NOT_FOUND} for added
+	 *                  products.
+	 * @param statusChanges The list to add the changes to.
+	 */
+	private void addAttributeChanges(final StatusSnapshot newer, final int from, final int[] positions,
+									 final List<StatusChange> statusChanges) {
+		final boolean[] matched = new boolean[positions.length];
+		for (int attribute = 0; attribute < attributes.length; attribute++) {
+			if (!rules.hasRules(attribute)) {
+				continue;
+			}
+
+			final double[] oldValues = attributes[attribute];
+			final double[] newValues = newer.attributes[attribute];
+			Arrays.fill(matched, false);
+			rules.markMatches(attribute, oldValues, positions, newValues, from, matched);
+			for (int i = 0; i < matched.length; i++) {
+				if (matched[i]) {
+					statusChanges.add(StatusChange.attributeChanged(newer.names[from + i],
+							rules.getAttribute(attribute), AttributeRules.format(oldValues[positions[i]]),
+							AttributeRules.format(newValues[from + i])));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the products of a range of this snapshot that are not in a newer snapshot anymore.
+	 * @param newer The newer snapshot.
+	 * @param from The position of the first product of the range in this snapshot.
+	 * @param to The position after the last product of the range in this snapshot.
+	 * @param statusChanges The list to add the changes to.
+	 */
+	private void addRemoved(final StatusSnapshot newer, final int from, final int to,
+							final List<StatusChange> statusChanges) {
+		for (int i = from; i < to; i++) {
+			if (newer.find(getName(i), hashes[i]) == NOT_FOUND) {
+				statusChanges.add(StatusChange.removed(getName(i), dictionary.getAlias(codes[i])));
+			}
+		}
+	}
+
+	/**
+	 * Updates the status of some products in this snapshot. Products that are not in the snapshot yet get added.
+	 * Updates can not remove a product.
+	 * @param updatedStatuses The updated product statuses.
+	 * @return The changes the updates caused. No product counts as added if the snapshot was empty before as there
+	 * is nothing to compare to then. Synchronized, so a snapshot does not change while it gets written.
+	 */
+	synchronized List<StatusChange> apply(final List<ProductStatus> updatedStatuses) {
+		final boolean wasEmpty = size == 0;
+		final double[] oldValues = new double[attributes.length];
+		final List<StatusChange> statusChanges = new ArrayList<>();
+		for (ProductStatus updatedStatus : updatedStatuses) {
+			final String productName = updatedStatus.getProductName();
+			final int hash = hash(productName);
+			final int position = rules.hasRules() ? find(productName, hash) : NOT_FOUND;
+			for (int attribute = 0; position != NOT_FOUND && attribute < attributes.length; attribute++) {
+				oldValues[attribute] = attributes[attribute][position];
+			}
+
+			final int newCode = dictionary.getCode(updatedStatus.getProductStatus());
+			final int oldCode = put(productName, hash, newCode, updatedStatus.getAttributes());
+			if (oldCode == NOT_FOUND) {
+				if (!wasEmpty) {
+					statusChanges.add(StatusChange.added(productName, dictionary.getAlias(newCode)));
+				}
+			} else if (oldCode != newCode) {
+				statusChanges.add(StatusChange.changed(
+						productName, dictionary.getAlias(oldCode), dictionary.getAlias(newCode)
+				));
+			}
+
+			for (int attribute = 0; position != NOT_FOUND && attribute < attributes.length; attribute++) {
+				final double newValue = attributes[attribute][position];
+				if (rules.matches(attribute, oldValues[attribute], newValue)) {
+					statusChanges.add(StatusChange.attributeChanged(productName, rules.getAttribute(attribute),
+							AttributeRules.format(oldValues[attribute]), AttributeRules.format(newValue)));
+				}
+			}
+		}
+
+		return statusChanges;
+	}
+
+	/**
+	 * Writes the snapshot in the format {@link #read(ByteBuffer, StatusDictionary, AttributeRules)} reads: the aliases
+	 * of the status numbers in use, the amount of products, the column of the status numbers, the column of the name
+	 * hashes, the column of the lengths of the names in bytes, all names in UTF-8 one after another, the amount of
+	 * attributes and the name and the column of each attribute.
+	 * @param out The stream to write to.
+	 * @throws IOException if the snapshot can not be written.
+	 */
+	synchronized void write(final DataOutputStream out) throws IOException {
+		int aliasCount = 0;
+		for (int i = 0; i < size; i++) {
+			aliasCount = Math.max(aliasCount, codes[i] + 1);
+		}
+
+		out.writeInt(aliasCount);
+		for (int i = 0; i < aliasCount; i++) {
+			writeText(out, dictionary.getAlias(i));
+		}
+
+		final int[] nameLengths = new int[size];
+		for (int i = 0; i < size; i++) {
+			nameLengths[i] = names[i] != null ?
+					names[i].getBytes(StandardCharsets.UTF_8).length : nameOffsets[i + 1] - nameOffsets[i];
+		}
+
+		out.writeInt(size);
+		writeColumn(out, codes, size);
+		writeColumn(out, hashes, size);
+		writeColumn(out, nameLengths, size);
+		for (int i = 0; i < size; i++) {
+			if (names[i] != null) {
+				out.write(names[i].getBytes(StandardCharsets.UTF_8));
+			} else {
+				out.write(nameBytes, nameOffsets[i], nameLengths[i]);
+			}
+		}
+
+		out.writeInt(attributes.length);
+		for (int i = 0; i < attributes.length; i++) {
+			writeText(out, rules.getAttribute(i));
+			writeColumn(out, attributes[i], size);
+		}
+	}
+
+	/**
+	 * Reads a snapshot that got written by {@link #write(DataOutputStream)}. The status numbers of the snapshot get
+	 * translated to the numbers of the dictionary. The columns and the names get copied in bulk and the hash table
+	 * gets built from the saved hashes. The name strings get created once they are needed. Attribute columns get
+	 * matched to the attributes by name, saved attributes that are not configured anymore get skipped and
+	 * attributes that did not get saved are missing for all products.
+	 * @param buffer The buffer that contains the snapshot at its position.
+	 * @param dictionary The numbers of the status aliases.
+	 * @param rules The numeric attributes and their rules.
+	 * @return The snapshot.
+	 * @throws IllegalArgumentException if the buffer does not contain a valid snapshot.
+	 * @throws java.nio.BufferUnderflowException if the snapshot in the buffer is incomplete.
+	 */
+	static StatusSnapshot read(final ByteBuffer buffer, final StatusDictionary dictionary,
+							   final AttributeRules rules) {
+		final int aliasCount = buffer.getInt();
+		if (aliasCount < 0 || aliasCount > buffer.remaining() / Integer.BYTES) {
+			throw new IllegalArgumentException("Invalid amount of aliases: " + aliasCount);
+		}
+
+		final TextReader textReader = new TextReader();
+		final int[] codeMapping = new int[aliasCount];
+		for (int i = 0; i < aliasCount; i++) {
+			codeMapping[i] = dictionary.getCodeOfAlias(textReader.read(buffer));
+		}
+
+		final int size = buffer.getInt();
+		if (size < 0 || size > buffer.remaining() / (Integer.BYTES * 3)) {
+			throw new IllegalArgumentException("Invalid amount of products: " + size);
+		}
+
+		final StatusSnapshot snapshot = new StatusSnapshot(dictionary, rules, size);
+		final int[] nameOffsets = new int[size + 1];
+		readColumn(buffer, snapshot.codes, size);
+		readColumn(buffer, snapshot.hashes, size);
+		readColumn(buffer, nameOffsets, size);
+		long offset = 0;
+		for (int i = 0; i < size; i++) {
+			final int code = snapshot.codes[i];
+			final int nameLength = nameOffsets[i];
+			if (code < 0 || code >= aliasCount || nameLength < 0) {
+				throw new IllegalArgumentException("Invalid product at position " + i);
+			}
+
+			snapshot.codes[i] = codeMapping[code];
+			nameOffsets[i] = (int) offset;
+			offset += nameLength;
+			if (offset > buffer.remaining()) {
+				throw new IllegalArgumentException("Invalid length of the names: " + offset);
+			}
+		}
+
+		nameOffsets[size] = (int) offset;
+		snapshot.nameBytes = new byte[(int) offset];
+		snapshot.nameOffsets = nameOffsets;
+		buffer.get(snapshot.nameBytes);
+		readAttributes(buffer, snapshot, size, textReader);
+
+		snapshot.size = size;
+		snapshot.rehash(snapshot.slots.length);
+		return snapshot;
+	}
+
+	/**
+	 * Reads the attribute columns of a snapshot.
+	 * @param buffer The buffer that contains the attribute columns at its position.
+	 * @param snapshot The snapshot the columns belong to.
+	 * @param size The amount of products of the snapshot.
+	 * @param textReader The reader of the attribute names.
+	 * @throws IllegalArgumentException if the buffer does not contain valid attribute columns.
+	 */
+	private static void readAttributes(final ByteBuffer buffer, final StatusSnapshot snapshot, final int size,
+									   final TextReader textReader) {
+		final boolean[] read = new boolean[snapshot.attributes.length];
+		final int attributeCount = buffer.getInt();
+		if (attributeCount < 0 || attributeCount > buffer.remaining() / Integer.BYTES) {
+			throw new IllegalArgumentException("Invalid amount of attributes: " + attributeCount);
+		}
+
+		for (int i = 0; i < attributeCount; i++) {
+			final int attribute = snapshot.rules.indexOf(textReader.read(buffer));
+			if ((long) size * Double.BYTES > buffer.remaining()) {
+				throw new IllegalArgumentException("Invalid length of attribute column " + i);
+			}
+
+			if (attribute == -1 || read[attribute]) {
+				buffer.position(buffer.position() + size * Double.BYTES);
+				continue;
+			}
+
+			readColumn(buffer, snapshot.attributes[attribute], size);
+			read[attribute] = true;
+		}
+
+		for (int i = 0; i < read.length; i++) {
+			if (!read[i]) {
+				Arrays.fill(snapshot.attributes[i], Double.NaN);
+			}
+		}
+	}
+
+	/**
+	 * Writes a column of {@code int}s in blocks instead of one by one.
+	 * @param out The stream to write to.
+	 * @param column The column.
+	 * @param length The length of the column.
+	 * @throws IOException if the column can not be written.
+	 */
+	private static void writeColumn(final DataOutputStream out, final int[] column, final int length)
+			throws IOException {
+		final ByteBuffer block = ByteBuffer.allocate(COLUMN_BLOCK_SIZE * Integer.BYTES);
+		for (int start = 0; start < length; start += COLUMN_BLOCK_SIZE) {
+			final int blockLength = Math.min(COLUMN_BLOCK_SIZE, length - start);
+			block.clear();
+			block.asIntBuffer().put(column, start, blockLength);
+			out.write(block.array(), 0, blockLength * Integer.BYTES);
+		}
+	}
+
+	/**
+	 * Writes a column of {@code double}s in blocks instead of one by one.
+	 * @param out The stream to write to.
+	 * @param column The column.
+	 * @param length The length of the column.
+	 * @throws IOException if the column can not be written.
+	 */
+	private static void writeColumn(final DataOutputStream out, final double[] column, final int length)
+			throws IOException {
+		final ByteBuffer block = ByteBuffer.allocate(COLUMN_BLOCK_SIZE * Double.BYTES);
+		for (int start = 0; start < length; start += COLUMN_BLOCK_SIZE) {
+			final int blockLength = Math.min(COLUMN_BLOCK_SIZE, length - start);
+			block.clear();
+			block.asDoubleBuffer().put(column, start, blockLength);
+			out.write(block.array(), 0, blockLength * Double.BYTES);
+		}
+	}
+
+	/**
+	 * Copies a column of {@code int}s out of a buffer and moves the position of the buffer behind it.
+	 * @param buffer The buffer that contains the column at its position.
+	 * @param column The array to copy the column into.
+	 * @param length The length of the column.
+	 */
+	private static void readColumn(final ByteBuffer buffer, final int[] column, final int length) {
+		buffer.asIntBuffer().get(column, 0, length);
+		buffer.position(buffer.position() + length * Integer.BYTES);
+	}
+
+	/**
+	 * Copies a column of {@code double}s out of a buffer and moves the position of the buffer behind it.
+	 * @param buffer The buffer that contains the column at its position.
+	 * @param column The array to copy the column into.
+	 * @param length The length of the column.
+	 */
+	private static void readColumn(final ByteBuffer buffer, final double[] column, final int length) {
+		buffer.asDoubleBuffer().get(column, 0, length);
+		buffer.position(buffer.position() + length * Double.BYTES);
+	}
+
+	/**
+	 * @return {@code true} if the snapshot does not contain any product, {@code false} if it does.
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return The amount of products in the snapshot.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the name of a product and creates the name string first if it only got read as bytes.
+	 * @param position The position of the product.
+	 * @return The name of the product.
+	 */
+	private String getName(final int position) {
+		String name = names[position];
+		if (name == null) {
+			final int offset = nameOffsets[position];
+			name = new String(nameBytes, offset, nameOffsets[position + 1] - offset, StandardCharsets.UTF_8);
+			names[position] = name;
+		}
+
+		return name;
+	}
+
+	/**
+	 * Compares the name of a product to a name. Compares ASCII names that only got read as bytes without creating
+	 * the name string.
+	 * @param position The position of the product.
+	 * @param productName The name to compare to.
+	 * @return {@code true} if the product has the name, {@code false} if not.
+	 */
+	private boolean hasName(final int position, final String productName) {
+		final String name = names[position];
+		if (name != null) {
+			return productName.equals(name);
+		}
+
+		final int offset = nameOffsets[position];
+		final int length = nameOffsets[position + 1] - offset;
+		if (productName.length() > length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			final byte b = nameBytes[offset + i];
+			if (b < 0) {
+				return productName.equals(getName(position));
+			}
+
+			if (i >= productName.length() || productName.charAt(i) != b) {
+				return false;
+			}
+		}
+
+		return productName.length() == length;
+	}
+
+	/**
+	 * Finds the position of a product in the columns. Checks the expected position first.
+	 * @param productName The name of the product.
+	 * @param hash The hash of the name.
+	 * @param expected The position the product probably has.
+	 * @return The position of the product or {@link #NOT_FOUND} if the snapshot does not contain it.
+	 */
+	private int locate(final String productName, final int hash, final int expected) {
+		if (expected < size && hashes[expected] == hash && hasName(expected, productName)) {
+			return expected;
+		}
+
+		return find(productName, hash);
+	}
+
+	/**
+	 * Finds the position of a product in the columns.
+	 * @param productName The name of the product.
+	 * @param hash The hash of the name.
+	 * @return The position of the product or {@link #NOT_FOUND} if the snapshot does not contain it.
+	 */
+	private int find(final String productName, final int hash) {
+		final int mask = slots.length - 1;
+		int slot = hash & mask;
+		int entry;
+		while ((entry = slots[slot]) != 0) {
+			if (hashes[entry - 1] == hash && hasName(entry - 1, productName)) {
+				return entry - 1;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Sets the status and the attributes of a product and adds the product if the snapshot does not contain it yet.
+	 * A product that is already in the snapshot keeps its attributes if there are no values, as status updates of a
+	 * webhook do not carry attributes and would otherwise erase the values of the last status list.
+	 * @param productName The name of the product.
+	 * @param hash The hash of the name.
+	 * @param code The number of the alias of the status.
+	 * @param values The values of the attributes of the product, {@code null} if it does not have any.
+	 * @return The number of the last status of the product or {@link #NOT_FOUND} if the product got added.
+	 */
+	private int put(final String productName, final int hash, final int code, final double[] values) {
+		final int mask = slots.length - 1;
+		int slot = hash & mask;
+		int entry;
+		while ((entry = slots[slot]) != 0) {
+			if (hashes[entry - 1] == hash && hasName(entry - 1, productName)) {
+				final int oldCode = codes[entry - 1];
+				codes[entry - 1] = code;
+				if (values != null) {
+					setAttributes(entry - 1, values);
+				}
+
+				return oldCode;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			codes = Arrays.copyOf(codes, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+			for (int i = 0; i < attributes.length; i++) {
+				attributes[i] = Arrays.copyOf(attributes[i], size * 2);
+			}
+		}
+
+		names[size] = productName;
+		codes[size] = code;
+		hashes[size] = hash;
+		setAttributes(size, values);
+		size++;
+		slots[slot] = size;
+		if (size * 2 > slots.length) {
+			rehash(getSlotCount(names.length));
+		}
+
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Sets the attributes of a product. Attributes the product does not have a value for are missing.
+	 * @param position The position of the product.
+	 * @param values The values of the attributes of the product, {@code null} if it does not have any.
+	 */
+	private void setAttributes(final int position, final double[] values) {
+		for (int i = 0; i < attributes.length; i++) {
+			attributes[i][position] = values != null && i < values.length ? values[i] : Double.NaN;
+		}
+	}
+
+	/**
+	 * Rebuilds the hash table with more slots.
+	 * @param slotCount The new amount of slots, a power of two.
+	 */
+	private void rehash(final int slotCount) {
+		slots = new int[slotCount];
+		final int mask = slotCount - 1;
+		for (int i = 0; i < size; i++) {
+			int slot = hashes[i] & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+
+			slots[slot] = i + 1;
+		}
+	}
+
+	/**
+	 * Calculates the amount of hash table slots for an amount of products, so at most half of the slots are used.
+	 * @param capacity The amount of products.
+	 * @return The amount of slots, a power of two.
+	 */
+	private static int getSlotCount(final int capacity) {
+		return Integer.highestOneBit(capacity * 2 - 1) << 1;
+	}
+
+	/**
+	 * Spreads the hash code of a name, so names that only differ at the end do not end up in neighbouring slots.
+	 * @param productName The name of a product.
+	 * @return The hash of the name.
+	 */
+	private static int hash(final String productName) {
+		final int h = productName.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Writes a text in UTF-8 after its length in bytes.
+	 * @param out The stream to write to.
+	 * @param text The text.
+	 * @throws IOException if the text can not be written.
+	 */
+	private static void writeText(final DataOutputStream out, final String text) throws IOException {
+		final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Calculates where a range starts if products get split into ranges of about the same size.
+	 * @param productCount The amount of products.
+	 * @param rangeCount The amount of ranges.
+	 * @param range The index of the range.
+	 * @return The position of the first product of the range.
+	 */
+	private static int getRangeStart(final int productCount, final int rangeCount, final int range) {
+		return (int) ((long) productCount * range / rangeCount);
+	}
+
+	/**
+	 * Runs comparisons of ranges in a pool and waits until all of them are done.
+	 * @param pool The pool that compares the ranges.
+	 * @param tasks The comparisons of the ranges.
+	 */
+	private static void invokeAll(final ForkJoinPool pool, final List<DiffTask> tasks) {
+		for (DiffTask task : tasks) {
+			pool.execute(task);
+		}
+
+		for (DiffTask task : tasks) {
+			task.join();
+		}
+	}
+
+	/**
+	 * Compares a range of products in the fork-join pool.
+	 */
+	private final class DiffTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final StatusSnapshot newer;
+		private final int from;
+		private final int to;
+		private final boolean removed;
+		private final List<StatusChange> statusChanges;
+		private int kept;
+
+		/**
+		 * @param newer The newer snapshot.
+		 * @param from The position of the first product of the range.
+		 * @param to The position after the last product of the range.
+		 * @param removed {@code true} to look for removed products in a range of this snapshot, {@code false} to
+		 *                look for added and changed products in a range of the newer snapshot.
+		 */
+		private DiffTask(final StatusSnapshot newer, final int from, final int to, final boolean removed) {
+			this.newer = newer;
+			this.from = from;
+			this.to = to;
+			this.removed = removed;
+			this.statusChanges = new ArrayList<>();
+		}
+
+		@Override
+		protected void compute() {
+			if (removed) {
+				addRemoved(newer, from, to, statusChanges);
+			} else {
+				kept = diffRange(newer, from, to, statusChanges);
+			}
+		}
+	}
+
+	/**
+	 * Reads texts written by {@link #writeText(DataOutputStream, String)} and reuses its byte array between them.
+	 */
+	private static final class TextReader {
+
+		private byte[] bytes = new byte[64];
+
+		/**
+		 * @param buffer The buffer that contains the text at its position.
+		 * @return The text.
+		 * @throws IllegalArgumentException if the length of the text is invalid.
+		 */
+		private String read(final ByteBuffer buffer) {
+			final int length = buffer.getInt();
+			if (length < 0 || length > buffer.remaining()) {
+				throw new IllegalArgumentException("Invalid text length: " + length);
+			}
+
+			if (length > bytes.length) {
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+			}
+
+			buffer.get(bytes, 0, length);
+			return new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+}
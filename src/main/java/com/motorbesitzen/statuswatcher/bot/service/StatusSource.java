@@ -0,0 +1,19 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+/**
+ * A source of product statuses. A source either requests the product statuses periodically or receives them as
+ * soon as they change and passes them on to a {@link StatusSink}.
+ */
+public interface StatusSource {
+
+	/**
+	 * Starts passing product statuses to the sink. Must not block.
+	 * @param sink Receives the product statuses of the source.
+	 */
+	void start(StatusSink sink);
+
+	/**
+	 * Stops the source. The sink does not receive any product statuses afterwards.
+	 */
+	void stop();
+}
@@ -0,0 +1,200 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.data.StatusStabilization;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds back changes to statuses that need to be stable for a while, so products that flicker between statuses do
+ * not cause a message in every guild on every flicker. A held change gets sent once the product kept its new status
+ * for the configured amount of checks and time. Checks are all responses and events of the source of the product,
+ * including responses without any change. A change that gets reverted while it is held does not get sent at all, a
+ * product that changes again while it is held starts over with the combined change. Changes of numeric attributes
+ * never get held back.
+ */
+@Component
+class StatusStabilizer {
+
+	private final StatusConfig statusConfig;
+	private final StatusMetrics metrics;
+	private final Map<String, Map<String, HeldChange>> heldChanges;
+
+	@Autowired
+	private StatusStabilizer(final StatusConfig statusConfig, final StatusMetrics metrics) {
+		this.statusConfig = statusConfig;
+		this.metrics = metrics;
+		this.heldChanges = new HashMap<>();
+	}
+
+	/**
+	 * Counts a check of a source and decides which changes get sent now. Returns the changes unchanged if no status
+	 * needs to be stable.
+	 * @param source The name of the source.
+	 * @param statusChanges The changes the check found, can be empty.
+	 * @return The changes that are stable, including held changes of the source that are stable now.
+	 */
+	synchronized List<StatusChange> stabilize(final String source, final List<StatusChange> statusChanges) {
+		final Map<String, HeldChange> held = heldChanges.get(source);
+		if (held == null && !statusConfig.get().hasStabilization()) {
+			return statusChanges;
+		}
+
+		final long now = System.currentTimeMillis();
+		if (held != null) {
+			for (HeldChange heldChange : held.values()) {
+				heldChange.checks++;
+			}
+		}
+
+		final List<StatusChange> stableChanges = new ArrayList<>();
+		for (StatusChange statusChange : statusChanges) {
+			if (statusChange.getType() == StatusChange.Type.ATTRIBUTE) {
+				stableChanges.add(statusChange);
+				continue;
+			}
+
+			final HeldChange heldChange = held != null ? held.remove(statusChange.getProductName()) : null;
+			final StatusChange change = heldChange != null ?
+					StatusChange.combine(heldChange.change, statusChange) : statusChange;
+			if (change == null) {
+				metrics.countCancelledChange();
+				continue;
+			}
+
+			final StatusStabilization stabilization = getStabilization(change.getNewStatus());
+			if (stabilization == null) {
+				stableChanges.add(change);
+				continue;
+			}
+
+			if (heldChange == null) {
+				metrics.countHeldChange();
+			}
+
+			heldChanges.computeIfAbsent(source, key -> new HashMap<>())
+					.put(change.getProductName(), new HeldChange(change, stabilization, now));
+		}
+
+		releaseStable(source, now, stableChanges);
+		return stableChanges;
+	}
+
+	/**
+	 * Takes the held changes that got stable by time since their last check.
+	 * @return The changes that are stable now by the name of their source.
+	 */
+	synchronized Map<String, List<StatusChange>> releaseDue() {
+		if (heldChanges.isEmpty()) {
+			return Map.of();
+		}
+
+		final long now = System.currentTimeMillis();
+		final Map<String, List<StatusChange>> stableChanges = new HashMap<>();
+		for (String source : new ArrayList<>(heldChanges.keySet())) {
+			final List<StatusChange> sourceChanges = new ArrayList<>();
+			releaseStable(source, now, sourceChanges);
+			if (!sourceChanges.isEmpty()) {
+				stableChanges.put(source, sourceChanges);
+			}
+		}
+
+		return stableChanges;
+	}
+
+	/**
+	 * @param source The name of a source.
+	 * @return {@code true} if changes of the source are held back, {@code false} if not.
+	 */
+	synchronized boolean isHolding(final String source) {
+		return heldChanges.containsKey(source);
+	}
+
+	/**
+	 * Drops the held changes of a source that does not get checked anymore.
+	 * @param source The name of the source.
+	 */
+	synchronized void removeSource(final String source) {
+		heldChanges.remove(source);
+	}
+
+	/**
+	 * Moves the held changes of a source that are stable now to a list.
+	 * @param source The name of the source.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @param stableChanges The list that receives the stable changes.
+	 */
+	private void releaseStable(final String source, final long now, final List<StatusChange> stableChanges) {
+		final Map<String, HeldChange> held = heldChanges.get(source);
+		if (held == null) {
+			return;
+		}
+
+		final Iterator<HeldChange> iterator = held.values().iterator();
+		while (iterator.hasNext()) {
+			final HeldChange heldChange = iterator.next();
+			if (heldChange.isStable(now)) {
+				stableChanges.add(heldChange.change);
+				iterator.remove();
+			}
+		}
+
+		if (held.isEmpty()) {
+			heldChanges.remove(source);
+		}
+	}
+
+	/**
+	 * Gets the stabilization of a status. Statuses without a required amount of checks or time do not get held back.
+	 * @param alias The alias of the status, {@code null} if the product got removed.
+	 * @return The stabilization or {@code null} if changes to the status get sent right away.
+	 */
+	private StatusStabilization getStabilization(final String alias) {
+		if (alias == null) {
+			return null;
+		}
+
+		final StatusStabilization stabilization = statusConfig.get().getStabilizationOf(alias);
+		if (stabilization == null || (stabilization.getStablePolls() <= 1 && stabilization.getStableMs() <= 0)) {
+			return null;
+		}
+
+		return stabilization;
+	}
+
+	/**
+	 * A change that waits until its new status is stable.
+	 */
+	private static final class HeldChange {
+
+		private final StatusChange change;
+		private final int stablePolls;
+		private final long stableAt;
+		private int checks;
+
+		/**
+		 * @param change The change.
+		 * @param stabilization How long the new status of the change needs to be stable.
+		 * @param now The time the new status got found.
+		 */
+		private HeldChange(final StatusChange change, final StatusStabilization stabilization, final long now) {
+			this.change = change;
+			this.stablePolls = stabilization.getStablePolls();
+			this.stableAt = now + stabilization.getStableMs();
+			this.checks = 1;
+		}
+
+		/**
+		 * @param now The current time in milliseconds since the epoch.
+		 * @return {@code true} if the product kept the new status for the required checks and time.
+		 */
+		private boolean isStable(final long now) {
+			return checks >= stablePolls && now >= stableAt;
+		}
+	}
+}
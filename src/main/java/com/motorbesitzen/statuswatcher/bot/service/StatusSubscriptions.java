@@ -0,0 +1,118 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.data.StatusEndpointList;
+import com.motorbesitzen.statuswatcher.data.dao.DiscordGuild;
+import com.motorbesitzen.statuswatcher.data.repo.DiscordGuildRepo;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the product status APIs guilds set for themselves. Guilds get grouped by the URL of their API, so
+ * each URL gets polled once no matter how many guilds use it. An API gets polled as long as at least one guild uses
+ * it, APIs of the config file get polled anyway.
+ */
+@Service
+public class StatusSubscriptions {
+
+	private final EnvSettings envSettings;
+	private final DiscordGuildRepo guildRepo;
+	private final StatusEndpointList endpointList;
+	private final PollingStatusSource pollingSource;
+	private final Map<String, Set<Long>> guildsByUrl;
+	private final Map<Long, String> urlsByGuild;
+
+	@Autowired
+	private StatusSubscriptions(final EnvSettings envSettings, final DiscordGuildRepo guildRepo,
+								final StatusEndpointList endpointList, final PollingStatusSource pollingSource) {
+		this.envSettings = envSettings;
+		this.guildRepo = guildRepo;
+		this.endpointList = endpointList;
+		this.pollingSource = pollingSource;
+		this.guildsByUrl = new HashMap<>();
+		this.urlsByGuild = new HashMap<>();
+	}
+
+	/**
+	 * Starts to poll the APIs of all guilds in the database.
+	 */
+	void start() {
+		for (DiscordGuild dcGuild : guildRepo.findAll()) {
+			if (dcGuild.hasStatusApiUrl()) {
+				setUrl(dcGuild.getId(), dcGuild.getStatusApiUrl());
+			}
+		}
+
+		LogUtil.logInfo("Guilds use " + getUrlCount() + " own product status API(s).");
+	}
+
+	/**
+	 * Changes the product status API of a guild. Starts to poll the new API if no other guild uses it yet and stops
+	 * to poll the old API if no other guild uses it anymore.
+	 * @param guildId The ID of the guild.
+	 * @param url The URL of the new API, {@code null} if the guild uses the APIs of the config file again.
+	 */
+	public synchronized void setUrl(final long guildId, final String url) {
+		final String oldUrl = url != null ? urlsByGuild.put(guildId, url) : urlsByGuild.remove(guildId);
+		if (oldUrl != null && !oldUrl.equals(url)) {
+			final Set<Long> guilds = guildsByUrl.get(oldUrl);
+			guilds.remove(guildId);
+			if (guilds.isEmpty()) {
+				guildsByUrl.remove(oldUrl);
+				if (!isConfigured(oldUrl)) {
+					pollingSource.removeEndpoint(oldUrl);
+				}
+			}
+		}
+
+		if (url == null || url.equals(oldUrl)) {
+			return;
+		}
+
+		guildsByUrl.computeIfAbsent(url, key -> new HashSet<>()).add(guildId);
+		if (!isConfigured(url)) {
+			pollingSource.addEndpoint(new StatusEndpoint(
+					url, StatusEndpoint.TYPE_POLL, envSettings.getProductStatusRequestInterval(),
+					envSettings.getProductStatusRequestTimeout()
+			));
+		}
+	}
+
+	/**
+	 * @return The amount of different APIs guilds use.
+	 */
+	public synchronized int getUrlCount() {
+		return guildsByUrl.size();
+	}
+
+	/**
+	 * Checks if the changes of a source are meant for all guilds that do not use their own API. That is only the
+	 * case for the APIs of the config file and the webhook. The API of a guild stays private even after no guild
+	 * uses it anymore, so its history and its changes that did not get delivered yet never reach other guilds.
+	 * @param source The name of the source.
+	 * @return {@code true} if guilds without their own API get the changes of the source, {@code false} if not.
+	 */
+	boolean isSharedSource(final String source) {
+		return WebhookStatusSource.isWebhookSource(source) || isConfigured(source);
+	}
+
+	/**
+	 * @param url The URL of an API.
+	 * @return {@code true} if the API is in the config file, {@code false} if not.
+	 */
+	private boolean isConfigured(final String url) {
+		for (StatusEndpoint endpoint : endpointList.getEndpoints()) {
+			if (endpoint.getUrl().equals(url)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,288 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The status source that receives product status updates from APIs that call the bot on changes. Runs a small HTTP
+ * server that accepts a single product status or an array of product statuses per request. Requests get handled one
+ * after another, so the updates of a source reach the sink in the order they got received. The server listens on
+ * the loopback address unless another address is set and only accepts requests without a token on the loopback
+ * address.
+ */
+@Component
+class WebhookStatusSource implements StatusSource {
+
+	private static final String PATH = "/status";
+	private static final String DEFAULT_SOURCE = "webhook";
+	private static final int MAX_SOURCE_LENGTH = 64;
+	private final EnvSettings envSettings;
+	private final ObjectMapper objectMapper;
+	private final StatusMetrics metrics;
+	private HttpServer server;
+	private ExecutorService executor;
+	private volatile StatusSink sink;
+
+	@Autowired
+	private WebhookStatusSource(final EnvSettings envSettings, final ObjectMapper objectMapper,
+								final StatusMetrics metrics) {
+		this.envSettings = envSettings;
+		this.objectMapper = objectMapper;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Checks if the webhook is enabled.
+	 * @return {@code true} if a port for the webhook is set, {@code false} if not.
+	 */
+	boolean isEnabled() {
+		return envSettings.getWebhookPort() != -1;
+	}
+
+	/**
+	 * @param source The name of a source.
+	 * @return {@code true} if the source is the webhook or one of its named sources, {@code false} if not.
+	 */
+	static boolean isWebhookSource(final String source) {
+		return source.equals(DEFAULT_SOURCE) || source.startsWith(DEFAULT_SOURCE + ":");
+	}
+
+	/**
+	 * Starts the HTTP server of the webhook if it is enabled. Refuses to start if the webhook would be reachable
+	 * from other hosts without a token.
+	 */
+	@Override
+	public void start(final StatusSink sink) {
+		if (!isEnabled()) {
+			return;
+		}
+
+		this.sink = sink;
+		final int port = envSettings.getWebhookPort();
+		final String bindAddress = envSettings.getWebhookBindAddress();
+		final InetAddress address;
+		try {
+			address = InetAddress.getByName(bindAddress);
+		} catch (UnknownHostException e) {
+			LogUtil.logError("Could not start the webhook, WEBHOOK_BIND_ADDRESS \"" + bindAddress + "\" is unknown!");
+			return;
+		}
+
+		if (envSettings.getWebhookToken().isBlank() && !address.isLoopbackAddress()) {
+			LogUtil.logError("Could not start the webhook, WEBHOOK_TOKEN needs to be set to listen on " +
+					bindAddress + "!");
+			return;
+		}
+
+		try {
+			server = HttpServer.create(new InetSocketAddress(address, port), 0);
+		} catch (IOException e) {
+			LogUtil.logError("Could not start the webhook on " + bindAddress + ":" + port + "!", e);
+			return;
+		}
+
+		executor = Executors.newSingleThreadExecutor();
+		server.setExecutor(executor);
+		server.createContext(PATH, this::handle);
+		server.start();
+		LogUtil.logInfo("Receiving product status updates on " + bindAddress + ":" + port + " at " + PATH + "...");
+	}
+
+	/**
+	 * Stops the HTTP server of the webhook.
+	 */
+	@Override
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Handles a request to the webhook. Only accepts {@code POST} requests with a valid token and a valid body.
+	 * @param exchange The request and its response.
+	 */
+	private void handle(final HttpExchange exchange) {
+		try {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				respond(exchange, 405, "Only POST requests are allowed.");
+				return;
+			}
+
+			if (!isAuthorized(exchange.getRequestHeaders().getFirst("Authorization"))) {
+				respond(exchange, 401, "Invalid token.");
+				return;
+			}
+
+			final String source = getSource(exchange.getRequestURI().getRawQuery());
+			if (source == null) {
+				respond(exchange, 400, "Invalid source.");
+				return;
+			}
+
+			final byte[] body = readBody(exchange.getRequestBody());
+			if (body == null) {
+				respond(exchange, 413, "Request body exceeds the maximum payload size.");
+				return;
+			}
+
+			final List<ProductStatus> updatedStatuses;
+			try {
+				updatedStatuses = readStatuses(body);
+			} catch (JsonProcessingException e) {
+				respond(exchange, 400, "Invalid product status: " + e.getOriginalMessage());
+				return;
+			} catch (IllegalArgumentException e) {
+				respond(exchange, 400, "Invalid product status: " + e.getMessage());
+				return;
+			}
+
+			metrics.countWebhookUpdate(updatedStatuses.size());
+			sink.onStatusUpdate(source, updatedStatuses);
+			respond(exchange, 202, "Accepted " + updatedStatuses.size() + " product status(es).");
+		} catch (IOException e) {
+			LogUtil.logDebug("Could not answer webhook request: " + e.getMessage());
+		} catch (Exception e) {
+			LogUtil.logError("Unexpected exception:", e);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Checks the token of a request if a token is set. Without a token the server only listens on the loopback
+	 * address.
+	 * @param authorization The value of the {@code Authorization} header, {@code null} if there is none.
+	 * @return {@code true} if no token is set or if the request contains the token, {@code false} if not.
+	 */
+	private boolean isAuthorized(final String authorization) {
+		final String token = envSettings.getWebhookToken();
+		if (token.isBlank()) {
+			return true;
+		}
+
+		final String expected = "Bearer " + token;
+		return authorization != null && MessageDigest.isEqual(
+				expected.getBytes(StandardCharsets.UTF_8), authorization.trim().getBytes(StandardCharsets.UTF_8)
+		);
+	}
+
+	/**
+	 * Reads the name of the source from the query, e.g. {@code ?source=shop}. Each source gets compared to its own
+	 * last product statuses.
+	 * @param query The raw query of the request, {@code null} if there is none.
+	 * @return The name of the source or {@code null} if it is invalid.
+	 */
+	private String getSource(final String query) {
+		if (query == null || !query.startsWith("source=")) {
+			return DEFAULT_SOURCE;
+		}
+
+		final String name = query.substring("source=".length());
+		if (name.isEmpty() || name.length() > MAX_SOURCE_LENGTH || !name.matches("[A-Za-z0-9_.-]+")) {
+			return null;
+		}
+
+		return DEFAULT_SOURCE + ":" + name;
+	}
+
+	/**
+	 * Reads the request body if it is not too big.
+	 * @param in The request body.
+	 * @return The request body or {@code null} if it exceeds the maximum payload size.
+	 * @throws IOException if the request body can not be read.
+	 */
+	private byte[] readBody(final InputStream in) throws IOException {
+		final long maxPayloadSize = envSettings.getProductStatusMaxPayloadSize();
+		final byte[] body = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxPayloadSize + 1));
+		return body.length > maxPayloadSize ? null : body;
+	}
+
+	/**
+	 * Reads the product statuses of a request body. The body can either be a single product status or an array of
+	 * product statuses. Each product status needs to be an object with a name and a status that are not blank.
+	 * @param body The request body.
+	 * @return The product statuses in the request body.
+	 * @throws JsonProcessingException if the body is not valid JSON or if a product status is incomplete.
+	 * @throws IllegalArgumentException if the body does not contain any product status, if a product status is not
+	 * an object or if a name or a status is {@code null} or blank.
+	 */
+	private List<ProductStatus> readStatuses(final byte[] body) throws IOException {
+		final JsonNode root = objectMapper.readTree(body);
+		final List<ProductStatus> statusList = new ArrayList<>();
+		if (root != null && root.isArray()) {
+			for (JsonNode node : root) {
+				statusList.add(readStatus(node));
+			}
+		} else if (root != null && root.isObject()) {
+			statusList.add(readStatus(root));
+		}
+
+		if (statusList.isEmpty()) {
+			throw new IllegalArgumentException("no product status in request");
+		}
+
+		return statusList;
+	}
+
+	/**
+	 * Reads a single product status.
+	 * @param node The JSON of the product status.
+	 * @return The product status.
+	 * @throws JsonProcessingException if the product status is incomplete.
+	 * @throws IllegalArgumentException if the product status is not an object or if the name or the status is
+	 * {@code null} or blank.
+	 */
+	private ProductStatus readStatus(final JsonNode node) throws JsonProcessingException {
+		if (node == null || !node.isObject()) {
+			throw new IllegalArgumentException("product status must be an object");
+		}
+
+		final ProductStatus productStatus = objectMapper.treeToValue(node, ProductStatus.class);
+		final String productName = productStatus.getProductName();
+		final String status = productStatus.getProductStatus();
+		if (productName == null || productName.isBlank() || status == null || status.isBlank()) {
+			throw new IllegalArgumentException("product name and status must not be blank");
+		}
+
+		return productStatus;
+	}
+
+	/**
+	 * Sends a plain text response.
+	 * @param exchange The request and its response.
+	 * @param statusCode The HTTP status code of the response.
+	 * @param message The text of the response.
+	 * @throws IOException if the response can not be sent.
+	 */
+	private void respond(final HttpExchange exchange, final int statusCode, final String message) throws IOException {
+		final byte[] body = message.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(statusCode, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
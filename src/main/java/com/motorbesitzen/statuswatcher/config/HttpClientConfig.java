@@ -0,0 +1,156 @@
+package com.motorbesitzen.statuswatcher.config;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.CachingDnsResolver;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.data.StatusEndpointList;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the HTTP clients that are used to request the product status API. The clients live as long as the
+ * application does and reuse their connections, so a request does not need a new TCP and TLS handshake each time.
+ */
+@Configuration
+class HttpClientConfig {
+
+	private static final int REQUEST_TIMEOUT_MS = 10000;
+	private static final int MAX_CONNECTIONS_TOTAL = 20;
+	private static final int MAX_CONNECTIONS_PER_ROUTE = 5;
+	private static final long CONNECTION_TTL_MS = 300000;
+	private static final long MAX_KEEP_ALIVE_MS = 60000;
+	private static final long MAX_IDLE_MS = 90000;
+	private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+	private static final long DNS_CACHE_TTL_MS = 300000;
+
+	/**
+	 * Creates the pooled HTTP client. Spring closes the client on shutdown which also shuts down the connection
+	 * pool and the background thread that evicts idle connections. Content compression gets handled by the
+	 * product status API request itself so it can count the transferred bytes and support more encodings.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @param dnsResolver The resolver that caches and checks the addresses of the API hosts.
+	 * @return The HTTP client to use for any request to the product status API.
+	 */
+	@Bean(destroyMethod = "close")
+	CloseableHttpClient createHttpClient(final EnvSettings envSettings, final CachingDnsResolver dnsResolver) {
+		final RequestConfig config = RequestConfig.custom()
+				.setConnectTimeout(REQUEST_TIMEOUT_MS)
+				.setConnectionRequestTimeout(REQUEST_TIMEOUT_MS)
+				.setSocketTimeout(REQUEST_TIMEOUT_MS)
+				.build();
+		return HttpClients.custom()
+				.setConnectionManager(createConnectionManager(envSettings, dnsResolver))
+				.setDefaultRequestConfig(config)
+				.setKeepAliveStrategy(createKeepAliveStrategy())
+				.disableContentCompression()
+				.evictExpiredConnections()
+				.evictIdleConnections(MAX_IDLE_MS, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	/**
+	 * Creates the HTTP client for asynchronous requests. Waiting for a response does not occupy a thread, the
+	 * small thread pool only processes complete responses. The threads are daemon threads, so they do not keep the
+	 * application alive on shutdown.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @return The HTTP client to use for asynchronous requests to the product status API.
+	 */
+	@Bean
+	HttpClient createAsyncHttpClient(final EnvSettings envSettings) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return HttpClient.newBuilder()
+				.connectTimeout(Duration.ofMillis(REQUEST_TIMEOUT_MS))
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.executor(Executors.newFixedThreadPool(envSettings.getMaxConcurrentRequests(), runnable -> {
+					final Thread thread = new Thread(runnable, "async-status-request-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}))
+				.build();
+	}
+
+	/**
+	 * Creates the resolver that caches the resolved addresses of the API hosts. Only the hosts of the config file may
+	 * resolve to internal addresses, the hosts of the APIs guilds set for themselves need to stay public.
+	 *
+	 * @param endpointList The product status APIs of the config file.
+	 * @return The DNS resolver for the HTTP clients.
+	 */
+	@Bean
+	CachingDnsResolver createDnsResolver(final StatusEndpointList endpointList) {
+		final Set<String> trustedHosts = new HashSet<>();
+		for (StatusEndpoint endpoint : endpointList.getEndpoints()) {
+			try {
+				final String host = URI.create(endpoint.getUrl()).getHost();
+				if (host != null) {
+					trustedHosts.add(host.toLowerCase(Locale.ROOT));
+				}
+			} catch (IllegalArgumentException e) {
+				// invalid URLs never get requested
+			}
+		}
+
+		return new CachingDnsResolver(DNS_CACHE_TTL_MS, trustedHosts);
+	}
+
+	/**
+	 * Creates the connection pool which uses the caching resolver for the API hosts. A host gets enough
+	 * connections to request as many pages of a paginated API at the same time as the page concurrency allows.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @param dnsResolver The resolver that caches and checks the addresses of the API hosts.
+	 * @return The connection manager for the HTTP client.
+	 */
+	private PoolingHttpClientConnectionManager createConnectionManager(final EnvSettings envSettings,
+																	   final CachingDnsResolver dnsResolver) {
+		final Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", SSLConnectionSocketFactory.getSocketFactory())
+				.build();
+		final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+				socketFactoryRegistry, null, null, dnsResolver,
+				CONNECTION_TTL_MS, TimeUnit.MILLISECONDS
+		);
+		final int maxConnectionsPerRoute = Math.max(MAX_CONNECTIONS_PER_ROUTE, envSettings.getPageConcurrency());
+		connectionManager.setMaxTotal(Math.max(MAX_CONNECTIONS_TOTAL, maxConnectionsPerRoute));
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+		return connectionManager;
+	}
+
+	/**
+	 * Uses the keep alive duration the server sends but limits it so connections do not stay open forever if
+	 * the server does not send one.
+	 *
+	 * @return The keep alive strategy for the HTTP client.
+	 */
+	private ConnectionKeepAliveStrategy createKeepAliveStrategy() {
+		return (response, context) -> {
+			final long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return keepAliveMs > 0 ? Math.min(keepAliveMs, MAX_KEEP_ALIVE_MS) : MAX_KEEP_ALIVE_MS;
+		};
+	}
+}
@@ -0,0 +1,322 @@
+package com.motorbesitzen.statuswatcher.config;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.scraper.HtmlSelector;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.data.StatusDelta;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.motorbesitzen.statuswatcher.data.StatusEndpointList;
+import com.motorbesitzen.statuswatcher.data.StatusHtml;
+import com.motorbesitzen.statuswatcher.data.StatusPagination;
+import com.motorbesitzen.statuswatcher.util.LogUtil;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Configures the list of product status APIs the bot requests.
+ */
+@Configuration
+class StatusEndpointListConfig {
+
+	private static final String CONFIG_FILE = "statusendpoints.json";
+	private static final long MIN_INTERVAL_MS = 1000;
+	private static final long MAX_INTERVAL_MS = 86400000;
+	private static final int MIN_TIMEOUT_MS = 1000;
+	private static final int MAX_TIMEOUT_MS = 60000;
+	private static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int MAX_PAGE_SIZE = 10000;
+	private static final int DEFAULT_RESYNC_EVERY = 60;
+	private static final int MAX_RESYNC_EVERY = 10000;
+
+	/**
+	 * Imports the product status APIs from the JSON config file. Uses the URLs in the environment variables if the
+	 * file does not exist or contains any error. Intervals and timeouts that are not set or out of range get the
+	 * values of the environment variables or get limited to the allowed range.
+	 *
+	 * @param mapper      A ObjectMapper to marshall the JSON of the config file.
+	 * @param envSettings The class that handles the environment variables.
+	 * @return The list of product status APIs.
+	 */
+	@Bean
+	StatusEndpointList createStatusEndpointList(final ObjectMapper mapper, final EnvSettings envSettings) {
+		final StatusEndpointList endpointList = readConfigFile(mapper, envSettings);
+		final List<StatusEndpoint> endpoints = new ArrayList<>();
+		for (StatusEndpoint endpoint : endpointList.getEndpoints()) {
+			if (endpoint.getUrl() == null || endpoint.getUrl().isBlank()) {
+				continue;
+			}
+
+			endpoint.setUrl(endpoint.getUrl().trim());
+			final String type = validType(endpoint);
+			if (type == null) {
+				LogUtil.logError("Unknown type \"" + endpoint.getType() + "\" of " + endpoint.getUrl() + ", ignoring it.");
+				continue;
+			}
+
+			endpoint.setType(type);
+			if (!validPagination(endpoint)) {
+				LogUtil.logError("Invalid pagination of " + endpoint.getUrl() + ", ignoring it.");
+				continue;
+			}
+
+			if (!validDelta(endpoint)) {
+				LogUtil.logError("Invalid delta of " + endpoint.getUrl() + ", ignoring it.");
+				continue;
+			}
+
+			if (!validHtml(endpoint)) {
+				LogUtil.logError("Invalid HTML selectors of " + endpoint.getUrl() + ", ignoring it.");
+				continue;
+			}
+
+			endpoint.setRequestIntervalMs(validInterval(endpoint.getRequestIntervalMs(), envSettings));
+			endpoint.setRequestTimeoutMs(validTimeout(endpoint.getRequestTimeoutMs(), envSettings));
+			endpoints.add(endpoint);
+		}
+
+		return new StatusEndpointList(endpoints);
+	}
+
+	/**
+	 * Reads the config file or creates the list from the environment variables.
+	 *
+	 * @param mapper      A ObjectMapper to marshall the JSON of the config file.
+	 * @param envSettings The class that handles the environment variables.
+	 * @return The unvalidated list of product status APIs.
+	 */
+	private StatusEndpointList readConfigFile(final ObjectMapper mapper, final EnvSettings envSettings) {
+		final Path configPath = Paths.get(CONFIG_FILE);
+		final File configFile = configPath.toFile();
+		if (!configFile.exists()) {
+			return createFromEnvironment(envSettings);
+		}
+
+		try {
+			return mapper.readValue(configFile, StatusEndpointList.class);
+		} catch (IOException e) {
+			LogUtil.logError("Could not read " + CONFIG_FILE + ", using PRODUCT_STATUS_API_URL instead:", e);
+			return createFromEnvironment(envSettings);
+		}
+	}
+
+	/**
+	 * Creates a product status API for each URL in the environment variables.
+	 *
+	 * @param envSettings The class that handles the environment variables.
+	 * @return The list of product status APIs.
+	 */
+	private StatusEndpointList createFromEnvironment(final EnvSettings envSettings) {
+		final List<StatusEndpoint> endpoints = new ArrayList<>();
+		for (String url : envSettings.getProductStatusApiUrls()) {
+			endpoints.add(new StatusEndpoint(url, null, 0, 0));
+		}
+
+		return new StatusEndpointList(endpoints);
+	}
+
+	/**
+	 * Checks the type of a product status API. If no type is set WebSocket URLs get streamed and any other URL gets
+	 * requested periodically.
+	 *
+	 * @param endpoint The product status API.
+	 * @return The type of the product status API or {@code null} if the type is unknown.
+	 */
+	private String validType(final StatusEndpoint endpoint) {
+		final String type = endpoint.getType();
+		if (type == null || type.isBlank()) {
+			final String url = endpoint.getUrl().toLowerCase(Locale.ROOT);
+			return url.startsWith("ws://") || url.startsWith("wss://") ? StatusEndpoint.TYPE_WEBSOCKET : StatusEndpoint.TYPE_POLL;
+		}
+
+		final String normalizedType = type.trim().toLowerCase(Locale.ROOT);
+		switch (normalizedType) {
+			case StatusEndpoint.TYPE_POLL:
+			case StatusEndpoint.TYPE_SSE:
+			case StatusEndpoint.TYPE_WEBSOCKET:
+				return normalizedType;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Checks the pagination of a product status API and fills in the defaults of its type. Streaming APIs do not
+	 * get paginated.
+	 *
+	 * @param endpoint The product status API.
+	 * @return {@code true} if the pagination is valid or if there is none, {@code false} if it is invalid.
+	 */
+	private boolean validPagination(final StatusEndpoint endpoint) {
+		final StatusPagination pagination = endpoint.getPagination();
+		if (pagination == null) {
+			return true;
+		}
+
+		if (!endpoint.isPolled()) {
+			LogUtil.logWarning("Streamed API " + endpoint.getUrl() + " can not be paginated, ignoring its pagination.");
+			endpoint.setPagination(null);
+			return true;
+		}
+
+		final String type = pagination.getType() != null ? pagination.getType().trim().toLowerCase(Locale.ROOT) : "";
+		switch (type) {
+			case StatusPagination.TYPE_LINK:
+				break;
+			case StatusPagination.TYPE_PAGE:
+				pagination.setParam(validParam(pagination.getParam(), "page"));
+				pagination.setSizeParam(validParam(pagination.getSizeParam(), null));
+				if (pagination.getFirstPage() == null || pagination.getFirstPage() < 0) {
+					pagination.setFirstPage(1);
+				}
+				break;
+			case StatusPagination.TYPE_OFFSET:
+				pagination.setParam(validParam(pagination.getParam(), "offset"));
+				pagination.setSizeParam(validParam(pagination.getSizeParam(), "limit"));
+				break;
+			case StatusPagination.TYPE_CURSOR:
+				pagination.setParam(validParam(pagination.getParam(), "cursor"));
+				if (pagination.getCursorPath() == null) {
+					return false;
+				}
+				break;
+			default:
+				return false;
+		}
+
+		pagination.setType(type);
+		pagination.setSize(pagination.getSize() <= 0 ? DEFAULT_PAGE_SIZE : Math.min(MAX_PAGE_SIZE, pagination.getSize()));
+		return isValidPointer(pagination.getTotalPath()) && isValidPointer(pagination.getCursorPath());
+	}
+
+	/**
+	 * Checks the delta of a product status API and fills in its defaults. Only APIs that get requested periodically
+	 * and are not paginated can return their changes.
+	 *
+	 * @param endpoint The product status API.
+	 * @return {@code true} if the delta is valid or if there is none, {@code false} if it is invalid.
+	 */
+	private boolean validDelta(final StatusEndpoint endpoint) {
+		final StatusDelta delta = endpoint.getDelta();
+		if (delta == null) {
+			return true;
+		}
+
+		if (!endpoint.isPolled() || endpoint.getPagination() != null) {
+			LogUtil.logWarning("Streamed or paginated API " + endpoint.getUrl() + " can not request its changes, ignoring its delta.");
+			endpoint.setDelta(null);
+			return true;
+		}
+
+		delta.setParam(validParam(delta.getParam(), "since"));
+		delta.setResyncEvery(delta.getResyncEvery() <= 0 ? DEFAULT_RESYNC_EVERY : Math.min(MAX_RESYNC_EVERY, delta.getResyncEvery()));
+		return isValidPointer(delta.getCursorPath());
+	}
+
+	/**
+	 * Checks the selectors of an HTML status page. Only pages that get requested periodically can be HTML and they
+	 * can not point to values with JSON Pointers.
+	 *
+	 * @param endpoint The product status API.
+	 * @return {@code true} if the selectors are valid or if the API responds with JSON, {@code false} if they are
+	 * invalid.
+	 */
+	private boolean validHtml(final StatusEndpoint endpoint) {
+		final StatusHtml html = endpoint.getHtml();
+		if (html == null) {
+			return true;
+		}
+
+		if (!endpoint.isPolled()) {
+			LogUtil.logWarning("Streamed API " + endpoint.getUrl() + " can not be an HTML page, ignoring its selectors.");
+			endpoint.setHtml(null);
+			return true;
+		}
+
+		final StatusPagination pagination = endpoint.getPagination();
+		final StatusDelta delta = endpoint.getDelta();
+		if ((pagination != null && (pagination.getTotalPath() != null || pagination.getCursorPath() != null)) ||
+				(delta != null && delta.getCursorPath() != null)) {
+			LogUtil.logWarning("HTML page " + endpoint.getUrl() + " can not use JSON Pointers.");
+			return false;
+		}
+
+		try {
+			HtmlSelector.compile(html.getProductSelector());
+			HtmlSelector.compile(html.getNameSelector());
+			HtmlSelector.compile(html.getStatusSelector());
+			return true;
+		} catch (IllegalArgumentException e) {
+			LogUtil.logWarning(e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Uses the default name of a query parameter if the name is not set.
+	 *
+	 * @param param        The name of the query parameter.
+	 * @param defaultParam The default name of the query parameter, can be {@code null}.
+	 * @return The name of the query parameter.
+	 */
+	private String validParam(final String param, final String defaultParam) {
+		return param == null || param.isBlank() ? defaultParam : param.trim();
+	}
+
+	/**
+	 * Checks if a JSON Pointer is valid.
+	 *
+	 * @param pointer The JSON Pointer, can be {@code null}.
+	 * @return {@code true} if the pointer is valid or {@code null}, {@code false} if it is invalid.
+	 */
+	private boolean isValidPointer(final String pointer) {
+		if (pointer == null) {
+			return true;
+		}
+
+		try {
+			JsonPointer.compile(pointer);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Uses the interval of the environment variables if the interval is not set and limits it to the allowed range.
+	 *
+	 * @param intervalMs  The interval in milliseconds.
+	 * @param envSettings The class that handles the environment variables.
+	 * @return A valid interval in milliseconds.
+	 */
+	private long validInterval(final long intervalMs, final EnvSettings envSettings) {
+		if (intervalMs <= 0) {
+			return envSettings.getProductStatusRequestInterval();
+		}
+
+		return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, intervalMs));
+	}
+
+	/**
+	 * Uses the timeout of the environment variables if the timeout is not set and limits it to the allowed range.
+	 *
+	 * @param timeoutMs   The timeout in milliseconds.
+	 * @param envSettings The class that handles the environment variables.
+	 * @return A valid timeout in milliseconds.
+	 */
+	private int validTimeout(final int timeoutMs, final EnvSettings envSettings) {
+		if (timeoutMs <= 0) {
+			return envSettings.getProductStatusRequestTimeout();
+		}
+
+		return Math.max(MIN_TIMEOUT_MS, Math.min(MAX_TIMEOUT_MS, timeoutMs));
+	}
+}
@@ -0,0 +1,68 @@
+package com.motorbesitzen.statuswatcher.data;
+
+/**
+ * Describes when a change of a numeric attribute of a product, e.g. its stock or its price, gets reported.
+ */
+public class AttributeRule {
+
+	private String attribute;
+	private Double below;
+	private Double above;
+	private Double changePercent;
+
+	// jackson
+	protected AttributeRule() {
+	}
+
+	public AttributeRule(String attribute, Double below, Double above, Double changePercent) {
+		this.attribute = attribute;
+		this.below = below;
+		this.above = above;
+		this.changePercent = changePercent;
+	}
+
+	/**
+	 * @return The name of the field of the attribute as set in PRODUCT_STATUS_ATTRIBUTE_FIELDS.
+	 */
+	public String getAttribute() {
+		return attribute;
+	}
+
+	private void setAttribute(String attribute) {
+		this.attribute = attribute;
+	}
+
+	/**
+	 * @return The value the attribute needs to drop below to get reported, {@code null} if dropping does not matter.
+	 */
+	public Double getBelow() {
+		return below;
+	}
+
+	private void setBelow(Double below) {
+		this.below = below;
+	}
+
+	/**
+	 * @return The value the attribute needs to rise above to get reported, {@code null} if rising does not matter.
+	 */
+	public Double getAbove() {
+		return above;
+	}
+
+	private void setAbove(Double above) {
+		this.above = above;
+	}
+
+	/**
+	 * @return By how many percent of its last value the attribute needs to change to get reported, {@code null} if
+	 * the size of a change does not matter.
+	 */
+	public Double getChangePercent() {
+		return changePercent;
+	}
+
+	private void setChangePercent(Double changePercent) {
+		this.changePercent = changePercent;
+	}
+}
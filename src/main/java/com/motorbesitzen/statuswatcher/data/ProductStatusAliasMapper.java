@@ -1,20 +1,37 @@
 package com.motorbesitzen.statuswatcher.data;
 
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * The object that holds the aliases of the mapped status names.
+ * The object that holds the aliases of the mapped status names, how long a status needs to be stable before changes
+ * to it get sent and which changes of numeric product attributes get sent. A mapper can not be changed after it got
+ * created, a changed configuration file results in a new mapper.
  */
 public class ProductStatusAliasMapper {
 
-	private HashMap<String, String> statusAliasMapping;
+	private Map<String, String> statusAliasMapping;
+	private Map<String, StatusStabilization> statusStabilization;
+	private List<AttributeRule> attributeRules;
 
 	// jackson
 	protected ProductStatusAliasMapper() {
+		this(null, null, null);
 	}
 
-	public ProductStatusAliasMapper(HashMap<String, String> statusAliasMapping) {
-		this.statusAliasMapping = statusAliasMapping;
+	public ProductStatusAliasMapper(Map<String, String> statusAliasMapping,
+									Map<String, StatusStabilization> statusStabilization,
+									List<AttributeRule> attributeRules) {
+		setStatusAliasMapping(statusAliasMapping);
+		setStatusStabilization(statusStabilization);
+		setAttributeRules(attributeRules);
+	}
+
+	/**
+	 * @return A mapper without any aliases, stabilizations or attribute rules.
+	 */
+	public static ProductStatusAliasMapper empty() {
+		return new ProductStatusAliasMapper(null, null, null);
 	}
 
 	/**
@@ -31,11 +48,53 @@ public class ProductStatusAliasMapper {
 		return alias;
 	}
 
-	public HashMap<String, String> getStatusAliasMapping() {
+	/**
+	 * Gets how long a product needs to keep a status before the change to that status gets sent.
+	 * @param alias The alias of the status.
+	 * @return The stabilization of the status or {@code null} if changes to the status get sent right away.
+	 */
+	public StatusStabilization getStabilizationOf(final String alias) {
+		return statusStabilization.get(alias);
+	}
+
+	/**
+	 * @return {@code true} if changes to at least one status only get sent once the status is stable, {@code false}
+	 * if all changes get sent right away.
+	 */
+	public boolean hasStabilization() {
+		return !statusStabilization.isEmpty();
+	}
+
+	/**
+	 * @return The aliases by the status names the API uses, can not be changed.
+	 */
+	public Map<String, String> getStatusAliasMapping() {
 		return statusAliasMapping;
 	}
 
-	public void setStatusAliasMapping(HashMap<String, String> statusAliasMapping) {
-		this.statusAliasMapping = statusAliasMapping;
+	private void setStatusAliasMapping(Map<String, String> statusAliasMapping) {
+		this.statusAliasMapping = statusAliasMapping != null ? Map.copyOf(statusAliasMapping) : Map.of();
+	}
+
+	/**
+	 * @return The stabilizations by the aliases of their statuses, can not be changed.
+	 */
+	public Map<String, StatusStabilization> getStatusStabilization() {
+		return statusStabilization;
+	}
+
+	private void setStatusStabilization(Map<String, StatusStabilization> statusStabilization) {
+		this.statusStabilization = statusStabilization != null ? Map.copyOf(statusStabilization) : Map.of();
+	}
+
+	/**
+	 * @return The rules of the numeric product attributes, empty if there are none. Can not be changed.
+	 */
+	public List<AttributeRule> getAttributeRules() {
+		return attributeRules;
+	}
+
+	private void setAttributeRules(List<AttributeRule> attributeRules) {
+		this.attributeRules = attributeRules != null ? List.copyOf(attributeRules) : List.of();
 	}
 }
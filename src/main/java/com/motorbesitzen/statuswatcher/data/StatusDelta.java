@@ -0,0 +1,55 @@
+package com.motorbesitzen.statuswatcher.data;
+
+/**
+ * Describes how a product status API returns only the products that changed since an earlier request.
+ */
+public class StatusDelta {
+
+	private String param;
+	private String cursorPath;
+	private int resyncEvery;
+
+	// jackson
+	protected StatusDelta() {
+	}
+
+	public StatusDelta(String param, String cursorPath, int resyncEvery) {
+		this.param = param;
+		this.cursorPath = cursorPath;
+		this.resyncEvery = resyncEvery;
+	}
+
+	/**
+	 * @return The query parameter of the cursor or the time the changes are requested since.
+	 */
+	public String getParam() {
+		return param;
+	}
+
+	public void setParam(String param) {
+		this.param = param;
+	}
+
+	/**
+	 * @return The JSON Pointer to the cursor of the next request, {@code null} if the time of the last response
+	 * gets used instead.
+	 */
+	public String getCursorPath() {
+		return cursorPath;
+	}
+
+	public void setCursorPath(String cursorPath) {
+		this.cursorPath = cursorPath;
+	}
+
+	/**
+	 * @return After how many requests of changes the complete status list gets requested again.
+	 */
+	public int getResyncEvery() {
+		return resyncEvery;
+	}
+
+	public void setResyncEvery(int resyncEvery) {
+		this.resyncEvery = resyncEvery;
+	}
+}
@@ -0,0 +1,107 @@
+package com.motorbesitzen.statuswatcher.data;
+
+/**
+ * A product status API the bot either requests periodically or receives a stream of status events from.
+ */
+public class StatusEndpoint {
+
+	public static final String TYPE_POLL = "poll";
+	public static final String TYPE_SSE = "sse";
+	public static final String TYPE_WEBSOCKET = "websocket";
+	private String url;
+	private String type;
+	private long requestIntervalMs;
+	private int requestTimeoutMs;
+	private StatusPagination pagination;
+	private StatusDelta delta;
+	private StatusHtml html;
+
+	// jackson
+	protected StatusEndpoint() {
+	}
+
+	public StatusEndpoint(String url, long requestIntervalMs, int requestTimeoutMs) {
+		this(url, TYPE_POLL, requestIntervalMs, requestTimeoutMs);
+	}
+
+	public StatusEndpoint(String url, String type, long requestIntervalMs, int requestTimeoutMs) {
+		this.url = url;
+		this.type = type;
+		this.requestIntervalMs = requestIntervalMs;
+		this.requestTimeoutMs = requestTimeoutMs;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	/**
+	 * @return {@code true} if the API gets requested periodically, {@code false} if it streams status events.
+	 */
+	public boolean isPolled() {
+		return TYPE_POLL.equals(type);
+	}
+
+	/**
+	 * @return How the API splits its product statuses across several pages, {@code null} if it responds with all
+	 * of them at once.
+	 */
+	public StatusPagination getPagination() {
+		return pagination;
+	}
+
+	public void setPagination(StatusPagination pagination) {
+		this.pagination = pagination;
+	}
+
+	/**
+	 * @return How the API returns only the changed products, {@code null} if it always returns all products.
+	 */
+	public StatusDelta getDelta() {
+		return delta;
+	}
+
+	public void setDelta(StatusDelta delta) {
+		this.delta = delta;
+	}
+
+	/**
+	 * @return Where the product statuses are if the API is an HTML status page, {@code null} if the API responds
+	 * with JSON.
+	 */
+	public StatusHtml getHtml() {
+		return html;
+	}
+
+	public void setHtml(StatusHtml html) {
+		this.html = html;
+	}
+
+	public long getRequestIntervalMs() {
+		return requestIntervalMs;
+	}
+
+	public void setRequestIntervalMs(long requestIntervalMs) {
+		this.requestIntervalMs = requestIntervalMs;
+	}
+
+	public int getRequestTimeoutMs() {
+		return requestTimeoutMs;
+	}
+
+	public void setRequestTimeoutMs(int requestTimeoutMs) {
+		this.requestTimeoutMs = requestTimeoutMs;
+	}
+}
@@ -0,0 +1,29 @@
+package com.motorbesitzen.statuswatcher.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The object that holds all product status APIs the bot requests.
+ */
+public class StatusEndpointList {
+
+	private List<StatusEndpoint> endpoints;
+
+	// jackson
+	protected StatusEndpointList() {
+		this.endpoints = new ArrayList<>();
+	}
+
+	public StatusEndpointList(List<StatusEndpoint> endpoints) {
+		this.endpoints = endpoints;
+	}
+
+	public List<StatusEndpoint> getEndpoints() {
+		return endpoints;
+	}
+
+	public void setEndpoints(List<StatusEndpoint> endpoints) {
+		this.endpoints = endpoints;
+	}
+}
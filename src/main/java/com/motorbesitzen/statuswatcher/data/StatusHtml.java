@@ -0,0 +1,54 @@
+package com.motorbesitzen.statuswatcher.data;
+
+/**
+ * Describes where the product statuses are in an HTML status page.
+ */
+public class StatusHtml {
+
+	private String productSelector;
+	private String nameSelector;
+	private String statusSelector;
+
+	// jackson
+	protected StatusHtml() {
+	}
+
+	public StatusHtml(String productSelector, String nameSelector, String statusSelector) {
+		this.productSelector = productSelector;
+		this.nameSelector = nameSelector;
+		this.statusSelector = statusSelector;
+	}
+
+	/**
+	 * @return The selector of the elements that each contain a single product.
+	 */
+	public String getProductSelector() {
+		return productSelector;
+	}
+
+	public void setProductSelector(String productSelector) {
+		this.productSelector = productSelector;
+	}
+
+	/**
+	 * @return The selector of the element inside of a product element that contains the product name.
+	 */
+	public String getNameSelector() {
+		return nameSelector;
+	}
+
+	public void setNameSelector(String nameSelector) {
+		this.nameSelector = nameSelector;
+	}
+
+	/**
+	 * @return The selector of the element inside of a product element that contains the product status.
+	 */
+	public String getStatusSelector() {
+		return statusSelector;
+	}
+
+	public void setStatusSelector(String statusSelector) {
+		this.statusSelector = statusSelector;
+	}
+}
@@ -0,0 +1,106 @@
+package com.motorbesitzen.statuswatcher.data;
+
+/**
+ * Describes how a product status API splits its product statuses across several pages.
+ */
+public class StatusPagination {
+
+	public static final String TYPE_LINK = "link";
+	public static final String TYPE_PAGE = "page";
+	public static final String TYPE_OFFSET = "offset";
+	public static final String TYPE_CURSOR = "cursor";
+	private String type;
+	private String param;
+	private String sizeParam;
+	private int size;
+	private Integer firstPage;
+	private String totalPath;
+	private String cursorPath;
+
+	// jackson
+	protected StatusPagination() {
+	}
+
+	public StatusPagination(String type, String param, String sizeParam, int size, Integer firstPage,
+							String totalPath, String cursorPath) {
+		this.type = type;
+		this.param = param;
+		this.sizeParam = sizeParam;
+		this.size = size;
+		this.firstPage = firstPage;
+		this.totalPath = totalPath;
+		this.cursorPath = cursorPath;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	/**
+	 * @return The query parameter of the page number, the offset or the cursor.
+	 */
+	public String getParam() {
+		return param;
+	}
+
+	public void setParam(String param) {
+		this.param = param;
+	}
+
+	/**
+	 * @return The query parameter of the page size, {@code null} if the page size does not get sent.
+	 */
+	public String getSizeParam() {
+		return sizeParam;
+	}
+
+	public void setSizeParam(String sizeParam) {
+		this.sizeParam = sizeParam;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * @return The number of the first page of page numbered APIs.
+	 */
+	public Integer getFirstPage() {
+		return firstPage;
+	}
+
+	public void setFirstPage(Integer firstPage) {
+		this.firstPage = firstPage;
+	}
+
+	/**
+	 * @return The JSON Pointer to the amount of pages of page numbered APIs or to the amount of products of offset
+	 * based APIs, {@code null} if the response does not contain it.
+	 */
+	public String getTotalPath() {
+		return totalPath;
+	}
+
+	public void setTotalPath(String totalPath) {
+		this.totalPath = totalPath;
+	}
+
+	/**
+	 * @return The JSON Pointer to the cursor of the next page of cursor based APIs.
+	 */
+	public String getCursorPath() {
+		return cursorPath;
+	}
+
+	public void setCursorPath(String cursorPath) {
+		this.cursorPath = cursorPath;
+	}
+}
@@ -0,0 +1,42 @@
+package com.motorbesitzen.statuswatcher.data;
+
+/**
+ * Describes how long a product needs to keep a status before the change to that status gets sent.
+ */
+public class StatusStabilization {
+
+	private int stablePolls;
+	private long stableMs;
+
+	// jackson
+	protected StatusStabilization() {
+	}
+
+	public StatusStabilization(int stablePolls, long stableMs) {
+		this.stablePolls = stablePolls;
+		this.stableMs = stableMs;
+	}
+
+	/**
+	 * @return In how many consecutive checks of the API a product needs to have the status, including the check that
+	 * found the change. Zero or one if the amount of checks does not matter.
+	 */
+	public int getStablePolls() {
+		return stablePolls;
+	}
+
+	private void setStablePolls(int stablePolls) {
+		this.stablePolls = stablePolls;
+	}
+
+	/**
+	 * @return For how many milliseconds a product needs to have the status, zero if the time does not matter.
+	 */
+	public long getStableMs() {
+		return stableMs;
+	}
+
+	private void setStableMs(long stableMs) {
+		this.stableMs = stableMs;
+	}
+}
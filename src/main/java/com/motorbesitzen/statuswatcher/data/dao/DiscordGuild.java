@@ -15,6 +15,8 @@ public class DiscordGuild {
 
 	private long reactionMessageId;
 
+	private String statusApiUrl;
+
 	// JPA
 	protected DiscordGuild() {
 	}
@@ -58,4 +60,16 @@ public class DiscordGuild {
 	public void setReactionMessageId(long reactionMessageId) {
 		this.reactionMessageId = reactionMessageId;
 	}
+
+	public String getStatusApiUrl() {
+		return statusApiUrl;
+	}
+
+	public void setStatusApiUrl(String statusApiUrl) {
+		this.statusApiUrl = statusApiUrl;
+	}
+
+	public boolean hasStatusApiUrl() {
+		return statusApiUrl != null && !statusApiUrl.isBlank();
+	}
 }
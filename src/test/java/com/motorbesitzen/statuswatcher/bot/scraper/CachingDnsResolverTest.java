@@ -0,0 +1,59 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that only the hosts of the config file may resolve to addresses that are not public.
+ */
+class CachingDnsResolverTest {
+
+	/**
+	 * Loopback, private, link-local, wildcard and unique local IPv6 addresses are not public.
+	 */
+	@Test
+	void detectsInternalAddresses() throws UnknownHostException {
+		for (String address : new String[]{"127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+				"0.0.0.0", "::1", "fe80::1", "fd00::1", "fc00::1", "::"}) {
+			assertFalse(CachingDnsResolver.isPublicAddress(InetAddress.getByName(address)), address);
+		}
+
+		for (String address : new String[]{"93.184.216.34", "8.8.8.8", "2606:4700::1111"}) {
+			assertTrue(CachingDnsResolver.isPublicAddress(InetAddress.getByName(address)), address);
+		}
+	}
+
+	/**
+	 * A host that is not trusted gets rejected as soon as it resolves to an internal address, also if it resolved to
+	 * a public address before. Trusted hosts may resolve to internal addresses.
+	 */
+	@Test
+	void rejectsInternalAddressesOfUntrustedHosts() throws UnknownHostException, InterruptedException {
+		final InetAddress publicAddress = InetAddress.getByName("93.184.216.34");
+		final InetAddress metadataAddress = InetAddress.getByName("169.254.169.254");
+		final Map<String, InetAddress> addresses = new HashMap<>(Map.of(
+				"example.com", publicAddress, "internal.local", InetAddress.getByName("10.0.0.1")
+		));
+		final CachingDnsResolver resolver = new CachingDnsResolver(
+				host -> new InetAddress[]{addresses.get(host.toLowerCase(Locale.ROOT))}, 1, Set.of("internal.local")
+		);
+
+		assertArrayEquals(new InetAddress[]{publicAddress}, resolver.resolve("example.com"));
+		assertArrayEquals(new InetAddress[]{addresses.get("internal.local")}, resolver.resolve("Internal.local"));
+
+		addresses.put("example.com", metadataAddress);
+		Thread.sleep(10);
+		assertThrows(UnknownHostException.class, () -> resolver.resolve("example.com"));
+	}
+}
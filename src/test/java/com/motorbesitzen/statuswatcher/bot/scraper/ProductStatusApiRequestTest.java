@@ -0,0 +1,146 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that responses that exceed the maximum payload size get rejected without reading the rest of them, against
+ * a local HTTP server that never stops sending.
+ */
+class ProductStatusApiRequestTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	private final CountDownLatch disconnected = new CountDownLatch(1);
+	private HttpServer server;
+	private CloseableHttpClient httpClient;
+	private ProductStatusApiRequest apiRequest;
+
+	@BeforeEach
+	void setUp() throws IOException, NoSuchMethodException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/endless", exchange -> sendEndless(exchange, 0, 0));
+		server.createContext("/trickle", exchange -> sendEndless(exchange, 1L << 40, 100));
+		server.start();
+
+		final StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(
+				new MapPropertySource("test", Map.of("PRODUCT_STATUS_MAX_PAYLOAD_BYTES", "1024"))
+		);
+		final EnvSettings envSettings = BeanUtils.instantiateClass(
+				EnvSettings.class.getDeclaredConstructor(Environment.class), environment
+		);
+		final ProductStatusExtractor extractor = BeanUtils.instantiateClass(
+				ProductStatusExtractor.class.getDeclaredConstructor(ObjectMapper.class, EnvSettings.class),
+				new ObjectMapper(), envSettings
+		);
+		httpClient = HttpClients.custom()
+				.setConnectionManager(new PoolingHttpClientConnectionManager())
+				.disableContentCompression()
+				.build();
+		apiRequest = BeanUtils.instantiateClass(
+				ProductStatusApiRequest.class.getDeclaredConstructor(EnvSettings.class, ProductStatusExtractor.class,
+						HtmlStatusExtractor.class, CloseableHttpClient.class, HttpClient.class,
+						CachingDnsResolver.class, StatusMetrics.class),
+				envSettings, extractor, new HtmlStatusExtractor(), httpClient, HttpClient.newHttpClient(),
+				new CachingDnsResolver(0, Set.of(server.getAddress().getHostString())),
+				BeanUtils.instantiateClass(StatusMetrics.class.getDeclaredConstructor())
+		);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		httpClient.close();
+		server.stop(0);
+	}
+
+	/**
+	 * A body without a length that never ends gets rejected once it exceeds the maximum payload size and the
+	 * connection gets dropped instead of reading the rest of the body to reuse it.
+	 */
+	@Test
+	void dropsEndlessBody() throws InterruptedException {
+		final StatusEndpoint endpoint = createEndpoint("/endless");
+
+		assertTimeoutPreemptively(TIMEOUT,
+				() -> assertThrows(IOException.class, () -> apiRequest.getStatusList(endpoint)));
+		assertTrue(disconnected.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+	}
+
+	/**
+	 * A body whose length exceeds the maximum payload size gets rejected before reading it, even if the API sends
+	 * it slowly.
+	 */
+	@Test
+	void dropsBodyWithHugeLength() throws InterruptedException {
+		final StatusEndpoint endpoint = createEndpoint("/trickle");
+
+		assertTimeoutPreemptively(TIMEOUT,
+				() -> assertThrows(IOException.class, () -> apiRequest.getStatusList(endpoint)));
+		assertTrue(disconnected.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+	}
+
+	/**
+	 * @param path The path of the response of the local server.
+	 * @return The endpoint of the response.
+	 */
+	private StatusEndpoint createEndpoint(final String path) {
+		final String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+		return new StatusEndpoint(url, 0, (int) TIMEOUT.toMillis());
+	}
+
+	/**
+	 * Sends a body that never ends until the client closes the connection.
+	 * @param exchange The request and its response.
+	 * @param length The length of the body to announce, 0 to send the body without a length.
+	 * @param delayMs The delay between two parts of the body in milliseconds.
+	 */
+	private void sendEndless(final HttpExchange exchange, final long length, final long delayMs) {
+		final byte[] part = new byte[1024];
+		Arrays.fill(part, (byte) ' ');
+		try (OutputStream out = exchange.getResponseBody()) {
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, length);
+			while (true) {
+				out.write(part);
+				out.flush();
+				Thread.sleep(delayMs);
+			}
+		} catch (IOException e) {
+			disconnected.countDown();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that unexpected exceptions of a request count as failures of the API.
+ */
+class ResilientStatusRequestTest {
+
+	private static final int FAILURE_THRESHOLD = 5;
+	private final StatusEndpoint endpoint = new StatusEndpoint("http://example.com/status", 0, 1000);
+	private ProductStatusApiRequest apiRequest;
+	private ResilientStatusRequest resilientRequest;
+
+	@BeforeEach
+	void setUp() throws NoSuchMethodException {
+		apiRequest = mock(ProductStatusApiRequest.class);
+		final EnvSettings envSettings = BeanUtils.instantiateClass(
+				EnvSettings.class.getDeclaredConstructor(Environment.class), new StandardEnvironment()
+		);
+		resilientRequest = BeanUtils.instantiateClass(
+				ResilientStatusRequest.class.getDeclaredConstructor(EnvSettings.class, ProductStatusApiRequest.class,
+						StatusMetrics.class),
+				envSettings, apiRequest, BeanUtils.instantiateClass(StatusMetrics.class.getDeclaredConstructor())
+		);
+	}
+
+	/**
+	 * A blocking request that fails with a runtime exception opens the circuit breaker like an IO problem does.
+	 */
+	@Test
+	void countsRuntimeExceptionAsFailure() throws IOException {
+		when(apiRequest.getStatusList(endpoint)).thenThrow(new IllegalStateException("broken response"));
+
+		for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+			assertThrows(IllegalStateException.class, () -> resilientRequest.getStatusList(endpoint));
+		}
+
+		assertThrows(CircuitOpenException.class, () -> resilientRequest.getStatusList(endpoint));
+	}
+
+	/**
+	 * An asynchronous request that can not even be sent fails its future and opens the circuit breaker.
+	 */
+	@Test
+	void countsUnsentAsyncRequestAsFailure() {
+		when(apiRequest.prepareStatusListAsync(endpoint)).thenThrow(new IllegalStateException("invalid request"));
+
+		for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+			final CompletionException e = assertThrows(CompletionException.class,
+					() -> resilientRequest.getStatusListAsync(endpoint).join());
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		final CompletionException e = assertThrows(CompletionException.class,
+				() -> resilientRequest.getStatusListAsync(endpoint).join());
+		assertTrue(e.getCause() instanceof CircuitOpenException);
+	}
+}
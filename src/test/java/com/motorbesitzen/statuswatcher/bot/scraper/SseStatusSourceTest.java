@@ -0,0 +1,241 @@
+package com.motorbesitzen.statuswatcher.bot.scraper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.bot.service.EnvSettings;
+import com.motorbesitzen.statuswatcher.bot.service.StatusMetrics;
+import com.motorbesitzen.statuswatcher.bot.service.StatusSink;
+import com.motorbesitzen.statuswatcher.data.StatusEndpoint;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests the event stream parsing and the reconnects of the Server-Sent Events source against a local HTTP server
+ * that sends a prepared event stream per connection.
+ */
+class SseStatusSourceTest {
+
+	private static final long TIMEOUT_SECONDS = 10;
+	private static final String NO_EVENT_ID = "none";
+	private final BlockingQueue<String> lastEventIds = new LinkedBlockingQueue<>();
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+	private final AtomicInteger connections = new AtomicInteger();
+	private HttpServer server;
+	private SseStatusSource source;
+	private List<String> streams;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/events", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (source != null) {
+			source.stop();
+		}
+
+		server.stop(0);
+	}
+
+	/**
+	 * Comments, fields without a space after the colon, data over several lines and both kinds of line breaks get
+	 * parsed as in the specification. Snapshot events replace all product statuses, other events update some.
+	 */
+	@Test
+	void parsesEvents() throws Exception {
+		streams = List.of(
+				": keep-alive\r\n" +
+						"event: snapshot\r\n" +
+						"data: [{\"productName\": \"A\", \"productStatus\": \"in_stock\"},\r\n" +
+						"data:{\"productName\": \"B\", \"productStatus\": \"sold_out\"}]\r\n" +
+						"\r\n" +
+						"data: {\"productName\": \"B\", \"productStatus\": \"in_stock\"}\n" +
+						"\n" +
+						"event: ignored\n" +
+						"\n" +
+						"data: []\n" +
+						"\n" +
+						"data: {\"productName\": \"A\", \"productStatus\": \"sold_out\"}\n" +
+						"\n"
+		);
+
+		startSource(1000);
+
+		assertEquals("list A=in_stock, B=sold_out", nextEvent());
+		assertEquals("update B=in_stock", nextEvent());
+		assertEquals("update A=sold_out", nextEvent());
+	}
+
+	/**
+	 * After the API closed the stream the source reconnects with the ID of the last event, so the API can send the
+	 * events that got missed in the meantime.
+	 */
+	@Test
+	void reconnectsWithLastEventId() throws Exception {
+		streams = List.of(
+				"id: 1\n" +
+						"data: {\"productName\": \"A\", \"productStatus\": \"in_stock\"}\n" +
+						"\n" +
+						"id: 2\n" +
+						"data: {\"productName\": \"A\", \"productStatus\": \"sold_out\"}\n" +
+						"\n",
+				"id: 3\n" +
+						"data: {\"productName\": \"A\", \"productStatus\": \"in_stock\"}\n" +
+						"\n"
+		);
+
+		startSource(1000);
+
+		assertEquals(NO_EVENT_ID, nextLastEventId());
+		assertEquals("update A=in_stock", nextEvent());
+		assertEquals("update A=sold_out", nextEvent());
+		assertEquals("2", nextLastEventId());
+		assertEquals("update A=in_stock", nextEvent());
+		assertEquals("3", nextLastEventId());
+	}
+
+	/**
+	 * An event that exceeds the maximum size gets dropped as a whole and the events after it still get through.
+	 */
+	@Test
+	void dropsOversizedEvent() throws Exception {
+		final String oversizedData = "data: {\"productName\": \"" + "x".repeat(100) +
+				"\", \"productStatus\": \"in_stock\"}\n";
+		streams = List.of(
+				"data: [\n" +
+						oversizedData +
+						oversizedData +
+						"data: ]\n" +
+						"\n" +
+						"data: {\"productName\": \"A\", \"productStatus\": \"in_stock\"}\n" +
+						"\n"
+		);
+
+		startSource(200);
+
+		assertEquals("update A=in_stock", nextEvent());
+		assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Starts a source that receives the event stream of the local server.
+	 * @param maxEventSize The maximum size of a status event in bytes.
+	 */
+	private void startSource(final long maxEventSize) throws NoSuchMethodException {
+		final Environment environment = new StandardEnvironment();
+		final EnvSettings envSettings = BeanUtils.instantiateClass(
+				EnvSettings.class.getDeclaredConstructor(Environment.class), environment
+		);
+		final ProductStatusExtractor extractor = BeanUtils.instantiateClass(
+				ProductStatusExtractor.class.getDeclaredConstructor(ObjectMapper.class, EnvSettings.class),
+				new ObjectMapper(), envSettings
+		);
+		final StatusMetrics metrics = BeanUtils.instantiateClass(StatusMetrics.class.getDeclaredConstructor());
+		final String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() +
+				"/events";
+		final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		source = new SseStatusSource(new StatusEndpoint(url, StatusEndpoint.TYPE_SSE, 0, 5000), httpClient,
+				extractor, metrics, maxEventSize);
+		source.start(new RecordingSink());
+	}
+
+	/**
+	 * Sends the prepared event stream of the connection and closes it. Connections after the prepared ones get an
+	 * empty stream.
+	 * @param exchange The request and its response.
+	 */
+	private void handle(final HttpExchange exchange) throws IOException {
+		final String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+		lastEventIds.add(lastEventId != null ? lastEventId : NO_EVENT_ID);
+		final int connection = connections.getAndIncrement();
+		final String stream = connection < streams.size() ? streams.get(connection) : "";
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(stream.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * @return The next event the sink received.
+	 */
+	private String nextEvent() throws InterruptedException {
+		final String event = events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		if (event == null) {
+			throw new AssertionError("No event received within " + TIMEOUT_SECONDS + " seconds");
+		}
+
+		return event;
+	}
+
+	/**
+	 * @return The {@code Last-Event-ID} of the next connection, {@link #NO_EVENT_ID} if it did not send one.
+	 */
+	private String nextLastEventId() throws InterruptedException {
+		final String lastEventId = lastEventIds.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		if (lastEventId == null) {
+			throw new AssertionError("No connection within " + TIMEOUT_SECONDS + " seconds");
+		}
+
+		return lastEventId;
+	}
+
+	/**
+	 * Records the product statuses it receives as text, e.g. {@code update A=in_stock}.
+	 */
+	private final class RecordingSink implements StatusSink {
+
+		@Override
+		public boolean onStatusList(final String source, final List<ProductStatus> statusList) {
+			events.add("list " + describe(statusList));
+			return true;
+		}
+
+		@Override
+		public boolean onStatusUpdate(final String source, final List<ProductStatus> updatedStatuses) {
+			events.add("update " + describe(updatedStatuses));
+			return true;
+		}
+
+		@Override
+		public void onStatusUnchanged(final String source) {
+			events.add("unchanged");
+		}
+
+		@Override
+		public void onSourceRemoved(final String source) {
+			events.add("removed");
+		}
+
+		private String describe(final List<ProductStatus> statusList) {
+			return statusList.stream()
+					.map(productStatus -> productStatus.getProductName() + "=" + productStatus.getProductStatus())
+					.collect(Collectors.joining(", "));
+		}
+	}
+}
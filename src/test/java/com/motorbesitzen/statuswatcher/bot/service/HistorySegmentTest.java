@@ -0,0 +1,135 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the binary format of the status history segments.
+ */
+class HistorySegmentTest {
+
+	private static final long START_TIME = 1_600_000_000_000L;
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * All changes get read back in the order they got written, with their times, texts and missing statuses.
+	 */
+	@Test
+	void readsWrittenChanges() throws IOException {
+		final List<String> written = new ArrayList<>();
+		final HistorySegment.Writer writer = new HistorySegment.Writer(
+				HistorySegment.newFile(directory, START_TIME), START_TIME
+		);
+		append(writer, written, START_TIME + 5, "shop", "Product A", StatusChange.Type.ADDED, null, "Available");
+		append(writer, written, START_TIME + 10, "shop", "Product A", StatusChange.Type.CHANGED, "Available",
+				"Sold out");
+		writer.flush();
+		append(writer, written, START_TIME + 3, "webhook:äöü", "Prodükt B", StatusChange.Type.ADDED, null,
+				"Available");
+		append(writer, written, START_TIME + 86_400_000, "shop", "Product A", StatusChange.Type.REMOVED, "Sold out",
+				null);
+		final HistorySegment segment = writer.close();
+
+		final List<String> read = new ArrayList<>();
+		final HistorySegment readSegment = HistorySegment.read(segment.getFile(), collect(read));
+
+		assertEquals(written, read);
+		assertEquals(START_TIME + 3, readSegment.getMinTime());
+		assertEquals(START_TIME + 86_400_000, readSegment.getMaxTime());
+		assertEquals(segment.getLength(), readSegment.getLength());
+		assertEquals(Files.size(segment.getFile()), readSegment.getLength());
+	}
+
+	/**
+	 * A segment that got cut off by a crash ends with the last complete change instead of failing, no matter where
+	 * the cut is.
+	 */
+	@Test
+	void readsCompleteChangesOfTruncatedSegment() throws IOException {
+		final List<String> written = new ArrayList<>();
+		final HistorySegment.Writer writer = new HistorySegment.Writer(
+				HistorySegment.newFile(directory, START_TIME), START_TIME
+		);
+		for (int i = 0; i < 20; i++) {
+			append(writer, written, START_TIME + i * 1000L, "shop", "Product " + i % 3, StatusChange.Type.CHANGED,
+					i % 2 == 0 ? "Available" : "Sold out", i % 2 == 0 ? "Sold out" : "Available");
+		}
+
+		final Path file = writer.close().getFile();
+		final byte[] data = Files.readAllBytes(file);
+		final int headerLength = Integer.BYTES * 2 + Long.BYTES;
+		int lastCount = 0;
+		for (int length = headerLength; length < data.length; length++) {
+			final Path truncated = directory.resolve("truncated-" + length);
+			Files.write(truncated, data);
+			try (FileChannel channel = FileChannel.open(truncated, StandardOpenOption.WRITE)) {
+				channel.truncate(length);
+			}
+
+			final List<String> read = new ArrayList<>();
+			HistorySegment.read(truncated, collect(read));
+
+			assertEquals(written.subList(0, read.size()), read);
+			assertTrue(read.size() >= lastCount, "Less changes after " + length + " bytes than before");
+			assertTrue(read.size() < written.size(), "All changes read after " + length + " bytes");
+			lastCount = read.size();
+			Files.delete(truncated);
+		}
+
+		assertEquals(written.size() - 1, lastCount);
+	}
+
+	/**
+	 * Files that are too short for a header or have an unknown header are no segments.
+	 */
+	@Test
+	void rejectsUnknownFormat() throws IOException {
+		final Path empty = Files.createFile(directory.resolve("empty" + HistorySegment.FILE_EXTENSION));
+		final Path other = Files.write(directory.resolve("other" + HistorySegment.FILE_EXTENSION),
+				"not a history segment".getBytes());
+
+		assertThrows(IOException.class, () -> HistorySegment.read(empty, collect(new ArrayList<>())));
+		assertThrows(IOException.class, () -> HistorySegment.read(other, collect(new ArrayList<>())));
+	}
+
+	/**
+	 * Appends a change to a segment and remembers it.
+	 */
+	private static void append(final HistorySegment.Writer writer, final List<String> written, final long time,
+							   final String source, final String productName, final StatusChange.Type type,
+							   final String oldStatus, final String newStatus) {
+		writer.append(time, source, productName, type, oldStatus, newStatus);
+		written.add(describe(time, source, productName, type, oldStatus, newStatus));
+	}
+
+	/**
+	 * @param read The list to add the read changes to.
+	 * @return A handler that adds each read change to the list.
+	 */
+	private static HistorySegment.ChangeHandler collect(final List<String> read) {
+		return (time, source, productName, type, oldStatus, newStatus) ->
+				read.add(describe(time, source, productName, type, oldStatus, newStatus));
+	}
+
+	/**
+	 * @return All values of a change as a single text that is easy to compare.
+	 */
+	private static String describe(final long time, final String source, final String productName,
+								   final StatusChange.Type type, final String oldStatus, final String newStatus) {
+		return time + "|" + source + "|" + productName + "|" + type + "|" + oldStatus + "|" + newStatus;
+	}
+}
@@ -0,0 +1,235 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import com.motorbesitzen.statuswatcher.data.AttributeRule;
+import com.motorbesitzen.statuswatcher.data.ProductStatusAliasMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the binary format of the snapshots.
+ */
+class StatusSnapshotTest {
+
+	private StatusConfig statusConfig;
+	private StatusDictionary dictionary;
+	private AttributeRules rules;
+
+	@BeforeEach
+	void setUp() throws NoSuchMethodException {
+		final StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(
+				new MapPropertySource("test", Map.of("PRODUCT_STATUS_ATTRIBUTE_FIELDS", "stock,price"))
+		);
+		statusConfig = mock(StatusConfig.class);
+		when(statusConfig.get()).thenReturn(new ProductStatusAliasMapper(
+				Map.of("in_stock", "Available", "low_stock", "Available"), null,
+				List.of(new AttributeRule("stock", 5.0, null, null))
+		));
+		dictionary = createDictionary();
+		rules = BeanUtils.instantiateClass(
+				AttributeRules.class.getDeclaredConstructor(EnvSettings.class, StatusConfig.class),
+				new EnvSettings(environment), statusConfig
+		);
+	}
+
+	/**
+	 * A snapshot that got read back has the same products, statuses and attributes as the written one. A read
+	 * snapshot is always the older one of a comparison, as the newer one gets created from a status list.
+	 */
+	@Test
+	void readsWrittenSnapshot() throws IOException {
+		final StatusSnapshot snapshot = StatusSnapshot.of(createStatusList(), dictionary, rules, null);
+
+		final StatusSnapshot readSnapshot = StatusSnapshot.read(ByteBuffer.wrap(write(snapshot)), dictionary, rules);
+
+		assertEquals(snapshot.size(), readSnapshot.size());
+		assertTrue(readSnapshot.diff(snapshot, -1, null).isEmpty());
+	}
+
+	/**
+	 * Status numbers get saved as aliases, so a snapshot can be read with a dictionary that numbers the aliases
+	 * differently, e.g. after a restart.
+	 */
+	@Test
+	void readsSnapshotWithOtherDictionary() throws IOException, NoSuchMethodException {
+		final StatusDictionary otherDictionary = createDictionary();
+		otherDictionary.getCode("sold_out");
+		otherDictionary.getCode("preorder");
+		final List<ProductStatus> statusList = createStatusList();
+		final StatusSnapshot snapshot = StatusSnapshot.of(statusList, dictionary, rules, null);
+
+		final StatusSnapshot readSnapshot = StatusSnapshot.read(ByteBuffer.wrap(write(snapshot)), otherDictionary,
+				rules);
+
+		final StatusSnapshot expected = StatusSnapshot.of(statusList, otherDictionary, rules, readSnapshot);
+		assertTrue(readSnapshot.diff(expected, -1, null).isEmpty());
+	}
+
+	/**
+	 * The attribute columns survive the round trip, so a change of an attribute after a restart still gets found.
+	 */
+	@Test
+	void keepsAttributesOfWrittenSnapshot() throws IOException {
+		final StatusSnapshot snapshot = StatusSnapshot.of(createStatusList(), dictionary, rules, null);
+		final StatusSnapshot readSnapshot = StatusSnapshot.read(ByteBuffer.wrap(write(snapshot)), dictionary, rules);
+		final List<ProductStatus> newStatusList = createStatusList();
+		newStatusList.get(0).getAttributes()[0] = 2;
+		final StatusSnapshot newSnapshot = StatusSnapshot.of(newStatusList, dictionary, rules, readSnapshot);
+
+		final List<StatusChange> statusChanges = readSnapshot.diff(newSnapshot, -1, null);
+
+		assertEquals(1, statusChanges.size());
+		assertEquals(StatusChange.Type.ATTRIBUTE, statusChanges.get(0).getType());
+		assertEquals("Product 0", statusChanges.get(0).getProductName());
+		assertEquals("10", statusChanges.get(0).getOldStatus());
+		assertEquals("2", statusChanges.get(0).getNewStatus());
+	}
+
+	/**
+	 * A status update without attributes keeps the attributes of the product, so the next status list still gets
+	 * compared to the values of the last one.
+	 */
+	@Test
+	void keepsAttributesOnUpdateWithoutAttributes() {
+		final StatusSnapshot snapshot = StatusSnapshot.of(createStatusList(), dictionary, rules, null);
+		snapshot.apply(List.of(new ProductStatus("Product 0", "low_stock")));
+		final List<ProductStatus> newStatusList = createStatusList();
+		newStatusList.get(0).getAttributes()[0] = 2;
+		final StatusSnapshot newSnapshot = StatusSnapshot.of(newStatusList, dictionary, rules, snapshot);
+
+		final List<StatusChange> statusChanges = snapshot.diff(newSnapshot, -1, null);
+
+		assertEquals(1, statusChanges.size());
+		assertEquals(StatusChange.Type.ATTRIBUTE, statusChanges.get(0).getType());
+		assertEquals("10", statusChanges.get(0).getOldStatus());
+		assertEquals("2", statusChanges.get(0).getNewStatus());
+	}
+
+	/**
+	 * An attribute that is not configured anymore gets skipped and one that did not get saved is missing.
+	 */
+	@Test
+	void readsSnapshotWithOtherAttributes() throws IOException, NoSuchMethodException {
+		final StatusSnapshot snapshot = StatusSnapshot.of(createStatusList(), dictionary, rules, null);
+		final StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(
+				new MapPropertySource("test", Map.of("PRODUCT_STATUS_ATTRIBUTE_FIELDS", "rating,stock"))
+		);
+		final AttributeRules otherRules = BeanUtils.instantiateClass(
+				AttributeRules.class.getDeclaredConstructor(EnvSettings.class, StatusConfig.class),
+				new EnvSettings(environment), statusConfig
+		);
+
+		final StatusSnapshot readSnapshot = StatusSnapshot.read(ByteBuffer.wrap(write(snapshot)), dictionary,
+				otherRules);
+		final List<ProductStatus> newStatusList = createStatusList();
+		for (ProductStatus productStatus : newStatusList) {
+			productStatus.setAttributes(new double[]{Double.NaN, productStatus.getAttributes()[0]});
+		}
+
+		newStatusList.get(0).getAttributes()[1] = 2;
+		final StatusSnapshot newSnapshot = StatusSnapshot.of(newStatusList, dictionary, otherRules, readSnapshot);
+		final List<StatusChange> statusChanges = readSnapshot.diff(newSnapshot, -1, null);
+
+		assertEquals(1, statusChanges.size());
+		assertEquals("stock", statusChanges.get(0).getAttribute());
+	}
+
+	/**
+	 * A snapshot that got cut off anywhere gets rejected instead of being read as a snapshot with less products.
+	 */
+	@Test
+	void rejectsTruncatedSnapshot() throws IOException {
+		final byte[] data = write(StatusSnapshot.of(createStatusList(), dictionary, rules, null));
+
+		for (int length = 0; length < data.length; length++) {
+			try {
+				StatusSnapshot.read(ByteBuffer.wrap(data, 0, length), dictionary, rules);
+				fail("Read snapshot that got cut off after " + length + " of " + data.length + " bytes");
+			} catch (IllegalArgumentException | BufferUnderflowException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Invalid amounts and lengths get rejected before anything gets allocated for them.
+	 */
+	@Test
+	void rejectsInvalidCounts() throws IOException {
+		final byte[] data = write(StatusSnapshot.of(createStatusList(), dictionary, rules, null));
+		final ByteBuffer negativeAliases = ByteBuffer.wrap(data.clone()).putInt(0, -1);
+		final ByteBuffer hugeAliases = ByteBuffer.wrap(data.clone()).putInt(0, Integer.MAX_VALUE);
+
+		assertRejected(negativeAliases);
+		assertRejected(hugeAliases);
+		assertFalse(StatusSnapshot.read(ByteBuffer.wrap(data), dictionary, rules).isEmpty());
+	}
+
+	/**
+	 * @param buffer A buffer with an invalid snapshot.
+	 */
+	private void assertRejected(final ByteBuffer buffer) {
+		assertThrows(IllegalArgumentException.class, () -> StatusSnapshot.read(buffer, dictionary, rules));
+	}
+
+	/**
+	 * @return A dictionary with the aliases of the test configuration.
+	 * @throws NoSuchMethodException if the constructor of the dictionary changed.
+	 */
+	private StatusDictionary createDictionary() throws NoSuchMethodException {
+		return BeanUtils.instantiateClass(StatusDictionary.class.getDeclaredConstructor(StatusConfig.class),
+				statusConfig);
+	}
+
+	/**
+	 * @return Products with different statuses, names with multi-byte characters and missing attributes.
+	 */
+	private static List<ProductStatus> createStatusList() {
+		final String[] statuses = {"in_stock", "low_stock", "sold_out", "preorder"};
+		final List<ProductStatus> statusList = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			final ProductStatus productStatus = new ProductStatus(i % 10 == 9 ? "Prodükt " + i : "Product " + i,
+					statuses[i % statuses.length]);
+			productStatus.setAttributes(new double[]{i % 7 == 3 ? Double.NaN : 10 + i % 3, 19.99 + i});
+			statusList.add(productStatus);
+		}
+
+		return statusList;
+	}
+
+	/**
+	 * @param snapshot The snapshot to write.
+	 * @return The written snapshot.
+	 * @throws IOException if the snapshot can not be written.
+	 */
+	private static byte[] write(final StatusSnapshot snapshot) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			snapshot.write(out);
+		}
+
+		return bytes.toByteArray();
+	}
+}
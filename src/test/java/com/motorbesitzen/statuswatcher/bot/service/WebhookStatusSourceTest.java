@@ -0,0 +1,118 @@
+package com.motorbesitzen.statuswatcher.bot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.motorbesitzen.statuswatcher.bot.scraper.entity.ProductStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the webhook answers invalid product statuses with a client error instead of failing on them.
+ */
+class WebhookStatusSourceTest {
+
+	private final List<ProductStatus> receivedStatuses = new CopyOnWriteArrayList<>();
+	private WebhookStatusSource webhook;
+	private URI uri;
+
+	@BeforeEach
+	void setUp() throws IOException, NoSuchMethodException {
+		final int port;
+		try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+			port = socket.getLocalPort();
+		}
+
+		final StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(
+				new MapPropertySource("test", Map.of("WEBHOOK_PORT", String.valueOf(port)))
+		);
+		webhook = BeanUtils.instantiateClass(
+				WebhookStatusSource.class.getDeclaredConstructor(EnvSettings.class, ObjectMapper.class,
+						StatusMetrics.class),
+				new EnvSettings(environment), new ObjectMapper(), new StatusMetrics()
+		);
+		webhook.start(new RecordingSink());
+		uri = URI.create("http://127.0.0.1:" + port + "/status");
+	}
+
+	@AfterEach
+	void tearDown() {
+		webhook.stop();
+	}
+
+	/**
+	 * A valid product status gets passed to the sink.
+	 */
+	@Test
+	void acceptsProductStatus() throws IOException, InterruptedException {
+		assertEquals(202, post("{\"name\":\"Product 0\",\"status\":\"in_stock\"}"));
+		assertEquals(1, receivedStatuses.size());
+	}
+
+	/**
+	 * Explicit {@code null}s get rejected as a bad request without reaching the sink.
+	 */
+	@Test
+	void rejectsNullProductStatus() throws IOException, InterruptedException {
+		assertEquals(400, post("null"));
+		assertEquals(400, post("[null]"));
+		assertEquals(400, post("[{\"name\":\"Product 0\",\"status\":\"in_stock\"},null]"));
+		assertEquals(400, post("[42]"));
+		assertEquals(400, post("{\"productName\":null,\"productStatus\":\"in_stock\"}"));
+		assertEquals(400, post("{\"productName\":\"Product 0\",\"productStatus\":null}"));
+		assertTrue(receivedStatuses.isEmpty());
+	}
+
+	/**
+	 * @param body The request body.
+	 * @return The status code of the response of the webhook.
+	 */
+	private int post(final String body) throws IOException, InterruptedException {
+		final HttpRequest request = HttpRequest.newBuilder(uri)
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	/**
+	 * Keeps the updated product statuses the webhook passes on.
+	 */
+	private final class RecordingSink implements StatusSink {
+
+		@Override
+		public boolean onStatusList(final String source, final List<ProductStatus> statusList) {
+			return false;
+		}
+
+		@Override
+		public boolean onStatusUpdate(final String source, final List<ProductStatus> updatedStatuses) {
+			receivedStatuses.addAll(updatedStatuses);
+			return true;
+		}
+
+		@Override
+		public void onStatusUnchanged(final String source) {
+		}
+
+		@Override
+		public void onSourceRemoved(final String source) {
+		}
+	}
+}